@@ -22,18 +22,26 @@ import de.dittwald.cinemap.repositoryui.movies.*;
 import de.dittwald.cinemap.repositoryui.scenes.Scene;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 @Slf4j
 public class RepositoryClient {
 
+    private static final Pattern NEXT_LINK_PATTERN = Pattern.compile("<([^>]+)>;\\s*rel=\"next\"");
+
     private final WebClientConfig webClientConfig;
 
     public RepositoryClient(WebClientConfig webClientConfig) {
@@ -46,28 +54,46 @@ public class RepositoryClient {
         ObjectMapper objectMapper = new ObjectMapper();
         List<MovieFlat> movies = new ArrayList<>();
 
-        try {
-            objectMapper.readTree(this.webClientConfig.repositoryWebClient()
-                    .get()
-                    .uri("/api/v1/movies?lang=" + LocaleContextHolder.getLocale().getLanguage())
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block()).forEach(node -> {
+        // The repository responds pages of movies and links the next page in the Link header
+        WebClient.RequestHeadersSpec<?> request = this.webClientConfig.repositoryWebClient()
+                .get()
+                .uri("/api/v1/movies?lang=" + LocaleContextHolder.getLocale().getLanguage());
 
-                try {
-                    movies.add(objectMapper.treeToValue(node, MovieFlat.class));
-                } catch (JsonProcessingException e) {
-                    throw new RuntimeException(e);
-                }
+        while (request != null) {
+            ResponseEntity<String> response = request.retrieve().toEntity(String.class).block();
 
-            });
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
+            try {
+                objectMapper.readTree(response.getBody()).forEach(node -> {
+
+                    try {
+                        movies.add(objectMapper.treeToValue(node, MovieFlat.class));
+                    } catch (JsonProcessingException e) {
+                        throw new RuntimeException(e);
+                    }
+
+                });
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException(e);
+            }
+
+            URI nextPage = getNextPage(response.getHeaders());
+            request = nextPage != null ? this.webClientConfig.repositoryWebClient().get().uri(nextPage) : null;
         }
 
         return movies;
     }
 
+    private URI getNextPage(HttpHeaders headers) {
+        String link = headers.getFirst(HttpHeaders.LINK);
+        if (link != null) {
+            Matcher matcher = NEXT_LINK_PATTERN.matcher(link);
+            if (matcher.find()) {
+                return URI.create(matcher.group(1));
+            }
+        }
+        return null;
+    }
+
     // Todo: make reactive
     public MovieFlat getMovie(UUID movieUuid) {
 
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.cache;
+
+import java.util.List;
+
+/**
+ * Regions of the Hibernate second-level cache. Entities and collections name their region explicitly, so all regions
+ * can be created up front.
+ */
+public class CacheRegions {
+    public static final String MOVIE = "movie";
+    public static final String MOVIE_GENRES = "movie.genres";
+    public static final String MOVIE_LOCALIZATIONS = "movie.localized-movies";
+    public static final String LOCALIZED_MOVIE = "localized-movie";
+    public static final String GENRE = "genre";
+    public static final String GENRE_NAMES = "genre.names";
+    public static final String SCENE = "scene";
+    public static final String SCENE_LOCALIZATIONS = "scene.localized-scenes";
+    public static final String LOCALIZED_SCENE = "localized-scene";
+
+    public static final List<String> ENTITY_AND_COLLECTION_REGIONS =
+            List.of(MOVIE, MOVIE_GENRES, MOVIE_LOCALIZATIONS, LOCALIZED_MOVIE, GENRE, GENRE_NAMES, SCENE,
+                    SCENE_LOCALIZATIONS, LOCALIZED_SCENE);
+}
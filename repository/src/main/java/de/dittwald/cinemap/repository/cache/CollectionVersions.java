@@ -0,0 +1,181 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.cache;
+
+import de.dittwald.cinemap.repository.datasource.ReplicaRoutingDataSource;
+import de.dittwald.cinemap.repository.movie.event.GenresRenamedEvent;
+import de.dittwald.cinemap.repository.movie.event.MovieChangedEvent;
+import de.dittwald.cinemap.repository.movie.event.MoviesCreatedEvent;
+import de.dittwald.cinemap.repository.movie.repository.GenreRepository;
+import de.dittwald.cinemap.repository.movie.repository.MovieRepository;
+import de.dittwald.cinemap.repository.scene.event.SceneChangedEvent;
+import de.dittwald.cinemap.repository.scene.repository.SceneRepository;
+import de.dittwald.cinemap.repository.util.CollectionVersion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory versions of the movie, genre and scene collections behind the entity tags of the list endpoints, so
+ * answering a conditional list request reads no table. Each version is the {@link CollectionVersion} of its table,
+ * loaded once from the primary on first use, followed by the number of changes published since then. The counters are
+ * kept in sync via {@link MovieChangedEvent}s, {@link MoviesCreatedEvent}s, {@link GenresRenamedEvent}s and
+ * {@link SceneChangedEvent}s.
+ * <p>
+ * Lists are read from the replicas, so a client could pair the version of a change with a list not showing it yet.
+ * Until a change has surely reached the routed replicas, which lag by at most the allowed lag plus the check
+ * interval, its collection has no version at all.
+ */
+@Component
+@Slf4j
+public class CollectionVersions {
+
+    private final MovieRepository movieRepository;
+    private final GenreRepository genreRepository;
+    private final SceneRepository sceneRepository;
+    private final long settleNanos;
+
+    // Loaded and counted while holding this, so no change is counted before the load or lost by it
+    private volatile Seeds seeds;
+    private final AtomicLong movieChanges = new AtomicLong();
+    private final AtomicLong genreChanges = new AtomicLong();
+    private final AtomicLong sceneChanges = new AtomicLong();
+
+    // Compared by their difference to System.nanoTime(), which may be negative
+    private volatile long moviesSettleAt = System.nanoTime();
+    private volatile long scenesSettleAt = System.nanoTime();
+
+    @Autowired
+    public CollectionVersions(MovieRepository movieRepository, GenreRepository genreRepository,
+                              SceneRepository sceneRepository,
+                              ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSource,
+                              @Value("${de.cinemap.repository.datasource.replica-check-interval:5s}")
+                              Duration replicaCheckInterval) {
+        this(movieRepository, genreRepository, sceneRepository, replicaRoutingDataSource.stream()
+                .map(routing -> routing.getMaxLag().plus(replicaCheckInterval))
+                .findFirst()
+                .orElse(Duration.ZERO));
+    }
+
+    CollectionVersions(MovieRepository movieRepository, GenreRepository genreRepository,
+                       SceneRepository sceneRepository, Duration settleTime) {
+        this.movieRepository = movieRepository;
+        this.genreRepository = genreRepository;
+        this.sceneRepository = sceneRepository;
+        this.settleNanos = settleTime.toNanos();
+    }
+
+    /**
+     * Returns the version of all movies including their genre names or null if a change may not have reached the
+     * replicas yet.
+     */
+    public String movies() {
+        Seeds current = seeds();
+        if (!isSettled(this.moviesSettleAt)) {
+            return null;
+        }
+        return "%s.%d-%s.%d".formatted(current.movies(), this.movieChanges.get(), current.genres(),
+                this.genreChanges.get());
+    }
+
+    /**
+     * Returns the version of the genre names or null if a change may not have reached the replicas yet.
+     */
+    public String genres() {
+        Seeds current = seeds();
+        if (!isSettled(this.moviesSettleAt)) {
+            return null;
+        }
+        return "%s.%d".formatted(current.genres(), this.genreChanges.get());
+    }
+
+    /**
+     * Returns the version of all scenes including their movies or null if a change may not have reached the replicas
+     * yet.
+     */
+    public String scenes() {
+        Seeds current = seeds();
+        String movies = movies();
+        if (movies == null || !isSettled(this.scenesSettleAt)) {
+            return null;
+        }
+        return "%s.%d-%s".formatted(current.scenes(), this.sceneChanges.get(), movies);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onMovieChanged(MovieChangedEvent event) {
+        count(this.movieChanges);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onMoviesCreated(MoviesCreatedEvent event) {
+        if (!event.movieUuids().isEmpty()) {
+            count(this.movieChanges);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onGenresRenamed(GenresRenamedEvent event) {
+        count(this.genreChanges);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onSceneChanged(SceneChangedEvent event) {
+        if (this.seeds == null) {
+            return;
+        }
+        this.sceneChanges.incrementAndGet();
+        this.scenesSettleAt = System.nanoTime() + this.settleNanos;
+    }
+
+    private void count(AtomicLong changes) {
+        if (this.seeds == null) {
+            // Not loaded yet, the initial load will read the committed state
+            return;
+        }
+        changes.incrementAndGet();
+        this.moviesSettleAt = System.nanoTime() + this.settleNanos;
+    }
+
+    private boolean isSettled(long settleAt) {
+        return System.nanoTime() - settleAt >= 0;
+    }
+
+    private Seeds seeds() {
+        Seeds current = this.seeds;
+        if (current == null) {
+            synchronized (this) {
+                if (this.seeds == null) {
+                    this.seeds = new Seeds(this.movieRepository.findCollectionVersion(),
+                            this.genreRepository.findCollectionVersion(), this.sceneRepository.findCollectionVersion());
+                    log.info("Loaded the collection versions {}", this.seeds);
+                }
+                current = this.seeds;
+            }
+        }
+        return current;
+    }
+
+    private record Seeds(CollectionVersion movies, CollectionVersion genres, CollectionVersion scenes) {
+    }
+}
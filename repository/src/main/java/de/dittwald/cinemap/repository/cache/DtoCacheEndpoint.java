@@ -0,0 +1,54 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.cache;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import de.dittwald.cinemap.repository.movie.cache.MovieDtoCache;
+import de.dittwald.cinemap.repository.scene.cache.SceneDtoCache;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "dtocaches")
+public class DtoCacheEndpoint {
+
+    private final MovieDtoCache movieDtoCache;
+    private final SceneDtoCache sceneDtoCache;
+
+    public DtoCacheEndpoint(MovieDtoCache movieDtoCache, SceneDtoCache sceneDtoCache) {
+        this.movieDtoCache = movieDtoCache;
+        this.sceneDtoCache = sceneDtoCache;
+    }
+
+    @ReadOperation
+    public Map<String, DtoCacheStatsDto> stats() {
+        Map<String, DtoCacheStatsDto> stats = new LinkedHashMap<>();
+        stats.put("movies", toDto(this.movieDtoCache));
+        stats.put("scenes", toDto(this.sceneDtoCache));
+        return stats;
+    }
+
+    private static DtoCacheStatsDto toDto(LocalizedDtoCache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return new DtoCacheStatsDto(cache.size(), stats.hitCount(), stats.missCount(), stats.hitRate(),
+                stats.evictionCount());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import de.dittwald.cinemap.repository.exceptions.LocaleNotFoundException;
+import de.dittwald.cinemap.repository.exceptions.NotFoundException;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Bounded read cache for localized DTOs keyed by UUID and requested locale. Every DTO is cached with the version of
+ * the state it was loaded from, which its entity tag is built of. Subclasses invalidate it from the change events of
+ * their entities and tell loads of an outdated state apart, which are handed out but not cached.
+ */
+public abstract class LocalizedDtoCache<T, V> {
+
+    static final Duration EXPIRE_AFTER_WRITE = Duration.ofMinutes(10);
+
+    private static final long MAXIMUM_SIZE = 10_000;
+    private static final Set<String> ISO_LANGUAGES = Set.of(Locale.getISOLanguages());
+
+    private final Cache<LocalizedKey, VersionedDto<T, V>> cache =
+            Caffeine.newBuilder().maximumSize(MAXIMUM_SIZE).expireAfterWrite(EXPIRE_AFTER_WRITE).recordStats().build();
+
+    // Requested locales of the cached entries, so all entries of a UUID can be invalidated
+    private final Set<String> locales = ConcurrentHashMap.newKeySet();
+
+    // Incremented before every invalidation, lets a load detect that it might have read outdated data
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public VersionedDto<T, V> get(UUID uuid, String locale, Loader<T, V> loader)
+            throws NotFoundException, LocaleNotFoundException {
+        // Arbitrary locale parameters would grow the set of tracked locales
+        if (!ISO_LANGUAGES.contains(locale)) {
+            return loader.load();
+        }
+
+        LocalizedKey key = new LocalizedKey(uuid, locale);
+        VersionedDto<T, V> cached = this.cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        this.locales.add(locale);
+        long invalidationsBeforeLoad = this.invalidations.get();
+        VersionedDto<T, V> loaded = loader.load();
+        if (isOutdated(loaded)) {
+            return loaded;
+        }
+        this.cache.put(key, loaded);
+        if (this.invalidations.get() != invalidationsBeforeLoad) {
+            this.cache.invalidate(key);
+        }
+        return loaded;
+    }
+
+    public void invalidate(UUID uuid) {
+        this.invalidations.incrementAndGet();
+        for (String locale : this.locales) {
+            this.cache.invalidate(new LocalizedKey(uuid, locale));
+        }
+    }
+
+    public void invalidateIf(Predicate<T> predicate) {
+        this.invalidations.incrementAndGet();
+        this.cache.asMap().values().removeIf(entry -> predicate.test(entry.dto()));
+    }
+
+    public void invalidateAll() {
+        this.invalidations.incrementAndGet();
+        this.cache.invalidateAll();
+    }
+
+    /**
+     * Returns true if the loaded state is older than one written lately, so it was read from a lagging replica.
+     */
+    protected abstract boolean isOutdated(VersionedDto<T, V> loaded);
+
+    public long size() {
+        return this.cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return this.cache.stats();
+    }
+
+    @FunctionalInterface
+    public interface Loader<T, V> {
+        VersionedDto<T, V> load() throws NotFoundException, LocaleNotFoundException;
+    }
+
+    private record LocalizedKey(UUID uuid, String locale) {
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import javax.cache.CacheManager;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reports the regions of the Hibernate second-level cache. Hits, misses and puts are counted by Hibernate, a read of
+ * an entry locked by a running write is a miss. Sizes and evictions are taken from the regions themselves.
+ */
+@Component
+@Endpoint(id = "entitycaches")
+public class SecondLevelCacheEndpoint {
+
+    private final Statistics statistics;
+    private final CacheManager secondLevelCacheManager;
+
+    public SecondLevelCacheEndpoint(EntityManagerFactory entityManagerFactory, CacheManager secondLevelCacheManager) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.secondLevelCacheManager = secondLevelCacheManager;
+    }
+
+    @ReadOperation
+    public Map<String, SecondLevelCacheStatsDto> stats() {
+        Map<String, SecondLevelCacheStatsDto> stats = new TreeMap<>();
+        for (String region : this.statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = this.statistics.getCacheRegionStatistics(region);
+            javax.cache.Cache<Object, Object> cache = this.secondLevelCacheManager.getCache(region);
+            if (regionStatistics != null && cache != null) {
+                stats.put(region, toDto(regionStatistics, cache.unwrap(Cache.class)));
+            }
+        }
+        return stats;
+    }
+
+    private static SecondLevelCacheStatsDto toDto(CacheRegionStatistics statistics, Cache<?, ?> cache) {
+        long requests = statistics.getHitCount() + statistics.getMissCount();
+        return new SecondLevelCacheStatsDto(cache.estimatedSize(), statistics.getHitCount(),
+                statistics.getMissCount(), statistics.getPutCount(),
+                requests == 0 ? 1.0 : (double) statistics.getHitCount() / requests, cache.stats().evictionCount());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.dittwald.cinemap.repository.movie.event.GenresRenamedEvent;
+import de.dittwald.cinemap.repository.movie.event.MovieChangedEvent;
+import de.dittwald.cinemap.repository.scene.event.SceneChangedEvent;
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Lower bounds of the versions of the movies and scenes written lately, as told by their change events. Cache loads
+ * are answered by replicas, which may not have replayed the latest writes yet. A loaded state older than a written
+ * one is outdated and must not be cached, it would be handed out until the next write. Written versions are kept as
+ * long as a cached DTO lives, by then every replica has replayed them.
+ * <p>
+ * The listeners run before those of the caches, so a load finishing after its entry got invalidated already sees the
+ * version that invalidated it.
+ */
+@Component
+public class WrittenVersions {
+
+    private static final long MAXIMUM_SIZE = 100_000;
+    private static final Duration EXPIRE_AFTER_WRITE = LocalizedDtoCache.EXPIRE_AFTER_WRITE;
+
+    // Deleted entities are written with Long.MAX_VALUE, no state of them is current anymore
+    private final Cache<UUID, Long> versions =
+            Caffeine.newBuilder().maximumSize(MAXIMUM_SIZE).expireAfterWrite(EXPIRE_AFTER_WRITE).build();
+    private final Cache<Integer, Boolean> renamedGenres =
+            Caffeine.newBuilder().expireAfterWrite(EXPIRE_AFTER_WRITE).build();
+
+    // System.nanoTime() of the last deletion of all movies or scenes, null if there was none
+    private volatile Long allDeletedAt;
+
+    /**
+     * Returns true if a version of the entity newer than the given one got written or the entity got deleted.
+     */
+    public boolean isOutdated(UUID uuid, long version) {
+        Long deletedAt = this.allDeletedAt;
+        if (deletedAt != null && System.nanoTime() - deletedAt < EXPIRE_AFTER_WRITE.toNanos()) {
+            return true;
+        }
+        Long written = this.versions.getIfPresent(uuid);
+        return written != null && written > version;
+    }
+
+    /**
+     * Returns true if any of the given genres got renamed lately. Genre names are not versioned, so a state showing
+     * them may show their previous names.
+     */
+    public boolean isRenamedLately(Collection<Integer> genreIds) {
+        return genreIds.stream().anyMatch(genreId -> this.renamedGenres.getIfPresent(genreId) != null);
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieChanged(MovieChangedEvent event) {
+        if (event.allDeleted()) {
+            deletedAll();
+        } else {
+            written(event.movieUuid(), event.version());
+        }
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSceneChanged(SceneChangedEvent event) {
+        if (event.allDeleted()) {
+            deletedAll();
+        }
+        // Moved scenes are removed from and saved to their new location
+        Set<UUID> savedUuids = event.savedScenes().stream().map(SceneLocation::uuid).collect(Collectors.toSet());
+        for (SceneLocation location : event.removedScenes()) {
+            if (!savedUuids.contains(location.uuid())) {
+                written(location.uuid(), Long.MAX_VALUE);
+            }
+        }
+        event.versions().forEach(this::written);
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGenresRenamed(GenresRenamedEvent event) {
+        for (Integer genreId : event.genreIds()) {
+            this.renamedGenres.put(genreId, true);
+        }
+    }
+
+    private void written(UUID uuid, long version) {
+        this.versions.asMap().merge(uuid, version, Math::max);
+    }
+
+    private void deletedAll() {
+        this.allDeletedAt = System.nanoTime();
+        this.versions.invalidateAll();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import de.dittwald.cinemap.repository.datasource.ReadOnlyCacheModeJpaDialect;
+import de.dittwald.cinemap.repository.datasource.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the single data source by one routing read-only transactions to the replicas given by
+ * {@code de.cinemap.repository.datasource.replica-urls}. Replicas share the credentials and pool settings of the
+ * primary. Read-only transactions do not store what they read in the second-level cache, see
+ * {@link ReadOnlyCacheModeJpaDialect}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "de.cinemap.repository.datasource", name = "replica-urls")
+public class DataSourceConfig {
+
+    // A replica not handing out a connection in time is skipped for the primary
+    private static final long REPLICA_CONNECTION_TIMEOUT_MILLIS = 2000;
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            DataSourceProperties dataSourceProperties, Environment environment,
+            @Value("${de.cinemap.repository.datasource.replica-urls}") List<String> replicaUrls,
+            @Value("${de.cinemap.repository.datasource.max-replica-lag:10s}") Duration maxReplicaLag) {
+        HikariDataSource primary = pool(dataSourceProperties, environment, dataSourceProperties.determineUrl(),
+                ReplicaRoutingDataSource.PRIMARY);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            String name = "replica-" + (i + 1);
+            HikariDataSource replica = pool(dataSourceProperties, environment, replicaUrls.get(i).trim(), name);
+            replica.setReadOnly(true);
+            replica.setConnectionTimeout(Math.min(replica.getConnectionTimeout(), REPLICA_CONNECTION_TIMEOUT_MILLIS));
+            replicas.put(name, replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, maxReplicaLag);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    // Set before the factory initializes, it takes the dialect of the vendor adapter only if none is set
+    @Bean
+    public static BeanPostProcessor readOnlyCacheModeJpaDialectPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractEntityManagerFactoryBean entityManagerFactoryBean) {
+                    entityManagerFactoryBean.setJpaDialect(new ReadOnlyCacheModeJpaDialect());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public HealthIndicator replicasHealthIndicator(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        // Up without replicas as well, the primary takes over their reads
+        return () -> Health.up()
+                .withDetail("available", replicaRoutingDataSource.getAvailableReplicas())
+                .build();
+    }
+
+    private static HikariDataSource pool(DataSourceProperties dataSourceProperties, Environment environment,
+                                         String url, String name) {
+        HikariDataSource pool = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        // Applies the spring.datasource.hikari settings like the pool auto-configured by Spring Boot
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        return pool;
+    }
+}
@@ -21,6 +21,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 
+import java.time.Duration;
+
 @Configuration
 @PropertySource(value = "classpath:application.properties", encoding = "UTF-8")
 @Getter
@@ -34,4 +36,10 @@ public class Properties {
 
     @Value("${de.cinemap.repository.tmdb.api.read-token}")
     private String tmdbApiReadToken;
+
+    @Value("${de.cinemap.repository.tmdb.timeout:5s}")
+    private Duration tmdbTimeout;
+
+    @Value("${de.cinemap.repository.tmdb.retries:2}")
+    private int tmdbRetries;
 }
@@ -16,6 +16,8 @@
 
 package de.dittwald.cinemap.repository.config;
 
+import de.dittwald.cinemap.repository.tmdb.TmdbRateLimiter;
+import de.dittwald.cinemap.repository.tmdb.TmdbResponseCache;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
@@ -33,9 +35,14 @@ public class WebClientConfig {
 
     private final int timeout = 3000;
     private final Properties properties;
+    private final TmdbResponseCache tmdbResponseCache;
+    private final TmdbRateLimiter tmdbRateLimiter;
 
-    public WebClientConfig(Properties properties) {
+    public WebClientConfig(Properties properties, TmdbResponseCache tmdbResponseCache,
+                           TmdbRateLimiter tmdbRateLimiter) {
         this.properties = properties;
+        this.tmdbResponseCache = tmdbResponseCache;
+        this.tmdbRateLimiter = tmdbRateLimiter;
     }
 
     HttpClient httpClient = HttpClient.create()
@@ -50,6 +57,9 @@ public class WebClientConfig {
         return WebClient.builder()
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .baseUrl(this.properties.getTmdbApiBaseUrl())
+                // The cache comes first, so responses served from disk do not count against the rate limit
+                .filter(this.tmdbResponseCache)
+                .filter(this.tmdbRateLimiter)
                 .build();
     }
 }
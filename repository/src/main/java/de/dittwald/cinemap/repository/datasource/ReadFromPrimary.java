@@ -0,0 +1,34 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.datasource;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.*;
+
+/**
+ * Runs a read in a read-write transaction, which the {@link ReplicaRoutingDataSource} routes to the primary. Meant
+ * for the one-time loads bootstrapping an index or the collection versions, a lagging replica would leave them behind
+ * until the next write. Loads made by change listeners need no mark, they run in the committed write transaction and
+ * reach the primary anyway. Cached DTOs and tiles are read from replicas, their caches reject outdated loads.
+ */
+@Documented
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Transactional
+public @interface ReadFromPrimary {
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Routes the connections of read-only transactions round robin to the available replicas and all others to the
+ * primary. Replicas are checked periodically. A replica that fails the check, lags behind the primary by more than
+ * the allowed lag or fails to hand out a connection gets no connections until it passes a check again. Without an
+ * available replica, read-only transactions use the primary. Loads bootstrapping an index are marked
+ * {@link ReadFromPrimary}.
+ * <p>
+ * Transactions fetch their connection before they are marked read-only, so this data source has to be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which fetches it on the first statement.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    public static final String PRIMARY = "primary";
+
+    // Replay lag in seconds, zero if the replica replayed all it received or is no replica at all
+    static final String REPLICA_LAG = "select coalesce(case when pg_last_wal_receive_lsn() = " +
+            "pg_last_wal_replay_lsn() then 0 else extract(epoch from now() - pg_last_xact_replay_timestamp()) end, 0)";
+
+    private static final int CHECK_TIMEOUT_SECONDS = 2;
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final Duration maxLag;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicReference<List<String>> available = new AtomicReference<>(List.of());
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration maxLag) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.maxLag = maxLag;
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        List<String> current = this.available.get();
+        return current.isEmpty() ? PRIMARY : current.get(Math.floorMod(this.next.getAndIncrement(), current.size()));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (!PRIMARY.equals(key)) {
+            try {
+                return this.replicas.get(key).getConnection();
+            } catch (SQLException e) {
+                unavailable((String) key, e.getMessage());
+            }
+        }
+        return this.primary.getConnection();
+    }
+
+    /**
+     * Checks all replicas and routes read-only transactions to those passing the check from now on.
+     */
+    @Scheduled(fixedDelayString = "${de.cinemap.repository.datasource.replica-check-interval:5s}")
+    public synchronized void checkReplicas() {
+        List<String> passed = new ArrayList<>();
+        for (Map.Entry<String, DataSource> replica : this.replicas.entrySet()) {
+            if (passesCheck(replica.getKey(), replica.getValue())) {
+                passed.add(replica.getKey());
+            }
+        }
+        if (!passed.equals(this.available.getAndSet(List.copyOf(passed)))) {
+            log.info("Routing read-only transactions to replicas {}", passed);
+        }
+    }
+
+    public List<String> getAvailableReplicas() {
+        return this.available.get();
+    }
+
+    public Duration getMaxLag() {
+        return this.maxLag;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource dataSource : getResolvedDataSources().values()) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private boolean passesCheck(String name, DataSource replica) {
+        try (Connection connection = replica.getConnection(); Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(CHECK_TIMEOUT_SECONDS);
+            try (ResultSet resultSet = statement.executeQuery(REPLICA_LAG)) {
+                resultSet.next();
+                Duration lag = Duration.ofMillis(Math.round(resultSet.getDouble(1) * 1000));
+                if (lag.compareTo(this.maxLag) > 0) {
+                    if (this.available.get().contains(name)) {
+                        log.warn("Replica {} lags {} behind the primary", name, lag);
+                    }
+                    return false;
+                }
+                return true;
+            }
+        } catch (SQLException e) {
+            if (this.available.get().contains(name)) {
+                log.warn("Replica {} failed its check: {}", name, e.getMessage());
+            }
+            return false;
+        }
+    }
+
+    // Not synchronized, a request must not wait for a running check
+    private void unavailable(String name, String reason) {
+        List<String> previous = this.available.getAndUpdate(
+                current -> current.stream().filter(replica -> !replica.equals(name)).toList());
+        if (previous.contains(name)) {
+            log.warn("Replica {} failed to hand out a connection, falling back until its next check: {}", name,
+                    reason);
+        }
+    }
+}
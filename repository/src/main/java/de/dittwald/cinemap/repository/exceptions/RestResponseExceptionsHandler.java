@@ -46,6 +46,15 @@ public class RestResponseExceptionsHandler extends ResponseEntityExceptionHandle
         return handleExceptionInternal(ex, bodyOfResponse, new HttpHeaders(), HttpStatus.CONFLICT, request);
     }
 
+    @ExceptionHandler(value = {PreconditionFailedException.class})
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    protected ResponseEntity<Object> handlePreconditionFailedException(PreconditionFailedException ex,
+                                                                       WebRequest request) {
+        String bodyOfResponse = ex.getMessage();
+        return handleExceptionInternal(ex, bodyOfResponse, new HttpHeaders(), HttpStatus.PRECONDITION_FAILED,
+                request);
+    }
+
     @ExceptionHandler(value = {IllegalArgumentException.class})
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     protected ResponseEntity<Object> handleIllegalArgumentException(IllegalArgumentException ex, WebRequest request) {
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.migration;
+
+import de.dittwald.cinemap.repository.movie.repository.MovieLocalizedRepository;
+import de.dittwald.cinemap.repository.scene.repository.SceneLocalizedRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Moves movie overviews and scene descriptions from Postgres large objects to their text columns. Every batch copies
+ * and unlinks its large objects in one transaction, so the backfill runs next to live traffic and can be stopped at
+ * any time. Runs on {@code de.cinemap.repository.lob-backfill.cron}. Once a backfill reports nothing left, the large
+ * object columns can be dropped.
+ */
+@Service
+@Slf4j
+public class LobBackfillService {
+
+    private final MovieLocalizedRepository movieLocalizedRepository;
+    private final SceneLocalizedRepository sceneLocalizedRepository;
+    private final int batchSize;
+
+    public LobBackfillService(MovieLocalizedRepository movieLocalizedRepository,
+                              SceneLocalizedRepository sceneLocalizedRepository,
+                              @Value("${de.cinemap.repository.lob-backfill.batch-size:500}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.movieLocalizedRepository = movieLocalizedRepository;
+        this.sceneLocalizedRepository = sceneLocalizedRepository;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Moves all remaining large objects and returns their number.
+     */
+    @Scheduled(cron = "${de.cinemap.repository.lob-backfill.cron:-}", zone = "UTC")
+    public synchronized long backfill() {
+        long overviews = drain(this.movieLocalizedRepository::moveOverviewsToText);
+        long descriptions = drain(this.sceneLocalizedRepository::moveDescriptionsToText);
+        log.info("Moved {} movie overviews and {} scene descriptions to text columns", overviews, descriptions);
+        return overviews + descriptions;
+    }
+
+    private long drain(IntUnaryOperator moveBatch) {
+        long moved = 0;
+        int batch;
+        do {
+            batch = moveBatch.applyAsInt(this.batchSize);
+            moved += batch;
+        } while (batch > 0);
+        return moved;
+    }
+}
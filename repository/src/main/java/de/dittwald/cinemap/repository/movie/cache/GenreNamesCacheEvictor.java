@@ -0,0 +1,45 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.cache;
+
+import de.dittwald.cinemap.repository.movie.entity.Genre;
+import de.dittwald.cinemap.repository.movie.event.GenresRenamedEvent;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Evicts the cached names of renamed genres. Names are written by native upserts, which Hibernate cannot relate to
+ * the names collection of a genre.
+ */
+@Component
+public class GenreNamesCacheEvictor {
+
+    private static final String NAMES_ROLE = Genre.class.getName() + ".names";
+
+    private final Cache cache;
+
+    public GenreNamesCacheEvictor(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.getCache().unwrap(Cache.class);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGenresRenamed(GenresRenamedEvent event) {
+        event.genreIds().forEach(genreId -> this.cache.evictCollectionData(NAMES_ROLE, genreId));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.cache;
+
+import de.dittwald.cinemap.repository.cache.LocalizedDtoCache;
+import de.dittwald.cinemap.repository.cache.VersionedDto;
+import de.dittwald.cinemap.repository.cache.WrittenVersions;
+import de.dittwald.cinemap.repository.movie.dto.MovieFlatDto;
+import de.dittwald.cinemap.repository.movie.event.GenresRenamedEvent;
+import de.dittwald.cinemap.repository.movie.event.MovieChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+public class MovieDtoCache extends LocalizedDtoCache<MovieFlatDto, Long> {
+
+    private final WrittenVersions writtenVersions;
+
+    public MovieDtoCache(WrittenVersions writtenVersions) {
+        this.writtenVersions = writtenVersions;
+    }
+
+    @Override
+    protected boolean isOutdated(VersionedDto<MovieFlatDto, Long> loaded) {
+        MovieFlatDto movie = loaded.dto();
+        return this.writtenVersions.isOutdated(movie.uuid(), loaded.version()) ||
+                (movie.genres() != null && this.writtenVersions.isRenamedLately(movie.genres().keySet()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieChanged(MovieChangedEvent event) {
+        if (event.allDeleted()) {
+            invalidateAll();
+        } else {
+            invalidate(event.movieUuid());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGenresRenamed(GenresRenamedEvent event) {
+        invalidateIf(movie -> movie.genres() != null &&
+                movie.genres().keySet().stream().anyMatch(event.genreIds()::contains));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.dittwald.cinemap.repository.movie.service.MovieBatchService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/api/v1")
+@Tag(name = "Movie")
+public class MovieBatchRestController {
+
+    private final MovieBatchService movieBatchService;
+    private final ObjectMapper objectMapper;
+
+    public MovieBatchRestController(MovieBatchService movieBatchService, ObjectMapper objectMapper) {
+        this.movieBatchService = movieBatchService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostMapping(value = "movies:batch", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Create movies in bulk",
+            description = "Creates the movies of a newline delimited JSON stream of records, each holding a movie " +
+                    "and optionally further localizations. Every record is validated on its own and the valid ones " +
+                    "are written in batches. Responds the result of every record as newline delimited JSON.")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Stream of per record results")})
+    public ResponseEntity<StreamingResponseBody> createBatch(InputStream inputStream) {
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = this.objectMapper.getFactory().createGenerator(outputStream);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            this.movieBatchService.ingest(inputStream, result -> {
+                generator.writeObject(result);
+                generator.writeRaw('\n');
+            });
+            generator.close();
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
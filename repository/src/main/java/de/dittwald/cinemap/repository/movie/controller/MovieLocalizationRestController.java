@@ -16,18 +16,28 @@
 
 package de.dittwald.cinemap.repository.movie.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import de.dittwald.cinemap.repository.exceptions.NotFoundException;
+import de.dittwald.cinemap.repository.exceptions.PreconditionFailedException;
 import de.dittwald.cinemap.repository.movie.service.MovieLocalizationService;
 import de.dittwald.cinemap.repository.movie.dto.MovieLocalizationDto;
+import de.dittwald.cinemap.repository.movie.dto.MovieLocalizationEntryDto;
+import de.dittwald.cinemap.repository.util.ConstantStrings;
+import de.dittwald.cinemap.repository.util.EntityTags;
+import de.dittwald.cinemap.repository.util.MergePatchReader;
+import de.dittwald.cinemap.repository.util.Tagged;
+import de.dittwald.cinemap.repository.validation.Iso6391Constraint;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.UUID;
 
@@ -38,19 +48,27 @@ import java.util.UUID;
 public class MovieLocalizationRestController {
 
     private final MovieLocalizationService movieLocalizationService;
+    private final MergePatchReader mergePatchReader;
 
-    public MovieLocalizationRestController(MovieLocalizationService movieLocalizationService) {
+    public MovieLocalizationRestController(MovieLocalizationService movieLocalizationService,
+                                           MergePatchReader mergePatchReader) {
         this.movieLocalizationService = movieLocalizationService;
+        this.mergePatchReader = mergePatchReader;
     }
 
     @GetMapping(value = "{uuid}/localizations", produces = MediaType.APPLICATION_JSON_VALUE)
-    @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "Get all localizations for given movie",
             description = "Responds with all available localizations for the given movie")
     @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Found localizations"),
+            @ApiResponse(responseCode = "304", description = "Localizations not modified"),
             @ApiResponse(responseCode = "404", description = "No localizations or movie found")})
-    public MovieLocalizationDto getMovieLocalizations(@PathVariable("uuid") UUID uuid) throws NotFoundException {
-        return this.movieLocalizationService.getMovieLocalizations(uuid);
+    public MovieLocalizationDto getMovieLocalizations(@PathVariable("uuid") UUID uuid, WebRequest request)
+            throws NotFoundException {
+        Tagged<MovieLocalizationDto> localizations = this.movieLocalizationService.getMovieLocalizations(uuid);
+        if (request.checkNotModified(localizations.entityTag())) {
+            return null;
+        }
+        return localizations.body();
     }
 
     @PutMapping(value = "{uuid}/localizations",
@@ -68,4 +86,23 @@ public class MovieLocalizationRestController {
         this.movieLocalizationService.update(movieLocalizationDto, uuid, Boolean.parseBoolean(override));
     }
 
+    @PatchMapping(value = "{uuid}/localizations/{locale}", consumes = ConstantStrings.MERGE_PATCH_MEDIA_TYPE)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Patch a movie localization",
+            description = "Applies a JSON merge patch of title, overview, tagline and posterUrl to the given " +
+                    "localization of the movie. With an If-Match header the localization is only patched if the " +
+                    "entity tag of the localizations still matches.")
+    @ApiResponses(value = {@ApiResponse(responseCode = "204", description = "Movie localization was patched"),
+            @ApiResponse(responseCode = "404", description = "Movie or localization not found."),
+            @ApiResponse(responseCode = "400", description = "Invalid merge patch, locale or UUID given."),
+            @ApiResponse(responseCode = "412", description = "Movie was modified in the meantime.")})
+    public void patchMovieLocalization(@RequestBody JsonNode patch, @PathVariable("uuid") UUID uuid,
+                                       @PathVariable("locale") @Iso6391Constraint String locale,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+            throws NotFoundException, PreconditionFailedException {
+        this.movieLocalizationService.patch(uuid, locale,
+                this.mergePatchReader.read(patch, MovieLocalizationEntryDto.class,
+                        MovieLocalizationService.PATCHABLE_FIELDS), EntityTags.versionOf(ifMatch));
+    }
+
 }
@@ -18,25 +18,41 @@ package de.dittwald.cinemap.repository.movie.controller;
 
 import de.dittwald.cinemap.repository.exceptions.LocaleNotFoundException;
 import de.dittwald.cinemap.repository.exceptions.NotFoundException;
+import de.dittwald.cinemap.repository.exceptions.PreconditionFailedException;
 import de.dittwald.cinemap.repository.exceptions.UuidInUseException;
 import de.dittwald.cinemap.repository.movie.service.MovieService;
+import de.dittwald.cinemap.repository.movie.dto.MovieFacetsDto;
 import de.dittwald.cinemap.repository.movie.dto.MovieFlatDto;
+import de.dittwald.cinemap.repository.movie.dto.MoviePage;
+import de.dittwald.cinemap.repository.movie.util.GenreMatch;
+import de.dittwald.cinemap.repository.movie.util.MovieSort;
 import de.dittwald.cinemap.repository.scene.dto.SceneCreationDto;
 import de.dittwald.cinemap.repository.scene.dto.SceneFlatDto;
 import de.dittwald.cinemap.repository.scene.service.SceneService;
 import de.dittwald.cinemap.repository.util.ConstantStrings;
+import de.dittwald.cinemap.repository.util.EntityTags;
+import de.dittwald.cinemap.repository.util.MergePatchReader;
+import de.dittwald.cinemap.repository.util.Tagged;
 import de.dittwald.cinemap.repository.validation.Iso6391Constraint;
+import com.fasterxml.jackson.databind.JsonNode;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @RestController
@@ -47,35 +63,82 @@ public class MovieRestController {
 
     private final MovieService movieService;
     private final SceneService sceneService;
+    private final MergePatchReader mergePatchReader;
 
-    public MovieRestController(MovieService movieService, SceneService sceneService) {
+    public MovieRestController(MovieService movieService, SceneService sceneService,
+                               MergePatchReader mergePatchReader) {
         this.movieService = movieService;
         this.sceneService = sceneService;
+        this.mergePatchReader = mergePatchReader;
     }
 
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
-    @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "Get all movies",
-            description = "Responds a list with all movies localized in the given language")
+            description = "Responds a page of movies localized in the given language. Movies are ordered by id or " +
+                    "by their title in the given language. The next page is referenced by the Link header. Given " +
+                    "genre ids restrict the movies to those having all or any of them, as set by genreMatch.")
     @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Found movies"),
-            @ApiResponse(responseCode = "400", description = "Invalid ISO 639-1 lang given")})
-    public List<MovieFlatDto> findAll(@RequestParam(name = ConstantStrings.LOCALE_API_REQUEST_PARAM,
-            defaultValue = ConstantStrings.DEFAULT_LOCALE) @Iso6391Constraint String locale)
-            throws LocaleNotFoundException {
-        return this.movieService.findAll(locale);
+            @ApiResponse(responseCode = "304", description = "Movies not modified"),
+            @ApiResponse(responseCode = "400",
+                    description = "Invalid ISO 639-1 lang, sort, cursor, limit, genre or genreMatch given")})
+    public ResponseEntity<List<MovieFlatDto>> findAll(@RequestParam(name = ConstantStrings.LOCALE_API_REQUEST_PARAM,
+            defaultValue = ConstantStrings.DEFAULT_LOCALE) @Iso6391Constraint String locale,
+                                                      @RequestParam(defaultValue = "id") String sort,
+                                                      @RequestParam(required = false) String after,
+                                                      @RequestParam(defaultValue = ConstantStrings.DEFAULT_PAGE_LIMIT)
+                                                      @Min(1) @Max(ConstantStrings.MAX_PAGE_LIMIT) int limit,
+                                                      @RequestParam(name = "genre", defaultValue = "")
+                                                      Set<Integer> genres,
+                                                      @RequestParam(defaultValue = "all") String genreMatch,
+                                                      WebRequest request) throws LocaleNotFoundException {
+        if (request.checkNotModified(this.movieService.findAllEntityTag(locale))) {
+            return null;
+        }
+        MoviePage moviePage = this.movieService.findAll(locale, MovieSort.fromParam(sort), after, limit, genres,
+                GenreMatch.fromParam(genreMatch));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (moviePage.nextCursor() != null) {
+            String nextPage = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", moviePage.nextCursor())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<%s>; rel=\"next\"".formatted(nextPage));
+        }
+        return response.body(moviePage.movies());
+    }
+
+    @GetMapping(value = "facets", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Get movie facets",
+            description = "Counts the movies per genre, release decade and locale within the given selection. " +
+                    "Movies have all or any of the given genres, as set by genreMatch, are released in any of the " +
+                    "given decades and are localized in all given locales. Counts of genres combined by any and of " +
+                    "decades ignore the selection of their own facet.")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Counted movies"),
+            @ApiResponse(responseCode = "400", description = "Invalid genre, genreMatch, decade or locale given")})
+    public MovieFacetsDto findFacets(@RequestParam(name = "genre", defaultValue = "") Set<Integer> genres,
+                                     @RequestParam(defaultValue = "all") String genreMatch,
+                                     @RequestParam(name = "decade", defaultValue = "") Set<Integer> decades,
+                                     @RequestParam(name = "locale", defaultValue = "")
+                                     Set<@Iso6391Constraint String> locales) {
+        return this.movieService.findFacets(genres, GenreMatch.fromParam(genreMatch), decades, locales);
     }
 
     @GetMapping(value = "{uuid}", produces = MediaType.APPLICATION_JSON_VALUE)
-    @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "Get a movie", description = "Gets a movie by its UUID localized in the given language.")
     @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Found the movie"),
+            @ApiResponse(responseCode = "304", description = "Movie not modified"),
             @ApiResponse(responseCode = "404", description = "Movie not found"),
             @ApiResponse(responseCode = "400", description = "Invalid UUID or ISO 639-1 lang given")})
     public MovieFlatDto findByUuid(@PathVariable("uuid") String uuid,
                                    @RequestParam(name = ConstantStrings.LOCALE_API_REQUEST_PARAM,
                                            defaultValue = ConstantStrings.DEFAULT_LOCALE) @Iso6391Constraint
-                                   String locale) throws NotFoundException, LocaleNotFoundException {
-        return this.movieService.findByUuid(UUID.fromString(uuid), locale);
+                                   String locale, WebRequest request)
+            throws NotFoundException, LocaleNotFoundException {
+        Tagged<MovieFlatDto> movie = this.movieService.findByUuid(UUID.fromString(uuid), locale);
+        if (request.checkNotModified(movie.entityTag())) {
+            return null;
+        }
+        return movie.body();
     }
 
     @PutMapping(value = "{uuid}",
@@ -91,6 +154,27 @@ public class MovieRestController {
         this.movieService.update(movieFlatDto, UUID.fromString(uuid));
     }
 
+    @PatchMapping(value = "{uuid}", consumes = ConstantStrings.MERGE_PATCH_MEDIA_TYPE)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Patch movie",
+            description = "Applies a JSON merge patch of tmdbId, releaseYear, imdbId and genres to the movie with " +
+                    "the given uuid. Genres are merged by their id, a genre set to null is removed, genre names are " +
+                    "written in the given language. With an If-Match header the movie is only patched if its " +
+                    "entity tag still matches.")
+    @ApiResponses(value = {@ApiResponse(responseCode = "204", description = "Movie was patched"),
+            @ApiResponse(responseCode = "404", description = "Movie not found."),
+            @ApiResponse(responseCode = "400", description = "Invalid merge patch or UUID given."),
+            @ApiResponse(responseCode = "412", description = "Movie was modified in the meantime.")})
+    public void patchMovie(@RequestBody JsonNode patch, @PathVariable("uuid") String uuid,
+                           @RequestParam(name = ConstantStrings.LOCALE_API_REQUEST_PARAM,
+                                   defaultValue = ConstantStrings.DEFAULT_LOCALE) @Iso6391Constraint String locale,
+                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+            throws NotFoundException, PreconditionFailedException {
+        this.movieService.patch(UUID.fromString(uuid), locale,
+                this.mergePatchReader.read(patch, MovieFlatDto.class, MovieService.PATCHABLE_FIELDS),
+                EntityTags.versionOf(ifMatch));
+    }
+
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @Operation(summary = "Create a new movie", description = "Creates a new movie with the given movie in the body.")
@@ -152,6 +236,24 @@ public class MovieRestController {
         this.sceneService.update(sceneCreationDto, movieUuid, sceneUuid);
     }
 
+    @PatchMapping(value = "{movieUuid}/scenes/{sceneUuid}", consumes = ConstantStrings.MERGE_PATCH_MEDIA_TYPE)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Patch a scene",
+            description = "Applies a JSON merge patch of lon and lat to the scene with the given UUID. With an " +
+                    "If-Match header the scene is only patched if its entity tag still matches.")
+    @ApiResponses(value = {@ApiResponse(responseCode = "204", description = "Scene was patched"),
+            @ApiResponse(responseCode = "404", description = "Scene not found"),
+            @ApiResponse(responseCode = "400", description = "Invalid merge patch or UUID given"),
+            @ApiResponse(responseCode = "412", description = "Scene was modified in the meantime")})
+    public void patchScene(@RequestBody JsonNode patch, @PathVariable("movieUuid") @Valid UUID movieUuid,
+                           @PathVariable("sceneUuid") @Valid UUID sceneUuid,
+                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+            throws NotFoundException, PreconditionFailedException {
+        this.sceneService.patch(movieUuid, sceneUuid,
+                this.mergePatchReader.read(patch, SceneCreationDto.class, SceneService.PATCHABLE_FIELDS),
+                EntityTags.versionOf(ifMatch));
+    }
+
     @DeleteMapping(value = "{movieUuid}/scenes/{sceneUuid}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @Operation(summary = "Delete scene", description = "Deletes with given UUID.")
@@ -165,23 +267,34 @@ public class MovieRestController {
     @GetMapping(value = "{movieUuid}/scenes/{sceneUuid}", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Get a scene", description = "Gets a scene by its UUID.")
     @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Found the scene"),
+            @ApiResponse(responseCode = "304", description = "Scene not modified"),
             @ApiResponse(responseCode = "404", description = "scene not found")})
     public SceneFlatDto findSceneByUuid(@PathVariable("movieUuid") @Valid UUID movieUuid,
                                         @PathVariable("sceneUuid") @Valid UUID sceneUuid,
                                         @RequestParam(name = ConstantStrings.LOCALE_API_REQUEST_PARAM,
                                                 defaultValue = ConstantStrings.DEFAULT_LOCALE) @Iso6391Constraint
-                                        @Valid String locale) throws NotFoundException, LocaleNotFoundException {
-        return this.sceneService.findByUuid(sceneUuid, locale);
+                                        @Valid String locale, WebRequest request)
+            throws NotFoundException, LocaleNotFoundException {
+        Tagged<SceneFlatDto> scene = this.sceneService.findByUuid(sceneUuid, locale);
+        if (request.checkNotModified(scene.entityTag())) {
+            return null;
+        }
+        return scene.body();
     }
 
     @GetMapping(value = "{movieUuid}/scenes", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Get all scenes of a movie", description = "Gets all scenes of a movie")
     @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Found the scenes"),
+            @ApiResponse(responseCode = "304", description = "Scenes not modified"),
             @ApiResponse(responseCode = "404", description = "Movie not found")})
     public List<SceneFlatDto> findAllMovieScenesOfMovie(
             @PathVariable("movieUuid") @Valid UUID movieUuid, @RequestParam(name = ConstantStrings.LOCALE_API_REQUEST_PARAM,
-            defaultValue = ConstantStrings.DEFAULT_LOCALE) @Valid @Iso6391Constraint String locale )
-            throws NotFoundException, LocaleNotFoundException {
-        return this.sceneService.findAllScenesOfMovie(movieUuid, locale);
+            defaultValue = ConstantStrings.DEFAULT_LOCALE) @Valid @Iso6391Constraint String locale,
+            WebRequest request) throws NotFoundException, LocaleNotFoundException {
+        Tagged<List<SceneFlatDto>> scenes = this.sceneService.findAllScenesOfMovie(movieUuid, locale);
+        if (request.checkNotModified(scenes.entityTag())) {
+            return null;
+        }
+        return scenes.body();
     }
 }
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.dto;
+
+import java.util.Map;
+
+/**
+ * Number of movies matching a selection and, per option of every facet, the number of movies matching the selection
+ * narrowed by that option. Options without movies are left out.
+ */
+public record MovieFacetsDto(int total, Map<Integer, Integer> genres, Map<Integer, Integer> decades,
+                             Map<String, Integer> locales) {
+}
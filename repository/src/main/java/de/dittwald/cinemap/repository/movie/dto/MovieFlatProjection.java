@@ -0,0 +1,49 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.dto;
+
+import java.util.UUID;
+
+/**
+ * A movie row joined with its resolved localization. Genres are aggregated into a JSON object of genre id to name.
+ */
+public interface MovieFlatProjection {
+
+    Long getId();
+
+    UUID getUuid();
+
+    Long getVersion();
+
+    Integer getTmdbId();
+
+    Integer getReleaseYear();
+
+    String getGenres();
+
+    String getImdbId();
+
+    String getLocale();
+
+    String getTitle();
+
+    String getOverview();
+
+    String getTagline();
+
+    String getPosterUrl();
+}
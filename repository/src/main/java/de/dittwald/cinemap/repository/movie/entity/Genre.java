@@ -0,0 +1,97 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.entity;
+
+import de.dittwald.cinemap.repository.cache.CacheRegions;
+import de.dittwald.cinemap.repository.util.ConstantStrings;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Size;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Genre dimension keyed by the TMDB genre id. Movies reference genres instead of repeating their names, the names
+ * are kept once per locale.
+ */
+@Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.GENRE)
+@Table(name = "genres")
+@Getter
+@Setter
+public class Genre {
+
+    public Genre() {
+    }
+
+    public Genre(Integer id, String locale, String name) {
+        this.id = id;
+        this.names.put(locale, name);
+    }
+
+    @Id
+    private Integer id;
+
+    // Raised by every written name, so the entity tags of movies and scenes change with the names of their genres
+    @Version
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
+    // Genres are few and always shown with their names
+    @ElementCollection(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.GENRE_NAMES)
+    @CollectionTable(name = "genre_names", joinColumns = @JoinColumn(name = "genre_id", referencedColumnName = "id"))
+    @MapKeyColumn(name = "locale")
+    @Column(name = "name")
+    private Map<String, @Size(max = 50) String> names = new HashMap<>();
+
+    /**
+     * Resolves the name like LocaleFallbackHandler: the requested locale, the default locale and finally any other
+     * available locale.
+     */
+    public String getName(String locale) {
+        if (this.names.containsKey(locale)) {
+            return this.names.get(locale);
+        }
+        if (this.names.containsKey(ConstantStrings.DEFAULT_LOCALE)) {
+            return this.names.get(ConstantStrings.DEFAULT_LOCALE);
+        }
+        return this.names.isEmpty() ? null : new TreeMap<>(this.names).firstEntry().getValue();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Genre genre))
+            return false;
+        return Objects.equals(id, genre.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+}
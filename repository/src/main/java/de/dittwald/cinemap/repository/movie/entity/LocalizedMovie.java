@@ -16,10 +16,16 @@
 
 package de.dittwald.cinemap.repository.movie.entity;
 
+import de.dittwald.cinemap.repository.cache.CacheRegions;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Size;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnTransformer;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.io.Serializable;
 import java.net.URL;
@@ -27,6 +33,10 @@ import java.net.URL;
 @Setter
 @Getter
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.LOCALIZED_MOVIE)
+@DynamicUpdate
+@Table(indexes = @Index(name = "idx_localized_movie_locale_title", columnList = "locale, title, id"))
 @NamedQuery(name = "LocalizedMovie.findAllByMovieUuid",
         query = "select lm from LocalizedMovie lm where lm.movie.uuid = :movieUuid")
 public class LocalizedMovie implements Serializable {
@@ -56,12 +66,25 @@ public class LocalizedMovie implements Serializable {
     @Size(max = 255)
     private String title;
 
-    @Lob
+    // Stored inline as TOASTed text. Overviews not yet moved by the LobBackfillService are read from the large object
+    // of the legacy column.
     @Size(max = 5000)
+    @Column(name = "overview_text", columnDefinition = "text")
+    @ColumnTransformer(read = "coalesce(overview_text, convert_from(lo_get(overview), 'UTF8'))")
     private String overview;
 
+    // Only cleared by native statements, which unlink the large object in the same go
+    @Column(name = "overview", columnDefinition = "oid", insertable = false, updatable = false)
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Long legacyOverview;
+
     @Size(max = 255)
     private String tagline;
 
     private URL posterUrl;
+
+    public boolean hasLegacyOverview() {
+        return this.legacyOverview != null;
+    }
 }
@@ -16,16 +16,25 @@
 
 package de.dittwald.cinemap.repository.movie.entity;
 
+import de.dittwald.cinemap.repository.cache.CacheRegions;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.util.*;
 
 @Entity
-@Table(name = "movies")
+@Cacheable
+// Cached states keep their version, so writing a stale state still fails the version check
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.MOVIE)
+// Updates only write changed columns, a TMDB sync usually touches a few of them
+@DynamicUpdate
+@Table(name = "movies", indexes = @Index(name = "idx_movies_tmdb_id", columnList = "tmdb_id"))
 @Getter
 @Setter
 public class Movie {
@@ -35,7 +44,7 @@ public class Movie {
     }
 
     public Movie(UUID uuid, Integer tmdbId, Integer releaseYear,
-                 Map<Integer,String> genres, String imdbId,
+                 Map<Integer, Genre> genres, String imdbId,
                  Map<String, LocalizedMovie> localizedMovies) {
         this.uuid = uuid;
         this.tmdbId = tmdbId;
@@ -46,7 +55,9 @@ public class Movie {
     }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequence ids let Hibernate batch inserts, the pooled optimizer fetches 50 ids per round trip
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movies_seq")
+    @SequenceGenerator(name = "movies_seq", sequenceName = "movies_seq", allocationSize = 50)
     @Setter(AccessLevel.NONE)
     private Long id;
 
@@ -68,12 +79,14 @@ public class Movie {
     @Min(value = 1700)
     private Integer releaseYear;
 
-    @ElementCollection
-    @CollectionTable(name = "genres_number_mapping",
-            joinColumns = {@JoinColumn(name = "number_id", referencedColumnName = "id")})
-    @MapKeyColumn(name = "genres_id")
-    @Column(name = "genres")
-    private Map<Integer, @Size(max = 50) String> genres = new HashMap<>();
+    // The link table keeps its name from when it repeated the genre name for every movie
+    @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.MOVIE_GENRES)
+    @JoinTable(name = "genres_number_mapping",
+            joinColumns = {@JoinColumn(name = "number_id", referencedColumnName = "id")},
+            inverseJoinColumns = {@JoinColumn(name = "genres_id", referencedColumnName = "id")})
+    @MapKey(name = "id")
+    private Map<Integer, Genre> genres = new HashMap<>();
 
     @Column
     @Size(min = 1, max = 50)
@@ -82,9 +95,16 @@ public class Movie {
     @OneToMany(mappedBy = "movie",
             cascade = {CascadeType.DETACH, CascadeType.MERGE, CascadeType.PERSIST, CascadeType.REFRESH},
             orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.MOVIE_LOCALIZATIONS)
     @MapKey(name = "localizedId.locale")
     private Map<String, LocalizedMovie> localizedMovies;
 
+    // No getVersion(), Spring Data tells a new movie by its null version. A movie that is not persisted yet gets the
+    // initial version.
+    public long getPersistedVersion() {
+        return this.version != null ? this.version : 0;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
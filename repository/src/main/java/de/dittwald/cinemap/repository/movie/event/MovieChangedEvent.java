@@ -0,0 +1,43 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.event;
+
+import java.util.UUID;
+
+/**
+ * Published by the services whenever a movie or its localizations are written. Listeners apply it after the
+ * surrounding transaction has committed. The version is a lower bound of the written version, no version of a deleted
+ * movie is current anymore.
+ */
+public record MovieChangedEvent(UUID movieUuid, long version, boolean allDeleted) {
+
+    public static MovieChangedEvent created(UUID movieUuid) {
+        return new MovieChangedEvent(movieUuid, 0, false);
+    }
+
+    public static MovieChangedEvent changed(UUID movieUuid, long version) {
+        return new MovieChangedEvent(movieUuid, version, false);
+    }
+
+    public static MovieChangedEvent deleted(UUID movieUuid) {
+        return new MovieChangedEvent(movieUuid, Long.MAX_VALUE, false);
+    }
+
+    public static MovieChangedEvent deletedAll() {
+        return new MovieChangedEvent(null, Long.MAX_VALUE, true);
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.index;
+
+import de.dittwald.cinemap.repository.movie.dto.MovieFacetsDto;
+import de.dittwald.cinemap.repository.movie.event.MovieChangedEvent;
+import de.dittwald.cinemap.repository.movie.event.MoviesCreatedEvent;
+import de.dittwald.cinemap.repository.movie.repository.MovieRepository;
+import de.dittwald.cinemap.repository.movie.util.GenreMatch;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.ContainerPointer;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+
+/**
+ * In-memory bitmap columns of the movie attributes offered as facets: one bitmap of movie ids per release decade and
+ * per locale, the genres come from the {@link MovieGenreIndex}. Facet counts are intersection cardinalities of these
+ * bitmaps, so no movie is visited. The columns are loaded on first use, kept in sync via {@link MovieChangedEvent}s
+ * and {@link MoviesCreatedEvent}s and copied on change like the genre bitmaps.
+ */
+@Component
+@Slf4j
+public class MovieFacetIndex {
+
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    private final MovieRepository movieRepository;
+    private final MovieGenreIndex movieGenreIndex;
+
+    // Both guarded by this, the columns are additionally published via the volatile field
+    private final Map<UUID, Integer> movieIds = new HashMap<>();
+    private volatile Columns columns;
+
+    public MovieFacetIndex(MovieRepository movieRepository, MovieGenreIndex movieGenreIndex) {
+        this.movieRepository = movieRepository;
+        this.movieGenreIndex = movieGenreIndex;
+    }
+
+    /**
+     * Counts the movies having all or any of the given genres, released in any of the given decades and localized in
+     * all given locales. Empty selections do not restrict the movies. Options of the facets combined by "all" are
+     * counted within the selection, options of the facets combined by "any" are counted ignoring the selection of
+     * their own facet, so the other options of it stay visible.
+     */
+    public MovieFacetsDto count(Set<Integer> genreIds, GenreMatch genreMatch, Set<Integer> decades,
+                                Set<String> locales) {
+        Columns current = columns();
+        Map<Integer, RoaringBitmap> genreBitmaps = this.movieGenreIndex.bitmaps();
+
+        // Null stands for all movies. The selections are read only, a single option is its bitmap itself.
+        RoaringBitmap genreSelection = genreIds.isEmpty() ? null :
+                MovieGenreIndex.select(genreBitmaps, genreIds, genreMatch);
+        RoaringBitmap decadeSelection = decades.isEmpty() ? null : union(current.decades(), decades);
+        RoaringBitmap localeSelection = locales.isEmpty() ? null : intersection(current.locales(), locales);
+
+        RoaringBitmap decadesAndLocales = and(decadeSelection, localeSelection);
+        RoaringBitmap selected = and(decadesAndLocales, genreSelection);
+        RoaringBitmap genreBase = genreMatch == GenreMatch.ALL ? selected : decadesAndLocales;
+        RoaringBitmap decadeBase = and(localeSelection, genreSelection);
+
+        return new MovieFacetsDto(selected != null ? selected.getCardinality() : current.movies().getCardinality(),
+                counts(genreBase, genreBitmaps), counts(decadeBase, current.decades()),
+                counts(selected, current.locales()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onMovieChanged(MovieChangedEvent event) {
+        if (this.columns == null) {
+            // Not loaded yet, the initial load will read the committed state
+            return;
+        }
+
+        if (event.allDeleted()) {
+            this.movieIds.clear();
+            this.columns = new Columns(new RoaringBitmap(), Map.of(), Map.of());
+        } else {
+            // Deleted movies have no rows anymore, so updating removes them as well
+            List<UUID> movieUuids = List.of(event.movieUuid());
+            update(movieUuids, this.movieRepository.findMovieAttributesByUuidIn(movieUuids));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onMoviesCreated(MoviesCreatedEvent event) {
+        if (this.columns == null || event.movieUuids().isEmpty()) {
+            return;
+        }
+        update(event.movieUuids(), this.movieRepository.findMovieAttributesByUuidIn(event.movieUuids()));
+    }
+
+    private static int decadeOf(int releaseYear) {
+        return Math.floorDiv(releaseYear, 10) * 10;
+    }
+
+    private static <K> RoaringBitmap union(Map<K, RoaringBitmap> bitmaps, Set<K> keys) {
+        return keys.size() == 1 ? bitmaps.getOrDefault(keys.iterator().next(), EMPTY) :
+                FastAggregation.or(keys.stream().map(key -> bitmaps.getOrDefault(key, EMPTY))
+                        .toArray(RoaringBitmap[]::new));
+    }
+
+    private static <K> RoaringBitmap intersection(Map<K, RoaringBitmap> bitmaps, Set<K> keys) {
+        return keys.size() == 1 ? bitmaps.getOrDefault(keys.iterator().next(), EMPTY) :
+                FastAggregation.and(keys.stream().map(key -> bitmaps.getOrDefault(key, EMPTY))
+                        .toArray(RoaringBitmap[]::new));
+    }
+
+    // Decade and locale bitmaps only hold indexed movies, so no selection is intersected with all movies
+    private static RoaringBitmap and(RoaringBitmap first, RoaringBitmap second) {
+        if (first == null || second == null) {
+            return first != null ? first : second;
+        }
+        return RoaringBitmap.and(first, second);
+    }
+
+    private static <K extends Comparable<K>> Map<K, Integer> counts(RoaringBitmap base,
+                                                                   Map<K, RoaringBitmap> bitmaps) {
+        RoaringBitmap probed = base != null ? uncompressed(base) : null;
+        Map<K, Integer> counts = new TreeMap<>();
+        for (Map.Entry<K, RoaringBitmap> bitmap : bitmaps.entrySet()) {
+            int count = probed != null ? RoaringBitmap.andCardinality(probed, bitmap.getValue()) :
+                    bitmap.getValue().getCardinality();
+            if (count > 0) {
+                counts.put(bitmap.getKey(), count);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Copies the bitmap with uncompressed containers. Counting sorted array containers against each other merges them,
+     * counting against an uncompressed container probes it, which is several times faster for every facet option.
+     */
+    private static RoaringBitmap uncompressed(RoaringBitmap bitmap) {
+        RoaringBitmap uncompressed = new RoaringBitmap();
+        ContainerPointer containers = bitmap.getContainerPointer();
+        while (containers.getContainer() != null) {
+            uncompressed.append(containers.key(), containers.getContainer().toBitmapContainer());
+            containers.advance();
+        }
+        return uncompressed;
+    }
+
+    private void update(Collection<UUID> movieUuids, List<MovieAttributes> movieAttributes) {
+        Columns current = this.columns;
+        RoaringBitmap movies = current.movies().clone();
+        Map<Integer, RoaringBitmap> decades = new HashMap<>(current.decades());
+        Map<String, RoaringBitmap> locales = new HashMap<>(current.locales());
+        Set<Integer> copiedDecades = new HashSet<>();
+        Set<String> copiedLocales = new HashSet<>();
+        for (UUID movieUuid : movieUuids) {
+            Integer previous = this.movieIds.remove(movieUuid);
+            if (previous != null) {
+                movies.remove(previous);
+                remove(current.decades(), decades, copiedDecades, previous);
+                remove(current.locales(), locales, copiedLocales, previous);
+            }
+        }
+        for (MovieAttributes movie : movieAttributes) {
+            int movieId = ordinal(movie.movieId());
+            this.movieIds.put(movie.movieUuid(), movieId);
+            movies.add(movieId);
+            if (movie.releaseYear() != null) {
+                writable(decades, copiedDecades, decadeOf(movie.releaseYear())).add(movieId);
+            }
+            if (movie.locale() != null) {
+                writable(locales, copiedLocales, movie.locale()).add(movieId);
+            }
+        }
+        movies.runOptimize();
+        this.columns = new Columns(movies, optimize(decades, copiedDecades), optimize(locales, copiedLocales));
+    }
+
+    private static <K> void remove(Map<K, RoaringBitmap> current, Map<K, RoaringBitmap> changed, Set<K> copied,
+                                   int movieId) {
+        for (Map.Entry<K, RoaringBitmap> bitmap : current.entrySet()) {
+            if (bitmap.getValue().contains(movieId)) {
+                writable(changed, copied, bitmap.getKey()).remove(movieId);
+            }
+        }
+    }
+
+    private static <K> RoaringBitmap writable(Map<K, RoaringBitmap> bitmaps, Set<K> copied, K key) {
+        if (copied.add(key)) {
+            RoaringBitmap bitmap = bitmaps.get(key);
+            bitmaps.put(key, bitmap != null ? bitmap.clone() : new RoaringBitmap());
+        }
+        return bitmaps.get(key);
+    }
+
+    private static <K> Map<K, RoaringBitmap> optimize(Map<K, RoaringBitmap> bitmaps, Set<K> copied) {
+        for (K key : copied) {
+            if (bitmaps.get(key).isEmpty()) {
+                bitmaps.remove(key);
+            } else {
+                bitmaps.get(key).runOptimize();
+            }
+        }
+        return Collections.unmodifiableMap(bitmaps);
+    }
+
+    private Columns columns() {
+        Columns current = this.columns;
+        if (current == null) {
+            synchronized (this) {
+                if (this.columns == null) {
+                    load();
+                }
+                current = this.columns;
+            }
+        }
+        return current;
+    }
+
+    private void load() {
+        RoaringBitmap movies = new RoaringBitmap();
+        Map<Integer, RoaringBitmap> decades = new HashMap<>();
+        Map<String, RoaringBitmap> locales = new HashMap<>();
+        for (MovieAttributes movie : this.movieRepository.findAllMovieAttributes()) {
+            int movieId = ordinal(movie.movieId());
+            this.movieIds.put(movie.movieUuid(), movieId);
+            movies.add(movieId);
+            if (movie.releaseYear() != null) {
+                decades.computeIfAbsent(decadeOf(movie.releaseYear()), decade -> new RoaringBitmap()).add(movieId);
+            }
+            if (movie.locale() != null) {
+                locales.computeIfAbsent(movie.locale(), locale -> new RoaringBitmap()).add(movieId);
+            }
+        }
+        movies.runOptimize();
+        decades.values().forEach(RoaringBitmap::runOptimize);
+        locales.values().forEach(RoaringBitmap::runOptimize);
+        this.columns = new Columns(movies, Collections.unmodifiableMap(decades), Collections.unmodifiableMap(locales));
+        log.info("Loaded {} movies of {} decades in {} locales into the facet index", this.movieIds.size(),
+                decades.size(), locales.size());
+    }
+
+    private static int ordinal(Long movieId) {
+        return Math.toIntExact(movieId);
+    }
+
+    // One immutable snapshot, so a count never mixes columns of different states
+    private record Columns(RoaringBitmap movies, Map<Integer, RoaringBitmap> decades,
+                           Map<String, RoaringBitmap> locales) {
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.index;
+
+import de.dittwald.cinemap.repository.movie.event.MovieChangedEvent;
+import de.dittwald.cinemap.repository.movie.event.MoviesCreatedEvent;
+import de.dittwald.cinemap.repository.movie.repository.MovieRepository;
+import de.dittwald.cinemap.repository.movie.util.GenreMatch;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+
+/**
+ * In-memory compressed bitmaps of the movies of every genre. Movie ids come from a sequence, so they are dense and
+ * serve as the bitmap ordinals, and iterating a bitmap yields the movies in id order. The bitmaps are loaded from the
+ * database on first use and kept in sync via {@link MovieChangedEvent}s and {@link MoviesCreatedEvent}s. Changed
+ * bitmaps are copied, so readers never see a bitmap while it is being changed.
+ */
+@Component
+@Slf4j
+public class MovieGenreIndex {
+
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    private final MovieRepository movieRepository;
+
+    // Both guarded by this, the bitmaps are additionally published via the volatile field
+    private final Map<UUID, Integer> movieIds = new HashMap<>();
+    private volatile Map<Integer, RoaringBitmap> bitmaps;
+
+    public MovieGenreIndex(MovieRepository movieRepository) {
+        this.movieRepository = movieRepository;
+    }
+
+    /**
+     * Returns the ids of the movies having all or any of the given genres. The returned bitmap is not shared.
+     */
+    public RoaringBitmap filter(Collection<Integer> genreIds, GenreMatch match) {
+        RoaringBitmap selection = select(bitmaps(), genreIds, match);
+        return genreIds.size() == 1 ? selection.clone() : selection;
+    }
+
+    /**
+     * Like {@link #filter}, but a single genre is answered by its bitmap itself, which must not be changed.
+     */
+    static RoaringBitmap select(Map<Integer, RoaringBitmap> bitmaps, Collection<Integer> genreIds,
+                                GenreMatch match) {
+        RoaringBitmap[] selected = genreIds.stream()
+                .map(genreId -> bitmaps.getOrDefault(genreId, EMPTY))
+                .toArray(RoaringBitmap[]::new);
+        if (selected.length == 0) {
+            return new RoaringBitmap();
+        }
+        if (selected.length == 1) {
+            return selected[0];
+        }
+        return switch (match) {
+            case ALL -> FastAggregation.and(selected);
+            case ANY -> FastAggregation.or(selected);
+        };
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onMovieChanged(MovieChangedEvent event) {
+        if (this.bitmaps == null) {
+            // Not loaded yet, the initial load will read the committed state
+            return;
+        }
+
+        if (event.allDeleted()) {
+            this.movieIds.clear();
+            this.bitmaps = Map.of();
+        } else {
+            // Deleted movies have no rows anymore, so updating removes them as well
+            List<UUID> movieUuids = List.of(event.movieUuid());
+            update(movieUuids, this.movieRepository.findMovieGenresByUuidIn(movieUuids));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onMoviesCreated(MoviesCreatedEvent event) {
+        if (this.bitmaps == null || event.movieUuids().isEmpty()) {
+            return;
+        }
+        update(event.movieUuids(), this.movieRepository.findMovieGenresByUuidIn(event.movieUuids()));
+    }
+
+    private void update(Collection<UUID> movieUuids, List<MovieGenre> movieGenres) {
+        Map<Integer, RoaringBitmap> changed = new HashMap<>(this.bitmaps);
+        Set<Integer> copied = new HashSet<>();
+        for (UUID movieUuid : movieUuids) {
+            Integer previous = this.movieIds.remove(movieUuid);
+            if (previous != null) {
+                for (Map.Entry<Integer, RoaringBitmap> bitmap : this.bitmaps.entrySet()) {
+                    if (bitmap.getValue().contains(previous)) {
+                        writable(changed, copied, bitmap.getKey()).remove(previous);
+                    }
+                }
+            }
+        }
+        for (MovieGenre movieGenre : movieGenres) {
+            if (movieGenre.genreId() != null) {
+                int movieId = ordinal(movieGenre.movieId());
+                this.movieIds.put(movieGenre.movieUuid(), movieId);
+                writable(changed, copied, movieGenre.genreId()).add(movieId);
+            }
+        }
+        for (Integer genreId : copied) {
+            if (changed.get(genreId).isEmpty()) {
+                changed.remove(genreId);
+            } else {
+                changed.get(genreId).runOptimize();
+            }
+        }
+        this.bitmaps = Collections.unmodifiableMap(changed);
+    }
+
+    private RoaringBitmap writable(Map<Integer, RoaringBitmap> bitmaps, Set<Integer> copied, Integer genreId) {
+        if (copied.add(genreId)) {
+            RoaringBitmap bitmap = bitmaps.get(genreId);
+            bitmaps.put(genreId, bitmap != null ? bitmap.clone() : new RoaringBitmap());
+        }
+        return bitmaps.get(genreId);
+    }
+
+    /**
+     * Returns the current bitmaps of all genres. They are never changed once published.
+     */
+    Map<Integer, RoaringBitmap> bitmaps() {
+        Map<Integer, RoaringBitmap> current = this.bitmaps;
+        if (current == null) {
+            synchronized (this) {
+                if (this.bitmaps == null) {
+                    load();
+                }
+                current = this.bitmaps;
+            }
+        }
+        return current;
+    }
+
+    private void load() {
+        Map<Integer, RoaringBitmap> loaded = new HashMap<>();
+        for (MovieGenre movieGenre : this.movieRepository.findAllMovieGenres()) {
+            if (movieGenre.genreId() != null) {
+                int movieId = ordinal(movieGenre.movieId());
+                this.movieIds.put(movieGenre.movieUuid(), movieId);
+                loaded.computeIfAbsent(movieGenre.genreId(), genreId -> new RoaringBitmap()).add(movieId);
+            }
+        }
+        // Turns runs of consecutive ids into run containers
+        loaded.values().forEach(RoaringBitmap::runOptimize);
+        this.bitmaps = Collections.unmodifiableMap(loaded);
+        log.info("Loaded {} movies of {} genres into the genre index", this.movieIds.size(), loaded.size());
+    }
+
+    private static int ordinal(Long movieId) {
+        return Math.toIntExact(movieId);
+    }
+}
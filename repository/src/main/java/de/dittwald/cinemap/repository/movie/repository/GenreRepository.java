@@ -0,0 +1,57 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.repository;
+
+import de.dittwald.cinemap.repository.datasource.ReadFromPrimary;
+import de.dittwald.cinemap.repository.movie.entity.Genre;
+import de.dittwald.cinemap.repository.util.CollectionVersion;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface GenreRepository extends ListCrudRepository<Genre, Integer> {
+
+    // Creates the genre if needed and writes its name in the given locale, unchanged names are left untouched. Both
+    // are upserts, so concurrent writers of the same genre do not conflict. A changed name raises the version of the
+    // genre, which also locks the genre until the end of the transaction. Inserted genres cannot turn cached ones
+    // stale, cached names are evicted by the GenreNamesCacheEvictor.
+    @Modifying
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "genres"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "genre_names")})
+    @Query(nativeQuery = true, value = """
+            with genre as (insert into genres (id, version) values (:genreId, 0)
+                           on conflict (id) do update set version = genres.version + 1
+                           where not exists (select 1 from genre_names n
+                                             where n.genre_id = :genreId and n.locale = :locale
+                                               and n.name is not distinct from :name))
+            insert into genre_names (genre_id, locale, name) values (:genreId, :locale, :name)
+            on conflict (genre_id, locale) do update set name = excluded.name
+            where genre_names.name is distinct from excluded.name
+            """)
+    int upsertName(@Param("genreId") Integer genreId, @Param("locale") String locale, @Param("name") String name);
+
+    @ReadFromPrimary
+    @Query("select new de.dittwald.cinemap.repository.util.CollectionVersion(count(g), " +
+            "coalesce(cast(max(g.id) as Long), 0L), coalesce(sum(g.version), 0L)) from Genre g")
+    CollectionVersion findCollectionVersion();
+}
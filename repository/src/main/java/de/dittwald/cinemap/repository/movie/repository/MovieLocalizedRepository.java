@@ -17,15 +17,105 @@
 package de.dittwald.cinemap.repository.movie.repository;
 
 import de.dittwald.cinemap.repository.movie.entity.LocalizedMovie;
+import de.dittwald.cinemap.repository.search.index.SearchDocument;
+import de.dittwald.cinemap.repository.util.ConstantStrings;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface MovieLocalizedRepository extends ListCrudRepository<LocalizedMovie, String> {
 
+    String SEARCH_DOCUMENT = "select new de.dittwald.cinemap.repository.search.index.SearchDocument('" +
+            SearchDocument.MOVIE + "', m.uuid, m.uuid, lm.localizedId.locale, lm.title, lm.tagline, lm.overview) " +
+            "from LocalizedMovie lm join lm.movie m ";
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<List<LocalizedMovie>> findAllByMovieUuid(UUID movieUuid);
+
+    @Query(SEARCH_DOCUMENT + "where m.uuid = :movieUuid")
+    List<SearchDocument> findSearchDocumentsByMovieUuid(@Param("movieUuid") UUID movieUuid);
+
+    @Query(SEARCH_DOCUMENT + "where m.uuid in :movieUuids")
+    List<SearchDocument> findSearchDocumentsByMovieUuidIn(@Param("movieUuids") Collection<UUID> movieUuids);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = ConstantStrings.STREAM_FETCH_SIZE))
+    @Query(SEARCH_DOCUMENT + "order by m.id")
+    Stream<SearchDocument> streamSearchDocuments();
+
+    // Locales are ISO 639-1 codes, so the kept locales are passed joined by commas. An empty string keeps none.
+    @Query(nativeQuery = true, value = """
+            select count(lo_unlink(overview)) from localized_movie
+            where id = :movieId and locale <> all(string_to_array(:keptLocales, ',')) and overview is not null
+            """)
+    long unlinkOverviewsOfOtherLocales(@Param("movieId") Long movieId, @Param("keptLocales") String keptLocales);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "localized_movie"))
+    @Query(nativeQuery = true, value = "delete from localized_movie " +
+            "where id = :movieId and locale <> all(string_to_array(:keptLocales, ','))")
+    int deleteOtherLocales(@Param("movieId") Long movieId, @Param("keptLocales") String keptLocales);
+
+    // Copies the large objects of a batch of overviews to the text column and unlinks them.
+    // CTEs calling volatile functions are materialized and run once, so every large object is read before it is
+    // unlinked. Rows locked by concurrent writes wait for the next batch. The statement is an UPDATE, so Hibernate
+    // invalidates the cached localized movies.
+    String MOVE_OVERVIEWS_TO_TEXT = """
+            with batch as (select id, locale, overview as oid from localized_movie
+                           where overview is not null
+                           limit :batchSize for update skip locked),
+                 copied as (select id, locale, oid, convert_from(lo_get(oid), 'UTF8') as text from batch),
+                 unlinked as (select id, locale, text from copied where lo_unlink(oid) = 1)
+            update localized_movie l
+            set overview_text = coalesce(l.overview_text, unlinked.text),
+                overview = null
+            from unlinked
+            where l.id = unlinked.id and l.locale = unlinked.locale
+            """;
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "localized_movie"))
+    @Query(nativeQuery = true, value = MOVE_OVERVIEWS_TO_TEXT)
+    int moveOverviewsToText(@Param("batchSize") int batchSize);
+
+    // Moves the large objects of the overviews of the given movies like MOVE_OVERVIEWS_TO_TEXT, before their
+    // overviews get written. Waits for locked rows, they are about to be written by the calling transaction anyway.
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "localized_movie"))
+    @Query(nativeQuery = true, value = """
+            with batch as (select id, locale, overview as oid from localized_movie
+                           where id in :movieIds and overview is not null
+                           for update),
+                 copied as (select id, locale, oid, convert_from(lo_get(oid), 'UTF8') as text from batch),
+                 unlinked as (select id, locale, text from copied where lo_unlink(oid) = 1)
+            update localized_movie l
+            set overview_text = coalesce(l.overview_text, unlinked.text),
+                overview = null
+            from unlinked
+            where l.id = unlinked.id and l.locale = unlinked.locale
+            """)
+    int moveOverviewsOfMoviesToText(@Param("movieIds") Collection<Long> movieIds);
+
+    // Deleting the rows leaves the large objects of the overviews behind
+    @Query(nativeQuery = true,
+            value = "select count(lo_unlink(overview)) from localized_movie where overview is not null")
+    long unlinkAllOverviews();
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "localized_movie"))
+    @Query(nativeQuery = true, value = "delete from localized_movie")
+    int purgeAll();
 }
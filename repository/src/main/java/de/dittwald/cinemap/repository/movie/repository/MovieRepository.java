@@ -16,19 +16,218 @@
 
 package de.dittwald.cinemap.repository.movie.repository;
 
+import de.dittwald.cinemap.repository.datasource.ReadFromPrimary;
+import de.dittwald.cinemap.repository.movie.dto.MovieFlatProjection;
+import de.dittwald.cinemap.repository.movie.dto.MovieTitleKey;
 import de.dittwald.cinemap.repository.movie.entity.Movie;
+import de.dittwald.cinemap.repository.movie.index.MovieAttributes;
+import de.dittwald.cinemap.repository.movie.index.MovieGenre;
+import de.dittwald.cinemap.repository.util.CollectionVersion;
+import de.dittwald.cinemap.repository.util.ConstantStrings;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Repository
 public interface MovieRepository extends ListCrudRepository<Movie, Long> {
 
+    String MOVIE_FLAT_COLUMNS = """
+            select m.id as "id", m.uuid as "uuid", m.version as "version", m.tmdb_id as "tmdbId",
+                   m.release_year as "releaseYear", m.imdb_id as "imdbId", lm.locale as "locale", lm.title as "title",
+                   coalesce(lm.overview_text, convert_from(lo_get(lm.overview), 'UTF8')) as "overview",
+                   lm.tagline as "tagline",
+                   lm.poster_url as "posterUrl",
+                   (select cast(json_object_agg(g.genres_id, gn.name) as text)
+                    from genres_number_mapping g
+            """ + "left join lateral (select n.name from genre_names n where n.genre_id = g.genres_id " +
+            "order by case n.locale when :locale then 0 when '" + ConstantStrings.DEFAULT_LOCALE +
+            "' then 1 else 2 end, n.locale limit 1) gn on true where g.number_id = m.id) as \"genres\" ";
+
+    // Resolves the localization like LocaleFallbackHandler: the requested locale, the default locale and finally
+    // any other available locale
+    String MOVIE_LOCALIZATION_JOIN = """
+            left join lateral (select l.locale, l.title, l.overview_text, l.overview, l.tagline, l.poster_url
+                               from localized_movie l
+                               where l.id = m.id
+            """ + "order by case l.locale when :locale then 0 when '" + ConstantStrings.DEFAULT_LOCALE +
+            "' then 1 else 2 end, l.locale limit 1) lm on true ";
+
+    String MOVIE_GENRE = "select new de.dittwald.cinemap.repository.movie.index.MovieGenre(m.uuid, m.id, g.id) " +
+            "from Movie m left join m.genres g ";
+
+    String MOVIE_ATTRIBUTES = "select new de.dittwald.cinemap.repository.movie.index.MovieAttributes(m.uuid, m.id, " +
+            "m.releaseYear, l.localizedId.locale) from Movie m left join m.localizedMovies l ";
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Movie> findByUuid(UUID uuid);
 
+    List<Movie> findAllByUuidIn(Collection<UUID> uuids);
+
+    List<Movie> findAllByTmdbIdIn(Collection<Integer> tmdbIds);
+
+    // Localizations are not owned by the movie, writing them would not increment its version otherwise
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("select m from Movie m where m.uuid = :uuid")
+    Optional<Movie> findByUuidIncrementingVersion(@Param("uuid") UUID uuid);
+
+    @Query("select m.id from Movie m where m.uuid = :uuid")
+    Optional<Long> findIdByUuid(@Param("uuid") UUID uuid);
+
+    @Query("select m.version from Movie m where m.uuid = :uuid")
+    Optional<Long> findVersionByUuid(@Param("uuid") UUID uuid);
+
+    @ReadFromPrimary
+    @Query("select new de.dittwald.cinemap.repository.util.CollectionVersion(count(m), coalesce(max(m.id), 0L), " +
+            "coalesce(sum(m.version), 0L)) from Movie m")
+    CollectionVersion findCollectionVersion();
+
     void deleteByUuid(UUID uuid);
 
+    @ReadFromPrimary
+    @Query(MOVIE_GENRE + "order by m.id")
+    List<MovieGenre> findAllMovieGenres();
+
+    @Query(MOVIE_GENRE + "where m.uuid in :uuids")
+    List<MovieGenre> findMovieGenresByUuidIn(@Param("uuids") Collection<UUID> uuids);
+
+    @ReadFromPrimary
+    @Query(MOVIE_ATTRIBUTES + "order by m.id")
+    List<MovieAttributes> findAllMovieAttributes();
+
+    @Query(MOVIE_ATTRIBUTES + "where m.uuid in :uuids")
+    List<MovieAttributes> findMovieAttributesByUuidIn(@Param("uuids") Collection<UUID> uuids);
+
     boolean existsByUuid(UUID uuid);
-}
\ No newline at end of file
+
+    // Deletes the movie with its scenes, localizations and genres in one statement. Foreign keys are checked at the end
+    // of the statement, the large objects of descriptions and overviews are unlinked while their rows are deleted.
+    // Native statements declare the tables they write, the second-level cache is only invalidated for their entities.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "movies"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "scenes"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "localized_movie"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "localized_scene"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "genres_number_mapping")})
+    @Query(nativeQuery = true, value = """
+            with movie as (select id from movies where uuid = :uuid),
+                 scene as (select id from scenes where movie_id in (select id from movie)),
+                 deleted_localized_scenes as (delete from localized_scene where id in (select id from scene)
+                                              returning lo_unlink(description)),
+                 deleted_scenes as (delete from scenes where id in (select id from scene)),
+                 deleted_localized_movies as (delete from localized_movie where id in (select id from movie)
+                                              returning lo_unlink(overview)),
+                 deleted_genres as (delete from genres_number_mapping where number_id in (select id from movie))
+            delete from movies where id in (select id from movie)
+            """)
+    int deleteCascadingByUuid(@Param("uuid") UUID uuid);
+
+    // Genres are linked one by one instead of replacing the collection, linked genres are left untouched. Hibernate
+    // relates the genres collections of movies to the genres they hold, so these statements declare both tables.
+    @Modifying(flushAutomatically = true)
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "genres_number_mapping"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "genres")})
+    @Query(nativeQuery = true, value = """
+            insert into genres_number_mapping (number_id, genres_id) values (:movieId, :genreId)
+            on conflict (number_id, genres_id) do nothing
+            """)
+    int linkGenre(@Param("movieId") Long movieId, @Param("genreId") Integer genreId);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "genres_number_mapping"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "genres")})
+    @Query(nativeQuery = true,
+            value = "delete from genres_number_mapping where number_id = :movieId and genres_id in :genreIds")
+    int deleteGenres(@Param("movieId") Long movieId, @Param("genreIds") Collection<Integer> genreIds);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "genres_number_mapping"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "genres")})
+    @Query(nativeQuery = true, value = "delete from genres_number_mapping where number_id = :movieId")
+    int deleteAllGenres(@Param("movieId") Long movieId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "genres_number_mapping"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "genres")})
+    @Query(nativeQuery = true, value = "delete from genres_number_mapping")
+    int purgeAllGenres();
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "movies"))
+    @Query(nativeQuery = true, value = "delete from movies")
+    int purgeAll();
+
+    @Query("select m.tmdbId from Movie m where m.tmdbId in :tmdbIds")
+    Set<Integer> findExistingTmdbIds(@Param("tmdbIds") Collection<Integer> tmdbIds);
+
+    @Query("select m.uuid from Movie m where m.uuid in :uuids")
+    Set<UUID> findExistingUuids(@Param("uuids") Collection<UUID> uuids);
+
+    @Query(nativeQuery = true, value = MOVIE_FLAT_COLUMNS + "from movies m " + MOVIE_LOCALIZATION_JOIN +
+            "where m.uuid = :uuid")
+    Optional<MovieFlatProjection> findFlatByUuid(@Param("uuid") UUID uuid, @Param("locale") String locale);
+
+    @Query(nativeQuery = true, value = MOVIE_FLAT_COLUMNS + "from movies m " + MOVIE_LOCALIZATION_JOIN +
+            "where m.id > :afterId order by m.id limit :limit")
+    List<MovieFlatProjection> findFlatPageOrderById(@Param("locale") String locale, @Param("afterId") long afterId,
+                                                    @Param("limit") int limit);
+
+    @Query(nativeQuery = true, value = MOVIE_FLAT_COLUMNS + """
+            from localized_movie k
+            join movies m on m.id = k.id
+            """ + MOVIE_LOCALIZATION_JOIN + """
+            where k.locale = :locale and k.title is not null
+            order by k.title, k.id
+            limit :limit
+            """)
+    List<MovieFlatProjection> findFirstFlatPageOrderByTitle(@Param("locale") String locale, @Param("limit") int limit);
+
+    @Query(nativeQuery = true, value = MOVIE_FLAT_COLUMNS + """
+            from localized_movie k
+            join movies m on m.id = k.id
+            """ + MOVIE_LOCALIZATION_JOIN + """
+            where k.locale = :locale and k.title is not null
+              and (k.title > :afterTitle or (k.title = :afterTitle and k.id > :afterId))
+            order by k.title, k.id
+            limit :limit
+            """)
+    List<MovieFlatProjection> findFlatPageOrderByTitle(@Param("locale") String locale,
+                                                       @Param("afterTitle") String afterTitle,
+                                                       @Param("afterId") long afterId, @Param("limit") int limit);
+
+    @Query(nativeQuery = true, value = MOVIE_FLAT_COLUMNS + "from movies m " + MOVIE_LOCALIZATION_JOIN +
+            "where m.id in :ids order by m.id")
+    List<MovieFlatProjection> findFlatByIdIn(@Param("locale") String locale, @Param("ids") Collection<Long> ids);
+
+    @Query(nativeQuery = true, value = """
+            select k.id as "id", k.title as "title"
+            from localized_movie k
+            where k.locale = :locale and k.title is not null
+            order by k.title, k.id
+            limit :limit
+            """)
+    List<MovieTitleKey> findFirstTitleKeys(@Param("locale") String locale, @Param("limit") int limit);
+
+    @Query(nativeQuery = true, value = """
+            select k.id as "id", k.title as "title"
+            from localized_movie k
+            where k.locale = :locale and k.title is not null
+              and (k.title > :afterTitle or (k.title = :afterTitle and k.id > :afterId))
+            order by k.title, k.id
+            limit :limit
+            """)
+    List<MovieTitleKey> findTitleKeys(@Param("locale") String locale, @Param("afterTitle") String afterTitle,
+                                      @Param("afterId") long afterId, @Param("limit") int limit);
+}
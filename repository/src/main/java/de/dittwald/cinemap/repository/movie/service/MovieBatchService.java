@@ -0,0 +1,170 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import de.dittwald.cinemap.repository.movie.dto.MovieBatchRecordDto;
+import de.dittwald.cinemap.repository.movie.dto.MovieBatchResultDto;
+import de.dittwald.cinemap.repository.movie.dto.MovieLocalizationEntryDto;
+import de.dittwald.cinemap.repository.movie.util.MovieBatchStatus;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.function.ThrowingConsumer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Ingests newline delimited {@link MovieBatchRecordDto}s. Each record is validated on its own, the valid ones are
+ * inserted in batches of {@code de.cinemap.repository.movies.batch-size} records, one transaction per batch. The
+ * result of every record is handed to the consumer in the order of the input once its batch is written.
+ */
+@Service
+@Slf4j
+public class MovieBatchService {
+
+    private final MovieService movieService;
+    private final Validator validator;
+    private final ObjectReader recordReader;
+    private final int batchSize;
+
+    public MovieBatchService(MovieService movieService, Validator validator, ObjectMapper objectMapper,
+                             @Value("${de.cinemap.repository.movies.batch-size:1000}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.movieService = movieService;
+        this.validator = validator;
+        this.recordReader = objectMapper.readerFor(MovieBatchRecordDto.class);
+        this.batchSize = batchSize;
+    }
+
+    public void ingest(InputStream inputStream, ThrowingConsumer<MovieBatchResultDto> consumer) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        List<Entry> batch = new ArrayList<>(this.batchSize);
+        Set<UUID> batchUuids = new HashSet<>();
+        long recordNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            recordNumber++;
+            batch.add(read(recordNumber, line, batchUuids));
+            if (batch.size() >= this.batchSize) {
+                write(batch, consumer);
+                batch.clear();
+                batchUuids.clear();
+            }
+        }
+        write(batch, consumer);
+    }
+
+    private Entry read(long recordNumber, String line, Set<UUID> batchUuids) {
+        MovieBatchRecordDto record;
+        try {
+            record = this.recordReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            return Entry.rejected(recordNumber, null, MovieBatchStatus.INVALID, e.getOriginalMessage());
+        }
+
+        UUID uuid = record != null && record.movie() != null ? record.movie().uuid() : null;
+        String violations = validate(record);
+        if (violations != null) {
+            return Entry.rejected(recordNumber, uuid, MovieBatchStatus.INVALID, violations);
+        }
+        if (!batchUuids.add(uuid)) {
+            return Entry.rejected(recordNumber, uuid, MovieBatchStatus.CONFLICT, "UUID already in use");
+        }
+        return new Entry(recordNumber, record, null);
+    }
+
+    private String validate(MovieBatchRecordDto record) {
+        if (record == null) {
+            return "Record must not be null";
+        }
+        Set<ConstraintViolation<MovieBatchRecordDto>> violations = this.validator.validate(record);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+        Set<String> locales = new HashSet<>();
+        locales.add(record.movie().locale());
+        if (record.localizations() != null) {
+            for (MovieLocalizationEntryDto localization : record.localizations()) {
+                if (!locales.add(localization.locale())) {
+                    return "Duplicate localization %s".formatted(localization.locale());
+                }
+            }
+        }
+        return null;
+    }
+
+    private void write(List<Entry> batch, ThrowingConsumer<MovieBatchResultDto> consumer) {
+        List<MovieBatchRecordDto> records = batch.stream().filter(Entry::valid).map(Entry::record).toList();
+        Set<UUID> existingUuids = Set.of();
+        String failure = null;
+        if (!records.isEmpty()) {
+            try {
+                existingUuids = this.movieService.saveBatch(records);
+            } catch (DataAccessException e) {
+                log.warn("Failed to write a batch of {} movies", records.size(), e);
+                failure = "Writing the batch failed";
+            }
+        }
+
+        for (Entry entry : batch) {
+            if (!entry.valid()) {
+                consumer.accept(entry.rejection());
+                continue;
+            }
+            UUID uuid = entry.record().movie().uuid();
+            if (failure != null) {
+                consumer.accept(new MovieBatchResultDto(entry.recordNumber(), uuid, MovieBatchStatus.FAILED, failure));
+            } else if (existingUuids.contains(uuid)) {
+                consumer.accept(new MovieBatchResultDto(entry.recordNumber(), uuid, MovieBatchStatus.CONFLICT,
+                        "UUID already in use"));
+            } else {
+                consumer.accept(new MovieBatchResultDto(entry.recordNumber(), uuid, MovieBatchStatus.CREATED, null));
+            }
+        }
+    }
+
+    private record Entry(long recordNumber, MovieBatchRecordDto record, MovieBatchResultDto rejection) {
+
+        static Entry rejected(long recordNumber, UUID uuid, MovieBatchStatus status, String message) {
+            return new Entry(recordNumber, null, new MovieBatchResultDto(recordNumber, uuid, status, message));
+        }
+
+        boolean valid() {
+            return this.rejection == null;
+        }
+    }
+}
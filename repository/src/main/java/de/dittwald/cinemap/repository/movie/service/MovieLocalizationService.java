@@ -17,34 +17,55 @@
 package de.dittwald.cinemap.repository.movie.service;
 
 import de.dittwald.cinemap.repository.exceptions.NotFoundException;
+import de.dittwald.cinemap.repository.exceptions.PreconditionFailedException;
 import de.dittwald.cinemap.repository.movie.dto.MovieLocalizationEntryDto;
 import de.dittwald.cinemap.repository.movie.dto.MovieLocalizationDto;
 import de.dittwald.cinemap.repository.movie.entity.LocalizedId;
 import de.dittwald.cinemap.repository.movie.entity.LocalizedMovie;
 import de.dittwald.cinemap.repository.movie.entity.Movie;
+import de.dittwald.cinemap.repository.movie.event.MovieChangedEvent;
 import de.dittwald.cinemap.repository.movie.repository.MovieLocalizedRepository;
 import de.dittwald.cinemap.repository.movie.repository.MovieRepository;
+import de.dittwald.cinemap.repository.util.EntityTags;
+import de.dittwald.cinemap.repository.util.MergePatch;
+import de.dittwald.cinemap.repository.util.Tagged;
+import de.dittwald.cinemap.repository.util.TargetedUpdateRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class MovieLocalizationService {
 
+    private static final Map<String, Function<MovieLocalizationEntryDto, Object>> PATCHED_COLUMNS =
+            Map.of("title", MovieLocalizationEntryDto::title, "overview", MovieLocalizationEntryDto::overview,
+                    "tagline", MovieLocalizationEntryDto::tagline, "posterUrl", MovieLocalizationEntryDto::posterUrl);
+
+    public static final Set<String> PATCHABLE_FIELDS = PATCHED_COLUMNS.keySet();
+
     private final MovieRepository movieRepository;
     private final MovieLocalizedRepository movieLocalizedRepository;
+    private final TargetedUpdateRepository targetedUpdateRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public MovieLocalizationService(MovieRepository movieRepository,
-                                    MovieLocalizedRepository movieLocalizedRepository) {
+                                    MovieLocalizedRepository movieLocalizedRepository,
+                                    TargetedUpdateRepository targetedUpdateRepository,
+                                    ApplicationEventPublisher eventPublisher) {
         this.movieRepository = movieRepository;
         this.movieLocalizedRepository = movieLocalizedRepository;
+        this.targetedUpdateRepository = targetedUpdateRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
     public void update(MovieLocalizationDto movieLocalizationDto, UUID movieUuid, boolean override)
             throws NotFoundException {
-        Optional<Movie> movieOptional = this.movieRepository.findByUuid(movieUuid);
+        Optional<Movie> movieOptional = this.movieRepository.findByUuidIncrementingVersion(movieUuid);
         Movie movie;
 
         if (movieOptional.isPresent()) {
@@ -52,22 +73,31 @@ public class MovieLocalizationService {
         } else {
             throw new NotFoundException("Movie not found");
         }
+        long version = movie.getPersistedVersion() + 1;
 
+        // Removed locales are deleted with one statement before the remaining localizations are loaded
         if (override) {
-            movie.getLocalizedMovies().clear();
-            this.movieLocalizedRepository.deleteAll(this.movieLocalizedRepository.findAllByMovieUuid(movie.getUuid()).get());
-            this.movieRepository.save(movie);
+            String keptLocales = movieLocalizationDto.localizations()
+                    .stream()
+                    .map(MovieLocalizationEntryDto::locale)
+                    .collect(Collectors.joining(","));
+            this.movieLocalizedRepository.unlinkOverviewsOfOtherLocales(movie.getId(), keptLocales);
+            this.movieLocalizedRepository.deleteOtherLocales(movie.getId(), keptLocales);
+        }
+        // Overviews about to be written must not leave their large objects behind. Moving evicts all cached localized
+        // movies, so it only runs if large objects are left.
+        if (movie.getLocalizedMovies().values().stream().anyMatch(LocalizedMovie::hasLegacyOverview)) {
+            this.movieLocalizedRepository.moveOverviewsOfMoviesToText(List.of(movie.getId()));
         }
 
+        // New locales are inserted and changed ones updated in JDBC batches, dirty checking skips unchanged rows
         for (MovieLocalizationEntryDto dto : movieLocalizationDto.localizations()) {
-            if (movie.getLocalizedMovies().containsKey(dto.locale())) {
-                LocalizedMovie updatedLocalizedMovie = movie.getLocalizedMovies().get(dto.locale());
-                updatedLocalizedMovie.setTitle(dto.title());
-                updatedLocalizedMovie.setTagline(dto.tagline());
-                updatedLocalizedMovie.setOverview(dto.overview());
-                updatedLocalizedMovie.setPosterUrl(dto.posterUrl());
-                updatedLocalizedMovie.setMovie(movie);
-                movie.getLocalizedMovies().replace(dto.locale(), updatedLocalizedMovie);
+            LocalizedMovie localizedMovie = movie.getLocalizedMovies().get(dto.locale());
+            if (localizedMovie != null) {
+                localizedMovie.setTitle(dto.title());
+                localizedMovie.setTagline(dto.tagline());
+                localizedMovie.setOverview(dto.overview());
+                localizedMovie.setPosterUrl(dto.posterUrl());
             } else {
                 movie.getLocalizedMovies()
                         .put(dto.locale(),
@@ -77,10 +107,50 @@ public class MovieLocalizationService {
         }
 
         this.movieRepository.save(movie);
+        this.eventPublisher.publishEvent(MovieChangedEvent.changed(movieUuid, version));
     }
 
-    @Transactional
-    public MovieLocalizationDto getMovieLocalizations(UUID movieUuid) throws NotFoundException {
+    /**
+     * Applies a merge patch to one localization of the movie with one UPDATE, without loading the movie. The version
+     * of the movie is incremented and, if an expected version is given, checked in the same go.
+     */
+    @Transactional(rollbackFor = NotFoundException.class)
+    public void patch(UUID movieUuid, String locale, MergePatch<MovieLocalizationEntryDto> patch,
+                      Long expectedVersion) throws NotFoundException, PreconditionFailedException {
+        Long id = this.movieRepository.findIdByUuid(movieUuid)
+                .orElseThrow(() -> new NotFoundException("Movie not found"));
+
+        if (this.targetedUpdateRepository.updateVersioned(Movie.class, id, expectedVersion, Map.of()) == 0) {
+            // Without an expected version no precondition was evaluated, the movie got deleted in the meantime
+            if (expectedVersion != null) {
+                throw new PreconditionFailedException("Movie was modified in the meantime");
+            }
+            throw new NotFoundException("Movie not found");
+        }
+        if (patch.has("overview")) {
+            // Supersedes a large object that was not moved to the text column yet
+            this.movieLocalizedRepository.moveOverviewsOfMoviesToText(List.of(id));
+        }
+        Map<String, Object> attributes = patch.attributes(PATCHED_COLUMNS);
+        if (!attributes.isEmpty() &&
+                this.targetedUpdateRepository.updateLocalized(LocalizedMovie.class, id, locale, attributes) == 0) {
+            throw new NotFoundException("Movie localization not found");
+        }
+        // Read back, the update did not load the version it incremented
+        long version = this.movieRepository.findVersionByUuid(movieUuid)
+                .orElseThrow(() -> new NotFoundException("Movie not found"));
+        this.eventPublisher.publishEvent(MovieChangedEvent.changed(movieUuid, version));
+    }
+
+    /**
+     * Returns the localizations of the movie with the entity tag of its version. The version is read first, the
+     * localizations of the same or a later state are read from the same replica, so the tag never claims a newer
+     * state than the one returned.
+     */
+    @Transactional(readOnly = true)
+    public Tagged<MovieLocalizationDto> getMovieLocalizations(UUID movieUuid) throws NotFoundException {
+        Long version = this.movieRepository.findVersionByUuid(movieUuid)
+                .orElseThrow(() -> new NotFoundException("Movie not found"));
         Optional<List<LocalizedMovie>> localizedMovies = this.movieLocalizedRepository.findAllByMovieUuid(movieUuid);
 
         if (localizedMovies.isEmpty()) {
@@ -95,6 +165,6 @@ public class MovieLocalizationService {
                     localizedMovie.getPosterUrl()));
         }
 
-        return new MovieLocalizationDto(movieUuid, localizedMoviesDto);
+        return new Tagged<>(new MovieLocalizationDto(movieUuid, localizedMoviesDto), EntityTags.of(version));
     }
 }
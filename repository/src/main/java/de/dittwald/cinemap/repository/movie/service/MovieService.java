@@ -16,75 +16,464 @@
 
 package de.dittwald.cinemap.repository.movie.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import de.dittwald.cinemap.repository.cache.CollectionVersions;
+import de.dittwald.cinemap.repository.cache.VersionedDto;
 import de.dittwald.cinemap.repository.exceptions.LocaleNotFoundException;
 import de.dittwald.cinemap.repository.exceptions.NotFoundException;
+import de.dittwald.cinemap.repository.exceptions.PreconditionFailedException;
 import de.dittwald.cinemap.repository.exceptions.TmdbReadException;
 import de.dittwald.cinemap.repository.exceptions.UuidInUseException;
+import de.dittwald.cinemap.repository.movie.cache.MovieDtoCache;
+import de.dittwald.cinemap.repository.movie.dto.MovieBatchRecordDto;
+import de.dittwald.cinemap.repository.movie.dto.MovieFacetsDto;
 import de.dittwald.cinemap.repository.movie.dto.MovieFlatDto;
+import de.dittwald.cinemap.repository.movie.dto.MovieFlatProjection;
+import de.dittwald.cinemap.repository.movie.dto.MoviePage;
+import de.dittwald.cinemap.repository.movie.dto.MovieTitleKey;
+import de.dittwald.cinemap.repository.movie.entity.Genre;
 import de.dittwald.cinemap.repository.movie.entity.LocalizedId;
 import de.dittwald.cinemap.repository.movie.entity.LocalizedMovie;
 import de.dittwald.cinemap.repository.movie.entity.Movie;
+import de.dittwald.cinemap.repository.movie.event.GenresRenamedEvent;
+import de.dittwald.cinemap.repository.movie.event.MovieChangedEvent;
+import de.dittwald.cinemap.repository.movie.event.MoviesCreatedEvent;
+import de.dittwald.cinemap.repository.movie.index.MovieFacetIndex;
+import de.dittwald.cinemap.repository.movie.index.MovieGenreIndex;
+import de.dittwald.cinemap.repository.movie.repository.GenreRepository;
+import de.dittwald.cinemap.repository.movie.repository.MovieLocalizedRepository;
 import de.dittwald.cinemap.repository.movie.repository.MovieRepository;
-import de.dittwald.cinemap.repository.scene.entity.Scene;
+import de.dittwald.cinemap.repository.scene.event.SceneChangedEvent;
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
+import de.dittwald.cinemap.repository.scene.repository.SceneLocalizedRepository;
 import de.dittwald.cinemap.repository.scene.repository.SceneRepository;
 import de.dittwald.cinemap.repository.tmdb.TmdbClient;
-import de.dittwald.cinemap.repository.util.LocaleFallbackHandler;
 import de.dittwald.cinemap.repository.movie.util.LocalizedMovieDtoMapper;
+import de.dittwald.cinemap.repository.movie.util.GenreMatch;
+import de.dittwald.cinemap.repository.movie.util.MovieCursor;
+import de.dittwald.cinemap.repository.movie.util.MovieSort;
+import de.dittwald.cinemap.repository.util.EntityTags;
+import de.dittwald.cinemap.repository.util.MergePatch;
+import de.dittwald.cinemap.repository.util.Tagged;
+import de.dittwald.cinemap.repository.util.TargetedUpdateRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.net.MalformedURLException;
-import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.*;
+import java.util.function.Function;
 
 @Service
 @Slf4j
 public class MovieService {
 
+    private static final Map<String, Function<MovieFlatDto, Object>> PATCHED_COLUMNS =
+            Map.of("tmdbId", MovieFlatDto::tmdbId, "releaseYear", MovieFlatDto::releaseYear, "imdbId",
+                    MovieFlatDto::imdbId);
+
+    // Bounds of the title keys read at once when paging through a genre selection by title
+    private static final int MIN_TITLE_KEY_CHUNK = 100;
+    private static final int MAX_TITLE_KEY_CHUNK = 10_000;
+
+    public static final Set<String> PATCHABLE_FIELDS = Set.of("tmdbId", "releaseYear", "imdbId", "genres");
+
     private final MovieRepository movieRepository;
+    private final MovieLocalizedRepository movieLocalizedRepository;
     private final SceneRepository sceneRepository;
+    private final SceneLocalizedRepository sceneLocalizedRepository;
     private final TmdbClient tmdbClient;
+    private final MovieDtoCache movieDtoCache;
+    private final EntityManager entityManager;
+    private final TargetedUpdateRepository targetedUpdateRepository;
+    private final GenreRepository genreRepository;
+    private final MovieGenreIndex movieGenreIndex;
+    private final MovieFacetIndex movieFacetIndex;
+    private final CollectionVersions collectionVersions;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public MovieService(MovieRepository movieRepository, SceneRepository sceneRepository,
-                        TmdbClient tmdbClient) {
+    public MovieService(MovieRepository movieRepository, MovieLocalizedRepository movieLocalizedRepository,
+                        SceneRepository sceneRepository, SceneLocalizedRepository sceneLocalizedRepository,
+                        TmdbClient tmdbClient, MovieDtoCache movieDtoCache, EntityManager entityManager,
+                        TargetedUpdateRepository targetedUpdateRepository, GenreRepository genreRepository,
+                        MovieGenreIndex movieGenreIndex, MovieFacetIndex movieFacetIndex,
+                        CollectionVersions collectionVersions, ApplicationEventPublisher eventPublisher) {
         this.movieRepository = movieRepository;
+        this.movieLocalizedRepository = movieLocalizedRepository;
         this.sceneRepository = sceneRepository;
+        this.sceneLocalizedRepository = sceneLocalizedRepository;
         this.tmdbClient = tmdbClient;
+        this.movieDtoCache = movieDtoCache;
+        this.entityManager = entityManager;
+        this.targetedUpdateRepository = targetedUpdateRepository;
+        this.genreRepository = genreRepository;
+        this.movieGenreIndex = movieGenreIndex;
+        this.movieFacetIndex = movieFacetIndex;
+        this.collectionVersions = collectionVersions;
+        this.eventPublisher = eventPublisher;
     }
 
-    @Transactional
-    public List<MovieFlatDto> findAll(String locale) throws LocaleNotFoundException {
+    /**
+     * Finds a page of movies. Given genres restrict the movies to those having all or any of them, which are looked up
+     * in the MovieGenreIndex.
+     */
+    @Transactional(readOnly = true)
+    public MoviePage findAll(String locale, MovieSort sort, String after, int limit, Set<Integer> genreIds,
+                             GenreMatch genreMatch) throws LocaleNotFoundException {
+        MovieCursor cursor = after != null ? MovieCursor.decode(after) : null;
+        if (cursor != null && cursor.sort() != sort) {
+            throw new IllegalArgumentException("Cursor does not match sort order %s".formatted(sort));
+        }
+
+        // Fetch one more movie than requested to find out whether a next page exists
+        List<MovieFlatProjection> movies = genreIds.isEmpty() ?
+                findPage(locale, sort, cursor, limit + 1) :
+                findPageOf(this.movieGenreIndex.filter(genreIds, genreMatch), locale, sort, cursor, limit + 1);
+
+        String nextCursor = null;
+        if (movies.size() > limit) {
+            movies = movies.subList(0, limit);
+            MovieFlatProjection last = movies.getLast();
+            nextCursor = new MovieCursor(sort, last.getId(), sort == MovieSort.TITLE ? last.getTitle() : null).encode();
+        }
+
         List<MovieFlatDto> movieFlatDtos = new ArrayList<>();
+        for (MovieFlatProjection movie : movies) {
+            movieFlatDtos.add(LocalizedMovieDtoMapper.projectionToDto(movie));
+        }
+        return new MoviePage(movieFlatDtos, nextCursor);
+    }
+
+    private List<MovieFlatProjection> findPage(String locale, MovieSort sort, MovieCursor cursor, int limit) {
+        return switch (sort) {
+            case ID -> this.movieRepository.findFlatPageOrderById(locale, cursor != null ? cursor.id() : 0L, limit);
+            case TITLE -> cursor != null ?
+                    this.movieRepository.findFlatPageOrderByTitle(locale, cursor.title(), cursor.id(), limit) :
+                    this.movieRepository.findFirstFlatPageOrderByTitle(locale, limit);
+        };
+    }
 
-        for (Movie movie : this.movieRepository.findAll()) {
-            movieFlatDtos.add(
-                    LocalizedMovieDtoMapper.entityToDto(movie, LocaleFallbackHandler.getMovieLocale(movie, locale)));
+    private List<MovieFlatProjection> findPageOf(RoaringBitmap movieIds, String locale, MovieSort sort,
+                                                 MovieCursor cursor, int limit) {
+        if (movieIds.isEmpty()) {
+            return List.of();
         }
-        return movieFlatDtos;
+        if (sort == MovieSort.ID) {
+            // The bitmap iterates in id order, so the page is read from it directly
+            List<Long> pageIds = new ArrayList<>(limit);
+            PeekableIntIterator iterator = movieIds.getIntIterator();
+            if (cursor != null) {
+                if (cursor.id() >= Integer.MAX_VALUE) {
+                    return List.of();
+                }
+                iterator.advanceIfNeeded((int) cursor.id() + 1);
+            }
+            while (iterator.hasNext() && pageIds.size() < limit) {
+                pageIds.add((long) iterator.next());
+            }
+            return pageIds.isEmpty() ? List.of() : this.movieRepository.findFlatByIdIn(locale, pageIds);
+        }
+        // Seeks through the title order and keeps the movies of the selection until the page is full
+        List<Long> pageIds = new ArrayList<>(limit);
+        String afterTitle = cursor != null ? cursor.title() : null;
+        long afterId = cursor != null ? cursor.id() : 0;
+        int chunkSize = Math.max(limit, MIN_TITLE_KEY_CHUNK);
+        while (pageIds.size() < limit) {
+            List<MovieTitleKey> keys = afterTitle != null ?
+                    this.movieRepository.findTitleKeys(locale, afterTitle, afterId, chunkSize) :
+                    this.movieRepository.findFirstTitleKeys(locale, chunkSize);
+            for (MovieTitleKey key : keys) {
+                if (key.getId() <= Integer.MAX_VALUE && movieIds.contains(key.getId().intValue())) {
+                    pageIds.add(key.getId());
+                    if (pageIds.size() == limit) {
+                        break;
+                    }
+                }
+            }
+            if (keys.size() < chunkSize) {
+                break;
+            }
+            afterTitle = keys.getLast().getTitle();
+            afterId = keys.getLast().getId();
+            chunkSize = Math.min(chunkSize * 2, MAX_TITLE_KEY_CHUNK);
+        }
+        if (pageIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, MovieFlatProjection> movies = new HashMap<>();
+        for (MovieFlatProjection movie : this.movieRepository.findFlatByIdIn(locale, pageIds)) {
+            movies.put(movie.getId(), movie);
+        }
+        // A movie deleted since its key was read is left out of the page
+        return pageIds.stream().map(movies::get).filter(Objects::nonNull).toList();
     }
 
-    @Transactional
-    public MovieFlatDto findByUuid(UUID uuid, String locale) throws NotFoundException, LocaleNotFoundException {
-        Movie movie = this.movieRepository.findByUuid(uuid).orElseThrow(() -> new NotFoundException("Movie not found"));
-        return LocalizedMovieDtoMapper.entityToDto(movie, LocaleFallbackHandler.getMovieLocale(movie, locale));
+    /**
+     * Counts the movies per genre, release decade and locale within the given selection. Decades are given by their
+     * first year.
+     */
+    public MovieFacetsDto findFacets(Set<Integer> genreIds, GenreMatch genreMatch, Set<Integer> decades,
+                                     Set<String> locales) {
+        for (Integer decade : decades) {
+            if (decade % 10 != 0) {
+                throw new IllegalArgumentException("Invalid decade %d given".formatted(decade));
+            }
+        }
+        return this.movieFacetIndex.count(genreIds, genreMatch, decades, locales);
+    }
+
+    /**
+     * Finds a movie with the entity tag of the version it was loaded in, so the tag matches the returned state even if
+     * it was read from a lagging replica. The tag is null while genres got renamed lately.
+     */
+    @Transactional(readOnly = true)
+    public Tagged<MovieFlatDto> findByUuid(UUID uuid, String locale)
+            throws NotFoundException, LocaleNotFoundException {
+        VersionedDto<MovieFlatDto, Long> movie = this.movieDtoCache.get(uuid, locale, () -> {
+            MovieFlatProjection projection = this.movieRepository.findFlatByUuid(uuid, locale)
+                    .orElseThrow(() -> new NotFoundException("Movie not found"));
+            return new VersionedDto<>(LocalizedMovieDtoMapper.projectionToDto(projection), projection.getVersion());
+        });
+        String genres = this.collectionVersions.genres();
+        return new Tagged<>(movie.dto(), genres != null ? EntityTags.of(movie.version(), genres, locale) : null);
     }
 
+    // Null while the movies changed lately, so the response has no entity tag
+    public String findAllEntityTag(String locale) {
+        String movies = this.collectionVersions.movies();
+        return movies != null ? EntityTags.of(movies, locale) : null;
+    }
+
+    @Transactional
     public void save(MovieFlatDto movieFlatDto) throws UuidInUseException {
         if (this.movieRepository.existsByUuid(movieFlatDto.uuid())) {
             throw new UuidInUseException("UUID already in use");
         } else {
-            this.movieRepository.save(LocalizedMovieDtoMapper.dtoToEntity(movieFlatDto));
+            Movie movie = LocalizedMovieDtoMapper.dtoToEntity(movieFlatDto);
+            attachGenres(List.of(movie));
+            this.movieRepository.save(movie);
+            this.eventPublisher.publishEvent(MovieChangedEvent.created(movieFlatDto.uuid()));
         }
     }
 
+    /**
+     * Inserts the movies of one ingest batch. Movies whose UUID is already in use are skipped and returned.
+     */
+    @Transactional
+    public Set<UUID> saveBatch(List<MovieBatchRecordDto> records) {
+        Set<UUID> existingUuids =
+                this.movieRepository.findExistingUuids(records.stream().map(record -> record.movie().uuid()).toList());
+
+        List<Movie> movies = new ArrayList<>();
+        for (MovieBatchRecordDto record : records) {
+            if (!existingUuids.contains(record.movie().uuid())) {
+                movies.add(LocalizedMovieDtoMapper.dtoToEntity(record));
+            }
+        }
+        attachGenres(movies);
+        this.movieRepository.saveAll(movies);
+        this.eventPublisher.publishEvent(new MoviesCreatedEvent(movies.stream().map(Movie::getUuid).toList()));
+        return existingUuids;
+    }
+
+    public Set<Integer> findExistingTmdbIds(Collection<Integer> tmdbIds) {
+        return this.movieRepository.findExistingTmdbIds(tmdbIds);
+    }
+
+    /**
+     * Inserts movies imported from TMDB. Movies whose TMDB id got imported in the meantime are skipped and their TMDB
+     * ids returned.
+     */
+    @Transactional
+    public Set<Integer> saveTmdbBatch(List<Movie> movies) {
+        Set<Integer> existingTmdbIds =
+                this.movieRepository.findExistingTmdbIds(movies.stream().map(Movie::getTmdbId).toList());
+        List<Movie> newMovies = movies.stream().filter(movie -> !existingTmdbIds.contains(movie.getTmdbId())).toList();
+        attachGenres(newMovies);
+        this.movieRepository.saveAll(newMovies);
+        this.eventPublisher.publishEvent(new MoviesCreatedEvent(newMovies.stream().map(Movie::getUuid).toList()));
+        return existingTmdbIds;
+    }
+
+    /**
+     * Applies movies fetched from TMDB to the stored movies of the same TMDB id. Only changed columns and locales are
+     * written, locales missing on TMDB are kept. Returns the number of updated movies.
+     */
+    @Transactional
+    public int applyTmdbChanges(List<Movie> tmdbMovies) {
+        attachGenres(tmdbMovies);
+        Map<Integer, Movie> tmdbMoviesById = new HashMap<>();
+        for (Movie tmdbMovie : tmdbMovies) {
+            tmdbMoviesById.put(tmdbMovie.getTmdbId(), tmdbMovie);
+        }
+
+        List<Movie> movies = this.movieRepository.findAllByTmdbIdIn(tmdbMoviesById.keySet());
+        moveLegacyOverviews(movies);
+
+        Map<UUID, Long> updatedVersions = new HashMap<>();
+        for (Movie movie : movies) {
+            // The version is incremented once the changes are flushed
+            long version = movie.getPersistedVersion() + 1;
+            Movie tmdbMovie = tmdbMoviesById.get(movie.getTmdbId());
+            boolean movieChanged = applyTmdbColumns(movie, tmdbMovie);
+            boolean localizationsChanged = applyTmdbLocalizations(movie, tmdbMovie);
+            if (localizationsChanged && !movieChanged) {
+                // Localizations are not owned by the movie, writing them would not increment its version otherwise
+                this.entityManager.lock(movie, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+            }
+            if (movieChanged || localizationsChanged) {
+                updatedVersions.put(movie.getUuid(), version);
+            }
+        }
+        updatedVersions.forEach(
+                (uuid, version) -> this.eventPublisher.publishEvent(MovieChangedEvent.changed(uuid, version)));
+        return updatedVersions.size();
+    }
+
+    private static boolean applyTmdbColumns(Movie movie, Movie tmdbMovie) {
+        boolean changed = false;
+        if (!Objects.equals(movie.getReleaseYear(), tmdbMovie.getReleaseYear())) {
+            movie.setReleaseYear(tmdbMovie.getReleaseYear());
+            changed = true;
+        }
+        if (!Objects.equals(movie.getImdbId(), tmdbMovie.getImdbId())) {
+            movie.setImdbId(tmdbMovie.getImdbId());
+            changed = true;
+        }
+        if (!movie.getGenres().keySet().equals(tmdbMovie.getGenres().keySet())) {
+            replaceGenres(movie, tmdbMovie.getGenres());
+            changed = true;
+        }
+        return changed;
+    }
+
+    private static boolean applyTmdbLocalizations(Movie movie, Movie tmdbMovie) {
+        boolean changed = false;
+        for (Map.Entry<String, LocalizedMovie> entry : tmdbMovie.getLocalizedMovies().entrySet()) {
+            LocalizedMovie tmdbLocalizedMovie = entry.getValue();
+            LocalizedMovie localizedMovie = movie.getLocalizedMovies().get(entry.getKey());
+            if (localizedMovie == null) {
+                movie.getLocalizedMovies()
+                        .put(entry.getKey(), new LocalizedMovie(new LocalizedId(entry.getKey()), movie,
+                                tmdbLocalizedMovie.getTitle(), tmdbLocalizedMovie.getOverview(),
+                                tmdbLocalizedMovie.getTagline(), tmdbLocalizedMovie.getPosterUrl()));
+                changed = true;
+                continue;
+            }
+            if (!Objects.equals(localizedMovie.getTitle(), tmdbLocalizedMovie.getTitle())) {
+                localizedMovie.setTitle(tmdbLocalizedMovie.getTitle());
+                changed = true;
+            }
+            if (!Objects.equals(localizedMovie.getOverview(), tmdbLocalizedMovie.getOverview())) {
+                localizedMovie.setOverview(tmdbLocalizedMovie.getOverview());
+                changed = true;
+            }
+            if (!Objects.equals(localizedMovie.getTagline(), tmdbLocalizedMovie.getTagline())) {
+                localizedMovie.setTagline(tmdbLocalizedMovie.getTagline());
+                changed = true;
+            }
+            // URL.equals resolves host names, compare the external forms instead
+            if (!Objects.equals(toExternalForm(localizedMovie.getPosterUrl()),
+                    toExternalForm(tmdbLocalizedMovie.getPosterUrl()))) {
+                localizedMovie.setPosterUrl(tmdbLocalizedMovie.getPosterUrl());
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Moves the overviews of the given movies still kept in large objects to the text column, so overviews about to be
+     * written do not leave their large objects behind. Moving evicts all cached localized movies, so it only runs for
+     * movies having large objects left.
+     */
+    private void moveLegacyOverviews(List<Movie> movies) {
+        List<Long> movieIds = movies.stream()
+                .filter(movie -> movie.getLocalizedMovies()
+                        .values()
+                        .stream()
+                        .anyMatch(LocalizedMovie::hasLegacyOverview))
+                .map(Movie::getId)
+                .toList();
+        if (!movieIds.isEmpty()) {
+            this.movieLocalizedRepository.moveOverviewsOfMoviesToText(movieIds);
+        }
+    }
+
+    private static String toExternalForm(URL url) {
+        return url != null ? url.toExternalForm() : null;
+    }
+
+    // Changes the persistent genre map in place, setting a new map would delete and re-insert every genre link
+    private static void replaceGenres(Movie movie, Map<Integer, Genre> genres) {
+        if (!genres.keySet().equals(movie.getGenres().keySet())) {
+            movie.getGenres().keySet().retainAll(genres.keySet());
+            genres.forEach(movie.getGenres()::putIfAbsent);
+        }
+    }
+
+    /**
+     * Writes the names of the detached genres of the given movies to the genre dimension and replaces the genres by
+     * references, so linking them needs no query. Names shared by several movies are written once.
+     */
+    private void attachGenres(Collection<Movie> movies) {
+        Set<GenreName> names = new HashSet<>();
+        for (Movie movie : movies) {
+            movie.setGenres(attach(movie.getGenres(), names));
+        }
+        writeNames(names);
+    }
+
+    private Map<Integer, Genre> attachGenres(Map<Integer, Genre> genres) {
+        Set<GenreName> names = new HashSet<>();
+        Map<Integer, Genre> attached = attach(genres, names);
+        writeNames(names);
+        return attached;
+    }
+
+    private Map<Integer, Genre> attach(Map<Integer, Genre> genres, Set<GenreName> names) {
+        Map<Integer, Genre> attached = new HashMap<>();
+        for (Genre genre : genres.values()) {
+            genre.getNames().forEach((locale, name) -> {
+                if (name != null) {
+                    names.add(new GenreName(genre.getId(), locale, name));
+                }
+            });
+            attached.put(genre.getId(), this.entityManager.getReference(Genre.class, genre.getId()));
+        }
+        return attached;
+    }
+
+    private void writeNames(Set<GenreName> names) {
+        Set<Integer> renamedGenreIds = new HashSet<>();
+        for (GenreName name : names) {
+            if (this.genreRepository.upsertName(name.genreId(), name.locale(), name.name()) > 0) {
+                renamedGenreIds.add(name.genreId());
+            }
+        }
+        // Movies are shown with the names of their genres, so a written name changes all movies of the genre
+        if (!renamedGenreIds.isEmpty()) {
+            this.eventPublisher.publishEvent(new GenresRenamedEvent(renamedGenreIds));
+        }
+    }
+
+    private record GenreName(Integer genreId, String locale, String name) {
+    }
+
     @Transactional
     public void update(MovieFlatDto movieFlatDto, UUID uuid) throws NotFoundException {
 
-        Movie movie = this.movieRepository.findByUuid(uuid).orElseThrow(() -> new NotFoundException("Movie not found"));
+        Movie movie = this.movieRepository.findByUuidIncrementingVersion(uuid)
+                .orElseThrow(() -> new NotFoundException("Movie not found"));
+        moveLegacyOverviews(List.of(movie));
+        long version = movie.getPersistedVersion() + 1;
 
-        movie.setGenres(movieFlatDto.genres());
+        replaceGenres(movie,
+                attachGenres(LocalizedMovieDtoMapper.toGenres(movieFlatDto.genres(), movieFlatDto.locale())));
         movie.setReleaseYear(movieFlatDto.releaseYear());
         movie.setTmdbId(movieFlatDto.tmdbId());
         movie.setImdbId(movieFlatDto.imdbId());
@@ -104,38 +493,94 @@ public class MovieService {
                                     movieFlatDto.overview(), movieFlatDto.tagline(), movieFlatDto.posterUrl()));
         }
         this.movieRepository.save(movie);
+        this.eventPublisher.publishEvent(MovieChangedEvent.changed(uuid, version));
     }
 
+    /**
+     * Applies a merge patch of the movie columns with one UPDATE guarded by the expected version, if given, without
+     * loading the movie. Genres are patched as a set difference, a genre patched to null is removed. Genre names are
+     * written in the given locale.
+     */
     @Transactional
-    public void deleteByUuid(UUID uuid) throws NotFoundException {
-        if (this.movieRepository.existsByUuid(uuid)) {
+    public void patch(UUID uuid, String locale, MergePatch<MovieFlatDto> patch, Long expectedVersion)
+            throws NotFoundException, PreconditionFailedException {
+        Long id = this.movieRepository.findIdByUuid(uuid).orElseThrow(() -> new NotFoundException("Movie not found"));
 
-            // Deletes all scenes of a movie if present
-            Optional<List<Scene>> scenesOptional = this.sceneRepository.findAllScenesOfMovieUuid(uuid);
-            if (scenesOptional.isPresent()) {
-                List<Long> sceneIds = scenesOptional.get().stream().map(Scene::getId).toList();
-                this.sceneRepository.deleteAllById(sceneIds);
+        if (this.targetedUpdateRepository.updateVersioned(Movie.class, id, expectedVersion,
+                patch.attributes(PATCHED_COLUMNS)) == 0) {
+            // Without an expected version no precondition was evaluated, the movie got deleted in the meantime
+            if (expectedVersion != null) {
+                throw new PreconditionFailedException("Movie was modified in the meantime");
             }
-            this.movieRepository.deleteByUuid(uuid);
-        } else {
             throw new NotFoundException("Movie not found");
         }
+
+        if (patch.has("genres")) {
+            Map<Integer, String> genres = patch.values().genres();
+            if (genres == null) {
+                this.movieRepository.deleteAllGenres(id);
+            } else {
+                List<Integer> removedGenreIds = new ArrayList<>();
+                Set<GenreName> names = new HashSet<>();
+                for (Map.Entry<Integer, String> genre : genres.entrySet()) {
+                    if (genre.getValue() == null) {
+                        removedGenreIds.add(genre.getKey());
+                    } else {
+                        names.add(new GenreName(genre.getKey(), locale, genre.getValue()));
+                    }
+                }
+                // Names first, a linked genre must exist
+                writeNames(names);
+                for (GenreName name : names) {
+                    this.movieRepository.linkGenre(id, name.genreId());
+                }
+                if (!removedGenreIds.isEmpty()) {
+                    this.movieRepository.deleteGenres(id, removedGenreIds);
+                }
+            }
+        }
+        // Read back, the update did not load the version it incremented
+        long version = this.movieRepository.findVersionByUuid(uuid)
+                .orElseThrow(() -> new NotFoundException("Movie not found"));
+        this.eventPublisher.publishEvent(MovieChangedEvent.changed(uuid, version));
+    }
+
+    @Transactional
+    public void deleteByUuid(UUID uuid) throws NotFoundException {
+        // The locations are needed to remove the scenes from the spatial indexes
+        List<SceneLocation> scenes = this.sceneRepository.findAllLocationsOfMovieUuid(uuid);
+        if (this.movieRepository.deleteCascadingByUuid(uuid) == 0) {
+            throw new NotFoundException("Movie not found");
+        }
+        if (!scenes.isEmpty()) {
+            this.eventPublisher.publishEvent(SceneChangedEvent.deleted(scenes));
+        }
+        this.eventPublisher.publishEvent(MovieChangedEvent.deleted(uuid));
     }
 
+    /**
+     * Deletes all movies and their scenes with set-based statements, children before their parents.
+     */
     @Transactional
     public void deleteAll() {
         log.info("Deleting all movies");
-        this.sceneRepository.deleteAll();
-        this.movieRepository.deleteAll();
+        this.sceneLocalizedRepository.unlinkAllDescriptions();
+        this.sceneLocalizedRepository.purgeAll();
+        int scenes = this.sceneRepository.purgeAll();
+        this.eventPublisher.publishEvent(SceneChangedEvent.deletedAll());
+        this.movieLocalizedRepository.unlinkAllOverviews();
+        this.movieLocalizedRepository.purgeAll();
+        this.movieRepository.purgeAllGenres();
+        int movies = this.movieRepository.purgeAll();
+        log.info("Deleted {} movies with {} scenes", movies, scenes);
+        this.eventPublisher.publishEvent(MovieChangedEvent.deletedAll());
     }
 
     @Transactional
     public void createMovieViaTmdbId(int tmdbId) throws TmdbReadException {
-        try {
-            Movie movie = this.tmdbClient.getMovieDetails(tmdbId);
-            this.movieRepository.save(movie);
-        } catch (URISyntaxException | MalformedURLException | JsonProcessingException e) {
-            throw new TmdbReadException(e.getMessage());
-        }
+        Movie movie = this.tmdbClient.getMovieDetails(tmdbId);
+        attachGenres(List.of(movie));
+        this.movieRepository.save(movie);
+        this.eventPublisher.publishEvent(MovieChangedEvent.created(movie.getUuid()));
     }
 }
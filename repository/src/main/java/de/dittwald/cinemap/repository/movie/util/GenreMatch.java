@@ -0,0 +1,35 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.util;
+
+import java.util.Locale;
+
+/**
+ * How the genres of a genre filter are combined: a movie matches if it has all of them or any of them.
+ */
+public enum GenreMatch {
+    ALL,
+    ANY;
+
+    public static GenreMatch fromParam(String param) {
+        try {
+            return GenreMatch.valueOf(param.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid genre match %s given".formatted(param));
+        }
+    }
+}
@@ -16,33 +16,62 @@
 
 package de.dittwald.cinemap.repository.movie.util;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.dittwald.cinemap.repository.exceptions.LocaleNotFoundException;
+import de.dittwald.cinemap.repository.movie.dto.MovieBatchRecordDto;
 import de.dittwald.cinemap.repository.movie.dto.MovieFlatDto;
+import de.dittwald.cinemap.repository.movie.dto.MovieFlatProjection;
 import de.dittwald.cinemap.repository.movie.dto.MovieLocalizationEntryDto;
+import de.dittwald.cinemap.repository.movie.entity.Genre;
 import de.dittwald.cinemap.repository.movie.entity.LocalizedId;
 import de.dittwald.cinemap.repository.movie.entity.LocalizedMovie;
 import de.dittwald.cinemap.repository.movie.entity.Movie;
 
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
 public class LocalizedMovieDtoMapper {
 
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<Integer, String>> GENRES_TYPE = new TypeReference<>() {
+    };
+
     public static MovieFlatDto entityToDto(Movie entity, String locale) throws LocaleNotFoundException {
 
         if (entity.getLocalizedMovies().get(locale) == null) {
             throw new LocaleNotFoundException("Locale %s not found for movie %s".formatted(locale, entity));
         }
 
-        return new MovieFlatDto(entity.getUuid(), entity.getTmdbId(), entity.getReleaseYear(), entity.getGenres(),
-                entity.getImdbId(), entity.getLocalizedMovies().get(locale).getLocalizedId().getLocale(),
+        return new MovieFlatDto(entity.getUuid(), entity.getTmdbId(), entity.getReleaseYear(),
+                toGenreNames(entity.getGenres(), locale), entity.getImdbId(), entity.getLocalizedMovies().get(locale).getLocalizedId().getLocale(),
                 entity.getLocalizedMovies().get(locale).getTitle(),
                 entity.getLocalizedMovies().get(locale).getOverview(),
                 entity.getLocalizedMovies().get(locale).getTagline(),
                 entity.getLocalizedMovies().get(locale).getPosterUrl());
     }
 
+    public static MovieFlatDto projectionToDto(MovieFlatProjection projection) throws LocaleNotFoundException {
+
+        if (projection.getLocale() == null) {
+            throw new LocaleNotFoundException("No locales found");
+        }
+
+        return new MovieFlatDto(projection.getUuid(), projection.getTmdbId(), projection.getReleaseYear(),
+                readGenres(projection.getGenres()), projection.getImdbId(), projection.getLocale(),
+                projection.getTitle(), projection.getOverview(), projection.getTagline(),
+                toUrl(projection.getPosterUrl()));
+    }
+
     public static Movie dtoToEntity(MovieFlatDto dto) {
         Movie entity = new Movie();
         entity.setUuid(dto.uuid());
-        entity.setGenres(dto.genres());
+        entity.setGenres(toGenres(dto.genres(), dto.locale()));
         entity.setTmdbId(dto.tmdbId());
         entity.setReleaseYear(dto.releaseYear());
         entity.setImdbId(dto.imdbId());
@@ -59,4 +88,57 @@ public class LocalizedMovieDtoMapper {
         entity.getLocalizedMovies().put(localizedId.getLocale(), localizedEntity);
         return entity;
     }
+
+    public static Movie dtoToEntity(MovieBatchRecordDto dto) {
+        Movie entity = dtoToEntity(dto.movie());
+        if (dto.localizations() != null) {
+            for (MovieLocalizationEntryDto localization : dto.localizations()) {
+                entity.getLocalizedMovies()
+                        .put(localization.locale(),
+                                new LocalizedMovie(new LocalizedId(localization.locale()), entity, localization.title(),
+                                        localization.overview(), localization.tagline(), localization.posterUrl()));
+            }
+        }
+        return entity;
+    }
+
+    /**
+     * Detached genres carrying the given names in the given locale. They are attached by the MovieService, which
+     * writes their names to the genre dimension.
+     */
+    public static Map<Integer, Genre> toGenres(Map<Integer, String> names, String locale) {
+        Map<Integer, Genre> genres = new HashMap<>();
+        if (names != null) {
+            names.forEach((id, name) -> genres.put(id, new Genre(id, locale, name)));
+        }
+        return genres;
+    }
+
+    public static Map<Integer, String> toGenreNames(Map<Integer, Genre> genres, String locale) {
+        Map<Integer, String> names = new HashMap<>();
+        genres.forEach((id, genre) -> names.put(id, genre.getName(locale)));
+        return names;
+    }
+
+    private static Map<Integer, String> readGenres(String genres) {
+        if (genres == null) {
+            return new HashMap<>();
+        }
+        try {
+            return OBJECT_MAPPER.readValue(genres, GENRES_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid genres %s".formatted(genres), e);
+        }
+    }
+
+    private static URL toUrl(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            return new URI(url).toURL();
+        } catch (URISyntaxException | MalformedURLException e) {
+            throw new IllegalStateException("Invalid poster url %s".formatted(url), e);
+        }
+    }
 }
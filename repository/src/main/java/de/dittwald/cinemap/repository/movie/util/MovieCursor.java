@@ -0,0 +1,56 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for the movie listing. It holds the sort key of the last movie of a page, which is the id
+ * and, when sorted by title, the localized title.
+ */
+public record MovieCursor(MovieSort sort, long id, String title) {
+
+    private static final String SEPARATOR = ":";
+
+    public static MovieCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, 3);
+            MovieSort sort = MovieSort.valueOf(parts[0]);
+            long id = Long.parseLong(parts[1]);
+
+            if (sort == MovieSort.TITLE) {
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException();
+                }
+                return new MovieCursor(sort, id, parts[2]);
+            }
+            return new MovieCursor(sort, id, null);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor given");
+        }
+    }
+
+    public String encode() {
+        String raw = this.sort.name() + SEPARATOR + this.id;
+        if (this.sort == MovieSort.TITLE) {
+            raw += SEPARATOR + this.title;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
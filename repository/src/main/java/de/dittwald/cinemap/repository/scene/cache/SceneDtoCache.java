@@ -0,0 +1,77 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.cache;
+
+import de.dittwald.cinemap.repository.cache.LocalizedDtoCache;
+import de.dittwald.cinemap.repository.cache.VersionedDto;
+import de.dittwald.cinemap.repository.cache.WrittenVersions;
+import de.dittwald.cinemap.repository.movie.dto.MovieFlatDto;
+import de.dittwald.cinemap.repository.movie.event.GenresRenamedEvent;
+import de.dittwald.cinemap.repository.movie.event.MovieChangedEvent;
+import de.dittwald.cinemap.repository.scene.dto.SceneFlatDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneVersion;
+import de.dittwald.cinemap.repository.scene.event.SceneChangedEvent;
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+public class SceneDtoCache extends LocalizedDtoCache<SceneFlatDto, SceneVersion> {
+
+    private final WrittenVersions writtenVersions;
+
+    public SceneDtoCache(WrittenVersions writtenVersions) {
+        this.writtenVersions = writtenVersions;
+    }
+
+    @Override
+    protected boolean isOutdated(VersionedDto<SceneFlatDto, SceneVersion> loaded) {
+        MovieFlatDto movie = loaded.dto().movie();
+        return this.writtenVersions.isOutdated(loaded.dto().uuid(), loaded.version().sceneVersion()) ||
+                this.writtenVersions.isOutdated(movie.uuid(), loaded.version().movieVersion()) ||
+                (movie.genres() != null && this.writtenVersions.isRenamedLately(movie.genres().keySet()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSceneChanged(SceneChangedEvent event) {
+        if (event.allDeleted()) {
+            invalidateAll();
+        }
+        for (SceneLocation location : event.removedScenes()) {
+            invalidate(location.uuid());
+        }
+        for (SceneLocation location : event.savedScenes()) {
+            invalidate(location.uuid());
+        }
+    }
+
+    // Scene DTOs embed their movie
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMovieChanged(MovieChangedEvent event) {
+        if (event.allDeleted()) {
+            invalidateAll();
+        } else {
+            invalidateIf(scene -> scene.movie().uuid().equals(event.movieUuid()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onGenresRenamed(GenresRenamedEvent event) {
+        invalidateIf(scene -> scene.movie().genres() != null &&
+                scene.movie().genres().keySet().stream().anyMatch(event.genreIds()::contains));
+    }
+}
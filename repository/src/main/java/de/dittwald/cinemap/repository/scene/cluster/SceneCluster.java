@@ -0,0 +1,27 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.cluster;
+
+import java.util.UUID;
+
+/**
+ * A cluster of one zoom level. Coordinates are kept both in web mercator (x, y in [0, 1]) for clustering and in
+ * lon/lat for querying. Single scenes are clusters with a count of one and their scene UUID.
+ */
+public record SceneCluster(double x, double y, double lon, double lat, int count, Integer expansionZoom,
+                           UUID sceneUuid) {
+}
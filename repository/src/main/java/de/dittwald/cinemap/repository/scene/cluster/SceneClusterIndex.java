@@ -0,0 +1,216 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.cluster;
+
+import com.github.davidmoten.rtree2.Entries;
+import com.github.davidmoten.rtree2.Entry;
+import com.github.davidmoten.rtree2.RTree;
+import com.github.davidmoten.rtree2.geometry.Geometries;
+import com.github.davidmoten.rtree2.geometry.Point;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import de.dittwald.cinemap.repository.scene.event.SceneChangedEvent;
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
+import de.dittwald.cinemap.repository.scene.index.SceneSpatialIndex;
+import de.dittwald.cinemap.repository.scene.util.BoundingBox;
+import de.dittwald.cinemap.repository.scene.util.WebMercator;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hierarchical greedy clustering of all scenes, similar to supercluster. Every zoom level is built from the level
+ * below by merging the clusters within a fixed pixel radius, and is kept in its own R-tree for viewport queries.
+ * The pyramid is built on first use and rebuilt in the background after scenes changed.
+ */
+@Component
+@Slf4j
+public class SceneClusterIndex {
+
+    public static final int MAX_ZOOM = 16;
+
+    // Cluster radius in pixels of a tile with the given extent
+    private static final double RADIUS = 40;
+    private static final double EXTENT = 512;
+    private static final long REBUILD_DELAY_MS = 1000;
+
+    private final SceneSpatialIndex sceneSpatialIndex;
+    private final ScheduledExecutorService rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "scene-cluster-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    // One tree per zoom level from 0 to MAX_ZOOM + 1, the last one holds the single scenes
+    private volatile List<RTree<SceneCluster, Point>> levels;
+
+    public SceneClusterIndex(SceneSpatialIndex sceneSpatialIndex) {
+        this.sceneSpatialIndex = sceneSpatialIndex;
+    }
+
+    public List<SceneCluster> getClusters(int zoom, BoundingBox boundingBox) {
+        RTree<SceneCluster, Point> level = levels().get(Math.max(0, Math.min(zoom, MAX_ZOOM + 1)));
+        List<SceneCluster> clusters = new ArrayList<>();
+        for (Rectangle rectangle : boundingBox.toRectangles()) {
+            for (Entry<SceneCluster, Point> entry : level.search(rectangle)) {
+                clusters.add(entry.value());
+            }
+        }
+        return clusters;
+    }
+
+    @Order(1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSceneChanged(SceneChangedEvent event) {
+        // Changes arriving while a rebuild is pending are picked up by that rebuild
+        if (this.levels != null && this.rebuildScheduled.compareAndSet(false, true)) {
+            this.rebuildExecutor.schedule(() -> {
+                this.rebuildScheduled.set(false);
+                try {
+                    this.levels = build(this.sceneSpatialIndex.locations());
+                } catch (RuntimeException e) {
+                    log.error("Rebuilding the scene clusters failed", e);
+                }
+            }, REBUILD_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.rebuildExecutor.shutdownNow();
+    }
+
+    private List<RTree<SceneCluster, Point>> levels() {
+        List<RTree<SceneCluster, Point>> current = this.levels;
+        if (current == null) {
+            synchronized (this) {
+                if (this.levels == null) {
+                    this.levels = build(this.sceneSpatialIndex.locations());
+                }
+                current = this.levels;
+            }
+        }
+        return current;
+    }
+
+    static List<RTree<SceneCluster, Point>> build(Collection<SceneLocation> locations) {
+        long start = System.currentTimeMillis();
+        List<SceneCluster> clusters = new ArrayList<>(locations.size());
+        for (SceneLocation location : locations) {
+            clusters.add(new SceneCluster(WebMercator.x(location.lon()), WebMercator.y(location.lat()),
+                    location.lon(), location.lat(), 1, null, location.uuid()));
+        }
+
+        RTree<SceneCluster, Point>[] levels = newLevels();
+        levels[MAX_ZOOM + 1] = tree(clusters);
+        for (int zoom = MAX_ZOOM; zoom >= 0; zoom--) {
+            clusters = cluster(clusters, zoom);
+            levels[zoom] = tree(clusters);
+        }
+
+        log.info("Built scene clusters of {} scenes in {} ms", locations.size(), System.currentTimeMillis() - start);
+        return List.of(levels);
+    }
+
+    private static List<SceneCluster> cluster(List<SceneCluster> points, int zoom) {
+        double radius = RADIUS / (EXTENT * Math.pow(2, zoom));
+
+        // Grid with the cluster radius as cell size, so all neighbours are found in the surrounding cells
+        Map<Long, List<Integer>> grid = new HashMap<>();
+        for (int i = 0; i < points.size(); i++) {
+            grid.computeIfAbsent(cell(points.get(i), radius), key -> new ArrayList<>()).add(i);
+        }
+
+        boolean[] visited = new boolean[points.size()];
+        List<SceneCluster> clusters = new ArrayList<>();
+        for (int i = 0; i < points.size(); i++) {
+            if (visited[i]) {
+                continue;
+            }
+            visited[i] = true;
+            SceneCluster point = points.get(i);
+
+            int count = point.count();
+            double weightedX = point.x() * point.count();
+            double weightedY = point.y() * point.count();
+            boolean merged = false;
+
+            long cellX = (long) Math.floor(point.x() / radius);
+            long cellY = (long) Math.floor(point.y() / radius);
+            for (long x = cellX - 1; x <= cellX + 1; x++) {
+                for (long y = cellY - 1; y <= cellY + 1; y++) {
+                    for (int neighbourIndex : grid.getOrDefault(key(x, y), List.of())) {
+                        SceneCluster neighbour = points.get(neighbourIndex);
+                        if (visited[neighbourIndex] || squaredDistance(point, neighbour) > radius * radius) {
+                            continue;
+                        }
+                        visited[neighbourIndex] = true;
+                        count += neighbour.count();
+                        weightedX += neighbour.x() * neighbour.count();
+                        weightedY += neighbour.y() * neighbour.count();
+                        merged = true;
+                    }
+                }
+            }
+
+            if (merged) {
+                double x = weightedX / count;
+                double y = weightedY / count;
+                // The members are split up again one zoom level below
+                clusters.add(new SceneCluster(x, y, WebMercator.lon(x), WebMercator.lat(y), count, zoom + 1, null));
+            } else {
+                clusters.add(point);
+            }
+        }
+        return clusters;
+    }
+
+    private static RTree<SceneCluster, Point> tree(List<SceneCluster> clusters) {
+        List<Entry<SceneCluster, Point>> entries = new ArrayList<>(clusters.size());
+        for (SceneCluster cluster : clusters) {
+            entries.add(Entries.entry(cluster, Geometries.point(cluster.lon(), cluster.lat())));
+        }
+        return RTree.star().create(entries);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RTree<SceneCluster, Point>[] newLevels() {
+        return new RTree[MAX_ZOOM + 2];
+    }
+
+    private static long cell(SceneCluster point, double radius) {
+        return key((long) Math.floor(point.x() / radius), (long) Math.floor(point.y() / radius));
+    }
+
+    private static long key(long x, long y) {
+        return (x << 32) ^ (y & 0xffffffffL);
+    }
+
+    private static double squaredDistance(SceneCluster a, SceneCluster b) {
+        double dx = a.x() - b.x();
+        double dy = a.y() - b.y();
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.controller;
+
+import de.dittwald.cinemap.repository.scene.dto.SceneImportReportDto;
+import de.dittwald.cinemap.repository.scene.service.SceneImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/api/v1")
+@Tag(name = "Scene")
+public class SceneImportRestController {
+
+    public static final String GEO_JSON_VALUE = "application/geo+json";
+
+    private final SceneImportService sceneImportService;
+
+    public SceneImportRestController(SceneImportService sceneImportService) {
+        this.sceneImportService = sceneImportService;
+    }
+
+    @PostMapping(value = "scenes:import", consumes = {GEO_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Import scenes from GeoJSON",
+            description = "Imports the point features of a GeoJSON FeatureCollection as scenes. The feature id is " +
+                    "the scene UUID, the properties hold movieUuid, locale, title and description. Features are " +
+                    "written in batches, rejected features are reported. Batches written before a syntax error in " +
+                    "the GeoJSON stay imported.")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Import report"),
+            @ApiResponse(responseCode = "400", description = "No valid GeoJSON FeatureCollection given")})
+    public SceneImportReportDto importScenes(InputStream inputStream) throws IOException {
+        return this.sceneImportService.importFeatureCollection(inputStream);
+    }
+}
@@ -16,18 +16,28 @@
 
 package de.dittwald.cinemap.repository.scene.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import de.dittwald.cinemap.repository.exceptions.NotFoundException;
+import de.dittwald.cinemap.repository.exceptions.PreconditionFailedException;
 import de.dittwald.cinemap.repository.scene.dto.SceneLocalizationDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneLocalizationEntryDto;
 import de.dittwald.cinemap.repository.scene.service.SceneLocalizationService;
+import de.dittwald.cinemap.repository.util.ConstantStrings;
+import de.dittwald.cinemap.repository.util.EntityTags;
+import de.dittwald.cinemap.repository.util.MergePatchReader;
+import de.dittwald.cinemap.repository.util.Tagged;
+import de.dittwald.cinemap.repository.validation.Iso6391Constraint;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.UUID;
 
@@ -38,20 +48,27 @@ import java.util.UUID;
 public class SceneLocalizationRestController {
 
     private final SceneLocalizationService sceneLocalizationService;
+    private final MergePatchReader mergePatchReader;
 
-    public SceneLocalizationRestController(SceneLocalizationService sceneLocalizationService) {
+    public SceneLocalizationRestController(SceneLocalizationService sceneLocalizationService,
+                                           MergePatchReader mergePatchReader) {
         this.sceneLocalizationService = sceneLocalizationService;
+        this.mergePatchReader = mergePatchReader;
     }
 
     @GetMapping(value = "/{sceneUuid}/localizations", produces = MediaType.APPLICATION_JSON_VALUE)
-    @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "Get all localizations for given scene",
             description = "Responds with all available localizations for the given scene")
     @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Found localizations"),
+            @ApiResponse(responseCode = "304", description = "Localizations not modified"),
             @ApiResponse(responseCode = "404", description = "No localizations movie or scene found")})
-    public SceneLocalizationDto getSceneLocalizations(@PathVariable("sceneUuid") UUID sceneUuid)
+    public SceneLocalizationDto getSceneLocalizations(@PathVariable("sceneUuid") UUID sceneUuid, WebRequest request)
             throws NotFoundException {
-        return this.sceneLocalizationService.getSceneLocalizationDto(sceneUuid);
+        Tagged<SceneLocalizationDto> localizations = this.sceneLocalizationService.getSceneLocalizationDto(sceneUuid);
+        if (request.checkNotModified(localizations.entityTag())) {
+            return null;
+        }
+        return localizations.body();
     }
 
     @PutMapping(value = "/{sceneUuid}/localizations",
@@ -69,4 +86,23 @@ public class SceneLocalizationRestController {
             throws NotFoundException {
         this.sceneLocalizationService.update(sceneLocalizationDto, sceneUuid, Boolean.parseBoolean(override));
     }
+
+    @PatchMapping(value = "/{sceneUuid}/localizations/{locale}", consumes = ConstantStrings.MERGE_PATCH_MEDIA_TYPE)
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Patch a scene localization",
+            description = "Applies a JSON merge patch of title and description to the given localization of the " +
+                    "scene. With an If-Match header the localization is only patched if the entity tag of the " +
+                    "localizations still matches.")
+    @ApiResponses(value = {@ApiResponse(responseCode = "204", description = "Scene localization was patched"),
+            @ApiResponse(responseCode = "404", description = "Scene or localization not found."),
+            @ApiResponse(responseCode = "400", description = "Invalid merge patch, locale or UUID given"),
+            @ApiResponse(responseCode = "412", description = "Scene was modified in the meantime")})
+    public void patchSceneLocalization(@RequestBody JsonNode patch, @PathVariable("sceneUuid") UUID sceneUuid,
+                                       @PathVariable("locale") @Iso6391Constraint String locale,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+            throws NotFoundException, PreconditionFailedException {
+        this.sceneLocalizationService.patch(sceneUuid, locale,
+                this.mergePatchReader.read(patch, SceneLocalizationEntryDto.class,
+                        SceneLocalizationService.PATCHABLE_FIELDS), EntityTags.versionOf(ifMatch));
+    }
 }
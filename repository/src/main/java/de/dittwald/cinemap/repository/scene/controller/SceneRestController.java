@@ -16,19 +16,35 @@
 
 package de.dittwald.cinemap.repository.scene.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.dittwald.cinemap.repository.exceptions.LocaleNotFoundException;
 import de.dittwald.cinemap.repository.exceptions.NotFoundException;
+import de.dittwald.cinemap.repository.scene.dto.SceneClusterDto;
 import de.dittwald.cinemap.repository.scene.dto.SceneFlatDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneNearbyDto;
 import de.dittwald.cinemap.repository.scene.service.SceneService;
+import de.dittwald.cinemap.repository.scene.tile.SceneTileService;
+import de.dittwald.cinemap.repository.scene.util.BoundingBox;
 import de.dittwald.cinemap.repository.util.ConstantStrings;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.function.ThrowingConsumer;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.UUID;
@@ -36,22 +52,121 @@ import java.util.UUID;
 @RestController
 @RequestMapping("/api/v1/scenes")
 @Tag(name = "Scene")
+@Validated
 public class SceneRestController {
 
     private final SceneService sceneService;
+    private final SceneTileService sceneTileService;
+    private final ObjectMapper objectMapper;
 
-    public SceneRestController(SceneService sceneService) {
+    public SceneRestController(SceneService sceneService, SceneTileService sceneTileService,
+                               ObjectMapper objectMapper) {
         this.sceneService = sceneService;
+        this.sceneTileService = sceneTileService;
+        this.objectMapper = objectMapper;
     }
 
-    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
     @Operation(summary = "Get all scenes",
-            description = "Responds a list with all scenes in the given localization or the corresponding fallback " +
-                    "localization.")
-    @ApiResponse(responseCode = "200", description = "Found movie scenes")
-    public List<SceneFlatDto> findAll(@RequestParam(name = ConstantStrings.LOCALE_API_REQUEST_PARAM,
-            defaultValue = ConstantStrings.DEFAULT_LOCALE) String locale) throws LocaleNotFoundException {
-        return this.sceneService.findAll(locale);
+            description = "Streams all scenes in the given localization or the corresponding fallback " +
+                    "localization. Responds a JSON array or, if requested by the Accept header, " +
+                    "newline delimited JSON. With a bounding box given as minLon,minLat,maxLon,maxLat only the " +
+                    "scenes inside of it are responded. A minLon greater than maxLon crosses the antimeridian.")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Found movie scenes"),
+            @ApiResponse(responseCode = "304", description = "Scenes not modified"),
+            @ApiResponse(responseCode = "400", description = "Given bounding box is not valid")})
+    public ResponseEntity<StreamingResponseBody> findAll(@RequestParam(name = ConstantStrings.LOCALE_API_REQUEST_PARAM,
+            defaultValue = ConstantStrings.DEFAULT_LOCALE) String locale, @RequestParam(name = "bbox",
+            required = false) String bbox, @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                         WebRequest request) {
+        BoundingBox boundingBox = bbox != null ? BoundingBox.parse(bbox) : null;
+        boolean ndjson = accept != null && MediaType.parseMediaTypes(accept)
+                .stream()
+                .anyMatch(mediaType -> mediaType.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON));
+
+        if (request.checkNotModified(this.sceneService.findAllEntityTag(locale, ndjson ? "ndjson" : "json"))) {
+            return null;
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = this.objectMapper.getFactory().createGenerator(outputStream);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (ndjson) {
+                generator.setRootValueSeparator(null);
+                stream(boundingBox, locale, scene -> {
+                    generator.writeObject(scene);
+                    generator.writeRaw('\n');
+                });
+            } else {
+                generator.writeStartArray();
+                stream(boundingBox, locale, generator::writeObject);
+                generator.writeEndArray();
+            }
+            generator.close();
+        };
+
+        return ResponseEntity.ok()
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    private void stream(BoundingBox boundingBox, String locale, ThrowingConsumer<SceneFlatDto> consumer) {
+        if (boundingBox != null) {
+            this.sceneService.streamWithin(boundingBox, locale, consumer);
+        } else {
+            this.sceneService.streamAll(locale, consumer);
+        }
+    }
+
+    @GetMapping(value = "nearby", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Get scenes nearby",
+            description = "Responds the k scenes closest to the given position, ordered by their great-circle " +
+                    "distance in kilometers, in the given localization or the corresponding fallback localization.")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Found movie scenes"),
+            @ApiResponse(responseCode = "400", description = "Given position, k or max distance is not valid")})
+    public List<SceneNearbyDto> findNearby(@RequestParam("lat") @DecimalMin("-90") @DecimalMax("90") double lat,
+                                           @RequestParam("lon") @DecimalMin("-180") @DecimalMax("180") double lon,
+                                           @RequestParam(name = "k",
+                                                   defaultValue = ConstantStrings.DEFAULT_NEARBY_LIMIT)
+                                           @Min(1) @Max(ConstantStrings.MAX_NEARBY_LIMIT) int k,
+                                           @RequestParam(name = "maxDistanceKm", required = false)
+                                           @DecimalMin("0") Double maxDistanceKm,
+                                           @RequestParam(name = ConstantStrings.LOCALE_API_REQUEST_PARAM,
+                                                   defaultValue = ConstantStrings.DEFAULT_LOCALE) String locale)
+            throws LocaleNotFoundException {
+        return this.sceneService.findNearby(lat, lon, k,
+                maxDistanceKm != null ? maxDistanceKm : Double.POSITIVE_INFINITY, locale);
+    }
+
+    @GetMapping(value = "clusters", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Get scene clusters",
+            description = "Responds the scene clusters of the given zoom level inside of the bounding box given as " +
+                    "minLon,minLat,maxLon,maxLat, or of the whole world without one. Every cluster has its " +
+                    "centroid, the number of scenes and the zoom level at which it splits up. Single scenes have a " +
+                    "count of one and their UUID.")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Found scene clusters"),
+            @ApiResponse(responseCode = "400", description = "Given zoom level or bounding box is not valid")})
+    public List<SceneClusterDto> findClusters(@RequestParam("z") @Min(0) int zoom,
+                                              @RequestParam(name = "bbox", required = false) String bbox) {
+        return this.sceneService.findClusters(zoom,
+                bbox != null ? BoundingBox.parse(bbox) : new BoundingBox(-180, -90, 180, 90));
+    }
+
+    @GetMapping(value = "tiles/{z}/{x}/{y}.mvt", produces = SceneTileService.MVT_MEDIA_TYPE)
+    @Operation(summary = "Get a scene vector tile",
+            description = "Responds the scenes inside of the tile as Mapbox Vector Tile with a \"scenes\" layer. " +
+                    "Every point carries the scene uuid, the movie uuid and the scene title in the given " +
+                    "localization or the corresponding fallback localization.")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Encoded vector tile"),
+            @ApiResponse(responseCode = "400", description = "Given tile coordinates are not valid")})
+    public ResponseEntity<byte[]> findTile(@PathVariable("z") @Min(0) @Max(SceneTileService.MAX_ZOOM) int z,
+                                           @PathVariable("x") int x, @PathVariable("y") int y,
+                                           @RequestParam(name = ConstantStrings.LOCALE_API_REQUEST_PARAM,
+                                                   defaultValue = ConstantStrings.DEFAULT_LOCALE) String locale) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(SceneTileService.MVT_MEDIA_TYPE))
+                .body(this.sceneTileService.getTile(z, x, y, locale));
     }
 
 //    @GetMapping(value = "{uuid}", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -16,15 +16,24 @@
 
 package de.dittwald.cinemap.repository.scene.entity;
 
+import de.dittwald.cinemap.repository.cache.CacheRegions;
 import de.dittwald.cinemap.repository.movie.entity.LocalizedId;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Size;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnTransformer;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.io.Serializable;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.LOCALIZED_SCENE)
+@DynamicUpdate
 @Getter
 @Setter
 @NamedQuery(name = "LocalizedScene.findAllBySceneUuid",
@@ -53,7 +62,20 @@ public class LocalizedScene implements Serializable {
     @Size(min = 1, max = 50)
     private String title;
 
-    @Lob
+    // Stored inline as TOASTed text. Descriptions not yet moved by the LobBackfillService are read from the large
+    // object of the legacy column.
     @Size(min = 1, max = 5000)
+    @Column(name = "description_text", columnDefinition = "text")
+    @ColumnTransformer(read = "coalesce(description_text, convert_from(lo_get(description), 'UTF8'))")
     private String description;
+
+    // Only cleared by native statements, which unlink the large object in the same go
+    @Column(name = "description", columnDefinition = "oid", insertable = false, updatable = false)
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Long legacyDescription;
+
+    public boolean hasLegacyDescription() {
+        return this.legacyDescription != null;
+    }
 }
@@ -16,12 +16,15 @@
 
 package de.dittwald.cinemap.repository.scene.entity;
 
+import de.dittwald.cinemap.repository.cache.CacheRegions;
 import de.dittwald.cinemap.repository.movie.entity.Movie;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -29,6 +32,8 @@ import java.util.Objects;
 import java.util.UUID;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.SCENE)
 @Table(name = "scenes")
 @Getter
 @Setter
@@ -49,7 +54,8 @@ public class Scene {
     }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "scenes_seq")
+    @SequenceGenerator(name = "scenes_seq", sequenceName = "scenes_seq", allocationSize = 50)
     @Setter(AccessLevel.NONE)
     private Long id;
 
@@ -75,6 +81,7 @@ public class Scene {
     @OneToMany(mappedBy = "scene",
             cascade = {CascadeType.DETACH, CascadeType.MERGE, CascadeType.PERSIST, CascadeType.REFRESH},
             orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.SCENE_LOCALIZATIONS)
     @MapKey(name = "localizedId.locale")
     private Map<String, LocalizedScene> localizedScenes = new HashMap<>();
 
@@ -84,6 +91,12 @@ public class Scene {
                 version + ", movie=" + movie + ", localizedMoviesScenes=" + localizedScenes + '}';
     }
 
+    // No getVersion(), Spring Data tells a new scene by its null version. A scene that is not persisted yet gets the
+    // initial version.
+    public long getPersistedVersion() {
+        return this.version != null ? this.version : 0;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
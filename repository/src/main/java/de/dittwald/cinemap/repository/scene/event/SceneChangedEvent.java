@@ -0,0 +1,58 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.event;
+
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Published by the services whenever scenes are written. Listeners keeping derived state, like the spatial index,
+ * apply it after the surrounding transaction has committed. Removed scenes carry their previous location, so a moved
+ * scene is removed at its old and saved at its new location. Changed scenes carry a lower bound of their written
+ * version.
+ */
+public record SceneChangedEvent(List<SceneLocation> savedScenes, List<SceneLocation> removedScenes,
+                                Map<UUID, Long> versions, boolean allDeleted) {
+
+    public static SceneChangedEvent saved(SceneLocation scene) {
+        return new SceneChangedEvent(List.of(scene), List.of(), Map.of(), false);
+    }
+
+    public static SceneChangedEvent saved(Collection<SceneLocation> scenes) {
+        return new SceneChangedEvent(List.copyOf(scenes), List.of(), Map.of(), false);
+    }
+
+    public static SceneChangedEvent changed(SceneLocation scene, long version) {
+        return new SceneChangedEvent(List.of(scene), List.of(), Map.of(scene.uuid(), version), false);
+    }
+
+    public static SceneChangedEvent moved(SceneLocation previous, SceneLocation scene, long version) {
+        return new SceneChangedEvent(List.of(scene), List.of(previous), Map.of(scene.uuid(), version), false);
+    }
+
+    public static SceneChangedEvent deleted(Collection<SceneLocation> scenes) {
+        return new SceneChangedEvent(List.of(), List.copyOf(scenes), Map.of(), false);
+    }
+
+    public static SceneChangedEvent deletedAll() {
+        return new SceneChangedEvent(List.of(), List.of(), Map.of(), true);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.index;
+
+import com.github.davidmoten.rtree2.Entry;
+import com.github.davidmoten.rtree2.Entries;
+import com.github.davidmoten.rtree2.Leaf;
+import com.github.davidmoten.rtree2.Node;
+import com.github.davidmoten.rtree2.NonLeaf;
+import com.github.davidmoten.rtree2.RTree;
+import com.github.davidmoten.rtree2.geometry.Geometries;
+import com.github.davidmoten.rtree2.geometry.Point;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+import de.dittwald.cinemap.repository.scene.event.SceneChangedEvent;
+import de.dittwald.cinemap.repository.scene.repository.SceneRepository;
+import de.dittwald.cinemap.repository.scene.util.BoundingBox;
+import de.dittwald.cinemap.repository.scene.util.GreatCircle;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+
+/**
+ * In-memory R-tree over the scene locations. It is loaded from the database on first use and kept in sync via
+ * {@link SceneChangedEvent}s. The tree is immutable, so readers never block while it is being changed.
+ */
+@Component
+@Slf4j
+public class SceneSpatialIndex {
+
+    private final SceneRepository sceneRepository;
+
+    // Both guarded by this, the tree is additionally published via the volatile field
+    private final Map<UUID, SceneLocation> locations = new HashMap<>();
+    private volatile RTree<SceneLocation, Point> tree;
+
+    public SceneSpatialIndex(SceneRepository sceneRepository) {
+        this.sceneRepository = sceneRepository;
+    }
+
+    public List<SceneLocation> search(BoundingBox boundingBox) {
+        RTree<SceneLocation, Point> current = tree();
+        List<SceneLocation> result = new ArrayList<>();
+        for (Rectangle rectangle : boundingBox.toRectangles()) {
+            for (Entry<SceneLocation, Point> entry : current.search(rectangle)) {
+                result.add(entry.value());
+            }
+        }
+        result.sort(Comparator.comparing(SceneLocation::id, Comparator.nullsLast(Comparator.naturalOrder())));
+        return result;
+    }
+
+    /**
+     * Best-first k-nearest-neighbour search. Nodes are visited in the order of their great-circle distance lower
+     * bound, so the search stops as soon as k scenes were found that are closer than every unvisited node.
+     */
+    public List<SceneDistance> nearest(double lat, double lon, int k, double maxDistanceKm) {
+        List<SceneDistance> result = new ArrayList<>();
+        Optional<? extends Node<SceneLocation, Point>> root = tree().root();
+        if (root.isEmpty()) {
+            return result;
+        }
+
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distanceKm));
+        queue.add(new Candidate(root.get(), null, 0));
+        while (!queue.isEmpty() && result.size() < k) {
+            Candidate candidate = queue.poll();
+            if (candidate.distanceKm() > maxDistanceKm) {
+                break;
+            }
+
+            if (candidate.location() != null) {
+                result.add(new SceneDistance(candidate.location(), candidate.distanceKm()));
+            } else if (candidate.node() instanceof Leaf<SceneLocation, Point> leaf) {
+                for (Entry<SceneLocation, Point> entry : leaf.entries()) {
+                    queue.add(new Candidate(null, entry.value(),
+                            GreatCircle.distanceKm(lat, lon, entry.value().lat(), entry.value().lon())));
+                }
+            } else if (candidate.node() instanceof NonLeaf<SceneLocation, Point> nonLeaf) {
+                for (Node<SceneLocation, Point> child : nonLeaf.children()) {
+                    Rectangle mbr = child.geometry().mbr();
+                    queue.add(new Candidate(child, null,
+                            GreatCircle.distanceToRectangleKm(lat, lon, mbr.x1(), mbr.y1(), mbr.x2(), mbr.y2())));
+                }
+            }
+        }
+        return result;
+    }
+
+    public List<SceneLocation> locations() {
+        tree();
+        synchronized (this) {
+            return new ArrayList<>(this.locations.values());
+        }
+    }
+
+    public int size() {
+        return tree().size();
+    }
+
+    // Runs before the listeners deriving their state from this index
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onSceneChanged(SceneChangedEvent event) {
+        if (this.tree == null) {
+            // Not loaded yet, the initial load will read the committed state
+            return;
+        }
+
+        RTree<SceneLocation, Point> changed = this.tree;
+        if (event.allDeleted()) {
+            this.locations.clear();
+            changed = RTree.star().create();
+        }
+        for (SceneLocation location : event.removedScenes()) {
+            SceneLocation removed = this.locations.remove(location.uuid());
+            if (removed != null) {
+                changed = changed.delete(removed, point(removed));
+            }
+        }
+        for (SceneLocation location : event.savedScenes()) {
+            SceneLocation replaced = this.locations.put(location.uuid(), location);
+            if (replaced != null) {
+                changed = changed.delete(replaced, point(replaced));
+            }
+            changed = changed.add(location, point(location));
+        }
+        this.tree = changed;
+    }
+
+    private RTree<SceneLocation, Point> tree() {
+        RTree<SceneLocation, Point> current = this.tree;
+        if (current == null) {
+            synchronized (this) {
+                if (this.tree == null) {
+                    load();
+                }
+                current = this.tree;
+            }
+        }
+        return current;
+    }
+
+    private void load() {
+        List<Entry<SceneLocation, Point>> entries = new ArrayList<>();
+        for (SceneLocation location : this.sceneRepository.findAllLocations()) {
+            this.locations.put(location.uuid(), location);
+            entries.add(Entries.entry(location, point(location)));
+        }
+        // Bulk loading packs the tree (STR) which gives better query performance than inserting one by one
+        this.tree = RTree.star().create(entries);
+        log.info("Loaded {} scenes into the spatial index", entries.size());
+    }
+
+    private static Point point(SceneLocation location) {
+        return Geometries.point(location.lon(), location.lat());
+    }
+
+    private record Candidate(Node<SceneLocation, Point> node, SceneLocation location, double distanceKm) {
+    }
+}
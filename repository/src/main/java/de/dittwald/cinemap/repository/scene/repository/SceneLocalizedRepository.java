@@ -17,16 +17,105 @@
 package de.dittwald.cinemap.repository.scene.repository;
 
 import de.dittwald.cinemap.repository.scene.entity.LocalizedScene;
+import de.dittwald.cinemap.repository.search.index.SearchDocument;
+import de.dittwald.cinemap.repository.util.ConstantStrings;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface SceneLocalizedRepository extends ListCrudRepository<LocalizedScene, String> {
 
+    String SEARCH_DOCUMENT = "select new de.dittwald.cinemap.repository.search.index.SearchDocument('" +
+            SearchDocument.SCENE + "', s.uuid, m.uuid, ls.localizedId.locale, ls.title, cast(null as String), " +
+            "ls.description) from LocalizedScene ls join ls.scene s join s.movie m ";
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<List<LocalizedScene>> findAllBySceneUuid(UUID sceneUuid);
 
+    @Query(SEARCH_DOCUMENT + "where s.uuid = :sceneUuid")
+    List<SearchDocument> findSearchDocumentsBySceneUuid(@Param("sceneUuid") UUID sceneUuid);
+
+    @Query(SEARCH_DOCUMENT + "where s.uuid in :sceneUuids")
+    List<SearchDocument> findSearchDocumentsBySceneUuidIn(@Param("sceneUuids") Collection<UUID> sceneUuids);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = ConstantStrings.STREAM_FETCH_SIZE))
+    @Query(SEARCH_DOCUMENT + "order by s.id")
+    Stream<SearchDocument> streamSearchDocuments();
+
+    // Locales are ISO 639-1 codes, so the kept locales are passed joined by commas. An empty string keeps none.
+    @Query(nativeQuery = true, value = """
+            select count(lo_unlink(description)) from localized_scene
+            where id = :sceneId and locale <> all(string_to_array(:keptLocales, ',')) and description is not null
+            """)
+    long unlinkDescriptionsOfOtherLocales(@Param("sceneId") Long sceneId, @Param("keptLocales") String keptLocales);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "localized_scene"))
+    @Query(nativeQuery = true, value = "delete from localized_scene " +
+            "where id = :sceneId and locale <> all(string_to_array(:keptLocales, ','))")
+    int deleteOtherLocales(@Param("sceneId") Long sceneId, @Param("keptLocales") String keptLocales);
+
+    // Copies the large objects of a batch of descriptions to the text column and unlinks them.
+    // CTEs calling volatile functions are materialized and run once, so every large object is read before it is
+    // unlinked. Rows locked by concurrent writes wait for the next batch. The statement is an UPDATE, so Hibernate
+    // invalidates the cached localized scenes.
+    String MOVE_DESCRIPTIONS_TO_TEXT = """
+            with batch as (select id, locale, description as oid from localized_scene
+                           where description is not null
+                           limit :batchSize for update skip locked),
+                 copied as (select id, locale, oid, convert_from(lo_get(oid), 'UTF8') as text from batch),
+                 unlinked as (select id, locale, text from copied where lo_unlink(oid) = 1)
+            update localized_scene l
+            set description_text = coalesce(l.description_text, unlinked.text),
+                description = null
+            from unlinked
+            where l.id = unlinked.id and l.locale = unlinked.locale
+            """;
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "localized_scene"))
+    @Query(nativeQuery = true, value = MOVE_DESCRIPTIONS_TO_TEXT)
+    int moveDescriptionsToText(@Param("batchSize") int batchSize);
+
+    // Moves the large objects of the descriptions of the given scene like MOVE_DESCRIPTIONS_TO_TEXT, before its
+    // descriptions get written. Waits for locked rows, they are about to be written by the calling transaction anyway.
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "localized_scene"))
+    @Query(nativeQuery = true, value = """
+            with batch as (select id, locale, description as oid from localized_scene
+                           where id = :sceneId and description is not null
+                           for update),
+                 copied as (select id, locale, oid, convert_from(lo_get(oid), 'UTF8') as text from batch),
+                 unlinked as (select id, locale, text from copied where lo_unlink(oid) = 1)
+            update localized_scene l
+            set description_text = coalesce(l.description_text, unlinked.text),
+                description = null
+            from unlinked
+            where l.id = unlinked.id and l.locale = unlinked.locale
+            """)
+    int moveDescriptionsOfSceneToText(@Param("sceneId") Long sceneId);
+
+    // Deleting the rows leaves the large objects of the descriptions behind
+    @Query(nativeQuery = true,
+            value = "select count(lo_unlink(description)) from localized_scene where description is not null")
+    long unlinkAllDescriptions();
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "localized_scene"))
+    @Query(nativeQuery = true, value = "delete from localized_scene")
+    int purgeAll();
 }
@@ -16,22 +16,91 @@
 
 package de.dittwald.cinemap.repository.scene.repository;
 
+import de.dittwald.cinemap.repository.datasource.ReadFromPrimary;
+import de.dittwald.cinemap.repository.scene.dto.SceneVersion;
 import de.dittwald.cinemap.repository.scene.entity.Scene;
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
+import de.dittwald.cinemap.repository.util.CollectionVersion;
+import de.dittwald.cinemap.repository.util.ConstantStrings;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface SceneRepository extends ListCrudRepository<Scene, Long> {
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Scene> findByUuid(UUID uuid);
 
+    // Localizations are not owned by the scene, writing them would not increment its version otherwise
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("select s from Scene s where s.uuid = :uuid")
+    Optional<Scene> findByUuidIncrementingVersion(@Param("uuid") UUID uuid);
+
+    @Query("select new de.dittwald.cinemap.repository.scene.dto.SceneVersion(s.version, s.movie.version) " +
+            "from Scene s where s.uuid = :uuid")
+    Optional<SceneVersion> findVersionByUuid(@Param("uuid") UUID uuid);
+
+    @ReadFromPrimary
+    @Query("select new de.dittwald.cinemap.repository.util.CollectionVersion(count(s), coalesce(max(s.id), 0L), " +
+            "coalesce(sum(s.version), 0L)) from Scene s")
+    CollectionVersion findCollectionVersion();
+
+    @Query("select new de.dittwald.cinemap.repository.util.CollectionVersion(count(s), coalesce(max(s.id), 0L), " +
+            "coalesce(sum(s.version), 0L)) from Scene s where s.movie.uuid = :movieUuid")
+    CollectionVersion findCollectionVersionOfMovieUuid(@Param("movieUuid") UUID movieUuid);
+
     void deleteByUuid(UUID uuid);
 
     boolean existsByUuid(UUID uuid);
 
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "scenes"))
+    @Query(nativeQuery = true, value = "delete from scenes")
+    int purgeAll();
+
+    @Query("select s.uuid from Scene s where s.uuid in :uuids")
+    Set<UUID> findExistingUuids(@Param("uuids") Collection<UUID> uuids);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<List<Scene>> findAllScenesOfMovieUuid(UUID movieUuid);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = ConstantStrings.STREAM_FETCH_SIZE))
+    @Query("select s from Scene s join fetch s.movie order by s.id")
+    Stream<Scene> streamAll();
+
+    @Query("select s from Scene s join fetch s.movie where s.id in :ids order by s.id")
+    List<Scene> findAllWithMovieByIdIn(Collection<Long> ids);
+
+    @ReadFromPrimary
+    @Query("select new de.dittwald.cinemap.repository.scene.index.SceneLocation(s.id, s.uuid, s.movie.id, s.lon, " +
+            "s.lat) from Scene s")
+    List<SceneLocation> findAllLocations();
+
+    @Query("select new de.dittwald.cinemap.repository.scene.index.SceneLocation(s.id, s.uuid, s.movie.id, s.lon, " +
+            "s.lat) from Scene s where s.uuid = :uuid")
+    Optional<SceneLocation> findLocationByUuid(@Param("uuid") UUID uuid);
+
+    @Query("select new de.dittwald.cinemap.repository.scene.index.SceneLocation(s.id, s.uuid, s.movie.id, s.lon, " +
+            "s.lat) from Scene s where s.uuid = :uuid and s.movie.uuid = :movieUuid")
+    Optional<SceneLocation> findLocationByUuidAndMovieUuid(@Param("uuid") UUID uuid,
+                                                           @Param("movieUuid") UUID movieUuid);
+
+    @Query("select new de.dittwald.cinemap.repository.scene.index.SceneLocation(s.id, s.uuid, s.movie.id, s.lon, " +
+            "s.lat) from Scene s where s.movie.uuid = :movieUuid")
+    List<SceneLocation> findAllLocationsOfMovieUuid(@Param("movieUuid") UUID movieUuid);
 }
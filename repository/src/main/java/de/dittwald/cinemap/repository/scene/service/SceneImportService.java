@@ -0,0 +1,216 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.dittwald.cinemap.repository.scene.dto.SceneCreationDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneImportDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneImportRejectionDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneImportReportDto;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Imports the point features of a GeoJSON FeatureCollection as scenes. The collection is parsed as a stream, so only
+ * the current batch of {@code de.cinemap.repository.scenes.batch-size} features is held in memory. Each batch is
+ * written in its own transaction, rejected features are reported and do not abort the import.
+ */
+@Service
+@Slf4j
+public class SceneImportService {
+
+    static final int MAX_REPORTED_REJECTIONS = 1000;
+
+    private final SceneService sceneService;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public SceneImportService(SceneService sceneService, Validator validator, ObjectMapper objectMapper,
+                              @Value("${de.cinemap.repository.scenes.batch-size:1000}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.sceneService = sceneService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    public SceneImportReportDto importFeatureCollection(InputStream inputStream) throws IOException {
+        Report report = new Report();
+        try (JsonParser parser = this.objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("GeoJSON FeatureCollection expected");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (field.equals("type")) {
+                    if (!"FeatureCollection".equals(parser.getValueAsString())) {
+                        throw new IllegalArgumentException("GeoJSON FeatureCollection expected");
+                    }
+                } else if (field.equals("features") && value == JsonToken.START_ARRAY) {
+                    importFeatures(parser, report);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(
+                    "Invalid GeoJSON after %d features: %s".formatted(report.features, e.getOriginalMessage()));
+        }
+        report.rejections.sort(Comparator.comparingLong(SceneImportRejectionDto::feature));
+        return new SceneImportReportDto(report.imported, report.rejected, report.rejections);
+    }
+
+    private void importFeatures(JsonParser parser, Report report) throws IOException {
+        Map<UUID, Long> batchFeatures = new HashMap<>();
+        List<SceneImportDto> batch = new ArrayList<>(this.batchSize);
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            JsonNode feature = parser.readValueAsTree();
+            long number = ++report.features;
+            SceneImportDto scene;
+            try {
+                scene = toScene(feature);
+            } catch (IllegalArgumentException e) {
+                report.reject(number, uuid(feature), e.getMessage());
+                continue;
+            }
+            if (batchFeatures.putIfAbsent(scene.scene().uuid(), number) != null) {
+                report.reject(number, scene.scene().uuid(), "UUID already in use");
+                continue;
+            }
+            batch.add(scene);
+            if (batch.size() >= this.batchSize) {
+                write(batch, batchFeatures, report);
+                batch = new ArrayList<>(this.batchSize);
+                batchFeatures.clear();
+            }
+        }
+        write(batch, batchFeatures, report);
+    }
+
+    private SceneImportDto toScene(JsonNode feature) {
+        if (!feature.path("type").asText().equals("Feature")) {
+            throw new IllegalArgumentException("Feature expected");
+        }
+        JsonNode geometry = feature.path("geometry");
+        JsonNode coordinates = geometry.path("coordinates");
+        if (!geometry.path("type").asText().equals("Point") || coordinates.size() < 2 ||
+                !coordinates.get(0).isNumber() || !coordinates.get(1).isNumber()) {
+            throw new IllegalArgumentException("Point geometry expected");
+        }
+        double lon = coordinates.get(0).asDouble();
+        double lat = coordinates.get(1).asDouble();
+        if (lon < -180 || lon > 180 || lat < -90 || lat > 90) {
+            throw new IllegalArgumentException("Coordinates out of range");
+        }
+
+        JsonNode properties = feature.path("properties");
+        UUID movieUuid = toUuid(properties.path("movieUuid"), "movieUuid");
+        if (movieUuid == null) {
+            throw new IllegalArgumentException("movieUuid: must not be null");
+        }
+        SceneCreationDto scene = new SceneCreationDto(sceneUuid(feature), lon, lat, text(properties, "locale"),
+                text(properties, "title"), text(properties, "description"));
+        Set<ConstraintViolation<SceneCreationDto>> violations = this.validator.validate(scene);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+        return new SceneImportDto(movieUuid, scene);
+    }
+
+    private void write(List<SceneImportDto> batch, Map<UUID, Long> batchFeatures, Report report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            Map<UUID, String> rejected = this.sceneService.saveBatch(batch);
+            report.imported += batch.size() - rejected.size();
+            for (Map.Entry<UUID, String> entry : rejected.entrySet()) {
+                report.reject(batchFeatures.get(entry.getKey()), entry.getKey(), entry.getValue());
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to write a batch of {} scenes", batch.size(), e);
+            for (SceneImportDto scene : batch) {
+                report.reject(batchFeatures.get(scene.scene().uuid()), scene.scene().uuid(),
+                        "Writing the batch failed");
+            }
+        }
+    }
+
+    // The scene UUID is the feature id or, as a fallback, the uuid property
+    private static UUID sceneUuid(JsonNode feature) {
+        JsonNode id = feature.path("id");
+        return id.isMissingNode() ? toUuid(feature.path("properties").path("uuid"), "uuid") : toUuid(id, "id");
+    }
+
+    private static UUID uuid(JsonNode feature) {
+        try {
+            return sceneUuid(feature);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static UUID toUuid(JsonNode node, String name) {
+        if (!node.isTextual()) {
+            return null;
+        }
+        try {
+            return UUID.fromString(node.asText());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("%s: invalid UUID".formatted(name));
+        }
+    }
+
+    private static String text(JsonNode properties, String name) {
+        JsonNode node = properties.path(name);
+        return node.isTextual() ? node.asText() : null;
+    }
+
+    private static class Report {
+        private long features;
+        private long imported;
+        private long rejected;
+        private final List<SceneImportRejectionDto> rejections = new ArrayList<>();
+
+        void reject(long feature, UUID uuid, String reason) {
+            this.rejected++;
+            if (this.rejections.size() < MAX_REPORTED_REJECTIONS) {
+                this.rejections.add(new SceneImportRejectionDto(feature, uuid, reason));
+            }
+        }
+    }
+}
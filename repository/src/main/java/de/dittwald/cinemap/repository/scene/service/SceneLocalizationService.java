@@ -17,55 +17,91 @@
 package de.dittwald.cinemap.repository.scene.service;
 
 import de.dittwald.cinemap.repository.exceptions.NotFoundException;
+import de.dittwald.cinemap.repository.exceptions.PreconditionFailedException;
 import de.dittwald.cinemap.repository.movie.entity.LocalizedId;
 import de.dittwald.cinemap.repository.scene.dto.SceneLocalizationDto;
 import de.dittwald.cinemap.repository.scene.dto.SceneLocalizationEntryDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneVersion;
 import de.dittwald.cinemap.repository.scene.entity.LocalizedScene;
 import de.dittwald.cinemap.repository.scene.entity.Scene;
+import de.dittwald.cinemap.repository.scene.event.SceneChangedEvent;
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
 import de.dittwald.cinemap.repository.scene.repository.SceneLocalizedRepository;
 import de.dittwald.cinemap.repository.scene.repository.SceneRepository;
+import de.dittwald.cinemap.repository.util.EntityTags;
+import de.dittwald.cinemap.repository.util.MergePatch;
+import de.dittwald.cinemap.repository.util.Tagged;
+import de.dittwald.cinemap.repository.util.TargetedUpdateRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class SceneLocalizationService {
 
+    private static final Map<String, Function<SceneLocalizationEntryDto, Object>> PATCHED_COLUMNS =
+            Map.of("title", SceneLocalizationEntryDto::title, "description", SceneLocalizationEntryDto::description);
+
+    public static final Set<String> PATCHABLE_FIELDS = PATCHED_COLUMNS.keySet();
+
     private final SceneRepository sceneRepository;
     private final SceneLocalizedRepository sceneLocalizedRepository;
+    private final TargetedUpdateRepository targetedUpdateRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public SceneLocalizationService(SceneRepository sceneRepository,
-                                    SceneLocalizedRepository sceneLocalizedRepository) {
+                                    SceneLocalizedRepository sceneLocalizedRepository,
+                                    TargetedUpdateRepository targetedUpdateRepository,
+                                    ApplicationEventPublisher eventPublisher) {
         this.sceneRepository = sceneRepository;
         this.sceneLocalizedRepository = sceneLocalizedRepository;
+        this.targetedUpdateRepository = targetedUpdateRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
     public void update(SceneLocalizationDto sceneLocalizationDto, UUID sceneUuid, boolean override)
             throws NotFoundException {
 
-        Optional<Scene> sceneOptional = this.sceneRepository.findByUuid(sceneUuid);
+        Optional<Scene> sceneOptional = this.sceneRepository.findByUuidIncrementingVersion(sceneUuid);
         Scene scene;
         if (sceneOptional.isPresent()) {
             scene = sceneOptional.get();
         } else {
             throw new NotFoundException("Scene not found");
         }
+        long version = scene.getPersistedVersion() + 1;
 
+        // Removed locales are deleted with one statement before the remaining localizations are loaded
         if (override) {
-            scene.getLocalizedScenes().clear();
-            this.sceneRepository.save(scene);
+            String keptLocales = sceneLocalizationDto.localizations()
+                    .stream()
+                    .map(SceneLocalizationEntryDto::locale)
+                    .collect(Collectors.joining(","));
+            this.sceneLocalizedRepository.unlinkDescriptionsOfOtherLocales(scene.getId(), keptLocales);
+            this.sceneLocalizedRepository.deleteOtherLocales(scene.getId(), keptLocales);
+        }
+        // Descriptions about to be written must not leave their large objects behind. Moving evicts all cached
+        // localized scenes, so it only runs if large objects are left.
+        if (scene.getLocalizedScenes().values().stream().anyMatch(LocalizedScene::hasLegacyDescription)) {
+            this.sceneLocalizedRepository.moveDescriptionsOfSceneToText(scene.getId());
         }
 
+        // New locales are inserted and changed ones updated in JDBC batches, dirty checking skips unchanged rows
         for (SceneLocalizationEntryDto dto : sceneLocalizationDto.localizations()) {
-            if (scene.getLocalizedScenes().containsKey(dto.locale())) {
-                LocalizedScene localizedScene = scene.getLocalizedScenes().get(dto.locale());
+            LocalizedScene localizedScene = scene.getLocalizedScenes().get(dto.locale());
+            if (localizedScene != null) {
+                localizedScene.setTitle(dto.title());
                 localizedScene.setDescription(dto.description());
-                scene.getLocalizedScenes().replace(dto.locale(), localizedScene);
             } else {
                 scene.getLocalizedScenes()
                         .put(dto.locale(), new LocalizedScene(new LocalizedId(dto.locale()), scene, dto.title(),
@@ -74,10 +110,50 @@ public class SceneLocalizationService {
         }
 
         this.sceneRepository.save(scene);
+        this.eventPublisher.publishEvent(SceneChangedEvent.changed(SceneLocation.of(scene), version));
     }
 
-    @Transactional
-    public SceneLocalizationDto getSceneLocalizationDto(UUID sceneUuid) throws NotFoundException {
+    /**
+     * Applies a merge patch to one localization of the scene with one UPDATE, without loading the scene. The version
+     * of the scene is incremented and, if an expected version is given, checked in the same go.
+     */
+    @Transactional(rollbackFor = NotFoundException.class)
+    public void patch(UUID sceneUuid, String locale, MergePatch<SceneLocalizationEntryDto> patch,
+                      Long expectedVersion) throws NotFoundException, PreconditionFailedException {
+        SceneLocation location = this.sceneRepository.findLocationByUuid(sceneUuid)
+                .orElseThrow(() -> new NotFoundException("Scene not found"));
+
+        if (this.targetedUpdateRepository.updateVersioned(Scene.class, location.id(), expectedVersion, Map.of()) == 0) {
+            // Without an expected version no precondition was evaluated, the scene got deleted in the meantime
+            if (expectedVersion != null) {
+                throw new PreconditionFailedException("Scene was modified in the meantime");
+            }
+            throw new NotFoundException("Scene not found");
+        }
+        if (patch.has("description")) {
+            // Supersedes a large object that was not moved to the text column yet
+            this.sceneLocalizedRepository.moveDescriptionsOfSceneToText(location.id());
+        }
+        Map<String, Object> attributes = patch.attributes(PATCHED_COLUMNS);
+        if (!attributes.isEmpty() && this.targetedUpdateRepository.updateLocalized(LocalizedScene.class,
+                location.id(), locale, attributes) == 0) {
+            throw new NotFoundException("Scene localization not found");
+        }
+        // Read back, the update did not load the version it incremented
+        SceneVersion version = this.sceneRepository.findVersionByUuid(sceneUuid)
+                .orElseThrow(() -> new NotFoundException("Scene not found"));
+        this.eventPublisher.publishEvent(SceneChangedEvent.changed(location, version.sceneVersion()));
+    }
+
+    /**
+     * Returns the localizations of the scene with the entity tag of its version. The version is read first, the
+     * localizations of the same or a later state are read from the same replica, so the tag never claims a newer
+     * state than the one returned.
+     */
+    @Transactional(readOnly = true)
+    public Tagged<SceneLocalizationDto> getSceneLocalizationDto(UUID sceneUuid) throws NotFoundException {
+        SceneVersion version = this.sceneRepository.findVersionByUuid(sceneUuid)
+                .orElseThrow(() -> new NotFoundException("Scene not found"));
 
         Optional<List<LocalizedScene>> localizedScenes = this.sceneLocalizedRepository.findAllBySceneUuid(sceneUuid);
         if (localizedScenes.isEmpty()) {
@@ -91,6 +167,7 @@ public class SceneLocalizationService {
                     localizedScene.getTitle(), localizedScene.getDescription()));
         }
 
-        return new SceneLocalizationDto(sceneUuid, localizedEntries);
+        return new Tagged<>(new SceneLocalizationDto(sceneUuid, localizedEntries),
+                EntityTags.of(version.sceneVersion()));
     }
 }
@@ -16,55 +16,136 @@
 
 package de.dittwald.cinemap.repository.scene.service;
 
+import de.dittwald.cinemap.repository.cache.CollectionVersions;
+import de.dittwald.cinemap.repository.cache.VersionedDto;
+import de.dittwald.cinemap.repository.cache.WrittenVersions;
 import de.dittwald.cinemap.repository.exceptions.LocaleNotFoundException;
 import de.dittwald.cinemap.repository.exceptions.NotFoundException;
+import de.dittwald.cinemap.repository.exceptions.PreconditionFailedException;
 import de.dittwald.cinemap.repository.exceptions.UuidInUseException;
 import de.dittwald.cinemap.repository.movie.entity.LocalizedId;
 import de.dittwald.cinemap.repository.movie.entity.Movie;
 import de.dittwald.cinemap.repository.movie.repository.MovieRepository;
+import de.dittwald.cinemap.repository.scene.cache.SceneDtoCache;
+import de.dittwald.cinemap.repository.scene.cluster.SceneCluster;
+import de.dittwald.cinemap.repository.scene.cluster.SceneClusterIndex;
+import de.dittwald.cinemap.repository.scene.dto.SceneClusterDto;
 import de.dittwald.cinemap.repository.scene.dto.SceneCreationDto;
 import de.dittwald.cinemap.repository.scene.dto.SceneFlatDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneImportDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneNearbyDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneVersion;
 import de.dittwald.cinemap.repository.scene.entity.LocalizedScene;
 import de.dittwald.cinemap.repository.scene.entity.Scene;
+import de.dittwald.cinemap.repository.scene.event.SceneChangedEvent;
+import de.dittwald.cinemap.repository.scene.index.SceneDistance;
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
+import de.dittwald.cinemap.repository.scene.index.SceneSpatialIndex;
+import de.dittwald.cinemap.repository.scene.repository.SceneLocalizedRepository;
 import de.dittwald.cinemap.repository.scene.repository.SceneRepository;
+import de.dittwald.cinemap.repository.scene.tile.SceneTileFeature;
+import de.dittwald.cinemap.repository.scene.tile.SceneTileFeatures;
+import de.dittwald.cinemap.repository.scene.util.BoundingBox;
 import de.dittwald.cinemap.repository.scene.util.LocalizedSceneDtoMapper;
+import de.dittwald.cinemap.repository.util.ConstantStrings;
+import de.dittwald.cinemap.repository.util.EntityTags;
+import de.dittwald.cinemap.repository.util.MergePatch;
+import de.dittwald.cinemap.repository.util.Tagged;
+import de.dittwald.cinemap.repository.util.TargetedUpdateRepository;
+import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import de.dittwald.cinemap.repository.util.LocaleFallbackHandler;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.function.ThrowingConsumer;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 public class SceneService {
 
+    private static final int STREAM_CHUNK_SIZE = Integer.parseInt(ConstantStrings.STREAM_FETCH_SIZE);
+
+    private static final Map<String, Function<SceneCreationDto, Object>> PATCHED_COLUMNS =
+            Map.of("lon", SceneCreationDto::lon, "lat", SceneCreationDto::lat);
+
+    public static final Set<String> PATCHABLE_FIELDS = PATCHED_COLUMNS.keySet();
+
     private final SceneRepository sceneRepository;
+    private final SceneLocalizedRepository sceneLocalizedRepository;
     private final MovieRepository movieRepository;
+    private final EntityManager entityManager;
+    private final SceneSpatialIndex sceneSpatialIndex;
+    private final SceneClusterIndex sceneClusterIndex;
+    private final SceneDtoCache sceneDtoCache;
+    private final TargetedUpdateRepository targetedUpdateRepository;
+    private final CollectionVersions collectionVersions;
+    private final WrittenVersions writtenVersions;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public SceneService(SceneRepository sceneRepository, MovieRepository movieRepository) {
+    public SceneService(SceneRepository sceneRepository, SceneLocalizedRepository sceneLocalizedRepository,
+                        MovieRepository movieRepository, EntityManager entityManager,
+                        SceneSpatialIndex sceneSpatialIndex, SceneClusterIndex sceneClusterIndex,
+                        SceneDtoCache sceneDtoCache, TargetedUpdateRepository targetedUpdateRepository,
+                        CollectionVersions collectionVersions, WrittenVersions writtenVersions,
+                        ApplicationEventPublisher eventPublisher) {
         this.sceneRepository = sceneRepository;
+        this.sceneLocalizedRepository = sceneLocalizedRepository;
         this.movieRepository = movieRepository;
+        this.entityManager = entityManager;
+        this.sceneSpatialIndex = sceneSpatialIndex;
+        this.sceneClusterIndex = sceneClusterIndex;
+        this.sceneDtoCache = sceneDtoCache;
+        this.targetedUpdateRepository = targetedUpdateRepository;
+        this.collectionVersions = collectionVersions;
+        this.writtenVersions = writtenVersions;
+        this.eventPublisher = eventPublisher;
     }
 
 
-    @Transactional
-    public SceneFlatDto findByUuid(UUID uuid, String locale) throws NotFoundException, LocaleNotFoundException {
-        Scene scene = this.sceneRepository.findByUuid(uuid).orElseThrow(() -> new NotFoundException("Scene not found"));
-        return LocalizedSceneDtoMapper.entityToDto(scene, LocaleFallbackHandler.getSceneLocale(scene, locale));
+    /**
+     * Finds a scene with the entity tag of the scene and movie versions it was loaded in, so the tag matches the
+     * returned state even if it was read from a lagging replica. The tag is null while genres got renamed lately.
+     */
+    @Transactional(readOnly = true)
+    public Tagged<SceneFlatDto> findByUuid(UUID uuid, String locale)
+            throws NotFoundException, LocaleNotFoundException {
+        VersionedDto<SceneFlatDto, SceneVersion> scene = this.sceneDtoCache.get(uuid, locale, () -> {
+            Scene loaded =
+                    this.sceneRepository.findByUuid(uuid).orElseThrow(() -> new NotFoundException("Scene not found"));
+            return new VersionedDto<>(
+                    LocalizedSceneDtoMapper.entityToDto(loaded, LocaleFallbackHandler.getSceneLocale(loaded, locale)),
+                    new SceneVersion(loaded.getPersistedVersion(), loaded.getMovie().getPersistedVersion()));
+        });
+        String genres = this.collectionVersions.genres();
+        return new Tagged<>(scene.dto(), genres != null ? EntityTags.of(scene.version(), genres, locale) : null);
+    }
+
+    // The format tells the JSON array and the newline delimited representation apart. Null while the scenes changed
+    // lately, so the response has no entity tag.
+    public String findAllEntityTag(String locale, String format) {
+        String scenes = this.collectionVersions.scenes();
+        return scenes != null ? EntityTags.of(scenes, locale, format) : null;
     }
 
     @Transactional
     public void update(SceneCreationDto sceneCreationDto, UUID movieUuid, UUID sceneUuid) throws NotFoundException {
 
-        Movie movie =
-                this.movieRepository.findByUuid(movieUuid).orElseThrow(() -> new NotFoundException("Movie not found"));
-
-        Scene scene =
-                this.sceneRepository.findByUuid(sceneUuid).orElseThrow(() -> new NotFoundException("Scene not found"));
+        Scene scene = this.sceneRepository.findByUuidIncrementingVersion(sceneUuid)
+                .filter(found -> found.getMovie().getUuid().equals(movieUuid))
+                .orElseThrow(() -> new NotFoundException("Scene not found"));
+        // Descriptions about to be written must not leave their large objects behind. Moving evicts all cached
+        // localized scenes, so it only runs if large objects are left.
+        if (scene.getLocalizedScenes().values().stream().anyMatch(LocalizedScene::hasLegacyDescription)) {
+            this.sceneLocalizedRepository.moveDescriptionsOfSceneToText(scene.getId());
+        }
+        SceneLocation previousLocation = SceneLocation.of(scene);
+        long version = scene.getPersistedVersion() + 1;
         scene.setLat(sceneCreationDto.lat());
         scene.setLon(sceneCreationDto.lon());
 
@@ -83,8 +164,39 @@ public class SceneService {
         }
 
         this.sceneRepository.save(scene);
+        this.eventPublisher.publishEvent(
+                SceneChangedEvent.moved(previousLocation, SceneLocation.of(scene), version));
     }
 
+    /**
+     * Applies a merge patch of the scene position with one UPDATE guarded by the expected version, if given, without
+     * loading the scene. Scenes of other movies are not found.
+     */
+    @Transactional
+    public void patch(UUID movieUuid, UUID sceneUuid, MergePatch<SceneCreationDto> patch, Long expectedVersion)
+            throws NotFoundException, PreconditionFailedException {
+        SceneLocation previousLocation = this.sceneRepository.findLocationByUuidAndMovieUuid(sceneUuid, movieUuid)
+                .orElseThrow(() -> new NotFoundException("Scene not found"));
+
+        if (this.targetedUpdateRepository.updateVersioned(Scene.class, previousLocation.id(), expectedVersion,
+                patch.attributes(PATCHED_COLUMNS)) == 0) {
+            // Without an expected version no precondition was evaluated, the scene got deleted in the meantime
+            if (expectedVersion != null) {
+                throw new PreconditionFailedException("Scene was modified in the meantime");
+            }
+            throw new NotFoundException("Scene not found");
+        }
+        SceneLocation location = new SceneLocation(previousLocation.id(), sceneUuid, previousLocation.movieId(),
+                patch.has("lon") ? patch.values().lon() : previousLocation.lon(),
+                patch.has("lat") ? patch.values().lat() : previousLocation.lat());
+        // Read back, the update did not load the version it incremented
+        SceneVersion version = this.sceneRepository.findVersionByUuid(sceneUuid)
+                .orElseThrow(() -> new NotFoundException("Scene not found"));
+        this.eventPublisher.publishEvent(SceneChangedEvent.moved(previousLocation, location, version.sceneVersion()));
+    }
+
+    // Transactional, so the listeners of the event read the saved scene within the committed transaction
+    @Transactional
     public void save(SceneCreationDto sceneCreationDto, UUID movieUuid) throws NotFoundException, UuidInUseException {
 
         Movie movie =
@@ -94,42 +206,184 @@ public class SceneService {
             Scene scene = LocalizedSceneDtoMapper.dtoToEntity(sceneCreationDto);
             scene.setMovie(movie);
             this.sceneRepository.save(scene);
+            this.eventPublisher.publishEvent(SceneChangedEvent.saved(SceneLocation.of(scene)));
         } else {
             throw new UuidInUseException("UUID already in use");
         }
     }
 
+    /**
+     * Inserts the scenes of one import batch. Scenes of unknown movies or with a UUID already in use are skipped, the
+     * returned map holds the reason by scene UUID.
+     */
     @Transactional
-    public List<SceneFlatDto> findAll(String locale) throws LocaleNotFoundException {
-        List<SceneFlatDto> movieSceneDtos = new ArrayList<>();
-        for (Scene scene : this.sceneRepository.findAll()) {
-            movieSceneDtos.add(LocalizedSceneDtoMapper.entityToDto(scene, locale));
+    public Map<UUID, String> saveBatch(List<SceneImportDto> scenes) {
+        Map<UUID, Movie> movies = new HashMap<>();
+        for (Movie movie : this.movieRepository.findAllByUuidIn(
+                scenes.stream().map(SceneImportDto::movieUuid).collect(Collectors.toSet()))) {
+            movies.put(movie.getUuid(), movie);
+        }
+        Set<UUID> existingUuids =
+                this.sceneRepository.findExistingUuids(scenes.stream().map(scene -> scene.scene().uuid()).toList());
+
+        Map<UUID, String> rejected = new HashMap<>();
+        List<Scene> newScenes = new ArrayList<>();
+        for (SceneImportDto sceneImportDto : scenes) {
+            UUID uuid = sceneImportDto.scene().uuid();
+            Movie movie = movies.get(sceneImportDto.movieUuid());
+            if (movie == null) {
+                rejected.put(uuid, "Movie not found");
+            } else if (existingUuids.contains(uuid)) {
+                rejected.put(uuid, "UUID already in use");
+            } else {
+                Scene scene = LocalizedSceneDtoMapper.dtoToEntity(sceneImportDto.scene());
+                scene.setMovie(movie);
+                newScenes.add(scene);
+            }
+        }
+        this.sceneRepository.saveAll(newScenes);
+        this.eventPublisher.publishEvent(SceneChangedEvent.saved(newScenes.stream().map(SceneLocation::of).toList()));
+        return rejected;
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAll(String locale, ThrowingConsumer<SceneFlatDto> consumer) {
+        int streamedScenes = 0;
+        try (Stream<Scene> scenes = this.sceneRepository.streamAll()) {
+            for (Iterator<Scene> iterator = scenes.iterator(); iterator.hasNext(); ) {
+                streamScene(iterator.next(), locale, consumer);
+
+                // Keeps the persistence context from growing with the number of streamed scenes
+                if (++streamedScenes % STREAM_CHUNK_SIZE == 0) {
+                    this.entityManager.clear();
+                }
+            }
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void streamWithin(BoundingBox boundingBox, String locale, ThrowingConsumer<SceneFlatDto> consumer) {
+        List<Long> sceneIds = this.sceneSpatialIndex.search(boundingBox).stream().map(SceneLocation::id).toList();
+        for (int from = 0; from < sceneIds.size(); from += STREAM_CHUNK_SIZE) {
+            List<Long> chunk = sceneIds.subList(from, Math.min(from + STREAM_CHUNK_SIZE, sceneIds.size()));
+            for (Scene scene : this.sceneRepository.findAllWithMovieByIdIn(chunk)) {
+                streamScene(scene, locale, consumer);
+            }
+            this.entityManager.clear();
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<SceneNearbyDto> findNearby(double lat, double lon, int k, double maxDistanceKm, String locale)
+            throws LocaleNotFoundException {
+        List<SceneDistance> nearest = this.sceneSpatialIndex.nearest(lat, lon, k, maxDistanceKm);
+        if (nearest.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<UUID, Scene> scenes = new HashMap<>();
+        for (Scene scene : this.sceneRepository.findAllWithMovieByIdIn(
+                nearest.stream().map(sceneDistance -> sceneDistance.location().id()).toList())) {
+            scenes.put(scene.getUuid(), scene);
+        }
+
+        List<SceneNearbyDto> sceneNearbyDtos = new ArrayList<>();
+        for (SceneDistance sceneDistance : nearest) {
+            Scene scene = scenes.get(sceneDistance.location().uuid());
+            // Deleted after the index was queried
+            if (scene != null) {
+                sceneNearbyDtos.add(new SceneNearbyDto(LocalizedSceneDtoMapper.entityToDto(scene,
+                        LocaleFallbackHandler.getSceneLocale(scene, locale)), sceneDistance.distanceKm()));
+            }
+        }
+        return sceneNearbyDtos;
+    }
+
+    /**
+     * Loads the features of the indexed scenes within the bounding box. The index is ahead of a lagging replica, the
+     * features are only current if every indexed scene was loaded and none in an older state than its written one.
+     */
+    @Transactional(readOnly = true)
+    public SceneTileFeatures findTileFeatures(BoundingBox boundingBox, String locale) {
+        List<Long> sceneIds = this.sceneSpatialIndex.search(boundingBox).stream().map(SceneLocation::id).toList();
+        List<SceneTileFeature> features = new ArrayList<>();
+        boolean current = true;
+        for (int from = 0; from < sceneIds.size(); from += STREAM_CHUNK_SIZE) {
+            List<Long> chunk = sceneIds.subList(from, Math.min(from + STREAM_CHUNK_SIZE, sceneIds.size()));
+            List<Scene> scenes = this.sceneRepository.findAllWithMovieByIdIn(chunk);
+            current &= scenes.size() == chunk.size();
+            for (Scene scene : scenes) {
+                current &= !this.writtenVersions.isOutdated(scene.getUuid(), scene.getPersistedVersion());
+                String title = null;
+                try {
+                    title = scene.getLocalizedScenes()
+                            .get(LocaleFallbackHandler.getSceneLocale(scene, locale))
+                            .getTitle();
+                } catch (LocaleNotFoundException e) {
+                    log.debug("No title for scene {} in tile: {}", scene.getUuid(), e.getMessage());
+                }
+                features.add(new SceneTileFeature(scene.getLon(), scene.getLat(), scene.getUuid(),
+                        scene.getMovie().getUuid(), title));
+            }
+            this.entityManager.clear();
+        }
+        return new SceneTileFeatures(features, current);
+    }
+
+    public List<SceneClusterDto> findClusters(int zoom, BoundingBox boundingBox) {
+        List<SceneClusterDto> sceneClusterDtos = new ArrayList<>();
+        for (SceneCluster cluster : this.sceneClusterIndex.getClusters(zoom, boundingBox)) {
+            sceneClusterDtos.add(new SceneClusterDto(cluster.lon(), cluster.lat(), cluster.count(),
+                    cluster.expansionZoom(), cluster.sceneUuid()));
+        }
+        return sceneClusterDtos;
+    }
+
+    private void streamScene(Scene scene, String locale, ThrowingConsumer<SceneFlatDto> consumer) {
+        try {
+            consumer.accept(
+                    LocalizedSceneDtoMapper.entityToDto(scene, LocaleFallbackHandler.getSceneLocale(scene, locale)));
+        } catch (LocaleNotFoundException e) {
+            // The response is already partially written, so the scene can only be left out
+            log.warn("Skipping scene {} while streaming: {}", scene.getUuid(), e.getMessage());
         }
-        return movieSceneDtos;
     }
 
     @Transactional
     public void deleteByUuid(UUID uuid) throws NotFoundException {
-        if (this.sceneRepository.existsByUuid(uuid)) {
-            this.sceneRepository.deleteByUuid(uuid);
-        } else {
-            throw new NotFoundException("Scene not found");
-        }
+        Scene scene = this.sceneRepository.findByUuid(uuid).orElseThrow(() -> new NotFoundException("Scene not found"));
+        this.sceneRepository.deleteByUuid(uuid);
+        this.eventPublisher.publishEvent(SceneChangedEvent.deleted(List.of(SceneLocation.of(scene))));
     }
 
+    /**
+     * Deletes all scenes with set-based statements instead of loading and deleting them one by one.
+     */
+    @Transactional
     public void deleteAll() {
         log.warn("Deleting all scenes");
-        this.sceneRepository.deleteAll();
+        this.sceneLocalizedRepository.unlinkAllDescriptions();
+        int localizations = this.sceneLocalizedRepository.purgeAll();
+        int scenes = this.sceneRepository.purgeAll();
+        log.info("Deleted {} scenes with {} localizations", scenes, localizations);
+        this.eventPublisher.publishEvent(SceneChangedEvent.deletedAll());
     }
 
-    @Transactional
-    public List<SceneFlatDto> findAllScenesOfMovie(UUID movieUuid, String locale)
+    /**
+     * Finds the scenes of a movie with the entity tag of their versions. The versions are read first, the scenes of the
+     * same or a later state are read from the same replica, so the tag never claims a newer state than the one
+     * returned. The tag is null while genres got renamed lately.
+     */
+    @Transactional(readOnly = true)
+    public Tagged<List<SceneFlatDto>> findAllScenesOfMovie(UUID movieUuid, String locale)
             throws NotFoundException, LocaleNotFoundException {
         List<SceneFlatDto> sceneListDto = new ArrayList<>();
 
-        if (!this.movieRepository.existsByUuid(movieUuid)) {
-            throw new NotFoundException("Movie not found");
-        }
+        Long movieVersion = this.movieRepository.findVersionByUuid(movieUuid)
+                .orElseThrow(() -> new NotFoundException("Movie not found"));
+        String genres = this.collectionVersions.genres();
+        String entityTag = genres != null ? EntityTags.of(
+                this.sceneRepository.findCollectionVersionOfMovieUuid(movieUuid), movieVersion, genres, locale) : null;
 
         Optional<List<Scene>> scenesOptional = this.sceneRepository.findAllScenesOfMovieUuid(movieUuid);
         if (scenesOptional.isPresent()) {
@@ -138,6 +392,6 @@ public class SceneService {
             }
         }
 
-        return sceneListDto;
+        return new Tagged<>(sceneListDto, entityTag);
     }
 }
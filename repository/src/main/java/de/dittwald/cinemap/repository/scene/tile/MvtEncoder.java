@@ -0,0 +1,131 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.tile;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal Mapbox Vector Tile 2.1 encoder for a single layer of point features with string properties. It writes the
+ * protobuf wire format directly, keys and values are deduplicated per layer as required by the specification.
+ */
+public class MvtEncoder {
+
+    private static final int WIRE_TYPE_VARINT = 0;
+    private static final int WIRE_TYPE_LENGTH_DELIMITED = 2;
+
+    private static final int TILE_LAYERS = 3;
+    private static final int LAYER_NAME = 1;
+    private static final int LAYER_FEATURES = 2;
+    private static final int LAYER_KEYS = 3;
+    private static final int LAYER_VALUES = 4;
+    private static final int LAYER_EXTENT = 5;
+    private static final int LAYER_VERSION = 15;
+    private static final int FEATURE_TAGS = 2;
+    private static final int FEATURE_TYPE = 3;
+    private static final int FEATURE_GEOMETRY = 4;
+    private static final int VALUE_STRING = 1;
+
+    private static final int GEOM_TYPE_POINT = 1;
+    private static final int COMMAND_MOVE_TO = 1;
+
+    private final String layerName;
+    private final int extent;
+    private final Map<String, Integer> keys = new LinkedHashMap<>();
+    private final Map<String, Integer> values = new LinkedHashMap<>();
+    private final List<byte[]> features = new ArrayList<>();
+
+    public MvtEncoder(String layerName, int extent) {
+        this.layerName = layerName;
+        this.extent = extent;
+    }
+
+    public void addPoint(int x, int y, Map<String, String> properties) {
+        List<Integer> tags = new ArrayList<>();
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            if (property.getValue() != null) {
+                tags.add(this.keys.computeIfAbsent(property.getKey(), key -> this.keys.size()));
+                tags.add(this.values.computeIfAbsent(property.getValue(), value -> this.values.size()));
+            }
+        }
+
+        ByteArrayOutputStream feature = new ByteArrayOutputStream();
+        writePacked(feature, FEATURE_TAGS, tags);
+        writeTag(feature, FEATURE_TYPE, WIRE_TYPE_VARINT);
+        writeVarint(feature, GEOM_TYPE_POINT);
+        writePacked(feature, FEATURE_GEOMETRY, List.of(COMMAND_MOVE_TO & 0x7 | 1 << 3, zigZag(x), zigZag(y)));
+        this.features.add(feature.toByteArray());
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream layer = new ByteArrayOutputStream();
+        writeTag(layer, LAYER_VERSION, WIRE_TYPE_VARINT);
+        writeVarint(layer, 2);
+        writeBytes(layer, LAYER_NAME, this.layerName.getBytes(StandardCharsets.UTF_8));
+        for (byte[] feature : this.features) {
+            writeBytes(layer, LAYER_FEATURES, feature);
+        }
+        for (String key : this.keys.keySet()) {
+            writeBytes(layer, LAYER_KEYS, key.getBytes(StandardCharsets.UTF_8));
+        }
+        for (String value : this.values.keySet()) {
+            ByteArrayOutputStream valueMessage = new ByteArrayOutputStream();
+            writeBytes(valueMessage, VALUE_STRING, value.getBytes(StandardCharsets.UTF_8));
+            writeBytes(layer, LAYER_VALUES, valueMessage.toByteArray());
+        }
+        writeTag(layer, LAYER_EXTENT, WIRE_TYPE_VARINT);
+        writeVarint(layer, this.extent);
+
+        ByteArrayOutputStream tile = new ByteArrayOutputStream();
+        writeBytes(tile, TILE_LAYERS, layer.toByteArray());
+        return tile.toByteArray();
+    }
+
+    private static void writePacked(ByteArrayOutputStream out, int field, List<Integer> numbers) {
+        ByteArrayOutputStream packed = new ByteArrayOutputStream();
+        for (int number : numbers) {
+            writeVarint(packed, number);
+        }
+        writeBytes(out, field, packed.toByteArray());
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, int field, byte[] bytes) {
+        writeTag(out, field, WIRE_TYPE_LENGTH_DELIMITED);
+        writeVarint(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static void writeTag(ByteArrayOutputStream out, int field, int wireType) {
+        writeVarint(out, field << 3 | wireType);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static int zigZag(int value) {
+        return value << 1 ^ value >> 31;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.tile;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.dittwald.cinemap.repository.scene.event.SceneChangedEvent;
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
+import de.dittwald.cinemap.repository.scene.service.SceneService;
+import de.dittwald.cinemap.repository.scene.util.BoundingBox;
+import de.dittwald.cinemap.repository.scene.util.WebMercator;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders scenes as Mapbox Vector Tiles and caches the encoded tiles. A scene change only evicts the tiles whose
+ * buffered bounds contain the old or new location of a changed scene. Tiles rendered from outdated scenes of a lagging
+ * replica are not cached.
+ */
+@Service
+public class SceneTileService {
+
+    public static final String MVT_MEDIA_TYPE = "application/vnd.mapbox-vector-tile";
+    public static final int MAX_ZOOM = 22;
+    public static final String LAYER_NAME = "scenes";
+
+    static final int EXTENT = 4096;
+    // Points this close to the tile border are also written to the neighbouring tile, so symbols are not cut off
+    static final int BUFFER = 64;
+    private static final long MAX_CACHE_BYTES = 64L * 1024 * 1024;
+
+    private final SceneService sceneService;
+    private final Cache<TileKey, byte[]> tileCache = Caffeine.newBuilder()
+            .maximumWeight(MAX_CACHE_BYTES)
+            .weigher((TileKey key, byte[] tile) -> tile.length)
+            .build();
+    private final Set<String> cachedLocales = ConcurrentHashMap.newKeySet();
+
+    // Incremented before every eviction, lets a rendering detect that it might have read outdated scenes
+    private final AtomicLong evictions = new AtomicLong();
+
+    public SceneTileService(SceneService sceneService) {
+        this.sceneService = sceneService;
+    }
+
+    public byte[] getTile(int z, int x, int y, String locale) {
+        int tiles = 1 << z;
+        if (z < 0 || z > MAX_ZOOM || x < 0 || x >= tiles || y < 0 || y >= tiles) {
+            throw new IllegalArgumentException("Invalid tile given");
+        }
+        TileKey key = new TileKey(z, x, y, locale);
+        byte[] cached = this.tileCache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        this.cachedLocales.add(locale);
+        long evictionsBeforeRender = this.evictions.get();
+        SceneTileFeatures features = this.sceneService.findTileFeatures(boundingBox(key), locale);
+        byte[] tile = encode(key, features.features());
+        // A tile rendered from a lagging replica is handed out but not cached, it would be kept until the next change
+        if (features.current()) {
+            this.tileCache.put(key, tile);
+            if (this.evictions.get() != evictionsBeforeRender) {
+                this.tileCache.invalidate(key);
+            }
+        }
+        return tile;
+    }
+
+    // Runs after the spatial index is updated, so evicted tiles are rendered from the new state
+    @Order(1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSceneChanged(SceneChangedEvent event) {
+        this.evictions.incrementAndGet();
+        if (event.allDeleted()) {
+            this.tileCache.invalidateAll();
+        }
+        for (SceneLocation location : event.removedScenes()) {
+            evict(location);
+        }
+        for (SceneLocation location : event.savedScenes()) {
+            evict(location);
+        }
+    }
+
+    private static BoundingBox boundingBox(TileKey key) {
+        double tiles = 1 << key.z();
+        double buffer = (double) BUFFER / EXTENT;
+        return new BoundingBox(WebMercator.lon((key.x() - buffer) / tiles),
+                WebMercator.lat((key.y() + 1 + buffer) / tiles), WebMercator.lon((key.x() + 1 + buffer) / tiles),
+                WebMercator.lat((key.y() - buffer) / tiles));
+    }
+
+    private static byte[] encode(TileKey key, List<SceneTileFeature> features) {
+        double tiles = 1 << key.z();
+        MvtEncoder encoder = new MvtEncoder(LAYER_NAME, EXTENT);
+        for (SceneTileFeature feature : features) {
+            Map<String, String> properties = new LinkedHashMap<>();
+            properties.put("uuid", feature.uuid().toString());
+            properties.put("movieUuid", feature.movieUuid() != null ? feature.movieUuid().toString() : null);
+            properties.put("title", feature.title());
+            encoder.addPoint((int) Math.round((WebMercator.x(feature.lon()) * tiles - key.x()) * EXTENT),
+                    (int) Math.round((WebMercator.y(feature.lat()) * tiles - key.y()) * EXTENT), properties);
+        }
+        return encoder.encode();
+    }
+
+    private void evict(SceneLocation location) {
+        double buffer = (double) BUFFER / EXTENT;
+        for (int z = 0; z <= MAX_ZOOM; z++) {
+            int tiles = 1 << z;
+            double x = WebMercator.x(location.lon()) * tiles;
+            double y = WebMercator.y(location.lat()) * tiles;
+            for (int tileX = tile(x - buffer, tiles); tileX <= tile(x + buffer, tiles); tileX++) {
+                for (int tileY = tile(y - buffer, tiles); tileY <= tile(y + buffer, tiles); tileY++) {
+                    for (String locale : this.cachedLocales) {
+                        this.tileCache.invalidate(new TileKey(z, tileX, tileY, locale));
+                    }
+                }
+            }
+        }
+    }
+
+    private static int tile(double coordinate, int tiles) {
+        return (int) Math.max(0, Math.min(tiles - 1, Math.floor(coordinate)));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.util;
+
+import com.github.davidmoten.rtree2.geometry.Geometries;
+import com.github.davidmoten.rtree2.geometry.Rectangle;
+
+import java.util.List;
+
+/**
+ * Geographic bounding box given as minLon,minLat,maxLon,maxLat. A box whose minLon is greater than its maxLon
+ * crosses the antimeridian.
+ */
+public record BoundingBox(double minLon, double minLat, double maxLon, double maxLat) {
+
+    public BoundingBox {
+        if (!isLon(minLon) || !isLon(maxLon) || !isLat(minLat) || !isLat(maxLat) || minLat > maxLat) {
+            throw new IllegalArgumentException("Invalid bounding box given");
+        }
+    }
+
+    public static BoundingBox parse(String bbox) {
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Invalid bounding box given");
+        }
+        try {
+            return new BoundingBox(Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim()),
+                    Double.parseDouble(parts[2].trim()), Double.parseDouble(parts[3].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid bounding box given");
+        }
+    }
+
+    public boolean crossesAntimeridian() {
+        return this.minLon > this.maxLon;
+    }
+
+    public List<Rectangle> toRectangles() {
+        if (crossesAntimeridian()) {
+            return List.of(Geometries.rectangle(this.minLon, this.minLat, 180, this.maxLat),
+                    Geometries.rectangle(-180, this.minLat, this.maxLon, this.maxLat));
+        }
+        return List.of(Geometries.rectangle(this.minLon, this.minLat, this.maxLon, this.maxLat));
+    }
+
+    private static boolean isLon(double lon) {
+        return lon >= -180 && lon <= 180;
+    }
+
+    private static boolean isLat(double lat) {
+        return lat >= -90 && lat <= 90;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.util;
+
+/**
+ * Great-circle distances on a spherical earth. Coordinates are given in degrees, distances are returned in
+ * kilometers.
+ */
+public class GreatCircle {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double sinHalfDeltaPhi = Math.sin((phi2 - phi1) / 2);
+        double sinHalfDeltaLambda = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double a = sinHalfDeltaPhi * sinHalfDeltaPhi +
+                Math.cos(phi1) * Math.cos(phi2) * sinHalfDeltaLambda * sinHalfDeltaLambda;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Smallest distance from the point to any point inside the lon/lat rectangle, which makes it a tight lower bound
+     * for everything stored within the rectangle.
+     */
+    public static double distanceToRectangleKm(double lat, double lon, double minLon, double minLat, double maxLon,
+                                               double maxLat) {
+        if (lon >= minLon && lon <= maxLon) {
+            if (lat < minLat) {
+                return Math.toRadians(minLat - lat) * EARTH_RADIUS_KM;
+            } else if (lat > maxLat) {
+                return Math.toRadians(lat - maxLat) * EARTH_RADIUS_KM;
+            }
+            return 0;
+        }
+
+        // Outside the longitude range the closest point lies on the meridian edge with the smaller longitude delta
+        double edgeLon = deltaLon(lon, minLon) <= deltaLon(lon, maxLon) ? minLon : maxLon;
+        double phi = Math.toRadians(lat);
+        double deltaLambda = Math.toRadians(deltaLon(lon, edgeLon));
+
+        // Latitude on the full meridian closest to the point, clamped onto the edge
+        double closestLat = Math.toDegrees(Math.atan2(Math.sin(phi), Math.cos(phi) * Math.cos(deltaLambda)));
+        closestLat = Math.max(minLat, Math.min(maxLat, closestLat));
+
+        return Math.min(distanceKm(lat, lon, closestLat, edgeLon),
+                Math.min(distanceKm(lat, lon, minLat, edgeLon), distanceKm(lat, lon, maxLat, edgeLon)));
+    }
+
+    private static double deltaLon(double lon1, double lon2) {
+        double delta = Math.abs(lon1 - lon2) % 360;
+        return delta > 180 ? 360 - delta : delta;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.util;
+
+/**
+ * Conversions between lon/lat in degrees and normalized web mercator coordinates, where x and y run from 0 to 1 and
+ * y grows to the south like map tiles do.
+ */
+public class WebMercator {
+
+    public static double x(double lon) {
+        return lon / 360 + 0.5;
+    }
+
+    public static double y(double lat) {
+        double sin = Math.sin(Math.toRadians(lat));
+        double y = 0.5 - 0.25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+        return Math.max(0, Math.min(1, y));
+    }
+
+    public static double lon(double x) {
+        return Math.max(-180, Math.min(180, (x - 0.5) * 360));
+    }
+
+    public static double lat(double y) {
+        double y2 = (180 - y * 360) * Math.PI / 180;
+        return Math.max(-90, Math.min(90, 360 * Math.atan(Math.exp(y2)) / Math.PI - 90));
+    }
+}
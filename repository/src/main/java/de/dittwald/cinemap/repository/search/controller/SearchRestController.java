@@ -0,0 +1,68 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.search.controller;
+
+import de.dittwald.cinemap.repository.search.dto.SearchHitDto;
+import de.dittwald.cinemap.repository.search.index.SearchIndex;
+import de.dittwald.cinemap.repository.util.ConstantStrings;
+import de.dittwald.cinemap.repository.validation.Iso6391Constraint;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/search")
+@Tag(name = "Search")
+@Validated
+public class SearchRestController {
+
+    private final SearchIndex searchIndex;
+
+    public SearchRestController(SearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Search movies and scenes",
+            description = "Searches the titles, taglines, overviews and descriptions of the movies and scenes in " +
+                    "the given language. Words are matched by their stem, all of them must occur. Quoted phrases, " +
+                    "prefixes ending with * and terms excluded by - are supported. Hits are ordered by relevance " +
+                    "and the matches are highlighted with <em>.")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Found hits"),
+            @ApiResponse(responseCode = "400", description = "Invalid query, ISO 639-1 lang or limit given")})
+    public List<SearchHitDto> search(@RequestParam("q") @NotBlank @Size(max = 200) String query,
+                                     @RequestParam(name = ConstantStrings.LOCALE_API_REQUEST_PARAM,
+                                             defaultValue = ConstantStrings.DEFAULT_LOCALE) @Iso6391Constraint
+                                     String locale,
+                                     @RequestParam(defaultValue = ConstantStrings.DEFAULT_SEARCH_LIMIT) @Min(1)
+                                     @Max(ConstantStrings.MAX_SEARCH_LIMIT) int limit) {
+        return this.searchIndex.search(query, locale, limit);
+    }
+}
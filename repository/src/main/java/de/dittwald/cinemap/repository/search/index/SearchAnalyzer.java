@@ -0,0 +1,107 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.search.index;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.DelegatingAnalyzerWrapper;
+import org.apache.lucene.analysis.ar.ArabicAnalyzer;
+import org.apache.lucene.analysis.bg.BulgarianAnalyzer;
+import org.apache.lucene.analysis.ca.CatalanAnalyzer;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.analysis.cz.CzechAnalyzer;
+import org.apache.lucene.analysis.da.DanishAnalyzer;
+import org.apache.lucene.analysis.de.GermanAnalyzer;
+import org.apache.lucene.analysis.el.GreekAnalyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.es.SpanishAnalyzer;
+import org.apache.lucene.analysis.et.EstonianAnalyzer;
+import org.apache.lucene.analysis.eu.BasqueAnalyzer;
+import org.apache.lucene.analysis.fa.PersianAnalyzer;
+import org.apache.lucene.analysis.fi.FinnishAnalyzer;
+import org.apache.lucene.analysis.fr.FrenchAnalyzer;
+import org.apache.lucene.analysis.ga.IrishAnalyzer;
+import org.apache.lucene.analysis.gl.GalicianAnalyzer;
+import org.apache.lucene.analysis.hi.HindiAnalyzer;
+import org.apache.lucene.analysis.hu.HungarianAnalyzer;
+import org.apache.lucene.analysis.hy.ArmenianAnalyzer;
+import org.apache.lucene.analysis.id.IndonesianAnalyzer;
+import org.apache.lucene.analysis.it.ItalianAnalyzer;
+import org.apache.lucene.analysis.lt.LithuanianAnalyzer;
+import org.apache.lucene.analysis.lv.LatvianAnalyzer;
+import org.apache.lucene.analysis.nl.DutchAnalyzer;
+import org.apache.lucene.analysis.no.NorwegianAnalyzer;
+import org.apache.lucene.analysis.pt.PortugueseAnalyzer;
+import org.apache.lucene.analysis.ro.RomanianAnalyzer;
+import org.apache.lucene.analysis.ru.RussianAnalyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.sv.SwedishAnalyzer;
+import org.apache.lucene.analysis.th.ThaiAnalyzer;
+import org.apache.lucene.analysis.tr.TurkishAnalyzer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Chooses the stemming analyzer of a text field by the ISO 639-1 locale its name ends with, e.g. {@code title.de}.
+ * Locales without a dedicated analyzer are only tokenized and lower cased.
+ */
+public class SearchAnalyzer extends DelegatingAnalyzerWrapper {
+
+    private static final Map<String, Supplier<Analyzer>> LANGUAGE_ANALYZERS =
+            Map.ofEntries(Map.entry("ar", ArabicAnalyzer::new), Map.entry("bg", BulgarianAnalyzer::new),
+                    Map.entry("ca", CatalanAnalyzer::new), Map.entry("cs", CzechAnalyzer::new),
+                    Map.entry("da", DanishAnalyzer::new), Map.entry("de", GermanAnalyzer::new),
+                    Map.entry("el", GreekAnalyzer::new), Map.entry("en", EnglishAnalyzer::new),
+                    Map.entry("es", SpanishAnalyzer::new), Map.entry("et", EstonianAnalyzer::new),
+                    Map.entry("eu", BasqueAnalyzer::new), Map.entry("fa", PersianAnalyzer::new),
+                    Map.entry("fi", FinnishAnalyzer::new), Map.entry("fr", FrenchAnalyzer::new),
+                    Map.entry("ga", IrishAnalyzer::new), Map.entry("gl", GalicianAnalyzer::new),
+                    Map.entry("hi", HindiAnalyzer::new), Map.entry("hu", HungarianAnalyzer::new),
+                    Map.entry("hy", ArmenianAnalyzer::new), Map.entry("id", IndonesianAnalyzer::new),
+                    Map.entry("it", ItalianAnalyzer::new), Map.entry("ja", CJKAnalyzer::new),
+                    Map.entry("ko", CJKAnalyzer::new), Map.entry("lt", LithuanianAnalyzer::new),
+                    Map.entry("lv", LatvianAnalyzer::new), Map.entry("nl", DutchAnalyzer::new),
+                    Map.entry("no", NorwegianAnalyzer::new), Map.entry("nb", NorwegianAnalyzer::new),
+                    Map.entry("pt", PortugueseAnalyzer::new), Map.entry("ro", RomanianAnalyzer::new),
+                    Map.entry("ru", RussianAnalyzer::new), Map.entry("sv", SwedishAnalyzer::new),
+                    Map.entry("th", ThaiAnalyzer::new), Map.entry("tr", TurkishAnalyzer::new),
+                    Map.entry("zh", CJKAnalyzer::new));
+
+    private final Map<String, Analyzer> analyzers = new ConcurrentHashMap<>();
+
+    public SearchAnalyzer() {
+        super(PER_FIELD_REUSE_STRATEGY);
+    }
+
+    public static String field(String name, String locale) {
+        return name + "." + locale;
+    }
+
+    @Override
+    protected Analyzer getWrappedAnalyzer(String fieldName) {
+        String locale = fieldName.substring(fieldName.lastIndexOf('.') + 1);
+        return this.analyzers.computeIfAbsent(locale,
+                key -> LANGUAGE_ANALYZERS.getOrDefault(key, StandardAnalyzer::new).get());
+    }
+
+    @Override
+    public void close() {
+        this.analyzers.values().forEach(Analyzer::close);
+        super.close();
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.search.index;
+
+import java.util.UUID;
+
+/**
+ * One localization of a movie or scene as it gets indexed. Tagline is only set for movies, the body is the movie
+ * overview or the scene description.
+ */
+public record SearchDocument(String type, UUID uuid, UUID movieUuid, String locale, String title, String tagline,
+                             String body) {
+
+    public static final String MOVIE = "movie";
+    public static final String SCENE = "scene";
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.search.index;
+
+import de.dittwald.cinemap.repository.movie.event.MovieChangedEvent;
+import de.dittwald.cinemap.repository.movie.event.MoviesCreatedEvent;
+import de.dittwald.cinemap.repository.scene.event.SceneChangedEvent;
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
+import de.dittwald.cinemap.repository.search.dto.SearchHitDto;
+import de.dittwald.cinemap.repository.search.service.SearchDocumentService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * In-memory Lucene index over all movie and scene localizations, one document per localization. Text fields are
+ * suffixed with their locale and analyzed by the stemmer of that language. The index is loaded from the database on
+ * first use and kept in sync via {@link MovieChangedEvent}s and {@link SceneChangedEvent}s.
+ */
+@Component
+@Slf4j
+public class SearchIndex {
+
+    private static final String ID = "id";
+    private static final String TYPE = "type";
+    private static final String UUID_FIELD = "uuid";
+    private static final String MOVIE_UUID = "movieUuid";
+    private static final String TITLE = "title";
+    private static final String TAGLINE = "tagline";
+    private static final String BODY = "body";
+
+    private static final Map<String, Float> FIELD_WEIGHTS = Map.of(TITLE, 3f, TAGLINE, 2f, BODY, 1f);
+
+    // Stored offsets let the highlighter read the match positions from the postings instead of re-analyzing
+    private static final FieldType TEXT_FIELD_TYPE = new FieldType(TextField.TYPE_STORED);
+
+    static {
+        TEXT_FIELD_TYPE.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        TEXT_FIELD_TYPE.freeze();
+    }
+
+    private final SearchDocumentService searchDocumentService;
+    private final SearchAnalyzer analyzer = new SearchAnalyzer();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    // Written while holding this
+    private volatile boolean loaded;
+
+    public SearchIndex(SearchDocumentService searchDocumentService) throws IOException {
+        this.searchDocumentService = searchDocumentService;
+        // A larger buffer flushes fewer segments during the initial load, which roughly halves its duration
+        this.writer = new IndexWriter(new ByteBuffersDirectory(),
+                new IndexWriterConfig(this.analyzer).setRAMBufferSizeMB(128));
+        this.searcherManager = new SearcherManager(this.writer, null);
+    }
+
+    public List<SearchHitDto> search(String queryText, String locale, int limit) {
+        ensureLoaded();
+
+        Map<String, Float> weights = new HashMap<>();
+        FIELD_WEIGHTS.forEach((name, weight) -> weights.put(SearchAnalyzer.field(name, locale), weight));
+        SimpleQueryParser parser = new SimpleQueryParser(this.analyzer, weights);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query query = parser.parse(queryText);
+
+        String titleField = SearchAnalyzer.field(TITLE, locale);
+        String bodyField = SearchAnalyzer.field(BODY, locale);
+        try {
+            this.searcherManager.maybeRefresh();
+            IndexSearcher searcher = this.searcherManager.acquire();
+            try {
+                TopDocs topDocs = searcher.search(query, limit);
+                UnifiedHighlighter highlighter = UnifiedHighlighter.builder(searcher, this.analyzer)
+                        .withFormatter(new DefaultPassageFormatter("<em>", "</em>", "… ", true))
+                        .build();
+                Map<String, String[]> highlights =
+                        highlighter.highlightFields(new String[]{titleField, bodyField}, query, topDocs,
+                                new int[]{1, 2});
+
+                StoredFields storedFields = searcher.storedFields();
+                List<SearchHitDto> hits = new ArrayList<>();
+                for (int i = 0; i < topDocs.scoreDocs.length; i++) {
+                    Document document = storedFields.document(topDocs.scoreDocs[i].doc);
+                    hits.add(new SearchHitDto(document.get(TYPE), UUID.fromString(document.get(UUID_FIELD)),
+                            UUID.fromString(document.get(MOVIE_UUID)), document.get(titleField),
+                            highlights.get(titleField)[i], highlights.get(bodyField)[i], topDocs.scoreDocs[i].score));
+                }
+                return hits;
+            } finally {
+                this.searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onMovieChanged(MovieChangedEvent event) throws IOException {
+        if (!this.loaded) {
+            // Not loaded yet, the initial load will read the committed state
+            return;
+        }
+
+        if (event.allDeleted()) {
+            this.writer.deleteDocuments(new Term(TYPE, SearchDocument.MOVIE));
+        } else {
+            // Deleted movies have no documents anymore, so updating removes them as well
+            update(SearchDocument.MOVIE, event.movieUuid(),
+                    this.searchDocumentService.findMovieDocuments(event.movieUuid()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onMoviesCreated(MoviesCreatedEvent event) throws IOException {
+        if (!this.loaded) {
+            return;
+        }
+
+        for (SearchDocument document : this.searchDocumentService.findMovieDocumentsIn(event.movieUuids())) {
+            this.writer.addDocument(fields(document));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onSceneChanged(SceneChangedEvent event) throws IOException {
+        if (!this.loaded) {
+            return;
+        }
+
+        if (event.allDeleted()) {
+            this.writer.deleteDocuments(new Term(TYPE, SearchDocument.SCENE));
+        }
+        for (SceneLocation location : event.removedScenes()) {
+            this.writer.deleteDocuments(id(SearchDocument.SCENE, location.uuid()));
+        }
+        if (event.savedScenes().size() == 1) {
+            UUID uuid = event.savedScenes().getFirst().uuid();
+            update(SearchDocument.SCENE, uuid, this.searchDocumentService.findSceneDocuments(uuid));
+        } else if (!event.savedScenes().isEmpty()) {
+            // Imports save many scenes at once, their documents are read with a single query
+            Map<UUID, List<SearchDocument>> documents = new HashMap<>();
+            for (SceneLocation location : event.savedScenes()) {
+                documents.put(location.uuid(), new ArrayList<>());
+            }
+            for (SearchDocument document : this.searchDocumentService.findSceneDocumentsIn(documents.keySet())) {
+                documents.get(document.uuid()).add(document);
+            }
+            for (Map.Entry<UUID, List<SearchDocument>> entry : documents.entrySet()) {
+                update(SearchDocument.SCENE, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        this.searcherManager.close();
+        this.writer.close();
+        this.analyzer.close();
+    }
+
+    private void ensureLoaded() {
+        if (!this.loaded) {
+            synchronized (this) {
+                if (!this.loaded) {
+                    load();
+                }
+            }
+        }
+    }
+
+    private void load() {
+        long start = System.nanoTime();
+        try {
+            // Drops the documents of a previously failed load
+            this.writer.deleteAll();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.searchDocumentService.forEachDocument(document -> this.writer.addDocument(fields(document)));
+        this.loaded = true;
+        log.info("Loaded {} localizations into the search index in {} ms", this.writer.getDocStats().numDocs,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void update(String type, UUID uuid, List<SearchDocument> documents) throws IOException {
+        this.writer.updateDocuments(id(type, uuid), documents.stream().map(SearchIndex::fields).toList());
+    }
+
+    private static Term id(String type, UUID uuid) {
+        return new Term(ID, type + ":" + uuid);
+    }
+
+    private static List<IndexableField> fields(SearchDocument document) {
+        List<IndexableField> fields = new ArrayList<>();
+        fields.add(new StringField(ID, id(document.type(), document.uuid()).text(), Field.Store.NO));
+        fields.add(new StringField(TYPE, document.type(), Field.Store.YES));
+        fields.add(new StoredField(UUID_FIELD, document.uuid().toString()));
+        fields.add(new StoredField(MOVIE_UUID, document.movieUuid().toString()));
+        addText(fields, TITLE, document.locale(), document.title());
+        addText(fields, TAGLINE, document.locale(), document.tagline());
+        addText(fields, BODY, document.locale(), document.body());
+        return fields;
+    }
+
+    private static void addText(List<IndexableField> fields, String name, String locale, String text) {
+        if (text != null) {
+            fields.add(new Field(SearchAnalyzer.field(name, locale), text, TEXT_FIELD_TYPE));
+        }
+    }
+}
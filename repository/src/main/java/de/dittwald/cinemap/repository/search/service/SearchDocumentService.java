@@ -0,0 +1,73 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.search.service;
+
+import de.dittwald.cinemap.repository.datasource.ReadFromPrimary;
+import de.dittwald.cinemap.repository.movie.repository.MovieLocalizedRepository;
+import de.dittwald.cinemap.repository.scene.repository.SceneLocalizedRepository;
+import de.dittwald.cinemap.repository.search.index.SearchDocument;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.function.ThrowingConsumer;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Service
+public class SearchDocumentService {
+
+    private final MovieLocalizedRepository movieLocalizedRepository;
+    private final SceneLocalizedRepository sceneLocalizedRepository;
+
+    public SearchDocumentService(MovieLocalizedRepository movieLocalizedRepository,
+                                 SceneLocalizedRepository sceneLocalizedRepository) {
+        this.movieLocalizedRepository = movieLocalizedRepository;
+        this.sceneLocalizedRepository = sceneLocalizedRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public List<SearchDocument> findMovieDocuments(UUID movieUuid) {
+        return this.movieLocalizedRepository.findSearchDocumentsByMovieUuid(movieUuid);
+    }
+
+    @Transactional(readOnly = true)
+    public List<SearchDocument> findMovieDocumentsIn(Collection<UUID> movieUuids) {
+        return this.movieLocalizedRepository.findSearchDocumentsByMovieUuidIn(movieUuids);
+    }
+
+    @Transactional(readOnly = true)
+    public List<SearchDocument> findSceneDocuments(UUID sceneUuid) {
+        return this.sceneLocalizedRepository.findSearchDocumentsBySceneUuid(sceneUuid);
+    }
+
+    @Transactional(readOnly = true)
+    public List<SearchDocument> findSceneDocumentsIn(Collection<UUID> sceneUuids) {
+        return this.sceneLocalizedRepository.findSearchDocumentsBySceneUuidIn(sceneUuids);
+    }
+
+    @ReadFromPrimary
+    public void forEachDocument(ThrowingConsumer<SearchDocument> consumer) {
+        try (Stream<SearchDocument> movies = this.movieLocalizedRepository.streamSearchDocuments()) {
+            movies.forEach(consumer);
+        }
+        try (Stream<SearchDocument> scenes = this.sceneLocalizedRepository.streamSearchDocuments()) {
+            scenes.forEach(consumer);
+        }
+    }
+}
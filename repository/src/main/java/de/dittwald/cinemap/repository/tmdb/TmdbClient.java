@@ -16,31 +16,43 @@
 
 package de.dittwald.cinemap.repository.tmdb;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import de.dittwald.cinemap.repository.config.Properties;
 import de.dittwald.cinemap.repository.config.WebClientConfig;
+import de.dittwald.cinemap.repository.exceptions.TmdbReadException;
+import de.dittwald.cinemap.repository.movie.entity.Genre;
 import de.dittwald.cinemap.repository.movie.entity.LocalizedId;
 import de.dittwald.cinemap.repository.movie.entity.LocalizedMovie;
 import de.dittwald.cinemap.repository.movie.entity.Movie;
+import de.dittwald.cinemap.repository.util.ConstantStrings;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeoutException;
 
-// Todo: Write tests
 @Service
 @Slf4j
 public class TmdbClient {
 
+    private static final Duration FIRST_RETRY_BACKOFF = Duration.ofMillis(250);
+
     private final Properties properties;
 
     private final WebClientConfig webClientConfig;
@@ -50,34 +62,86 @@ public class TmdbClient {
         this.webClientConfig = webClientConfig;
     }
 
-    // Todo: API call error handling and make reactive
-    public Movie getMovieDetails(int id) throws URISyntaxException, MalformedURLException, JsonProcessingException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        Movie movie = new Movie();
+    /**
+     * Fetches the details, translations and images of a movie concurrently. Each request times out after
+     * {@code de.cinemap.repository.tmdb.timeout} and is retried on timeouts, connection failures, 429 and 5xx
+     * responses. Other error responses, like 404 for an unknown id, fail the returned Mono right away.
+     */
+    public Mono<Movie> fetchMovieDetails(int id) {
+        return fetchMovieDetails(id, false);
+    }
 
-        JsonNode movieNode = objectMapper.readTree(this.webClientConfig.tmdbWebClient()
-                .get()
-                .uri(id + "?language=en-US")
-                .headers(h -> h.setBearerAuth(this.properties.getTmdbApiReadToken()))
-                .retrieve()
-                .bodyToMono(String.class)
-                .block());
+    /**
+     * Like {@link #fetchMovieDetails(int)}, but cached responses are revalidated with TMDB regardless of their age.
+     */
+    public Mono<Movie> refreshMovieDetails(int id) {
+        return fetchMovieDetails(id, true);
+    }
 
-        JsonNode translationsNode = objectMapper.readTree(this.webClientConfig.tmdbWebClient()
-                .get()
-                .uri(id + "/translations")
-                .headers(h -> h.setBearerAuth(this.properties.getTmdbApiReadToken()))
-                .retrieve()
-                .bodyToMono(String.class)
-                .block());
+    /**
+     * Fetches one page of the ids of movies changed on TMDB between both dates. TMDB limits the range to 14 days.
+     */
+    public Mono<TmdbChangesPage> fetchChangedMovieIds(LocalDate startDate, LocalDate endDate, int page) {
+        return get("changes?start_date=%s&end_date=%s&page=%d".formatted(startDate, endDate, page), true).map(
+                node -> {
+                    List<Integer> tmdbIds = new ArrayList<>();
+                    for (JsonNode result : node.path("results")) {
+                        tmdbIds.add(result.get("id").asInt());
+                    }
+                    return new TmdbChangesPage(tmdbIds, node.path("page").asInt(page),
+                            node.path("total_pages").asInt(0));
+                });
+    }
 
-        JsonNode imagesNode = objectMapper.readTree(this.webClientConfig.tmdbWebClient()
+    private Mono<Movie> fetchMovieDetails(int id, boolean revalidate) {
+        return Mono.zip(get(id + "?language=en-US", revalidate), get(id + "/translations", revalidate),
+                        get(id + "/images", revalidate))
+                .map(nodes -> {
+                    try {
+                        return toMovie(id, nodes.getT1(), nodes.getT2(), nodes.getT3());
+                    } catch (URISyntaxException | MalformedURLException e) {
+                        throw new IllegalStateException("Invalid poster path of TMDB movie %d".formatted(id), e);
+                    }
+                });
+    }
+
+    public Movie getMovieDetails(int id) throws TmdbReadException {
+        try {
+            return fetchMovieDetails(id).block();
+        } catch (RuntimeException e) {
+            throw new TmdbReadException(Exceptions.unwrap(e).getMessage());
+        }
+    }
+
+    private Mono<JsonNode> get(String uri, boolean revalidate) {
+        return this.webClientConfig.tmdbWebClient()
                 .get()
-                .uri(id + "/images")
+                .uri(uri)
+                .attributes(attributes -> {
+                    if (revalidate) {
+                        attributes.put(TmdbResponseCache.REVALIDATE, true);
+                    }
+                })
                 .headers(h -> h.setBearerAuth(this.properties.getTmdbApiReadToken()))
                 .retrieve()
-                .bodyToMono(String.class)
-                .block());
+                .bodyToMono(JsonNode.class)
+                .timeout(this.properties.getTmdbTimeout())
+                .retryWhen(Retry.backoff(this.properties.getTmdbRetries(), FIRST_RETRY_BACKOFF)
+                        .filter(TmdbClient::isTransient)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    private static boolean isTransient(Throwable e) {
+        if (e instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError() ||
+                    response.getStatusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS);
+        }
+        return e instanceof TimeoutException || e instanceof WebClientRequestException;
+    }
+
+    private Movie toMovie(int id, JsonNode movieNode, JsonNode translationsNode, JsonNode imagesNode)
+            throws URISyntaxException, MalformedURLException {
+        Movie movie = new Movie();
 
         movie.setImdbId(movieNode.has("imdb_id") ? movieNode.get("imdb_id").asText() : null);
         movie.setReleaseYear(
@@ -87,9 +151,11 @@ public class TmdbClient {
         movie.setUuid(UUID.randomUUID());
 
         if (movieNode.has("genres") && !movieNode.get("genres").isNull()) {
-            Map<Integer, String> genres = new HashMap<>();
+            // The details are requested in en-US, so are the genre names
+            Map<Integer, Genre> genres = new HashMap<>();
             for (JsonNode genre : movieNode.get("genres")) {
-                genres.put(genre.get("id").asInt(), genre.get("name").asText());
+                genres.put(genre.get("id").asInt(), new Genre(genre.get("id").asInt(), ConstantStrings.DEFAULT_LOCALE,
+                        genre.get("name").asText()));
             }
             movie.setGenres(genres);
         }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.tmdb;
+
+import de.dittwald.cinemap.repository.movie.entity.Movie;
+import de.dittwald.cinemap.repository.movie.service.MovieService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Imports many TMDB ids at once. At most {@code de.cinemap.repository.tmdb.concurrency} movies are fetched at the
+ * same time, the requests themselves are throttled by the {@link TmdbRateLimiter}. Fetched movies are persisted in
+ * batches of {@code de.cinemap.repository.tmdb.batch-size}.
+ */
+@Service
+@Slf4j
+public class TmdbImportService {
+
+    private final TmdbClient tmdbClient;
+    private final MovieService movieService;
+    private final int concurrency;
+    private final int batchSize;
+
+    public TmdbImportService(TmdbClient tmdbClient, MovieService movieService,
+                             @Value("${de.cinemap.repository.tmdb.concurrency:8}") int concurrency,
+                             @Value("${de.cinemap.repository.tmdb.batch-size:50}") int batchSize) {
+        if (concurrency < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Concurrency and batch size must be positive");
+        }
+        this.tmdbClient = tmdbClient;
+        this.movieService = movieService;
+        this.concurrency = concurrency;
+        this.batchSize = batchSize;
+    }
+
+    public List<TmdbImportResultDto> importMovies(List<Integer> tmdbIds) {
+        List<Integer> distinctTmdbIds = tmdbIds.stream().distinct().toList();
+        Map<Integer, TmdbImportResultDto> results = new ConcurrentHashMap<>();
+        Set<Integer> existingTmdbIds = this.movieService.findExistingTmdbIds(distinctTmdbIds);
+        for (Integer tmdbId : existingTmdbIds) {
+            results.put(tmdbId, new TmdbImportResultDto(tmdbId, TmdbImportStatus.EXISTING, null, null));
+        }
+
+        Flux.fromIterable(distinctTmdbIds)
+                .filter(tmdbId -> !existingTmdbIds.contains(tmdbId))
+                .flatMap(tmdbId -> fetch(tmdbId, results), this.concurrency)
+                .buffer(this.batchSize)
+                .concatMap(movies -> Mono.fromRunnable(() -> persist(movies, results))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .blockLast();
+
+        return distinctTmdbIds.stream().map(results::get).toList();
+    }
+
+    // Failed fetches are recorded right away and complete empty
+    private Mono<Movie> fetch(int tmdbId, Map<Integer, TmdbImportResultDto> results) {
+        return this.tmdbClient.fetchMovieDetails(tmdbId)
+                .onErrorResume(e -> {
+                    if (e instanceof WebClientResponseException.NotFound) {
+                        results.put(tmdbId, new TmdbImportResultDto(tmdbId, TmdbImportStatus.NOT_FOUND, null,
+                                "Movie not found on TMDB"));
+                    } else {
+                        log.warn("Failed to fetch TMDB movie {}", tmdbId, e);
+                        results.put(tmdbId,
+                                new TmdbImportResultDto(tmdbId, TmdbImportStatus.FAILED, null, e.getMessage()));
+                    }
+                    return Mono.empty();
+                });
+    }
+
+    private void persist(List<Movie> movies, Map<Integer, TmdbImportResultDto> results) {
+        try {
+            Set<Integer> existingTmdbIds = this.movieService.saveTmdbBatch(movies);
+            for (Movie movie : movies) {
+                results.put(movie.getTmdbId(), existingTmdbIds.contains(movie.getTmdbId()) ?
+                        new TmdbImportResultDto(movie.getTmdbId(), TmdbImportStatus.EXISTING, null, null) :
+                        new TmdbImportResultDto(movie.getTmdbId(), TmdbImportStatus.IMPORTED, movie.getUuid(), null));
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to persist a batch of {} TMDB movies", movies.size(), e);
+            for (Movie movie : movies) {
+                results.put(movie.getTmdbId(), new TmdbImportResultDto(movie.getTmdbId(), TmdbImportStatus.FAILED, null,
+                        "Persisting the movie failed"));
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.tmdb;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket holding TMDB's request quota. Every request takes a token, a request without one is delayed until the
+ * bucket has refilled far enough. Tokens are reserved in advance, so concurrent requests queue up in order instead of
+ * retrying.
+ */
+@Component
+public class TmdbRateLimiter implements ExchangeFilterFunction {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+    private long refilledAt;
+
+    @Autowired
+    public TmdbRateLimiter(@Value("${de.cinemap.repository.tmdb.requests-per-second:40}") double requestsPerSecond,
+                           @Value("${de.cinemap.repository.tmdb.burst:20}") int burst) {
+        this(requestsPerSecond, burst, System::nanoTime);
+    }
+
+    TmdbRateLimiter(double requestsPerSecond, int burst, LongSupplier nanoClock) {
+        if (requestsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate limit and burst must be positive");
+        }
+        this.tokensPerNano = requestsPerSecond / 1_000_000_000d;
+        this.capacity = burst;
+        this.nanoClock = nanoClock;
+        this.tokens = burst;
+        this.refilledAt = nanoClock.getAsLong();
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            long delayNanos = reserve();
+            Mono<ClientResponse> response = next.exchange(request);
+            return delayNanos > 0 ? Mono.delay(Duration.ofNanos(delayNanos)).then(response) : response;
+        });
+    }
+
+    /**
+     * Takes a token and returns how long the caller has to wait for it in nanoseconds.
+     */
+    synchronized long reserve() {
+        long now = this.nanoClock.getAsLong();
+        this.tokens = Math.min(this.capacity, this.tokens + (now - this.refilledAt) * this.tokensPerNano);
+        this.refilledAt = now;
+        this.tokens--;
+        return this.tokens >= 0 ? 0 : (long) Math.ceil(-this.tokens / this.tokensPerNano);
+    }
+}
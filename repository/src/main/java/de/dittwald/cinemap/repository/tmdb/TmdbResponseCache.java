@@ -0,0 +1,335 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.tmdb;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Keeps successful TMDB GET responses on disk, one file per request named by the SHA-256 of its URL and language.
+ * Entries younger than the ttl are served without a request, older ones are revalidated with If-None-Match and
+ * If-Modified-Since. The least recently used entries are evicted once the cache grows beyond its maximum size. In
+ * offline mode only cached entries are served, regardless of their age, and the network is never touched. The cache
+ * is disabled if no directory is configured. Requests carrying the {@link #REVALIDATE} attribute are always
+ * revalidated, regardless of the age of their entry.
+ */
+@Component
+@Slf4j
+public class TmdbResponseCache implements ExchangeFilterFunction {
+
+    public static final String REVALIDATE = TmdbResponseCache.class.getName() + ".revalidate";
+
+    private static final String ENTRY_SUFFIX = ".entry";
+
+    private final Path directory;
+    private final long ttlMillis;
+    private final long maxBytes;
+    private final boolean offline;
+    private final LongSupplier clock;
+
+    // Entry file names and sizes in least recently used order
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    @Autowired
+    public TmdbResponseCache(@Value("${de.cinemap.repository.tmdb.cache.directory:}") String directory,
+                             @Value("${de.cinemap.repository.tmdb.cache.ttl:24h}") Duration ttl,
+                             @Value("${de.cinemap.repository.tmdb.cache.max-size:512MB}") DataSize maxSize,
+                             @Value("${de.cinemap.repository.tmdb.cache.offline:false}") boolean offline)
+            throws IOException {
+        this(directory.isBlank() ? null : Path.of(directory), ttl, maxSize.toBytes(), offline,
+                System::currentTimeMillis);
+    }
+
+    TmdbResponseCache(Path directory, Duration ttl, long maxBytes, boolean offline, LongSupplier clock)
+            throws IOException {
+        if (offline && directory == null) {
+            throw new IllegalArgumentException("The offline mode needs a cache directory");
+        }
+        this.directory = directory;
+        this.ttlMillis = ttl.toMillis();
+        this.maxBytes = maxBytes;
+        this.offline = offline;
+        this.clock = clock;
+        if (directory != null) {
+            Files.createDirectories(directory);
+            load();
+        }
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (this.directory == null || !HttpMethod.GET.equals(request.method())) {
+            return next.exchange(request);
+        }
+        String name = entryName(request);
+        boolean revalidate = request.attribute(REVALIDATE).isPresent();
+        return Mono.fromCallable(() -> Optional.ofNullable(read(name)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(cached -> {
+                    if (cached.isPresent() && (this.offline || (!revalidate && isFresh(cached.get())))) {
+                        touch(name);
+                        return Mono.just(toResponse(cached.get()));
+                    }
+                    if (this.offline) {
+                        return Mono.error(new IllegalStateException(
+                                "TMDB response of %s is not cached and the offline mode is on".formatted(
+                                        request.url())));
+                    }
+                    if (cached.isEmpty()) {
+                        return next.exchange(request).flatMap(response -> store(request, name, response));
+                    }
+                    return next.exchange(conditional(request, cached.get()))
+                            .flatMap(response -> revalidate(request, name, cached.get(), response));
+                });
+    }
+
+    synchronized long size() {
+        return this.totalBytes;
+    }
+
+    private Mono<ClientResponse> store(ClientRequest request, String name, ClientResponse response) {
+        if (!response.statusCode().isSameCodeAs(HttpStatus.OK)) {
+            return Mono.just(response);
+        }
+        HttpHeaders headers = response.headers().asHttpHeaders();
+        return response.bodyToMono(byte[].class)
+                .defaultIfEmpty(new byte[0])
+                .publishOn(Schedulers.boundedElastic())
+                .map(body -> {
+                    CachedResponse cached = new CachedResponse(request.url().toString(), headers.getETag(),
+                            headers.getFirst(HttpHeaders.LAST_MODIFIED), headers.getFirst(HttpHeaders.CONTENT_TYPE),
+                            this.clock.getAsLong(), body);
+                    write(name, cached);
+                    return toResponse(cached);
+                });
+    }
+
+    private Mono<ClientResponse> revalidate(ClientRequest request, String name, CachedResponse cached,
+                                            ClientResponse response) {
+        if (!response.statusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+            return store(request, name, response);
+        }
+        return response.releaseBody().publishOn(Schedulers.boundedElastic()).then(Mono.fromCallable(() -> {
+            CachedResponse revalidated =
+                    new CachedResponse(cached.url(), cached.eTag(), cached.lastModified(), cached.contentType(),
+                            this.clock.getAsLong(), cached.body());
+            write(name, revalidated);
+            return toResponse(revalidated);
+        }));
+    }
+
+    private boolean isFresh(CachedResponse cached) {
+        return this.clock.getAsLong() - cached.storedAt() < this.ttlMillis;
+    }
+
+    private static ClientRequest conditional(ClientRequest request, CachedResponse cached) {
+        return ClientRequest.from(request).headers(headers -> {
+            if (cached.eTag() != null) {
+                headers.setIfNoneMatch(cached.eTag());
+            }
+            if (cached.lastModified() != null) {
+                headers.set(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified());
+            }
+        }).build();
+    }
+
+    private static ClientResponse toResponse(CachedResponse cached) {
+        return ClientResponse.create(HttpStatus.OK).headers(headers -> {
+            if (cached.contentType() != null) {
+                headers.set(HttpHeaders.CONTENT_TYPE, cached.contentType());
+            }
+            if (cached.eTag() != null) {
+                headers.setETag(cached.eTag());
+            }
+        }).body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(cached.body()))).build();
+    }
+
+    private static String entryName(ClientRequest request) {
+        String key = request.url() + " " + request.headers().getFirst(HttpHeaders.ACCEPT_LANGUAGE);
+        try {
+            return HexFormat.of()
+                    .formatHex(MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8))) +
+                    ENTRY_SUFFIX;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void load() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            List<Path> paths = files.filter(Files::isRegularFile).toList();
+            for (Path path : paths) {
+                if (!path.getFileName().toString().endsWith(ENTRY_SUFFIX)) {
+                    // Left over by an interrupted write
+                    Files.deleteIfExists(path);
+                }
+            }
+            paths.stream()
+                    .filter(path -> path.getFileName().toString().endsWith(ENTRY_SUFFIX))
+                    .sorted(Comparator.comparing(TmdbResponseCache::lastModifiedTime))
+                    .forEach(path -> added(path.getFileName().toString(), path.toFile().length()));
+        }
+        log.info("Loaded {} cached TMDB responses with {} bytes from {}", this.entries.size(), this.totalBytes,
+                this.directory);
+    }
+
+    private CachedResponse read(String name) {
+        Path path = this.directory.resolve(name);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            String url = in.readUTF();
+            String eTag = emptyToNull(in.readUTF());
+            String lastModified = emptyToNull(in.readUTF());
+            String contentType = emptyToNull(in.readUTF());
+            long storedAt = in.readLong();
+            byte[] body = in.readNBytes(in.readInt());
+            return new CachedResponse(url, eTag, lastModified, contentType, storedAt, body);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("Dropping unreadable TMDB cache entry {}", path, e);
+            removed(name);
+            return null;
+        }
+    }
+
+    private void write(String name, CachedResponse cached) {
+        Path temp = this.directory.resolve(name + "." + UUID.randomUUID());
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeUTF(cached.url());
+                out.writeUTF(nullToEmpty(cached.eTag()));
+                out.writeUTF(nullToEmpty(cached.lastModified()));
+                out.writeUTF(nullToEmpty(cached.contentType()));
+                out.writeLong(cached.storedAt());
+                out.writeInt(cached.body().length);
+                out.write(cached.body());
+            }
+            long size = Files.size(temp);
+            Files.move(temp, this.directory.resolve(name), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            added(name, size);
+        } catch (IOException e) {
+            // The response is still served, it is just not cached
+            log.warn("Could not cache TMDB response of {}", cached.url(), e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void touch(String name) {
+        synchronized (this) {
+            this.entries.get(name);
+        }
+        try {
+            // Keeps the recency for the next start
+            Files.setLastModifiedTime(this.directory.resolve(name), FileTime.fromMillis(this.clock.getAsLong()));
+        } catch (IOException ignored) {
+        }
+    }
+
+    private synchronized void added(String name, long size) {
+        Long previous = this.entries.put(name, size);
+        this.totalBytes += size - (previous != null ? previous : 0);
+        Iterator<Map.Entry<String, Long>> eldest = this.entries.entrySet().iterator();
+        while (this.totalBytes > this.maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (entry.getKey().equals(name)) {
+                continue;
+            }
+            eldest.remove();
+            this.totalBytes -= entry.getValue();
+            delete(entry.getKey());
+        }
+    }
+
+    private synchronized void removed(String name) {
+        Long size = this.entries.remove(name);
+        this.totalBytes -= size != null ? size : 0;
+        delete(name);
+    }
+
+    private void delete(String name) {
+        try {
+            Files.deleteIfExists(this.directory.resolve(name));
+        } catch (IOException e) {
+            log.warn("Could not delete TMDB cache entry {}", name, e);
+        }
+    }
+
+    private static FileTime lastModifiedTime(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private record CachedResponse(String url, String eTag, String lastModified, String contentType, long storedAt,
+                                  byte[] body) {
+    }
+}
@@ -18,26 +18,35 @@ package de.dittwald.cinemap.repository.tmdb;
 
 import de.dittwald.cinemap.repository.exceptions.TmdbReadException;
 import de.dittwald.cinemap.repository.movie.service.MovieService;
+import de.dittwald.cinemap.repository.util.ConstantStrings;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
-@RequestMapping("/api/v1/tmdb")
+@RequestMapping("/api/v1")
 @Tag(name = "TMDB")
 @Validated
 public class TmdbRestController {
 
     private final MovieService movieService;
+    private final TmdbImportService tmdbImportService;
 
-    public TmdbRestController(MovieService movieService) {
+    public TmdbRestController(MovieService movieService, TmdbImportService tmdbImportService) {
         this.movieService = movieService;
+        this.tmdbImportService = tmdbImportService;
     }
 
-    @PutMapping("/{tmdbId}")
+    @PutMapping("tmdb/{tmdbId}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @Operation(summary = "Create movie via TMDB ID",
             description = "You can  provide a TMDB ID and the repository gathers all required movie detail from TMDB " +
@@ -47,4 +56,17 @@ public class TmdbRestController {
     void createMovieViaTmdbId(@PathVariable(value = "tmdbId") int tmdbId) throws TmdbReadException {
         this.movieService.createMovieViaTmdbId(tmdbId);
     }
+
+    @PutMapping(value = "tmdb:batch", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Create movies via TMDB IDs",
+            description = "Imports the movies of all given TMDB IDs. Movies are fetched concurrently within TMDB's " +
+                    "rate limit, TMDB IDs already present in the repository are skipped. Responds the outcome of " +
+                    "every TMDB ID.")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Outcome per TMDB ID"),
+            @ApiResponse(responseCode = "400", description = "No or too many TMDB IDs given")})
+    public List<TmdbImportResultDto> createMoviesViaTmdbIds(@RequestBody @Size(min = 1,
+            max = ConstantStrings.MAX_TMDB_BATCH_SIZE) List<@NotNull Integer> tmdbIds) {
+        return this.tmdbImportService.importMovies(tmdbIds);
+    }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.tmdb;
+
+import de.dittwald.cinemap.repository.movie.entity.Movie;
+import de.dittwald.cinemap.repository.movie.service.MovieService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps imported movies up to date with TMDB. The change feed is read since the persisted watermark, only stored
+ * movies among the changed ids are fetched again and their differences written. The progress is saved after every
+ * page, so an interrupted sync resumes where it stopped. Runs on {@code de.cinemap.repository.tmdb.sync.cron}.
+ */
+@Service
+@Slf4j
+public class TmdbSyncService {
+
+    static final String MOVIE_CHANGES = "movie-changes";
+
+    // The widest date range the TMDB change feed accepts
+    static final int MAX_WINDOW_DAYS = 14;
+
+    private final TmdbClient tmdbClient;
+    private final MovieService movieService;
+    private final TmdbSyncStateRepository tmdbSyncStateRepository;
+    private final int concurrency;
+    private final Clock clock;
+
+    @Autowired
+    public TmdbSyncService(TmdbClient tmdbClient, MovieService movieService,
+                           TmdbSyncStateRepository tmdbSyncStateRepository,
+                           @Value("${de.cinemap.repository.tmdb.concurrency:8}") int concurrency) {
+        this(tmdbClient, movieService, tmdbSyncStateRepository, concurrency, Clock.systemUTC());
+    }
+
+    TmdbSyncService(TmdbClient tmdbClient, MovieService movieService, TmdbSyncStateRepository tmdbSyncStateRepository,
+                    int concurrency, Clock clock) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be positive");
+        }
+        this.tmdbClient = tmdbClient;
+        this.movieService = movieService;
+        this.tmdbSyncStateRepository = tmdbSyncStateRepository;
+        this.concurrency = concurrency;
+        this.clock = clock;
+    }
+
+    /**
+     * Syncs all changes up to today and returns the number of updated movies. The first sync starts with the changes
+     * of yesterday.
+     */
+    @Scheduled(cron = "${de.cinemap.repository.tmdb.sync.cron:-}", zone = "UTC")
+    public synchronized int sync() {
+        LocalDate today = LocalDate.now(this.clock);
+        TmdbSyncState state = this.tmdbSyncStateRepository.findById(MOVIE_CHANGES)
+                .orElseGet(() -> new TmdbSyncState(MOVIE_CHANGES, today.minusDays(1)));
+        int updated = 0;
+        boolean caughtUp;
+        do {
+            if (state.getWindowEnd() == null) {
+                LocalDate windowEnd = state.getWatermark().plusDays(MAX_WINDOW_DAYS);
+                state.setWindowEnd(windowEnd.isBefore(today) ? windowEnd : today);
+                state.setPage(0);
+                state = this.tmdbSyncStateRepository.save(state);
+            }
+
+            int totalPages;
+            do {
+                int page = state.getPage() + 1;
+                TmdbChangesPage changes =
+                        this.tmdbClient.fetchChangedMovieIds(state.getWatermark(), state.getWindowEnd(), page).block();
+                updated += refresh(changes.tmdbIds());
+                totalPages = changes.totalPages();
+                state.setPage(page);
+                state = this.tmdbSyncStateRepository.save(state);
+            } while (state.getPage() < totalPages);
+
+            // Changes of the window end day may still come in, the next window starts with it again
+            caughtUp = !state.getWindowEnd().isBefore(today);
+            log.info("Synced TMDB changes from {} to {}", state.getWatermark(), state.getWindowEnd());
+            state.setWatermark(state.getWindowEnd());
+            state.setWindowEnd(null);
+            state.setPage(0);
+            state = this.tmdbSyncStateRepository.save(state);
+        } while (!caughtUp);
+        return updated;
+    }
+
+    private int refresh(List<Integer> changedTmdbIds) {
+        Set<Integer> storedTmdbIds = this.movieService.findExistingTmdbIds(changedTmdbIds);
+        if (storedTmdbIds.isEmpty()) {
+            return 0;
+        }
+        List<Movie> movies = Flux.fromIterable(storedTmdbIds)
+                .flatMap(tmdbId -> this.tmdbClient.refreshMovieDetails(tmdbId)
+                        .onErrorResume(WebClientResponseException.NotFound.class, e -> {
+                            log.info("TMDB movie {} is gone, keeping the stored movie", tmdbId);
+                            return Mono.empty();
+                        }), this.concurrency)
+                .collectList()
+                .block();
+        return this.movieService.applyTmdbChanges(movies);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.tmdb;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Progress of a TMDB change feed. Changes since the watermark are synced in windows, page by page. The window end and
+ * the last synced page are kept while a window is in progress, so a restarted sync resumes with the next page.
+ */
+@Entity
+@Table(name = "tmdb_sync_state")
+@Getter
+@Setter
+@NoArgsConstructor
+public class TmdbSyncState {
+
+    public TmdbSyncState(String feed, LocalDate watermark) {
+        this.feed = feed;
+        this.watermark = watermark;
+    }
+
+    @Id
+    @Column(length = 50)
+    private String feed;
+
+    @NotNull
+    private LocalDate watermark;
+
+    private LocalDate windowEnd;
+
+    private int page;
+}
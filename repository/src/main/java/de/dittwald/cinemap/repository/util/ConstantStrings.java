@@ -19,4 +19,13 @@ package de.dittwald.cinemap.repository.util;
 public class ConstantStrings {
     public static final String DEFAULT_LOCALE = "en";
     public static final String LOCALE_API_REQUEST_PARAM = "lang";
+    public static final String DEFAULT_PAGE_LIMIT = "100";
+    public static final int MAX_PAGE_LIMIT = 500;
+    public static final String STREAM_FETCH_SIZE = "500";
+    public static final String DEFAULT_NEARBY_LIMIT = "10";
+    public static final int MAX_NEARBY_LIMIT = 100;
+    public static final String DEFAULT_SEARCH_LIMIT = "20";
+    public static final int MAX_SEARCH_LIMIT = 100;
+    public static final int MAX_TMDB_BATCH_SIZE = 10_000;
+    public static final String MERGE_PATCH_MEDIA_TYPE = "application/merge-patch+json";
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.util;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+public class EntityTags {
+
+    private static final Pattern LEADING_VERSION = Pattern.compile("\"(\\d+)[.\\-\"].*");
+
+    // Strong entity tag built from the entity version(s) and the requested locale. Every localization write
+    // increments the version, so the locale fallback resolves the same way as long as the versions match.
+    public static String of(Object... parts) {
+        return Arrays.stream(parts).map(String::valueOf).collect(Collectors.joining("-", "\"", "\""));
+    }
+
+    // The version of the entity itself leads every entity tag. Returns null for a missing or wildcard If-Match.
+    public static Long versionOf(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        Matcher matcher = LEADING_VERSION.matcher(ifMatch.strip());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid entity tag %s".formatted(ifMatch));
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A JSON merge patch (RFC 7386) read into a DTO. Only the fields present in the patch are applied, a present field
+ * with a null value removes the value.
+ */
+public record MergePatch<T>(T values, Set<String> fields) {
+
+    public boolean has(String field) {
+        return this.fields.contains(field);
+    }
+
+    // Maps the present fields to the values read by their accessors, keyed like the entity attributes they patch
+    public Map<String, Object> attributes(Map<String, Function<T, Object>> accessors) {
+        Map<String, Object> attributes = new HashMap<>();
+        for (Map.Entry<String, Function<T, Object>> accessor : accessors.entrySet()) {
+            if (has(accessor.getKey())) {
+                attributes.put(accessor.getKey(), accessor.getValue().apply(this.values));
+            }
+        }
+        return attributes;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+@Component
+public class MergePatchReader {
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public MergePatchReader(ObjectMapper objectMapper, Validator validator) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    /**
+     * Reads the merge patch into the given DTO type. Only the given fields may be patched, the constraints of the DTO
+     * are checked for the present fields only.
+     */
+    public <T> MergePatch<T> read(JsonNode patch, Class<T> type, Set<String> patchableFields) {
+        if (patch == null || !patch.isObject()) {
+            throw new IllegalArgumentException("Merge patch must be a JSON object");
+        }
+
+        Set<String> fields = new HashSet<>();
+        patch.fieldNames().forEachRemaining(fields::add);
+        for (String field : fields) {
+            if (!patchableFields.contains(field)) {
+                throw new IllegalArgumentException("Field %s cannot be patched".formatted(field));
+            }
+        }
+
+        T values;
+        try {
+            values = this.objectMapper.treeToValue(patch, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid merge patch: %s".formatted(e.getOriginalMessage()));
+        }
+
+        Set<ConstraintViolation<T>> violations = new HashSet<>();
+        for (String field : fields) {
+            violations.addAll(this.validator.validateProperty(values, field));
+        }
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        return new MergePatch<>(values, Set.copyOf(fields));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.util;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes single attributes of an entity with one UPDATE statement, without loading the entity first. Used to apply
+ * merge patches.
+ */
+@Repository
+public class TargetedUpdateRepository {
+
+    private final EntityManager entityManager;
+
+    public TargetedUpdateRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Writes the attributes of the entity with the given id and increments its version. With an expected version the
+     * row is only written if its version still matches. Returns the number of written rows.
+     */
+    public <T> int updateVersioned(Class<T> entityType, Long id, Long expectedVersion,
+                                   Map<String, Object> attributes) {
+        CriteriaBuilder criteriaBuilder = this.entityManager.getCriteriaBuilder();
+        CriteriaUpdate<T> update = criteriaBuilder.createCriteriaUpdate(entityType);
+        Root<T> root = update.from(entityType);
+        set(criteriaBuilder, update, root, attributes);
+
+        Path<Long> version = root.get("version");
+        update.set(version, criteriaBuilder.sum(version, 1L));
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(criteriaBuilder.equal(root.get("id"), id));
+        if (expectedVersion != null) {
+            predicates.add(criteriaBuilder.equal(version, expectedVersion));
+        }
+        update.where(predicates.toArray(Predicate[]::new));
+        return this.entityManager.createQuery(update).executeUpdate();
+    }
+
+    /**
+     * Writes the attributes of one localization. Localizations are not versioned, their owner's version has to be
+     * incremented separately. Returns the number of written rows.
+     */
+    public <T> int updateLocalized(Class<T> entityType, Long id, String locale, Map<String, Object> attributes) {
+        CriteriaBuilder criteriaBuilder = this.entityManager.getCriteriaBuilder();
+        CriteriaUpdate<T> update = criteriaBuilder.createCriteriaUpdate(entityType);
+        Root<T> root = update.from(entityType);
+        set(criteriaBuilder, update, root, attributes);
+
+        update.where(criteriaBuilder.equal(root.get("localizedId").get("id"), id),
+                criteriaBuilder.equal(root.get("localizedId").get("locale"), locale));
+        return this.entityManager.createQuery(update).executeUpdate();
+    }
+
+    private static <T> void set(CriteriaBuilder criteriaBuilder, CriteriaUpdate<T> update, Root<T> root,
+                                Map<String, Object> attributes) {
+        for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+            Path<Object> path = root.get(attribute.getKey());
+            update.set(attribute.getKey(), attribute.getValue() != null ? attribute.getValue() :
+                    criteriaBuilder.nullLiteral(path.getJavaType()));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+-- Movie and scene ids used to come from identity columns, now Hibernate fetches them from sequences in steps of 50
+-- and hands out the 50 ids up to each fetched value. Creates the sequences and moves them past the existing ids. A
+-- sequence already ahead is left alone, so this runs on every start. Empty databases are left to Hibernate.
+
+DO
+$$
+    BEGIN
+        IF to_regclass('movies') IS NOT NULL THEN
+            CREATE SEQUENCE IF NOT EXISTS movies_seq START WITH 1 INCREMENT BY 50;
+            IF (SELECT last_value FROM movies_seq) < (SELECT coalesce(max(id), 0) + 1 FROM movies) THEN
+                PERFORM setval('movies_seq', (SELECT coalesce(max(id), 0) + 1 FROM movies));
+            END IF;
+            ALTER TABLE movies ALTER COLUMN id DROP IDENTITY IF EXISTS;
+        END IF;
+
+        IF to_regclass('scenes') IS NOT NULL THEN
+            CREATE SEQUENCE IF NOT EXISTS scenes_seq START WITH 1 INCREMENT BY 50;
+            IF (SELECT last_value FROM scenes_seq) < (SELECT coalesce(max(id), 0) + 1 FROM scenes) THEN
+                PERFORM setval('scenes_seq', (SELECT coalesce(max(id), 0) + 1 FROM scenes));
+            END IF;
+            ALTER TABLE scenes ALTER COLUMN id DROP IDENTITY IF EXISTS;
+        END IF;
+    END
+$$;
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+-- Genres used to be repeated by name in a genres column of the link table between movies and genres, now the link
+-- table references the genres dimension and the names are kept once per locale. Copies the genres and their names,
+-- then drops the legacy column, all in one transaction. Movies imported from TMDB got their genre names in en-US, so
+-- the names are taken as the default locale. Differing names of the same genre keep the most frequent one.
+
+DO
+$$
+    BEGIN
+        IF EXISTS (SELECT 1
+                   FROM information_schema.columns
+                   WHERE table_schema = current_schema()
+                     AND table_name = 'genres_number_mapping'
+                     AND column_name = 'genres') THEN
+            CREATE TABLE IF NOT EXISTS genres
+            (
+                id INTEGER NOT NULL,
+                CONSTRAINT pk_genres PRIMARY KEY (id)
+            );
+
+            CREATE TABLE IF NOT EXISTS genre_names
+            (
+                genre_id INTEGER      NOT NULL,
+                locale   VARCHAR(255) NOT NULL,
+                name     VARCHAR(255),
+                CONSTRAINT pk_genre_names PRIMARY KEY (genre_id, locale),
+                CONSTRAINT fk_genre_names_on_genre FOREIGN KEY (genre_id) REFERENCES genres (id)
+            );
+
+            INSERT INTO genres (id)
+            SELECT DISTINCT genres_id FROM genres_number_mapping
+            ON CONFLICT DO NOTHING;
+
+            INSERT INTO genre_names (genre_id, locale, name)
+            SELECT DISTINCT ON (genres_id) genres_id, 'en', genres
+            FROM genres_number_mapping
+            WHERE genres IS NOT NULL
+            GROUP BY genres_id, genres
+            ORDER BY genres_id, count(*) DESC, genres
+            ON CONFLICT (genre_id, locale) DO NOTHING;
+
+            ALTER TABLE genres_number_mapping DROP COLUMN genres;
+        END IF;
+
+        -- Also covers links written while Hibernate created the dimension but failed to add the constraint
+        IF to_regclass('genres_number_mapping') IS NOT NULL AND to_regclass('genres') IS NOT NULL
+            AND NOT EXISTS (SELECT 1
+                            FROM pg_constraint
+                            WHERE contype = 'f'
+                              AND conrelid = 'genres_number_mapping'::regclass
+                              AND confrelid = 'genres'::regclass) THEN
+            INSERT INTO genres (id)
+            SELECT DISTINCT genres_id FROM genres_number_mapping
+            ON CONFLICT DO NOTHING;
+
+            ALTER TABLE genres_number_mapping
+                ADD CONSTRAINT fk_genres_number_mapping_on_genre FOREIGN KEY (genres_id) REFERENCES genres (id);
+        END IF;
+    END
+$$;
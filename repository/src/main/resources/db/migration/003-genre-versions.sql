@@ -0,0 +1,28 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+-- Genres got a version, raised by every written name, so entity tags covering genres change with their names.
+-- Existing genres start at version 0. Empty databases are left to Hibernate.
+
+DO
+$$
+    BEGIN
+        IF to_regclass('genres') IS NOT NULL THEN
+            ALTER TABLE genres ADD COLUMN IF NOT EXISTS version BIGINT;
+            UPDATE genres SET version = 0 WHERE version IS NULL;
+        END IF;
+    END
+$$;
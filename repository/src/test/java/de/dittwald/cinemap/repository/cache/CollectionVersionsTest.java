@@ -0,0 +1,111 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.cache;
+
+import de.dittwald.cinemap.repository.movie.event.GenresRenamedEvent;
+import de.dittwald.cinemap.repository.movie.event.MovieChangedEvent;
+import de.dittwald.cinemap.repository.movie.event.MoviesCreatedEvent;
+import de.dittwald.cinemap.repository.movie.repository.GenreRepository;
+import de.dittwald.cinemap.repository.movie.repository.MovieRepository;
+import de.dittwald.cinemap.repository.scene.event.SceneChangedEvent;
+import de.dittwald.cinemap.repository.scene.repository.SceneRepository;
+import de.dittwald.cinemap.repository.util.CollectionVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class CollectionVersionsTest {
+
+    private MovieRepository movieRepository;
+    private GenreRepository genreRepository;
+    private SceneRepository sceneRepository;
+
+    @BeforeEach
+    void setUp() {
+        this.movieRepository = mock(MovieRepository.class);
+        this.genreRepository = mock(GenreRepository.class);
+        this.sceneRepository = mock(SceneRepository.class);
+        when(this.movieRepository.findCollectionVersion()).thenReturn(new CollectionVersion(2, 7, 4));
+        when(this.genreRepository.findCollectionVersion()).thenReturn(new CollectionVersion(19, 10770, 4));
+        when(this.sceneRepository.findCollectionVersion()).thenReturn(new CollectionVersion(4, 12, 6));
+    }
+
+    private CollectionVersions collectionVersions(Duration settleTime) {
+        return new CollectionVersions(this.movieRepository, this.genreRepository, this.sceneRepository, settleTime);
+    }
+
+    @Test
+    void shouldLoadVersionsOnce() {
+        CollectionVersions collectionVersions = collectionVersions(Duration.ZERO);
+
+        assertThat(collectionVersions.movies()).isEqualTo("2.7.4.0-19.10770.4.0");
+        assertThat(collectionVersions.genres()).isEqualTo("19.10770.4.0");
+        assertThat(collectionVersions.scenes()).isEqualTo("4.12.6.0-2.7.4.0-19.10770.4.0");
+
+        verify(this.movieRepository, times(1)).findCollectionVersion();
+        verify(this.genreRepository, times(1)).findCollectionVersion();
+        verify(this.sceneRepository, times(1)).findCollectionVersion();
+    }
+
+    @Test
+    void shouldCountChangesWithoutReadingTables() {
+        CollectionVersions collectionVersions = collectionVersions(Duration.ZERO);
+        collectionVersions.movies();
+
+        collectionVersions.onMovieChanged(MovieChangedEvent.changed(UUID.randomUUID(), 1));
+        collectionVersions.onMoviesCreated(new MoviesCreatedEvent(List.of(UUID.randomUUID())));
+        collectionVersions.onMoviesCreated(new MoviesCreatedEvent(List.of()));
+        collectionVersions.onGenresRenamed(new GenresRenamedEvent(Set.of(18)));
+        collectionVersions.onSceneChanged(SceneChangedEvent.deletedAll());
+
+        assertThat(collectionVersions.movies()).isEqualTo("2.7.4.2-19.10770.4.1");
+        assertThat(collectionVersions.scenes()).isEqualTo("4.12.6.1-2.7.4.2-19.10770.4.1");
+        verify(this.movieRepository, times(1)).findCollectionVersion();
+    }
+
+    @Test
+    void shouldIgnoreChangesBeforeLoad() {
+        CollectionVersions collectionVersions = collectionVersions(Duration.ZERO);
+
+        collectionVersions.onMovieChanged(MovieChangedEvent.deletedAll());
+
+        assertThat(collectionVersions.movies()).isEqualTo("2.7.4.0-19.10770.4.0");
+    }
+
+    @Test
+    void shouldGiveNoVersionUntilChangeSettled() {
+        CollectionVersions collectionVersions = collectionVersions(Duration.ofHours(1));
+        collectionVersions.scenes();
+
+        collectionVersions.onSceneChanged(SceneChangedEvent.deletedAll());
+
+        assertThat(collectionVersions.scenes()).isNull();
+        assertThat(collectionVersions.movies()).isEqualTo("2.7.4.0-19.10770.4.0");
+
+        collectionVersions.onGenresRenamed(new GenresRenamedEvent(Set.of(18)));
+
+        assertThat(collectionVersions.movies()).isNull();
+        assertThat(collectionVersions.genres()).isNull();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.cache;
+
+import de.dittwald.cinemap.repository.exceptions.LocaleNotFoundException;
+import de.dittwald.cinemap.repository.exceptions.NotFoundException;
+import de.dittwald.cinemap.repository.movie.cache.MovieDtoCache;
+import de.dittwald.cinemap.repository.movie.dto.MovieFlatDto;
+import de.dittwald.cinemap.repository.scene.cache.SceneDtoCache;
+import de.dittwald.cinemap.repository.util.DummyData;
+import org.junit.jupiter.api.Test;
+
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DtoCacheEndpointTest {
+
+    @Test
+    void shouldReportStatsPerCache()
+            throws MalformedURLException, URISyntaxException, NotFoundException, LocaleNotFoundException {
+        DummyData dummyData = new DummyData();
+        WrittenVersions writtenVersions = new WrittenVersions();
+        MovieDtoCache movieDtoCache = new MovieDtoCache(writtenVersions);
+        SceneDtoCache sceneDtoCache = new SceneDtoCache(writtenVersions);
+
+        LocalizedDtoCache.Loader<MovieFlatDto, Long> loader =
+                () -> new VersionedDto<>(dummyData.getWolfFlatEnDto(), 0L);
+        movieDtoCache.get(dummyData.getWolf().getUuid(), "en", loader);
+        movieDtoCache.get(dummyData.getWolf().getUuid(), "en", loader);
+
+        Map<String, DtoCacheStatsDto> stats = new DtoCacheEndpoint(movieDtoCache, sceneDtoCache).stats();
+
+        assertThat(stats.get("movies")).isEqualTo(new DtoCacheStatsDto(1, 1, 1, 0.5, 0));
+        assertThat(stats.get("scenes")).isEqualTo(new DtoCacheStatsDto(0, 0, 0, 1.0, 0));
+    }
+}
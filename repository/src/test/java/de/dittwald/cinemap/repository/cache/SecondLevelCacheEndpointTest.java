@@ -0,0 +1,100 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.cache;
+
+import de.dittwald.cinemap.repository.config.SecondLevelCacheConfig;
+import de.dittwald.cinemap.repository.movie.entity.Genre;
+import de.dittwald.cinemap.repository.movie.entity.LocalizedMovie;
+import de.dittwald.cinemap.repository.movie.entity.Movie;
+import de.dittwald.cinemap.repository.scene.entity.LocalizedScene;
+import de.dittwald.cinemap.repository.scene.entity.Scene;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.MappingMetamodel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.cache.CacheManager;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecondLevelCacheEndpointTest {
+
+    private CacheManager cacheManager;
+    private SessionFactory sessionFactory;
+
+    /**
+     * Builds the session factory with the second-level cache settings but without a database, which is enough to
+     * resolve the cache regions of all entities.
+     */
+    static SessionFactory buildSessionFactory(CacheManager cacheManager) {
+        Map<String, Object> properties = new HashMap<>();
+        new SecondLevelCacheConfig().secondLevelCacheCustomizer(cacheManager).customize(properties);
+        Configuration configuration = new Configuration();
+        configuration.getProperties().putAll(properties);
+        configuration.setProperty(AvailableSettings.DIALECT, PostgreSQLDialect.class.getName());
+        configuration.setProperty("hibernate.temp.use_jdbc_metadata_defaults", "false");
+        configuration.setProperty(AvailableSettings.JAKARTA_VALIDATION_MODE, "none");
+        List.of(Movie.class, LocalizedMovie.class, Genre.class, Scene.class, LocalizedScene.class)
+                .forEach(configuration::addAnnotatedClass);
+        return configuration.buildSessionFactory();
+    }
+
+    @BeforeEach
+    void setUp() {
+        this.cacheManager = new SecondLevelCacheConfig().secondLevelCacheManager(100, Duration.ofMinutes(1));
+        this.sessionFactory = buildSessionFactory(this.cacheManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.sessionFactory.close();
+        this.cacheManager.close();
+    }
+
+    @Test
+    void shouldCacheAllEntitiesAndCollections() {
+        MappingMetamodel metamodel = this.sessionFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel();
+        List.of(Movie.class, LocalizedMovie.class, Genre.class, Scene.class, LocalizedScene.class)
+                .forEach(entity -> assertThat(metamodel.getEntityDescriptor(entity).canReadFromCache()).isTrue());
+        List.of(Movie.class.getName() + ".genres", Movie.class.getName() + ".localizedMovies",
+                        Genre.class.getName() + ".names", Scene.class.getName() + ".localizedScenes")
+                .forEach(role -> assertThat(metamodel.getCollectionDescriptor(role).hasCache()).isTrue());
+    }
+
+    @Test
+    void shouldReportStatsPerRegion() {
+        this.cacheManager.getCache(CacheRegions.MOVIE).put("key", "value");
+
+        Map<String, SecondLevelCacheStatsDto> stats =
+                new SecondLevelCacheEndpoint(this.sessionFactory.unwrap(EntityManagerFactory.class),
+                        this.cacheManager).stats();
+
+        assertThat(stats).containsKeys(CacheRegions.ENTITY_AND_COLLECTION_REGIONS.toArray(String[]::new));
+        assertThat(stats).containsKey("default-query-results-region");
+        assertThat(stats.get(CacheRegions.MOVIE)).isEqualTo(new SecondLevelCacheStatsDto(1, 0, 0, 0, 1.0, 0));
+    }
+}
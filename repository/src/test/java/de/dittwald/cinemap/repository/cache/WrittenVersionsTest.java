@@ -0,0 +1,92 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.cache;
+
+import de.dittwald.cinemap.repository.movie.event.GenresRenamedEvent;
+import de.dittwald.cinemap.repository.movie.event.MovieChangedEvent;
+import de.dittwald.cinemap.repository.scene.event.SceneChangedEvent;
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WrittenVersionsTest {
+
+    private WrittenVersions writtenVersions;
+
+    @BeforeEach
+    void setUp() {
+        this.writtenVersions = new WrittenVersions();
+    }
+
+    @Test
+    void shouldTellStatesOlderThanWrittenOnesOutdated() {
+        UUID uuid = UUID.randomUUID();
+        assertThat(this.writtenVersions.isOutdated(uuid, 0)).isFalse();
+
+        this.writtenVersions.onMovieChanged(MovieChangedEvent.changed(uuid, 3));
+        this.writtenVersions.onMovieChanged(MovieChangedEvent.changed(uuid, 2));
+
+        assertThat(this.writtenVersions.isOutdated(uuid, 2)).isTrue();
+        assertThat(this.writtenVersions.isOutdated(uuid, 3)).isFalse();
+        assertThat(this.writtenVersions.isOutdated(UUID.randomUUID(), 0)).isFalse();
+    }
+
+    @Test
+    void shouldTellEveryStateOfDeletedEntitiesOutdated() {
+        UUID movieUuid = UUID.randomUUID();
+        SceneLocation scene = new SceneLocation(1L, UUID.randomUUID(), 1L, 13.35943, 52.51263);
+
+        this.writtenVersions.onMovieChanged(MovieChangedEvent.deleted(movieUuid));
+        this.writtenVersions.onSceneChanged(SceneChangedEvent.deleted(List.of(scene)));
+
+        assertThat(this.writtenVersions.isOutdated(movieUuid, Long.MAX_VALUE - 1)).isTrue();
+        assertThat(this.writtenVersions.isOutdated(scene.uuid(), Long.MAX_VALUE - 1)).isTrue();
+    }
+
+    @Test
+    void shouldNotTellMovedScenesDeleted() {
+        SceneLocation scene = new SceneLocation(1L, UUID.randomUUID(), 1L, 13.35943, 52.51263);
+
+        this.writtenVersions.onSceneChanged(
+                SceneChangedEvent.moved(scene, new SceneLocation(1L, scene.uuid(), 1L, 2.35, 48.85), 4));
+
+        assertThat(this.writtenVersions.isOutdated(scene.uuid(), 3)).isTrue();
+        assertThat(this.writtenVersions.isOutdated(scene.uuid(), 4)).isFalse();
+    }
+
+    @Test
+    void shouldTellEveryStateOutdatedAfterAllGotDeleted() {
+        this.writtenVersions.onSceneChanged(SceneChangedEvent.deletedAll());
+
+        assertThat(this.writtenVersions.isOutdated(UUID.randomUUID(), 0)).isTrue();
+    }
+
+    @Test
+    void shouldTellGenresRenamedLately() {
+        this.writtenVersions.onGenresRenamed(new GenresRenamedEvent(Set.of(18)));
+
+        assertThat(this.writtenVersions.isRenamedLately(Set.of(18, 80))).isTrue();
+        assertThat(this.writtenVersions.isRenamedLately(Set.of(80))).isFalse();
+        assertThat(this.writtenVersions.isRenamedLately(Set.of())).isFalse();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replicaOne;
+    private DataSource replicaTwo;
+    private Connection primaryConnection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        this.primaryConnection = mock(Connection.class);
+        this.primary = mock(DataSource.class);
+        when(this.primary.getConnection()).thenReturn(this.primaryConnection);
+        this.replicaOne = replica(0);
+        this.replicaTwo = replica(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    private static DataSource replica(double lagSeconds) throws SQLException {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getDouble(1)).thenReturn(lagSeconds);
+        Statement statement = mock(Statement.class);
+        when(statement.executeQuery(ReplicaRoutingDataSource.REPLICA_LAG)).thenReturn(resultSet);
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        DataSource replica = mock(DataSource.class);
+        when(replica.getConnection()).thenReturn(connection);
+        return replica;
+    }
+
+    private ReplicaRoutingDataSource router() {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-1", this.replicaOne);
+        replicas.put("replica-2", this.replicaTwo);
+        return new ReplicaRoutingDataSource(this.primary, replicas, Duration.ofSeconds(10));
+    }
+
+    @Test
+    void shouldRouteReadOnlyTransactionsRoundRobinToReplicas() throws SQLException {
+        ReplicaRoutingDataSource router = router();
+        router.checkReplicas();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        router.getConnection();
+        router.getConnection();
+        router.getConnection();
+
+        // One connection of each replica was taken by the check
+        verify(this.replicaOne, times(3)).getConnection();
+        verify(this.replicaTwo, times(2)).getConnection();
+        verify(this.primary, never()).getConnection();
+    }
+
+    @Test
+    void shouldRouteOtherTransactionsToPrimary() throws SQLException {
+        ReplicaRoutingDataSource router = router();
+        router.checkReplicas();
+
+        assertThat(router.getConnection()).isSameAs(this.primaryConnection);
+    }
+
+    @Test
+    void shouldRouteReadOnlyTransactionsToPrimaryBeforeFirstCheck() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(router().getConnection()).isSameAs(this.primaryConnection);
+        verify(this.replicaOne, never()).getConnection();
+    }
+
+    @Test
+    void shouldSkipLaggingAndFailingReplicas() throws SQLException {
+        this.replicaOne = replica(30);
+        ReplicaRoutingDataSource router = router();
+        router.checkReplicas();
+        assertThat(router.getAvailableReplicas()).isEqualTo(List.of("replica-2"));
+
+        when(this.replicaTwo.getConnection()).thenThrow(new SQLTransientConnectionException("Connection refused"));
+        router.checkReplicas();
+        assertThat(router.getAvailableReplicas()).isEmpty();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(router.getConnection()).isSameAs(this.primaryConnection);
+    }
+
+    @Test
+    void shouldFallBackToPrimaryWhenReplicaFailsToHandOutConnection() throws SQLException {
+        ReplicaRoutingDataSource router = router();
+        router.checkReplicas();
+        when(this.replicaOne.getConnection()).thenThrow(new SQLTransientConnectionException("Connection refused"));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(router.getConnection()).isSameAs(this.primaryConnection);
+        assertThat(router.getAvailableReplicas()).isEqualTo(List.of("replica-2"));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.datasource;
+
+import de.dittwald.cinemap.repository.config.DataSourceConfig;
+import de.dittwald.cinemap.repository.config.SecondLevelCacheConfig;
+import de.dittwald.cinemap.repository.movie.repository.GenreRepository;
+import de.dittwald.cinemap.repository.movie.repository.MovieRepository;
+import de.dittwald.cinemap.repository.util.DummyData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the repositories with the second-level cache against a primary and a replica never receiving the writes, like
+ * one lagging behind the primary within the allowed lag.
+ */
+@Testcontainers
+@DataJpaTest(includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
+        classes = {MovieRepository.class, GenreRepository.class}))
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DataSourceConfig.class, SecondLevelCacheConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+// The caches are created under a fixed name, a cached context would keep them from being created again
+@DirtiesContext
+class ReplicaSecondLevelCacheTest {
+
+    @Container
+    static final PostgreSQLContainer<?> primary =
+            new PostgreSQLContainer<>("postgres:16.3-alpine").withInitScript("schema.sql");
+
+    @Container
+    static final PostgreSQLContainer<?> replica =
+            new PostgreSQLContainer<>("postgres:16.3-alpine").withInitScript("schema.sql");
+
+    @DynamicPropertySource
+    static void dataSources(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", primary::getJdbcUrl);
+        registry.add("spring.datasource.username", primary::getUsername);
+        registry.add("spring.datasource.password", primary::getPassword);
+        registry.add("de.cinemap.repository.datasource.replica-urls", replica::getJdbcUrl);
+    }
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void shouldFindWrittenMovieByUuidAfterReadingLaggingReplica() throws MalformedURLException, URISyntaxException {
+        DummyData dummyData = new DummyData();
+        UUID uuid = dummyData.getWolf().getUuid();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+        this.replicaRoutingDataSource.checkReplicas();
+        assertThat(this.replicaRoutingDataSource.getAvailableReplicas()).isEqualTo(List.of("replica-1"));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            this.genreRepository.saveAll(dummyData.getGenres());
+            this.movieRepository.save(dummyData.getWolf());
+        });
+
+        transactionTemplate.setReadOnly(true);
+        assertThat(transactionTemplate.execute(status -> this.movieRepository.findByUuid(uuid))).isEmpty();
+
+        // The cacheable query must not answer with the result read from the replica
+        transactionTemplate.setReadOnly(false);
+        assertThat(transactionTemplate.execute(status -> this.movieRepository.findByUuid(uuid)
+                .map(movie -> movie.getLocalizedMovies().get("en").getTitle())))
+                .contains("Dances with Wolves - Title");
+    }
+}
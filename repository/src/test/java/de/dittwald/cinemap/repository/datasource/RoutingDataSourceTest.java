@@ -0,0 +1,173 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the router against two independent database instances standing in for the primary and a replica, each
+ * knowing its own role.
+ */
+@Testcontainers
+class RoutingDataSourceTest {
+
+    @Container
+    static final PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:16.3-alpine");
+
+    @Container
+    static final PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:16.3-alpine");
+
+    private HikariDataSource primaryPool;
+    private HikariDataSource replicaPool;
+    private ReplicaRoutingDataSource router;
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        this.primaryPool = pool(primary, "primary");
+        this.replicaPool = pool(replica, "replica-1");
+        this.router = new ReplicaRoutingDataSource(this.primaryPool, Map.of("replica-1", this.replicaPool),
+                Duration.ofSeconds(10));
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(this.router);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionManager = new DataSourceTransactionManager(dataSource);
+        this.transactionTemplate = new TransactionTemplate(this.transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        this.router.close();
+    }
+
+    private static HikariDataSource pool(PostgreSQLContainer<?> container, String role) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl(container.getJdbcUrl());
+        pool.setUsername(container.getUsername());
+        pool.setPassword(container.getPassword());
+        pool.setConnectionTimeout(1000);
+        new JdbcTemplate(pool).execute("create table if not exists instance (role text); delete from instance; " +
+                "insert into instance values ('%s')".formatted(role));
+        return pool;
+    }
+
+    private String roleOf(boolean readOnly) {
+        this.transactionTemplate.setReadOnly(readOnly);
+        return this.transactionTemplate.execute(
+                status -> this.jdbcTemplate.queryForObject("select role from instance", String.class));
+    }
+
+    @Test
+    void shouldRouteReadOnlyTransactionsToReplica() {
+        this.router.checkReplicas();
+
+        assertThat(this.router.getAvailableReplicas()).isEqualTo(List.of("replica-1"));
+        assertThat(roleOf(true)).isEqualTo("replica-1");
+        assertThat(roleOf(false)).isEqualTo("primary");
+    }
+
+    // Applies the transaction annotations like the services get them applied
+    private Reads transactional(Reads reads) {
+        ProxyFactory proxyFactory = new ProxyFactory(reads);
+        proxyFactory.addAdvice(
+                new TransactionInterceptor(this.transactionManager, new AnnotationTransactionAttributeSource()));
+        return (Reads) proxyFactory.getProxy();
+    }
+
+    @Test
+    void shouldWriteToPrimaryOnly() {
+        this.router.checkReplicas();
+        this.transactionTemplate.setReadOnly(false);
+        this.transactionTemplate.executeWithoutResult(
+                status -> this.jdbcTemplate.update("update instance set role = 'written'"));
+
+        assertThat(roleOf(false)).isEqualTo("written");
+        assertThat(roleOf(true)).isEqualTo("replica-1");
+    }
+
+    @Test
+    void shouldReadOwnWriteFromPrimaryDespiteLaggingReplica() {
+        // The replica never receives the write, like one lagging behind the primary within the allowed lag
+        this.router.checkReplicas();
+        this.transactionTemplate.setReadOnly(false);
+        this.transactionTemplate.executeWithoutResult(
+                status -> this.jdbcTemplate.update("update instance set role = 'written'"));
+        Reads reads = transactional(new Reads(this.jdbcTemplate));
+
+        assertThat(reads.role()).isEqualTo("replica-1");
+        assertThat(reads.roleFromPrimary()).isEqualTo("written");
+    }
+
+    @Test
+    void shouldFallBackToPrimaryWhenReplicaIsDown() {
+        this.router.checkReplicas();
+        this.replicaPool.getHikariPoolMXBean().softEvictConnections();
+        replica.getDockerClient().pauseContainerCmd(replica.getContainerId()).exec();
+        try {
+            assertThat(roleOf(true)).isEqualTo("primary");
+            assertThat(this.router.getAvailableReplicas()).isEmpty();
+
+            this.router.checkReplicas();
+            assertThat(this.router.getAvailableReplicas()).isEmpty();
+        } finally {
+            replica.getDockerClient().unpauseContainerCmd(replica.getContainerId()).exec();
+        }
+
+        this.router.checkReplicas();
+        assertThat(roleOf(true)).isEqualTo("replica-1");
+    }
+
+    static class Reads {
+
+        private final JdbcTemplate jdbcTemplate;
+
+        Reads(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @Transactional(readOnly = true)
+        public String role() {
+            return this.jdbcTemplate.queryForObject("select role from instance", String.class);
+        }
+
+        @ReadFromPrimary
+        public String roleFromPrimary() {
+            return this.jdbcTemplate.queryForObject("select role from instance", String.class);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.migration;
+
+import de.dittwald.cinemap.repository.movie.repository.MovieLocalizedRepository;
+import de.dittwald.cinemap.repository.scene.repository.SceneLocalizedRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@WebMvcTest(LobBackfillService.class)
+@TestPropertySource(properties = "de.cinemap.repository.lob-backfill.batch-size=2")
+class LobBackfillServiceTest {
+
+    @Autowired
+    private LobBackfillService lobBackfillService;
+
+    @MockBean
+    private MovieLocalizedRepository movieLocalizedRepository;
+
+    @MockBean
+    private SceneLocalizedRepository sceneLocalizedRepository;
+
+    @Test
+    void shouldMoveBatchesUntilNothingIsLeft() {
+        when(this.movieLocalizedRepository.moveOverviewsToText(2)).thenReturn(2, 1, 0);
+        when(this.sceneLocalizedRepository.moveDescriptionsToText(2)).thenReturn(2, 0);
+
+        assertThat(this.lobBackfillService.backfill()).isEqualTo(5);
+
+        verify(this.movieLocalizedRepository, times(3)).moveOverviewsToText(2);
+        verify(this.sceneLocalizedRepository, times(2)).moveDescriptionsToText(2);
+    }
+
+    @Test
+    void shouldStopAfterOneBatchWhenNothingIsLeft() {
+        assertThat(this.lobBackfillService.backfill()).isZero();
+
+        verify(this.movieLocalizedRepository, times(1)).moveOverviewsToText(2);
+        verify(this.sceneLocalizedRepository, times(1)).moveDescriptionsToText(2);
+    }
+
+    @Test
+    void shouldRejectNonPositiveBatchSize() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new LobBackfillService(this.movieLocalizedRepository, this.sceneLocalizedRepository, 0));
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.migration;
+
+import de.dittwald.cinemap.repository.movie.repository.MovieLocalizedRepository;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.net.SocketFactory;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures reading pages of movie overviews from large objects and from the text column, before and after the
+ * backfill. Round trips are counted as flushes of the JDBC connection. Needs Docker and is not part of the regular
+ * test run, start it with {@code mvn test -Dtest=LocalizedTextReadBenchmark}.
+ */
+class LocalizedTextReadBenchmark {
+
+    private static final int MOVIES = 10_000;
+    private static final int OVERVIEW_LENGTH = 1_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int PAGES = 500;
+
+    private static final String PAGE = "select id, %s from localized_movie where locale = 'en' and id >= ? " +
+            "order by id limit " + PAGE_SIZE;
+
+    @Test
+    void benchmarkReads() throws SQLException {
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16.3-alpine")) {
+            postgres.start();
+            Properties properties = new Properties();
+            properties.setProperty("user", postgres.getUsername());
+            properties.setProperty("password", postgres.getPassword());
+            properties.setProperty("socketFactory", CountingSocketFactory.class.getName());
+            try (Connection connection = DriverManager.getConnection(postgres.getJdbcUrl(), properties)) {
+                createMovies(connection);
+
+                // Large objects can only be read within a transaction
+                connection.setAutoCommit(false);
+                measure(connection, "Large object stream", "overview", resultSet -> {
+                    Clob clob = resultSet.getClob(2);
+                    return clob.getSubString(1, (int) clob.length());
+                });
+                measure(connection, "Large object lo_get", "convert_from(lo_get(overview), 'UTF8')",
+                        resultSet -> resultSet.getString(2));
+                connection.commit();
+                connection.setAutoCommit(true);
+
+                long start = System.nanoTime();
+                try (Statement statement = connection.createStatement()) {
+                    int moved;
+                    do {
+                        moved = statement.executeUpdate(
+                                MovieLocalizedRepository.MOVE_OVERVIEWS_TO_TEXT.replace(":batchSize", "500"));
+                    } while (moved > 0);
+                }
+                System.out.printf("Backfilled %d overviews in %d ms%n", MOVIES,
+                        (System.nanoTime() - start) / 1_000_000);
+
+                measure(connection, "Text column", "overview_text", resultSet -> resultSet.getString(2));
+            }
+        }
+    }
+
+    private static void createMovies(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table localized_movie (id bigint not null, locale varchar(255) not null, " +
+                    "overview oid, overview_text text, primary key (id, locale))");
+        }
+        Random random = new Random(42);
+        try (PreparedStatement statement = connection.prepareStatement("insert into localized_movie " +
+                "(id, locale, overview) values (?, 'en', lo_from_bytea(0, convert_to(?, 'UTF8')))")) {
+            for (int i = 0; i < MOVIES; i++) {
+                StringBuilder overview = new StringBuilder(OVERVIEW_LENGTH);
+                while (overview.length() < OVERVIEW_LENGTH) {
+                    overview.append((char) ('a' + random.nextInt(26)));
+                }
+                statement.setLong(1, i);
+                statement.setString(2, overview.toString());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private static void measure(Connection connection, String label, String column, Reader reader)
+            throws SQLException {
+        Random random = new Random(42);
+        try (PreparedStatement statement = connection.prepareStatement(PAGE.formatted(column))) {
+            // Warm up
+            readPages(statement, reader, random, PAGES);
+
+            long flushes = CountingSocketFactory.FLUSHES.get();
+            long start = System.nanoTime();
+            long characters = readPages(statement, reader, random, PAGES);
+            System.out.printf("%s: %.3f ms and %.1f round trips per page of %d, %d characters read%n", label,
+                    (System.nanoTime() - start) / 1_000_000.0 / PAGES,
+                    (double) (CountingSocketFactory.FLUSHES.get() - flushes) / PAGES, PAGE_SIZE, characters);
+        }
+    }
+
+    private static long readPages(PreparedStatement statement, Reader reader, Random random, int pages)
+            throws SQLException {
+        long characters = 0;
+        for (int i = 0; i < pages; i++) {
+            statement.setLong(1, random.nextInt(MOVIES - PAGE_SIZE));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    characters += reader.read(resultSet).length();
+                }
+            }
+        }
+        return characters;
+    }
+
+    private interface Reader {
+        String read(ResultSet resultSet) throws SQLException;
+    }
+
+    /**
+     * Hands out sockets that count every flush, the driver flushes once per request it sends.
+     */
+    public static class CountingSocketFactory extends SocketFactory {
+
+        static final AtomicLong FLUSHES = new AtomicLong();
+
+        @Override
+        public Socket createSocket() {
+            return new Socket() {
+                @Override
+                public OutputStream getOutputStream() throws IOException {
+                    return new FilterOutputStream(super.getOutputStream()) {
+                        @Override
+                        public void write(byte[] bytes, int offset, int length) throws IOException {
+                            this.out.write(bytes, offset, length);
+                        }
+
+                        @Override
+                        public void flush() throws IOException {
+                            FLUSHES.incrementAndGet();
+                            super.flush();
+                        }
+                    };
+                }
+            };
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
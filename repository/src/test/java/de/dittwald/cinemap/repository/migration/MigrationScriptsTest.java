@@ -0,0 +1,140 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.migration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the migration scripts like spring.sql.init does against a database with the schema from before them.
+ */
+@Testcontainers
+class MigrationScriptsTest {
+
+    private static final String[] MIGRATIONS = {"db/migration/001-id-sequences.sql",
+            "db/migration/002-genre-dimension.sql", "db/migration/003-genre-versions.sql"};
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16.3-alpine");
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        this.dataSource = new HikariDataSource();
+        this.dataSource.setJdbcUrl(postgres.getJdbcUrl());
+        this.dataSource.setUsername(postgres.getUsername());
+        this.dataSource.setPassword(postgres.getPassword());
+        this.jdbcTemplate = new JdbcTemplate(this.dataSource);
+        this.jdbcTemplate.execute("drop schema public cascade; create schema public");
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.dataSource.close();
+    }
+
+    private void createLegacySchema() {
+        new ResourceDatabasePopulator(new ClassPathResource("legacy-schema.sql")).execute(this.dataSource);
+    }
+
+    private void migrate() {
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
+        for (String migration : MIGRATIONS) {
+            populator.addScript(new ClassPathResource(migration));
+        }
+        populator.setSeparator(ScriptUtils.EOF_STATEMENT_SEPARATOR);
+        populator.execute(this.dataSource);
+    }
+
+    @Test
+    void shouldLeaveEmptyDatabaseToHibernate() {
+        migrate();
+
+        assertThat(this.jdbcTemplate.queryForObject("select to_regclass('movies_seq') is null", Boolean.class))
+                .isTrue();
+    }
+
+    @Test
+    void shouldMoveSequencesPastExistingIds() {
+        createLegacySchema();
+        this.jdbcTemplate.update("insert into movies (id, uuid, version) values (120, gen_random_uuid(), 0)");
+        this.jdbcTemplate.update("insert into scenes (id, uuid, lon, lat, version, movie_id) " +
+                "values (7, gen_random_uuid(), 13.4, 52.5, 0, 120)");
+
+        migrate();
+
+        // The pooled optimizer hands out the 50 ids up to the fetched value
+        assertThat(this.jdbcTemplate.queryForObject("select nextval('movies_seq') - 49", Long.class))
+                .isGreaterThan(120);
+        assertThat(this.jdbcTemplate.queryForObject("select nextval('scenes_seq') - 49", Long.class))
+                .isGreaterThan(7);
+        assertThat(this.jdbcTemplate.queryForObject(
+                "select count(*) from information_schema.columns where is_identity = 'YES' " +
+                        "and table_name in ('movies', 'scenes')", Integer.class)).isZero();
+    }
+
+    @Test
+    void shouldNotMoveSequencesBackOnRestart() {
+        createLegacySchema();
+        this.jdbcTemplate.update("insert into movies (id, uuid, version) values (120, gen_random_uuid(), 0)");
+        migrate();
+        Long fetched = this.jdbcTemplate.queryForObject("select nextval('movies_seq')", Long.class);
+
+        migrate();
+
+        assertThat(this.jdbcTemplate.queryForObject("select nextval('movies_seq')", Long.class))
+                .isEqualTo(fetched + 50);
+    }
+
+    @Test
+    void shouldCopyLegacyGenreNamesToGenreDimension() {
+        createLegacySchema();
+        this.jdbcTemplate.update("insert into movies (id, uuid, version) values (1, gen_random_uuid(), 0), " +
+                "(2, gen_random_uuid(), 0), (3, gen_random_uuid(), 0)");
+        this.jdbcTemplate.update("insert into genres_number_mapping (number_id, genres_id, genres) values " +
+                "(1, 18, 'Drama'), (2, 18, 'Drama'), (3, 18, 'drama'), (1, 37, 'Western'), (2, 80, null)");
+
+        migrate();
+        migrate();
+
+        assertThat(this.jdbcTemplate.queryForList("select id || ':' || version from genres order by id",
+                String.class)).containsExactly("18:0", "37:0", "80:0");
+        assertThat(this.jdbcTemplate.queryForList(
+                "select genre_id || ':' || locale || ':' || name from genre_names order by genre_id", String.class))
+                .containsExactly("18:en:Drama", "37:en:Western");
+        assertThat(this.jdbcTemplate.queryForObject("select count(*) from genres_number_mapping", Integer.class))
+                .isEqualTo(5);
+        assertThat(this.jdbcTemplate.queryForObject("select count(*) from information_schema.columns " +
+                "where table_name = 'genres_number_mapping' and column_name = 'genres'", Integer.class)).isZero();
+        assertThat(this.jdbcTemplate.queryForObject("select count(*) from pg_constraint where contype = 'f' " +
+                "and conrelid = 'genres_number_mapping'::regclass and confrelid = 'genres'::regclass", Integer.class))
+                .isEqualTo(1);
+    }
+}
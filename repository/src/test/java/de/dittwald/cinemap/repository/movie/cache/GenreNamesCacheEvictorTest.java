@@ -0,0 +1,43 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.cache;
+
+import de.dittwald.cinemap.repository.movie.entity.Genre;
+import de.dittwald.cinemap.repository.movie.event.GenresRenamedEvent;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.mockito.Mockito.*;
+
+class GenreNamesCacheEvictorTest {
+
+    @Test
+    void shouldEvictNamesOfRenamedGenres() {
+        Cache cache = mock(Cache.class);
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class, RETURNS_DEEP_STUBS);
+        when(entityManagerFactory.getCache().unwrap(Cache.class)).thenReturn(cache);
+
+        new GenreNamesCacheEvictor(entityManagerFactory).onGenresRenamed(new GenresRenamedEvent(Set.of(80, 85)));
+
+        verify(cache).evictCollectionData(Genre.class.getName() + ".names", 80);
+        verify(cache).evictCollectionData(Genre.class.getName() + ".names", 85);
+        verifyNoMoreInteractions(cache);
+    }
+}
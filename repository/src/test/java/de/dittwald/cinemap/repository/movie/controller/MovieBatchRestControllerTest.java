@@ -0,0 +1,102 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.dittwald.cinemap.repository.movie.dto.MovieBatchRecordDto;
+import de.dittwald.cinemap.repository.movie.dto.MovieBatchResultDto;
+import de.dittwald.cinemap.repository.movie.service.MovieBatchService;
+import de.dittwald.cinemap.repository.movie.service.MovieService;
+import de.dittwald.cinemap.repository.movie.util.MovieBatchStatus;
+import de.dittwald.cinemap.repository.util.DummyData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest({MovieBatchRestController.class, MovieBatchService.class})
+@AutoConfigureMockMvc
+class MovieBatchRestControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private MovieService movieService;
+
+    private DummyData dummyData;
+
+    @BeforeEach
+    void setUp() throws URISyntaxException, MalformedURLException {
+        this.dummyData = new DummyData();
+    }
+
+    @Test
+    void shouldRespondResultPerRecord() throws Exception {
+        MovieBatchRecordDto wolf = new MovieBatchRecordDto(this.dummyData.getWolfFlatEnDto(),
+                List.of(this.dummyData.getWolfLocalizationDto().localizations().getLast()));
+        MovieBatchRecordDto nobody = new MovieBatchRecordDto(this.dummyData.getNobodyFlatEnDto(), null);
+        when(this.movieService.saveBatch(any())).thenReturn(Set.of(nobody.movie().uuid()));
+
+        String content = this.objectMapper.writeValueAsString(wolf) + "\n" +
+                this.objectMapper.writeValueAsString(nobody) + "\n";
+        MvcResult mvcResult = this.mockMvc.perform(
+                        post("/api/v1/movies:batch").contentType(MediaType.APPLICATION_NDJSON).content(content))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = this.mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        MovieBatchResultDto first = this.objectMapper.readValue(lines[0], MovieBatchResultDto.class);
+        MovieBatchResultDto second = this.objectMapper.readValue(lines[1], MovieBatchResultDto.class);
+        assertThat(first).isEqualTo(new MovieBatchResultDto(1, wolf.movie().uuid(), MovieBatchStatus.CREATED, null));
+        assertThat(second).isEqualTo(
+                new MovieBatchResultDto(2, nobody.movie().uuid(), MovieBatchStatus.CONFLICT, "UUID already in use"));
+    }
+
+    @Test
+    void shouldRejectJsonContentType() throws Exception {
+        this.mockMvc.perform(post("/api/v1/movies:batch").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+}
@@ -17,7 +17,11 @@
 package de.dittwald.cinemap.repository.movie.controller;
 
 import de.dittwald.cinemap.repository.exceptions.NotFoundException;
+import de.dittwald.cinemap.repository.movie.dto.MovieLocalizationEntryDto;
 import de.dittwald.cinemap.repository.util.DummyData;
+import de.dittwald.cinemap.repository.util.Tagged;
+import de.dittwald.cinemap.repository.util.MergePatch;
+import de.dittwald.cinemap.repository.util.MergePatchReader;
 import de.dittwald.cinemap.repository.movie.service.MovieLocalizationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -25,19 +29,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
+import java.util.Set;
 
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@WebMvcTest(MovieLocalizationRestController.class)
+@WebMvcTest({MovieLocalizationRestController.class, MergePatchReader.class})
 @AutoConfigureMockMvc
 class MovieLocalizationRestControllerTest {
 
@@ -58,7 +66,7 @@ class MovieLocalizationRestControllerTest {
     void shouldFindAllMovieLocalizations() throws Exception {
         when(this.movieLocalizationService.getMovieLocalizations(
                 this.dummyData.getWolfLocalizationDto().movieUuid())).thenReturn(
-                this.dummyData.getWolfLocalizationDto());
+                new Tagged<>(this.dummyData.getWolfLocalizationDto(), null));
 
         this.mockMvc.perform(get("/api/v1/movies/" + this.dummyData.getWolf().getUuid() + "/localizations"))
                 .andExpect(status().isOk())
@@ -73,6 +81,17 @@ class MovieLocalizationRestControllerTest {
                 this.dummyData.getWolfLocalizationDto().movieUuid());
     }
 
+    @Test
+    void shouldNotFindAllMovieLocalizationsDueToMatchingEntityTag() throws Exception {
+        when(this.movieLocalizationService.getMovieLocalizations(this.dummyData.getWolf().getUuid())).thenReturn(
+                new Tagged<>(this.dummyData.getWolfLocalizationDto(), "\"2\""));
+
+        this.mockMvc.perform(get("/api/v1/movies/" + this.dummyData.getWolf().getUuid() + "/localizations").header(
+                        HttpHeaders.IF_NONE_MATCH, "\"2\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
     @Test
     void shouldFailFindAllMovieLocalizationsDueToMovieNotFound() throws Exception {
         when(this.movieLocalizationService.getMovieLocalizations(
@@ -136,4 +155,23 @@ class MovieLocalizationRestControllerTest {
         verify(this.movieLocalizationService, times(1)).update(this.dummyData.getWolfLocalizationDto(),
                 this.dummyData.getWolfLocalizationDto().movieUuid(), false);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldPatchMovieLocalization() throws Exception {
+        this.mockMvc.perform(patch("/api/v1/movies/" + this.dummyData.getWolf().getUuid() + "/localizations/de")
+                .contentType("application/merge-patch+json")
+                .header(HttpHeaders.IF_MATCH, "\"4\"")
+                .content("{\"title\": \"Der mit dem Wolf tanzt\"}")).andExpect(status().isNoContent());
+        verify(this.movieLocalizationService, times(1)).patch(this.dummyData.getWolf().getUuid(), "de",
+                new MergePatch<>(new MovieLocalizationEntryDto(null, "Der mit dem Wolf tanzt", null, null, null),
+                        Set.of("title")), 4L);
+    }
+
+    @Test
+    void shouldFailPatchMovieLocalizationDueToInvalidLocale() throws Exception {
+        this.mockMvc.perform(patch("/api/v1/movies/" + this.dummyData.getWolf().getUuid() + "/localizations/xx")
+                .contentType("application/merge-patch+json")
+                .content("{\"title\": \"Der mit dem Wolf tanzt\"}")).andExpect(status().isBadRequest());
+        verify(this.movieLocalizationService, never()).patch(any(), any(), any(), any());
+    }
+}
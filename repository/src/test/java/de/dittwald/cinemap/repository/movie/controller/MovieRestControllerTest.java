@@ -19,9 +19,19 @@ package de.dittwald.cinemap.repository.movie.controller;
 
 import de.dittwald.cinemap.repository.exceptions.LocaleNotFoundException;
 import de.dittwald.cinemap.repository.exceptions.NotFoundException;
+import de.dittwald.cinemap.repository.exceptions.PreconditionFailedException;
 import de.dittwald.cinemap.repository.exceptions.UuidInUseException;
+import de.dittwald.cinemap.repository.movie.dto.MovieFacetsDto;
+import de.dittwald.cinemap.repository.movie.dto.MovieFlatDto;
+import de.dittwald.cinemap.repository.movie.dto.MoviePage;
+import de.dittwald.cinemap.repository.movie.util.GenreMatch;
+import de.dittwald.cinemap.repository.movie.util.MovieSort;
 import de.dittwald.cinemap.repository.util.DummyData;
+import de.dittwald.cinemap.repository.util.Tagged;
+import de.dittwald.cinemap.repository.util.MergePatch;
+import de.dittwald.cinemap.repository.util.MergePatchReader;
 import de.dittwald.cinemap.repository.movie.service.MovieService;
+import de.dittwald.cinemap.repository.scene.dto.SceneCreationDto;
 import de.dittwald.cinemap.repository.scene.service.SceneService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -29,22 +39,29 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@WebMvcTest(MovieRestController.class)
+@WebMvcTest({MovieRestController.class, MergePatchReader.class})
 @AutoConfigureMockMvc
 public class MovieRestControllerTest {
 
@@ -73,23 +90,24 @@ public class MovieRestControllerTest {
     @Test
     public void shouldFindAllMoviesDefaultLocale() throws Exception {
 
-        when(this.movieService.findAll("en")).thenReturn(
-                List.of(this.dummyData.getWolfFlatEnDto(), this.dummyData.getNobodyFlatEnDto()));
+        when(this.movieService.findAll("en", MovieSort.ID, null, 100, Set.of(), GenreMatch.ALL)).thenReturn(
+                new MoviePage(List.of(this.dummyData.getWolfFlatEnDto(), this.dummyData.getNobodyFlatEnDto()), null));
 
         this.mockMvc.perform(get("/api/v1/movies"))
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LINK))
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[0].title", is("Dances with Wolves - Title")))
                 .andExpect(jsonPath("$[1].title", is("My Name is Nobody - Title")));
 
-        verify(this.movieService, times(1)).findAll("en");
+        verify(this.movieService, times(1)).findAll("en", MovieSort.ID, null, 100, Set.of(), GenreMatch.ALL);
     }
 
     @Test
     public void shouldFindAllMoviesDe() throws Exception {
 
-        when(this.movieService.findAll("de")).thenReturn(
-                List.of(this.dummyData.getWolfFlatDeDto(), this.dummyData.getNobodyFlatDeDto()));
+        when(this.movieService.findAll("de", MovieSort.ID, null, 100, Set.of(), GenreMatch.ALL)).thenReturn(
+                new MoviePage(List.of(this.dummyData.getWolfFlatDeDto(), this.dummyData.getNobodyFlatDeDto()), null));
 
         this.mockMvc.perform(get("/api/v1/movies?lang=de"))
                 .andExpect(status().isOk())
@@ -97,7 +115,79 @@ public class MovieRestControllerTest {
                 .andExpect(jsonPath("$[0].title", is("Der mit dem Wolf tanzt - Title")))
                 .andExpect(jsonPath("$[1].title", is("Mein Name ist Nobody - Title")));
 
-        verify(this.movieService, times(1)).findAll("de");
+        verify(this.movieService, times(1)).findAll("de", MovieSort.ID, null, 100, Set.of(), GenreMatch.ALL);
+    }
+
+    @Test
+    public void shouldFindMoviePageOrderedByTitleWithNextLink() throws Exception {
+
+        when(this.movieService.findAll("de", MovieSort.TITLE, "cursor", 1, Set.of(), GenreMatch.ALL)).thenReturn(
+                new MoviePage(List.of(this.dummyData.getWolfFlatDeDto()), "nextCursor"));
+
+        this.mockMvc.perform(get("/api/v1/movies?lang=de&sort=title&after=cursor&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LINK,
+                        "<http://localhost/api/v1/movies?lang=de&sort=title&limit=1&after=nextCursor>; rel=\"next\""))
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        verify(this.movieService, times(1)).findAll("de", MovieSort.TITLE, "cursor", 1, Set.of(), GenreMatch.ALL);
+    }
+
+    @Test
+    public void shouldFindAllMoviesOfAnyGenre() throws Exception {
+
+        when(this.movieService.findAll("en", MovieSort.ID, null, 100, Set.of(18, 80), GenreMatch.ANY)).thenReturn(
+                new MoviePage(List.of(this.dummyData.getWolfFlatEnDto()), null));
+
+        this.mockMvc.perform(get("/api/v1/movies?genre=18&genre=80&genreMatch=any"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].genres.85", is("thriller")));
+
+        verify(this.movieService, times(1)).findAll("en", MovieSort.ID, null, 100, Set.of(18, 80), GenreMatch.ANY);
+    }
+
+    @Test
+    public void shouldFailFindAllMoviesDueToInvalidGenre() throws Exception {
+        this.mockMvc.perform(get("/api/v1/movies?genre=drama")).andExpect(status().isBadRequest());
+        this.mockMvc.perform(get("/api/v1/movies?genre=18&genreMatch=none")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldFindFacets() throws Exception {
+        when(this.movieService.findFacets(Set.of(80), GenreMatch.ALL, Set.of(1970), Set.of("de"))).thenReturn(
+                new MovieFacetsDto(1, Map.of(80, 1, 85, 1), Map.of(1970, 1), Map.of("de", 1, "en", 1)));
+
+        this.mockMvc.perform(get("/api/v1/movies/facets?genre=80&decade=1970&locale=de"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", is(1)))
+                .andExpect(jsonPath("$.genres.85", is(1)))
+                .andExpect(jsonPath("$.decades.1970", is(1)))
+                .andExpect(jsonPath("$.locales.en", is(1)));
+
+        verify(this.movieService, times(1)).findFacets(Set.of(80), GenreMatch.ALL, Set.of(1970), Set.of("de"));
+    }
+
+    @Test
+    public void shouldFailFindFacetsDueToInvalidSelection() throws Exception {
+        when(this.movieService.findFacets(any(), any(), eq(Set.of(1975)), any())).thenThrow(
+                new IllegalArgumentException("Invalid decade 1975 given"));
+
+        this.mockMvc.perform(get("/api/v1/movies/facets?genreMatch=none")).andExpect(status().isBadRequest());
+        this.mockMvc.perform(get("/api/v1/movies/facets?decade=seventies")).andExpect(status().isBadRequest());
+        this.mockMvc.perform(get("/api/v1/movies/facets?decade=1975")).andExpect(status().isBadRequest());
+        this.mockMvc.perform(get("/api/v1/movies/facets?locale=deu")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldFailFindAllMoviesDueToInvalidSort() throws Exception {
+        this.mockMvc.perform(get("/api/v1/movies?sort=rating")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void shouldFailFindAllMoviesDueToInvalidLimit() throws Exception {
+        this.mockMvc.perform(get("/api/v1/movies?limit=0")).andExpect(status().isBadRequest());
+        this.mockMvc.perform(get("/api/v1/movies?limit=501")).andExpect(status().isBadRequest());
     }
 
     @Test
@@ -108,7 +198,7 @@ public class MovieRestControllerTest {
     @Test
     public void shouldFindMovieByUuidWithDefaultLocale() throws Exception {
         when(this.movieService.findByUuid(this.dummyData.getWolfFlatEnDto().uuid(), "en")).thenReturn(
-                this.dummyData.getWolfFlatEnDto());
+                new Tagged<>(this.dummyData.getWolfFlatEnDto(), null));
         this.mockMvc.perform(get("/api/v1/movies/" + this.dummyData.getWolfFlatEnDto().uuid()))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.title", is("Dances with Wolves - Title")));
@@ -118,13 +208,41 @@ public class MovieRestControllerTest {
     @Test
     public void shouldFindMovieByUuidDe() throws Exception {
         when(this.movieService.findByUuid(this.dummyData.getWolfFlatDeDto().uuid(), "de")).thenReturn(
-                this.dummyData.getWolfFlatDeDto());
+                new Tagged<>(this.dummyData.getWolfFlatDeDto(), null));
         this.mockMvc.perform(get("/api/v1/movies/" + this.dummyData.getWolfFlatDeDto().uuid() + "?lang=de"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.title", is("Der mit dem Wolf tanzt - Title")));
         verify(this.movieService, times(1)).findByUuid(this.dummyData.getWolfFlatDeDto().uuid(), "de");
     }
 
+    @Test
+    public void shouldFindMovieByUuidWithEntityTag() throws Exception {
+        when(this.movieService.findByUuid(this.dummyData.getWolfFlatEnDto().uuid(), "en")).thenReturn(
+                new Tagged<>(this.dummyData.getWolfFlatEnDto(), "\"3-en\""));
+        this.mockMvc.perform(get("/api/v1/movies/" + this.dummyData.getWolfFlatEnDto().uuid()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3-en\""));
+    }
+
+    @Test
+    public void shouldNotFindMovieByUuidDueToMatchingEntityTag() throws Exception {
+        when(this.movieService.findByUuid(this.dummyData.getWolfFlatEnDto().uuid(), "en")).thenReturn(
+                new Tagged<>(this.dummyData.getWolfFlatEnDto(), "\"3-en\""));
+        this.mockMvc.perform(get("/api/v1/movies/" + this.dummyData.getWolfFlatEnDto().uuid()).header(
+                        HttpHeaders.IF_NONE_MATCH, "\"3-en\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3-en\""))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void shouldNotFindAllMoviesDueToMatchingEntityTag() throws Exception {
+        when(this.movieService.findAllEntityTag("en")).thenReturn("\"2.7.4-en\"");
+        this.mockMvc.perform(get("/api/v1/movies").header(HttpHeaders.IF_NONE_MATCH, "\"2.7.4-en\""))
+                .andExpect(status().isNotModified());
+        verify(this.movieService, never()).findAll(any(), any(), any(), anyInt(), any(), any());
+    }
+
     @Test
     public void shouldFailFindMovieDueToNotExistingUuid() throws Exception {
         when(this.movieService.findByUuid(UUID.fromString("aa7acd67-4052-421d-a63f-90440c683e6d"), "en")).thenThrow(
@@ -410,7 +528,7 @@ public class MovieRestControllerTest {
     @Test
     public void shouldFindSceneByUuid() throws Exception {
         when(this.sceneService.findByUuid(this.dummyData.getWolfSceneOne().getUuid(), "en")).thenReturn(
-                this.dummyData.getWolfSceneOneFlatEnDto());
+                new Tagged<>(this.dummyData.getWolfSceneOneFlatEnDto(), null));
         this.mockMvc.perform(get("/api/v1/movies/" + this.dummyData.getWolf().getUuid() + "/scenes/" +
                         this.dummyData.getWolfSceneOne().getUuid()))
                 .andExpect(status().isOk())
@@ -439,7 +557,7 @@ public class MovieRestControllerTest {
     @Test
     public void shouldFindAllScenesOfMovie() throws Exception {
         when(this.sceneService.findAllScenesOfMovie(this.dummyData.getWolf().getUuid(), "en")).thenReturn(
-                List.of(this.dummyData.getWolfSceneOneFlatEnDto()));
+                new Tagged<>(List.of(this.dummyData.getWolfSceneOneFlatEnDto()), null));
         this.mockMvc.perform(get("/api/v1/movies/" + this.dummyData.getWolf().getUuid() + "/scenes"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].uuid", is(this.dummyData.getWolfSceneOneFlatEnDto().uuid().toString())));
@@ -463,4 +581,70 @@ public class MovieRestControllerTest {
                 .andExpect(status().isNotFound());
         verify(this.sceneService, times(1)).findAllScenesOfMovie(this.dummyData.getWolf().getUuid(), "en");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldPatchMovie() throws Exception {
+        UUID uuid = this.dummyData.getWolf().getUuid();
+        this.mockMvc.perform(patch("/api/v1/movies/" + uuid + "?lang=de").contentType("application/merge-patch+json")
+                        .header(HttpHeaders.IF_MATCH, "\"3-de\"")
+                        .content("""
+                                {"releaseYear": 1991, "imdbId": null, "genres": {"18": "Drama", "80": null}}"""))
+                .andExpect(status().isNoContent());
+
+        Map<Integer, String> genres = new HashMap<>();
+        genres.put(18, "Drama");
+        genres.put(80, null);
+        verify(this.movieService, times(1)).patch(uuid, "de",
+                new MergePatch<>(new MovieFlatDto(null, null, 1991, genres, null, null, null, null, null, null),
+                        Set.of("releaseYear", "imdbId", "genres")), 3L);
+    }
+
+    @Test
+    public void shouldFailPatchMovieDueToNotPatchableField() throws Exception {
+        this.mockMvc.perform(patch("/api/v1/movies/" + this.dummyData.getWolf().getUuid()).contentType(
+                "application/merge-patch+json").content("{\"title\": \"Wolf\"}")).andExpect(status().isBadRequest());
+        verify(this.movieService, never()).patch(any(), any(), any(), any());
+    }
+
+    @Test
+    public void shouldFailPatchMovieDueToInvalidReleaseYear() throws Exception {
+        this.mockMvc.perform(patch("/api/v1/movies/" + this.dummyData.getWolf().getUuid()).contentType(
+                "application/merge-patch+json").content("{\"releaseYear\": 1200}")).andExpect(status().isBadRequest());
+        verify(this.movieService, never()).patch(any(), any(), any(), any());
+    }
+
+    @Test
+    public void shouldFailPatchMovieDueToPlainJson() throws Exception {
+        this.mockMvc.perform(patch("/api/v1/movies/" + this.dummyData.getWolf().getUuid()).contentType(
+                MediaType.APPLICATION_JSON).content("{\"releaseYear\": 1991}")).andExpect(
+                status().isUnsupportedMediaType());
+    }
+
+    @Test
+    public void shouldFailPatchMovieDueToModifiedMovie() throws Exception {
+        UUID uuid = this.dummyData.getWolf().getUuid();
+        doThrow(new PreconditionFailedException("Movie was modified in the meantime")).when(this.movieService)
+                .patch(any(), any(), any(), any());
+        this.mockMvc.perform(patch("/api/v1/movies/" + uuid).contentType("application/merge-patch+json")
+                .header(HttpHeaders.IF_MATCH, "\"2-de\"")
+                .content("{\"releaseYear\": 1991}")).andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void shouldPatchScene() throws Exception {
+        UUID sceneUuid = this.dummyData.getWolfSceneOne().getUuid();
+        this.mockMvc.perform(patch("/api/v1/movies/" + this.dummyData.getWolf().getUuid() + "/scenes/" + sceneUuid)
+                .contentType("application/merge-patch+json")
+                .content("{\"lon\": 12.5}")).andExpect(status().isNoContent());
+        verify(this.sceneService, times(1)).patch(sceneUuid,
+                new MergePatch<>(new SceneCreationDto(null, 12.5, null, null, null, null), Set.of("lon")), null);
+    }
+
+    @Test
+    public void shouldFailPatchSceneDueToNullLatitude() throws Exception {
+        this.mockMvc.perform(patch("/api/v1/movies/" + this.dummyData.getWolf().getUuid() + "/scenes/" +
+                this.dummyData.getWolfSceneOne().getUuid()).contentType("application/merge-patch+json")
+                .content("{\"lat\": null}")).andExpect(status().isBadRequest());
+        verify(this.sceneService, never()).patch(any(), any(), any());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.index;
+
+import de.dittwald.cinemap.repository.movie.dto.MovieFacetsDto;
+import de.dittwald.cinemap.repository.movie.repository.MovieRepository;
+import de.dittwald.cinemap.repository.movie.util.GenreMatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures facet counts of the facet index at a hundred thousand movies and checks one count against a full scan.
+ * Not part of the regular test run, start it with {@code mvn test -Dtest=MovieFacetIndexBenchmark}.
+ */
+class MovieFacetIndexBenchmark {
+
+    private static final int MOVIES = 100_000;
+    private static final int QUERIES = 1_000;
+    private static final int[] GENRES = {12, 14, 16, 18, 27, 28, 35, 36, 37, 53, 80, 99, 878, 9648, 10749, 10752};
+    private static final String[] LOCALES = {"en", "de", "fr", "es", "it", "ja"};
+
+    @Test
+    void benchmarkCount() {
+        Random random = new Random(42);
+        List<MovieGenre> movieGenres = new ArrayList<>();
+        List<MovieAttributes> movieAttributes = new ArrayList<>();
+        for (long id = 1; id <= MOVIES; id++) {
+            UUID uuid = UUID.randomUUID();
+            int releaseYear = 1920 + random.nextInt(105);
+            for (int genre = random.nextInt(GENRES.length), n = 1 + random.nextInt(3); n > 0; n--) {
+                movieGenres.add(new MovieGenre(uuid, id, GENRES[(genre + n) % GENRES.length]));
+            }
+            movieAttributes.add(new MovieAttributes(uuid, id, releaseYear, "en"));
+            for (int locale = 1; locale < LOCALES.length; locale++) {
+                if (random.nextInt(3) == 0) {
+                    movieAttributes.add(new MovieAttributes(uuid, id, releaseYear, LOCALES[locale]));
+                }
+            }
+        }
+        MovieRepository movieRepository = mock(MovieRepository.class);
+        when(movieRepository.findAllMovieGenres()).thenReturn(movieGenres);
+        when(movieRepository.findAllMovieAttributes()).thenReturn(movieAttributes);
+        MovieFacetIndex movieFacetIndex = new MovieFacetIndex(movieRepository, new MovieGenreIndex(movieRepository));
+
+        long start = System.nanoTime();
+        MovieFacetsDto all = movieFacetIndex.count(Set.of(), GenreMatch.ALL, Set.of(), Set.of());
+        System.out.printf("Loaded %d movies in %d ms%n", all.total(), (System.nanoTime() - start) / 1_000_000);
+        assertThat(all.total()).isEqualTo(MOVIES);
+
+        List<Set<Integer>> genreSelections = new ArrayList<>();
+        List<Set<Integer>> decadeSelections = new ArrayList<>();
+        for (int i = 0; i < QUERIES; i++) {
+            genreSelections.add(Set.of(GENRES[random.nextInt(GENRES.length)]));
+            decadeSelections.add(i % 2 == 0 ? Set.of() : Set.of(1920 + random.nextInt(11) * 10));
+        }
+
+        // Warm up until the counting is compiled
+        for (int i = 0; i < 20 * QUERIES; i++) {
+            movieFacetIndex.count(genreSelections.get(i % QUERIES), GenreMatch.ALL, decadeSelections.get(i % QUERIES),
+                    Set.of("de"));
+        }
+
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            movieFacetIndex.count(genreSelections.get(i), GenreMatch.ALL, decadeSelections.get(i), Set.of("de"));
+        }
+        System.out.printf("Index: %.1f us per facet count%n", (System.nanoTime() - start) / 1_000.0 / QUERIES);
+
+        start = System.nanoTime();
+        long expected = movieAttributes.stream()
+                .filter(movie -> movie.releaseYear() >= 1990 && movie.releaseYear() < 2000)
+                .filter(movie -> movie.locale().equals("de"))
+                .count();
+        System.out.printf("Full scan: %.1f us per decade count%n", (System.nanoTime() - start) / 1_000.0);
+        assertThat(movieFacetIndex.count(Set.of(), GenreMatch.ALL, Set.of(1990), Set.of("de")).total()).isEqualTo(
+                (int) expected);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.index;
+
+import de.dittwald.cinemap.repository.movie.dto.MovieFacetsDto;
+import de.dittwald.cinemap.repository.movie.event.MovieChangedEvent;
+import de.dittwald.cinemap.repository.movie.event.MoviesCreatedEvent;
+import de.dittwald.cinemap.repository.movie.repository.MovieRepository;
+import de.dittwald.cinemap.repository.movie.util.GenreMatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@WebMvcTest({MovieFacetIndex.class, MovieGenreIndex.class})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class MovieFacetIndexTest {
+
+    @Autowired
+    private MovieFacetIndex movieFacetIndex;
+
+    @MockBean
+    private MovieRepository movieRepository;
+
+    private final UUID wolf = UUID.randomUUID();
+    private final UUID nobody = UUID.randomUUID();
+    private final UUID heat = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        when(this.movieRepository.findAllMovieGenres()).thenReturn(
+                List.of(new MovieGenre(this.wolf, 1L, 37), new MovieGenre(this.wolf, 1L, 18),
+                        new MovieGenre(this.nobody, 2L, 37), new MovieGenre(this.nobody, 2L, 35),
+                        new MovieGenre(this.heat, 3L, 80)));
+        when(this.movieRepository.findAllMovieAttributes()).thenReturn(
+                List.of(new MovieAttributes(this.wolf, 1L, 1990, "en"),
+                        new MovieAttributes(this.wolf, 1L, 1990, "de"),
+                        new MovieAttributes(this.nobody, 2L, 1973, "en"),
+                        new MovieAttributes(this.heat, 3L, 1995, "en"),
+                        new MovieAttributes(this.heat, 3L, 1995, "de")));
+    }
+
+    @Test
+    void shouldCountAllMoviesWithoutSelection() {
+        assertThat(this.movieFacetIndex.count(Set.of(), GenreMatch.ALL, Set.of(), Set.of())).isEqualTo(
+                new MovieFacetsDto(3, Map.of(18, 1, 35, 1, 37, 2, 80, 1), Map.of(1970, 1, 1990, 2),
+                        Map.of("de", 2, "en", 3)));
+        verify(this.movieRepository, times(1)).findAllMovieAttributes();
+    }
+
+    @Test
+    void shouldCountWithinSelection() {
+        MovieFacetsDto facets = this.movieFacetIndex.count(Set.of(37), GenreMatch.ALL, Set.of(1990), Set.of());
+
+        assertThat(facets.total()).isEqualTo(1);
+        assertThat(facets.genres()).isEqualTo(Map.of(18, 1, 37, 1));
+        // Decades ignore their own selection
+        assertThat(facets.decades()).isEqualTo(Map.of(1970, 1, 1990, 1));
+        assertThat(facets.locales()).isEqualTo(Map.of("de", 1, "en", 1));
+    }
+
+    @Test
+    void shouldCountGenresIgnoringGenreSelectionOfAnyGenre() {
+        MovieFacetsDto facets = this.movieFacetIndex.count(Set.of(18, 80), GenreMatch.ANY, Set.of(), Set.of("de"));
+
+        assertThat(facets.total()).isEqualTo(2);
+        assertThat(facets.genres()).isEqualTo(Map.of(18, 1, 37, 1, 80, 1));
+        assertThat(facets.decades()).isEqualTo(Map.of(1990, 2));
+    }
+
+    @Test
+    void shouldCountNothingForUnknownOptions() {
+        assertThat(this.movieFacetIndex.count(Set.of(99), GenreMatch.ALL, Set.of(1900), Set.of("fr"))).isEqualTo(
+                new MovieFacetsDto(0, Map.of(), Map.of(), Map.of()));
+    }
+
+    @Test
+    void shouldApplyMovieChanges() {
+        this.movieFacetIndex.count(Set.of(), GenreMatch.ALL, Set.of(), Set.of());
+
+        UUID added = UUID.randomUUID();
+        when(this.movieRepository.findMovieAttributesByUuidIn(List.of(this.wolf))).thenReturn(
+                List.of(new MovieAttributes(this.wolf, 1L, 1990, "en")));
+        when(this.movieRepository.findMovieAttributesByUuidIn(List.of(this.nobody))).thenReturn(List.of());
+        when(this.movieRepository.findMovieAttributesByUuidIn(List.of(added))).thenReturn(
+                List.of(new MovieAttributes(added, 4L, 2001, "fr")));
+        this.movieFacetIndex.onMovieChanged(MovieChangedEvent.changed(this.wolf, 1));
+        this.movieFacetIndex.onMovieChanged(MovieChangedEvent.changed(this.nobody, 1));
+        this.movieFacetIndex.onMoviesCreated(new MoviesCreatedEvent(List.of(added)));
+
+        MovieFacetsDto facets = this.movieFacetIndex.count(Set.of(), GenreMatch.ALL, Set.of(), Set.of());
+        assertThat(facets.total()).isEqualTo(3);
+        assertThat(facets.decades()).isEqualTo(Map.of(1990, 2, 2000, 1));
+        assertThat(facets.locales()).isEqualTo(Map.of("de", 1, "en", 2, "fr", 1));
+
+        this.movieFacetIndex.onMovieChanged(MovieChangedEvent.deletedAll());
+        assertThat(this.movieFacetIndex.count(Set.of(), GenreMatch.ALL, Set.of(), Set.of()).total()).isZero();
+    }
+}
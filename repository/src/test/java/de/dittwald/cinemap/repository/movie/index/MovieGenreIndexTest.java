@@ -0,0 +1,109 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.index;
+
+import de.dittwald.cinemap.repository.movie.event.MovieChangedEvent;
+import de.dittwald.cinemap.repository.movie.event.MoviesCreatedEvent;
+import de.dittwald.cinemap.repository.movie.repository.MovieRepository;
+import de.dittwald.cinemap.repository.movie.util.GenreMatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@WebMvcTest(MovieGenreIndex.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class MovieGenreIndexTest {
+
+    @Autowired
+    private MovieGenreIndex movieGenreIndex;
+
+    @MockBean
+    private MovieRepository movieRepository;
+
+    private final UUID wolf = UUID.randomUUID();
+    private final UUID nobody = UUID.randomUUID();
+    private final UUID heat = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        when(this.movieRepository.findAllMovieGenres()).thenReturn(
+                List.of(new MovieGenre(this.wolf, 1L, 37), new MovieGenre(this.wolf, 1L, 18),
+                        new MovieGenre(this.nobody, 2L, 37), new MovieGenre(this.nobody, 2L, 35),
+                        new MovieGenre(this.heat, 3L, null)));
+    }
+
+    @Test
+    void shouldFindMoviesHavingAllGenres() {
+        assertThat(this.movieGenreIndex.filter(Set.of(37), GenreMatch.ALL)).isEqualTo(RoaringBitmap.bitmapOf(1, 2));
+        assertThat(this.movieGenreIndex.filter(Set.of(37, 18), GenreMatch.ALL)).isEqualTo(RoaringBitmap.bitmapOf(1));
+        assertThat(this.movieGenreIndex.filter(Set.of(37, 99), GenreMatch.ALL).isEmpty()).isTrue();
+        verify(this.movieRepository, times(1)).findAllMovieGenres();
+    }
+
+    @Test
+    void shouldFindMoviesHavingAnyGenre() {
+        assertThat(this.movieGenreIndex.filter(Set.of(18, 35), GenreMatch.ANY)).isEqualTo(
+                RoaringBitmap.bitmapOf(1, 2));
+        assertThat(this.movieGenreIndex.filter(Set.of(99), GenreMatch.ANY).isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldNotShareReturnedBitmaps() {
+        this.movieGenreIndex.filter(Set.of(37), GenreMatch.ANY).add(3);
+        assertThat(this.movieGenreIndex.filter(Set.of(37), GenreMatch.ANY)).isEqualTo(RoaringBitmap.bitmapOf(1, 2));
+    }
+
+    @Test
+    void shouldApplyMovieChanges() {
+        RoaringBitmap westerns = this.movieGenreIndex.filter(Set.of(37), GenreMatch.ALL);
+
+        UUID added = UUID.randomUUID();
+        when(this.movieRepository.findMovieGenresByUuidIn(List.of(this.wolf))).thenReturn(
+                List.of(new MovieGenre(this.wolf, 1L, 18)));
+        when(this.movieRepository.findMovieGenresByUuidIn(List.of(this.nobody))).thenReturn(List.of());
+        when(this.movieRepository.findMovieGenresByUuidIn(List.of(added))).thenReturn(
+                List.of(new MovieGenre(added, 4L, 37)));
+        this.movieGenreIndex.onMovieChanged(MovieChangedEvent.changed(this.wolf, 1));
+        this.movieGenreIndex.onMovieChanged(MovieChangedEvent.changed(this.nobody, 1));
+        this.movieGenreIndex.onMoviesCreated(new MoviesCreatedEvent(List.of(added)));
+
+        assertThat(westerns).isEqualTo(RoaringBitmap.bitmapOf(1, 2));
+        assertThat(this.movieGenreIndex.filter(Set.of(37), GenreMatch.ALL)).isEqualTo(RoaringBitmap.bitmapOf(4));
+        assertThat(this.movieGenreIndex.filter(Set.of(18), GenreMatch.ALL)).isEqualTo(RoaringBitmap.bitmapOf(1));
+        assertThat(this.movieGenreIndex.filter(Set.of(35), GenreMatch.ALL).isEmpty()).isTrue();
+
+        this.movieGenreIndex.onMovieChanged(MovieChangedEvent.deletedAll());
+        assertThat(this.movieGenreIndex.filter(Set.of(18, 37), GenreMatch.ANY).isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldIgnoreChangesBeforeFirstUse() {
+        this.movieGenreIndex.onMovieChanged(MovieChangedEvent.changed(this.wolf, 1));
+        verify(this.movieRepository, never()).findMovieGenresByUuidIn(any());
+    }
+}
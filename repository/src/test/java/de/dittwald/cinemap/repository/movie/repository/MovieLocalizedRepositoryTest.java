@@ -22,6 +22,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
@@ -31,12 +32,13 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @Testcontainers
 @DataJpaTest(includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
-        classes = {MovieLocalizedRepository.class, MovieRepository.class}))
+        classes = {MovieLocalizedRepository.class, MovieRepository.class, GenreRepository.class}))
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
 class MovieLocalizedRepositoryTest {
 
@@ -51,11 +53,18 @@ class MovieLocalizedRepositoryTest {
     @Autowired
     private MovieRepository movieRepository;
 
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
     private DummyData dummyData;
 
     @BeforeEach
     void setUp() throws MalformedURLException, URISyntaxException {
         this.dummyData = new DummyData();
+        this.genreRepository.saveAll(this.dummyData.getGenres());
         this.movieRepository.save(this.dummyData.getWolf());
         this.movieRepository.save(this.dummyData.getNobody());
     }
@@ -99,4 +108,57 @@ class MovieLocalizedRepositoryTest {
         assertThat(this.movieRepository.count()).isEqualTo(0);
         assertThat(this.movieLocalizedRepository.count()).isEqualTo(0);
     }
+
+    @Test
+    void shouldMoveOverviewsFromLargeObjectsToText() {
+        // Puts the overviews back into large objects, as they were stored before the text column
+        this.testEntityManager.flush();
+        this.testEntityManager.getEntityManager().createNativeQuery("""
+                update localized_movie set overview = lo_from_bytea(0, convert_to(overview_text, 'UTF8')),
+                    overview_text = null
+                """).executeUpdate();
+        this.testEntityManager.clear();
+        String expected = this.dummyData.getWolf().getLocalizedMovies().get("en").getOverview();
+        assertThat(findEnglishOverview()).isEqualTo(expected);
+
+        assertThat(this.movieLocalizedRepository.moveOverviewsToText(1)).isEqualTo(1);
+        assertThat(this.movieLocalizedRepository.moveOverviewsToText(10)).isEqualTo(3);
+        assertThat(this.movieLocalizedRepository.moveOverviewsToText(10)).isZero();
+
+        assertThat(this.testEntityManager.getEntityManager()
+                .createNativeQuery("select count(*) from localized_movie where overview is not null")
+                .getSingleResult()).isEqualTo(0L);
+        this.testEntityManager.clear();
+        assertThat(findEnglishOverview()).isEqualTo(expected);
+    }
+
+    @Test
+    void shouldMoveOverviewsOfGivenMoviesAndUnlinkTheirLargeObjects() {
+        this.testEntityManager.flush();
+        this.testEntityManager.getEntityManager().createNativeQuery("""
+                update localized_movie set overview = lo_from_bytea(0, convert_to(overview_text, 'UTF8')),
+                    overview_text = null
+                """).executeUpdate();
+        this.testEntityManager.clear();
+        String expected = this.dummyData.getWolf().getLocalizedMovies().get("en").getOverview();
+
+        assertThat(this.movieLocalizedRepository.moveOverviewsOfMoviesToText(
+                List.of(this.dummyData.getWolf().getId()))).isEqualTo(2);
+
+        // Only the large objects of the other movie are left
+        assertThat(this.testEntityManager.getEntityManager()
+                .createNativeQuery("select count(*) from localized_movie where overview is not null")
+                .getSingleResult()).isEqualTo(2L);
+        assertThat(this.testEntityManager.getEntityManager()
+                .createNativeQuery("select count(*) from pg_largeobject_metadata")
+                .getSingleResult()).isEqualTo(2L);
+        this.testEntityManager.clear();
+        assertThat(findEnglishOverview()).isEqualTo(expected);
+    }
+
+    private String findEnglishOverview() {
+        return this.movieLocalizedRepository.findAllByMovieUuid(this.dummyData.getWolf().getUuid()).get().stream()
+                .filter(localizedMovie -> localizedMovie.getLocalizedId().getLocale().equals("en"))
+                .findFirst().get().getOverview();
+    }
 }
\ No newline at end of file
@@ -17,7 +17,14 @@
 package de.dittwald.cinemap.repository.movie.repository;
 
 import de.dittwald.cinemap.repository.util.DummyData;
+import de.dittwald.cinemap.repository.exceptions.LocaleNotFoundException;
+import de.dittwald.cinemap.repository.movie.dto.MovieFlatProjection;
+import de.dittwald.cinemap.repository.movie.dto.MovieTitleKey;
 import de.dittwald.cinemap.repository.movie.entity.Movie;
+import de.dittwald.cinemap.repository.movie.index.MovieAttributes;
+import de.dittwald.cinemap.repository.movie.index.MovieGenre;
+import de.dittwald.cinemap.repository.movie.util.LocalizedMovieDtoMapper;
+import de.dittwald.cinemap.repository.util.CollectionVersion;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,7 +47,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @Testcontainers
 @DataJpaTest(includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
-        classes = {MovieRepository.class, MovieLocalizedRepository.class}))
+        classes = {MovieRepository.class, MovieLocalizedRepository.class, GenreRepository.class}))
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
 class MovieRepositoryTest {
 
@@ -52,11 +59,15 @@ class MovieRepositoryTest {
     @Autowired
     private MovieRepository movieRepository;
 
+    @Autowired
+    private GenreRepository genreRepository;
+
     private DummyData dummyData;
 
     @BeforeEach
     public void setUp() throws URISyntaxException, MalformedURLException {
         this.dummyData = new DummyData();
+        this.genreRepository.saveAll(this.dummyData.getGenres());
         this.movieRepository.save(this.dummyData.getWolf());
     }
 
@@ -143,4 +154,126 @@ class MovieRepositoryTest {
                 this.movieRepository.existsByUuid(UUID.fromString("132bf117-8bd7-4c95-8821-1f772e23dc21"))).isEqualTo(
                 false);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldFindPagesOrderedById() {
+        Movie nobody = this.movieRepository.save(this.dummyData.getNobody());
+        Movie wolf = this.movieRepository.findByUuid(this.dummyData.getWolf().getUuid()).get();
+
+        List<MovieFlatProjection> firstPage = this.movieRepository.findFlatPageOrderById("en", 0L, 1);
+        assertThat(firstPage.getFirst().getUuid()).isEqualTo(wolf.getUuid());
+
+        List<MovieFlatProjection> secondPage =
+                this.movieRepository.findFlatPageOrderById("en", firstPage.getLast().getId(), 1);
+        assertThat(secondPage.getFirst().getUuid()).isEqualTo(nobody.getUuid());
+
+        assertThat(this.movieRepository.findFlatPageOrderById("en", secondPage.getLast().getId(), 1)).isEmpty();
+    }
+
+    @Test
+    public void shouldFindPagesOrderedByLocalizedTitle() {
+        Movie nobody = this.movieRepository.save(this.dummyData.getNobody());
+        Movie wolf = this.movieRepository.findByUuid(this.dummyData.getWolf().getUuid()).get();
+
+        List<MovieFlatProjection> firstPage = this.movieRepository.findFirstFlatPageOrderByTitle("de", 1);
+        assertThat(firstPage.getFirst().getUuid()).isEqualTo(wolf.getUuid());
+        assertThat(firstPage.getFirst().getTitle()).isEqualTo("Der mit dem Wolf tanzt - Title");
+
+        List<MovieFlatProjection> secondPage =
+                this.movieRepository.findFlatPageOrderByTitle("de", "Der mit dem Wolf tanzt - Title", wolf.getId(),
+                        1);
+        assertThat(secondPage.getFirst().getUuid()).isEqualTo(nobody.getUuid());
+    }
+
+    @Test
+    public void shouldSeekTitleKeysOfLocale() {
+        Movie nobody = this.movieRepository.save(this.dummyData.getNobody());
+        Movie wolf = this.movieRepository.findByUuid(this.dummyData.getWolf().getUuid()).get();
+
+        List<MovieTitleKey> firstKeys = this.movieRepository.findFirstTitleKeys("de", 1);
+        assertThat(firstKeys.getFirst().getId()).isEqualTo(wolf.getId());
+        assertThat(firstKeys.getFirst().getTitle()).isEqualTo("Der mit dem Wolf tanzt - Title");
+
+        List<MovieTitleKey> nextKeys = this.movieRepository.findTitleKeys("de", firstKeys.getLast().getTitle(),
+                firstKeys.getLast().getId(), 10);
+        assertThat(nextKeys).extracting(MovieTitleKey::getId).containsExactly(nobody.getId());
+    }
+
+    @Test
+    public void shouldFindFlatMovieInRequestedLocale() throws LocaleNotFoundException {
+        MovieFlatProjection movie = this.movieRepository.findFlatByUuid(this.dummyData.getWolf().getUuid(), "de").get();
+        assertThat(LocalizedMovieDtoMapper.projectionToDto(movie)).isEqualTo(this.dummyData.getWolfFlatDeDto());
+    }
+
+    @Test
+    public void shouldFindFlatMovieInDefaultLocale() throws LocaleNotFoundException {
+        MovieFlatProjection movie = this.movieRepository.findFlatByUuid(this.dummyData.getWolf().getUuid(), "nl").get();
+        assertThat(LocalizedMovieDtoMapper.projectionToDto(movie)).isEqualTo(this.dummyData.getWolfFlatEnDto());
+    }
+
+    @Test
+    public void shouldFindFlatMovieInFallbackLocale() {
+        Movie movie = this.dummyData.getNobody();
+        movie.getLocalizedMovies().remove("en");
+        this.movieRepository.save(movie);
+
+        assertThat(this.movieRepository.findFlatByUuid(movie.getUuid(), "nl").get().getLocale()).isEqualTo("de");
+    }
+
+    @Test
+    public void shouldFindFlatMovieWithoutLocales() {
+        Movie movie = this.dummyData.getNobody();
+        movie.getLocalizedMovies().clear();
+        this.movieRepository.save(movie);
+
+        assertThat(this.movieRepository.findFlatByUuid(movie.getUuid(), "en").get().getLocale()).isNull();
+    }
+
+    @Test
+    public void shouldRaiseGenreCollectionVersionOnlyForChangedNames() {
+        CollectionVersion initial = this.genreRepository.findCollectionVersion();
+
+        this.genreRepository.upsertName(85, "en", "thriller");
+        assertThat(this.genreRepository.findCollectionVersion()).isEqualTo(initial);
+
+        this.genreRepository.upsertName(85, "en", "Thriller");
+        assertThat(this.genreRepository.findCollectionVersion().versionSum()).isEqualTo(initial.versionSum() + 1);
+
+        this.genreRepository.upsertName(10770, "en", "TV Movie");
+        assertThat(this.genreRepository.findCollectionVersion().count()).isEqualTo(initial.count() + 1);
+    }
+
+    @Test
+    public void shouldLinkAndDeleteSingleGenres() {
+        Long id = this.movieRepository.findIdByUuid(this.dummyData.getWolf().getUuid()).orElseThrow();
+
+        assertThat(this.genreRepository.upsertName(85, "en", "thriller")).isEqualTo(0);
+        assertThat(this.genreRepository.upsertName(85, "en", "Thriller")).isEqualTo(1);
+        assertThat(this.genreRepository.upsertName(18, "en", "Drama")).isEqualTo(1);
+        assertThat(this.movieRepository.linkGenre(id, 85)).isEqualTo(0);
+        assertThat(this.movieRepository.linkGenre(id, 18)).isEqualTo(1);
+        assertThat(this.movieRepository.deleteGenres(id, List.of(80, 99))).isEqualTo(1);
+        assertThat(this.movieRepository.deleteAllGenres(id)).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldFindMovieGenresOrderedById() {
+        Movie nobody = this.movieRepository.save(this.dummyData.getNobody());
+        Long wolfId = this.movieRepository.findIdByUuid(this.dummyData.getWolf().getUuid()).orElseThrow();
+
+        assertThat(this.movieRepository.findAllMovieGenres()).extracting(MovieGenre::movieId)
+                .containsExactly(wolfId, wolfId, nobody.getId(), nobody.getId());
+        assertThat(this.movieRepository.findMovieGenresByUuidIn(List.of(nobody.getUuid())))
+                .extracting(MovieGenre::genreId).containsExactlyInAnyOrder(80, 85);
+    }
+
+    @Test
+    public void shouldFindMovieAttributesPerLocale() {
+        this.movieRepository.save(this.dummyData.getNobody());
+
+        assertThat(this.movieRepository.findAllMovieAttributes()).extracting(MovieAttributes::locale)
+                .containsExactlyInAnyOrder("en", "de", "en", "de");
+        assertThat(this.movieRepository.findMovieAttributesByUuidIn(List.of(this.dummyData.getWolf().getUuid())))
+                .extracting(MovieAttributes::releaseYear).containsExactly(1970, 1970);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.dittwald.cinemap.repository.movie.dto.MovieBatchRecordDto;
+import de.dittwald.cinemap.repository.movie.dto.MovieBatchResultDto;
+import de.dittwald.cinemap.repository.movie.dto.MovieFlatDto;
+import de.dittwald.cinemap.repository.movie.dto.MovieLocalizationEntryDto;
+import de.dittwald.cinemap.repository.movie.util.MovieBatchStatus;
+import de.dittwald.cinemap.repository.util.DummyData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@WebMvcTest(MovieBatchService.class)
+@TestPropertySource(properties = "de.cinemap.repository.movies.batch-size=2")
+class MovieBatchServiceTest {
+
+    @Autowired
+    private MovieBatchService movieBatchService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private MovieService movieService;
+
+    private DummyData dummyData;
+
+    @BeforeEach
+    void setUp() throws URISyntaxException, MalformedURLException {
+        this.dummyData = new DummyData();
+    }
+
+    @Test
+    void shouldWriteValidRecordsInBatches() throws IOException {
+        MovieBatchRecordDto wolf = new MovieBatchRecordDto(this.dummyData.getWolfFlatEnDto(), null);
+        MovieBatchRecordDto nobody = new MovieBatchRecordDto(this.dummyData.getNobodyFlatEnDto(), null);
+        MovieBatchRecordDto other = new MovieBatchRecordDto(movie(UUID.randomUUID()), null);
+        when(this.movieService.saveBatch(any())).thenReturn(Set.of());
+
+        List<MovieBatchResultDto> results = ingest(line(wolf), line(nobody), "", line(other));
+
+        assertThat(results).extracting(MovieBatchResultDto::record).containsExactly(1L, 2L, 3L);
+        assertThat(results).extracting(MovieBatchResultDto::status).containsOnly(MovieBatchStatus.CREATED);
+        verify(this.movieService, times(1)).saveBatch(List.of(wolf, nobody));
+        verify(this.movieService, times(1)).saveBatch(List.of(other));
+    }
+
+    @Test
+    void shouldRejectInvalidRecordsInInputOrder() throws IOException {
+        MovieBatchRecordDto wolf = new MovieBatchRecordDto(this.dummyData.getWolfFlatEnDto(), null);
+        MovieFlatDto invalidLocale = this.dummyData.getNobodyFlatEnDto();
+        invalidLocale = new MovieFlatDto(invalidLocale.uuid(), invalidLocale.tmdbId(), invalidLocale.releaseYear(),
+                invalidLocale.genres(), invalidLocale.imdbId(), "xx", invalidLocale.title(), invalidLocale.overview(),
+                invalidLocale.tagline(), invalidLocale.posterUrl());
+        MovieBatchRecordDto duplicateLocale = new MovieBatchRecordDto(movie(UUID.randomUUID()),
+                List.of(new MovieLocalizationEntryDto("en", "Title", null, null, null)));
+        when(this.movieService.saveBatch(any())).thenReturn(Set.of());
+
+        List<MovieBatchResultDto> results =
+                ingest("{ no json", line(new MovieBatchRecordDto(invalidLocale, null)), line(wolf), line(wolf),
+                        line(duplicateLocale));
+
+        assertThat(results).extracting(MovieBatchResultDto::status)
+                .containsExactly(MovieBatchStatus.INVALID, MovieBatchStatus.INVALID, MovieBatchStatus.CREATED,
+                        MovieBatchStatus.CONFLICT, MovieBatchStatus.INVALID);
+        assertThat(results.get(1).message()).isEqualTo("movie.locale: Invalid ISO 638-1 language code given");
+        assertThat(results.get(4).message()).isEqualTo("Duplicate localization en");
+        verify(this.movieService, times(1)).saveBatch(List.of(wolf));
+    }
+
+    @Test
+    void shouldReportExistingAndFailedRecords() throws IOException {
+        MovieBatchRecordDto wolf = new MovieBatchRecordDto(this.dummyData.getWolfFlatEnDto(), null);
+        MovieBatchRecordDto nobody = new MovieBatchRecordDto(this.dummyData.getNobodyFlatEnDto(), null);
+        MovieBatchRecordDto other = new MovieBatchRecordDto(movie(UUID.randomUUID()), null);
+        when(this.movieService.saveBatch(List.of(wolf, nobody))).thenReturn(Set.of(wolf.movie().uuid()));
+        when(this.movieService.saveBatch(List.of(other))).thenThrow(new DataIntegrityViolationException("Duplicate"));
+
+        List<MovieBatchResultDto> results = ingest(line(wolf), line(nobody), line(other));
+
+        assertThat(results).extracting(MovieBatchResultDto::status)
+                .containsExactly(MovieBatchStatus.CONFLICT, MovieBatchStatus.CREATED, MovieBatchStatus.FAILED);
+        assertThat(results.getLast().uuid()).isEqualTo(other.movie().uuid());
+    }
+
+    private MovieFlatDto movie(UUID uuid) {
+        return new MovieFlatDto(uuid, 1, 2000, null, null, "en", "Title", null, null, null);
+    }
+
+    private String line(MovieBatchRecordDto record) throws JsonProcessingException {
+        return this.objectMapper.writeValueAsString(record);
+    }
+
+    private List<MovieBatchResultDto> ingest(String... lines) throws IOException {
+        List<MovieBatchResultDto> results = new ArrayList<>();
+        this.movieBatchService.ingest(
+                new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8)), results::add);
+        return results;
+    }
+}
@@ -17,11 +17,20 @@
 package de.dittwald.cinemap.repository.movie.service;
 
 import de.dittwald.cinemap.repository.exceptions.NotFoundException;
+import de.dittwald.cinemap.repository.exceptions.PreconditionFailedException;
 import de.dittwald.cinemap.repository.util.DummyData;
+import de.dittwald.cinemap.repository.util.MergePatch;
+import de.dittwald.cinemap.repository.util.Tagged;
+import de.dittwald.cinemap.repository.util.TargetedUpdateRepository;
+import de.dittwald.cinemap.repository.movie.dto.MovieLocalizationDto;
+import de.dittwald.cinemap.repository.movie.dto.MovieLocalizationEntryDto;
+import de.dittwald.cinemap.repository.movie.entity.LocalizedMovie;
+import de.dittwald.cinemap.repository.movie.entity.Movie;
 import de.dittwald.cinemap.repository.movie.repository.MovieLocalizedRepository;
 import de.dittwald.cinemap.repository.movie.repository.MovieRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -30,7 +39,10 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -49,6 +61,9 @@ class MovieLocalizationServiceTest {
     @MockBean
     private MovieLocalizedRepository movieLocalizedRepository;
 
+    @MockBean
+    private TargetedUpdateRepository targetedUpdateRepository;
+
     private DummyData dummyData;
 
     @BeforeEach
@@ -58,35 +73,72 @@ class MovieLocalizationServiceTest {
 
     @Test
     void shouldUpdateMovieAndLocalizationsNoOverride() throws NotFoundException {
-        when(this.movieRepository.findByUuid(this.dummyData.getWolfLocalizationDto().movieUuid())).thenReturn(
+        when(this.movieRepository.findByUuidIncrementingVersion(
+                this.dummyData.getWolfLocalizationDto().movieUuid())).thenReturn(
                 Optional.of(this.dummyData.getWolf()));
         when(this.movieRepository.save(this.dummyData.getWolf())).thenReturn(any());
 
         this.movieLocalizationService.update(this.dummyData.getWolfLocalizationDto(),
                 this.dummyData.getWolfLocalizationDto().movieUuid(), false);
 
-        verify(this.movieRepository, times(1)).findByUuid(this.dummyData.getWolfLocalizationDto().movieUuid());
+        verify(this.movieRepository, times(1)).findByUuidIncrementingVersion(
+                this.dummyData.getWolfLocalizationDto().movieUuid());
         verify(this.movieRepository, times(1)).save(this.dummyData.getWolf());
     }
     @Test
     void shouldUpdateMovieAndLocalizationsWithOverride() throws NotFoundException {
-        when(this.movieRepository.findByUuid(this.dummyData.getWolfLocalizationDto().movieUuid())).thenReturn(
+        when(this.movieRepository.findByUuidIncrementingVersion(
+                this.dummyData.getWolfLocalizationDto().movieUuid())).thenReturn(
                 Optional.of(this.dummyData.getWolf()));
         when(this.movieRepository.save(this.dummyData.getWolf())).thenReturn(this.dummyData.getWolf());
-        when(this.movieRepository.save(this.dummyData.getWolf())).thenReturn(this.dummyData.getWolf());
 
         this.movieLocalizationService.update(this.dummyData.getWolfLocalizationDto(),
-                this.dummyData.getWolfLocalizationDto().movieUuid(), false);
+                this.dummyData.getWolfLocalizationDto().movieUuid(), true);
 
-        verify(this.movieRepository, times(1)).findByUuid(this.dummyData.getWolfLocalizationDto().movieUuid());
-        verify(this.movieRepository, times(1)).save(this.dummyData.getWolf());
+        verify(this.movieRepository, times(1)).findByUuidIncrementingVersion(
+                this.dummyData.getWolfLocalizationDto().movieUuid());
+        verify(this.movieLocalizedRepository, times(1)).unlinkOverviewsOfOtherLocales(null, "en,de");
+        verify(this.movieLocalizedRepository, times(1)).deleteOtherLocales(null, "en,de");
+        verify(this.movieLocalizedRepository, never()).deleteAll(any());
         verify(this.movieRepository, times(1)).save(this.dummyData.getWolf());
+    }
+
+    @Test
+    void shouldInsertNewAndUpdateChangedLocalizationsInPlace() throws NotFoundException {
+        when(this.movieRepository.findByUuidIncrementingVersion(this.dummyData.getWolf().getUuid())).thenReturn(
+                Optional.of(this.dummyData.getWolf()));
+        LocalizedMovie localizedMovieDe = this.dummyData.getWolf().getLocalizedMovies().get("de");
+        MovieLocalizationEntryDto de = this.dummyData.getWolfLocalizationDto().localizations().get(1);
+        MovieLocalizationDto movieLocalizationDto = new MovieLocalizationDto(this.dummyData.getWolf().getUuid(),
+                List.of(new MovieLocalizationEntryDto(de.locale(), "Der mit dem Wolf tanzt - Neuer Titel",
+                                de.overview(), de.tagline(), de.posterUrl()),
+                        new MovieLocalizationEntryDto("fr", "Danse avec les loups", null, null, null)));
+
+        this.movieLocalizationService.update(movieLocalizationDto, this.dummyData.getWolf().getUuid(), true);
+
+        verify(this.movieLocalizedRepository, times(1)).deleteOtherLocales(null, "de,fr");
+        assertThat(this.dummyData.getWolf().getLocalizedMovies().get("de")).isSameAs(localizedMovieDe);
+        assertThat(localizedMovieDe.getTitle()).isEqualTo("Der mit dem Wolf tanzt - Neuer Titel");
+        assertThat(this.dummyData.getWolf().getLocalizedMovies().get("fr").getTitle()).isEqualTo(
+                "Danse avec les loups");
+    }
+
+    @Test
+    void shouldNotDeleteLocalizationsWithoutOverride() throws NotFoundException {
+        when(this.movieRepository.findByUuidIncrementingVersion(this.dummyData.getWolf().getUuid())).thenReturn(
+                Optional.of(this.dummyData.getWolf()));
+
+        this.movieLocalizationService.update(this.dummyData.getWolfLocalizationDto(),
+                this.dummyData.getWolf().getUuid(), false);
 
+        verify(this.movieLocalizedRepository, never()).unlinkOverviewsOfOtherLocales(any(), any());
+        verify(this.movieLocalizedRepository, never()).deleteOtherLocales(any(), any());
     }
 
     @Test
     void shouldFailUpdateMovieAndLocalizationsNoOverrideDueToNotFoundMovie() {
-        when(this.movieRepository.findByUuid(this.dummyData.getWolfLocalizationDto().movieUuid())).thenReturn(
+        when(this.movieRepository.findByUuidIncrementingVersion(
+                this.dummyData.getWolfLocalizationDto().movieUuid())).thenReturn(
                 Optional.empty());
 
         Exception exception = assertThrows(NotFoundException.class, () -> {
@@ -94,22 +146,27 @@ class MovieLocalizationServiceTest {
                     this.dummyData.getWolfLocalizationDto().movieUuid(), false);
         });
         assertThat(exception.getMessage()).isEqualTo("Movie not found");
-        verify(this.movieRepository, times(1)).findByUuid(this.dummyData.getWolfLocalizationDto().movieUuid());
+        verify(this.movieRepository, times(1)).findByUuidIncrementingVersion(
+                this.dummyData.getWolfLocalizationDto().movieUuid());
     }
 
     @Test
     void shouldFindAllLocalizationsForMovieUuid() throws NotFoundException {
+        when(this.movieRepository.findVersionByUuid(this.dummyData.getWolf().getUuid())).thenReturn(Optional.of(3L));
         when(this.movieLocalizedRepository.findAllByMovieUuid(this.dummyData.getWolf().getUuid())).thenReturn(
                 Optional.of(List.of(this.dummyData.getWolfLocalizedMovieEn(),
                         this.dummyData.getWolfLocalizedMovieDe())));
-        assertThat(this.movieLocalizationService.getMovieLocalizations(this.dummyData.getWolf().getUuid())).isEqualTo(
-                this.dummyData.getWolfLocalizationDto());
+        Tagged<MovieLocalizationDto> localizations =
+                this.movieLocalizationService.getMovieLocalizations(this.dummyData.getWolf().getUuid());
+        assertThat(localizations.body()).isEqualTo(this.dummyData.getWolfLocalizationDto());
+        assertThat(localizations.entityTag()).isEqualTo("\"3\"");
 
         verify(this.movieLocalizedRepository, times(1)).findAllByMovieUuid(this.dummyData.getWolf().getUuid());
     }
 
     @Test
     void shouldFailFindAllLocalizationsForMovieUuidDueToNotFoundLocalizations() throws NotFoundException {
+        when(this.movieRepository.findVersionByUuid(this.dummyData.getWolf().getUuid())).thenReturn(Optional.of(3L));
         when(this.movieLocalizedRepository.findAllByMovieUuid(this.dummyData.getWolf().getUuid())).thenReturn(
                 Optional.empty());
 
@@ -119,4 +176,67 @@ class MovieLocalizationServiceTest {
         assertThat(exception.getMessage()).isEqualTo("No localized movies found");
         verify(this.movieLocalizedRepository, times(1)).findAllByMovieUuid(this.dummyData.getWolf().getUuid());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldPatchMovieLocalization() throws NotFoundException, PreconditionFailedException {
+        UUID uuid = this.dummyData.getWolf().getUuid();
+        when(this.movieRepository.findIdByUuid(uuid)).thenReturn(Optional.of(7L));
+        when(this.targetedUpdateRepository.updateVersioned(Movie.class, 7L, 4L, Map.of())).thenReturn(1);
+        when(this.targetedUpdateRepository.updateLocalized(LocalizedMovie.class, 7L, "de",
+                Map.of("title", "Der mit dem Wolf tanzt"))).thenReturn(1);
+        when(this.movieRepository.findVersionByUuid(uuid)).thenReturn(Optional.of(5L));
+
+        this.movieLocalizationService.patch(uuid, "de", new MergePatch<>(
+                new MovieLocalizationEntryDto(null, "Der mit dem Wolf tanzt", null, null, null), Set.of("title")), 4L);
+
+        verify(this.targetedUpdateRepository, times(1)).updateLocalized(LocalizedMovie.class, 7L, "de",
+                Map.of("title", "Der mit dem Wolf tanzt"));
+        verify(this.movieRepository, never()).findByUuidIncrementingVersion(any());
+    }
+
+    @Test
+    void shouldUnlinkLargeObjectsBeforePatchingOverview() throws NotFoundException, PreconditionFailedException {
+        UUID uuid = this.dummyData.getWolf().getUuid();
+        when(this.movieRepository.findIdByUuid(uuid)).thenReturn(Optional.of(7L));
+        when(this.targetedUpdateRepository.updateVersioned(Movie.class, 7L, null, Map.of())).thenReturn(1);
+        when(this.targetedUpdateRepository.updateLocalized(LocalizedMovie.class, 7L, "de",
+                Map.of("overview", "Patched"))).thenReturn(1);
+        when(this.movieRepository.findVersionByUuid(uuid)).thenReturn(Optional.of(5L));
+
+        this.movieLocalizationService.patch(uuid, "de", new MergePatch<>(
+                new MovieLocalizationEntryDto(null, null, "Patched", null, null), Set.of("overview")), null);
+
+        InOrder inOrder = inOrder(this.movieLocalizedRepository, this.targetedUpdateRepository);
+        inOrder.verify(this.movieLocalizedRepository, times(1)).moveOverviewsOfMoviesToText(List.of(7L));
+        inOrder.verify(this.targetedUpdateRepository, times(1)).updateLocalized(LocalizedMovie.class, 7L, "de",
+                Map.of("overview", "Patched"));
+    }
+
+    @Test
+    void shouldFailPatchMovieLocalizationDueToLocalizationDoesNotExist() {
+        UUID uuid = this.dummyData.getWolf().getUuid();
+        when(this.movieRepository.findIdByUuid(uuid)).thenReturn(Optional.of(7L));
+        when(this.targetedUpdateRepository.updateVersioned(Movie.class, 7L, null, Map.of())).thenReturn(1);
+        when(this.targetedUpdateRepository.updateLocalized(any(), any(), any(), any())).thenReturn(0);
+
+        Exception exception = assertThrows(NotFoundException.class,
+                () -> this.movieLocalizationService.patch(uuid, "fr", new MergePatch<>(
+                        new MovieLocalizationEntryDto(null, "Danse avec les loups", null, null, null),
+                        Set.of("title")), null));
+        assertThat(exception.getMessage()).isEqualTo("Movie localization not found");
+    }
+
+    @Test
+    void shouldFailPatchMovieLocalizationDueToMovieDeletedInTheMeantime() {
+        UUID uuid = this.dummyData.getWolf().getUuid();
+        when(this.movieRepository.findIdByUuid(uuid)).thenReturn(Optional.of(7L));
+        when(this.targetedUpdateRepository.updateVersioned(Movie.class, 7L, null, Map.of())).thenReturn(0);
+
+        Exception exception = assertThrows(NotFoundException.class,
+                () -> this.movieLocalizationService.patch(uuid, "fr", new MergePatch<>(
+                        new MovieLocalizationEntryDto(null, "Danse avec les loups", null, null, null),
+                        Set.of("title")), null));
+        assertThat(exception.getMessage()).isEqualTo("Movie not found");
+        verify(this.targetedUpdateRepository, never()).updateLocalized(any(), any(), any(), any());
+    }
+}
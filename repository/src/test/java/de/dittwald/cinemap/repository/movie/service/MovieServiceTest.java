@@ -17,23 +17,51 @@
 package de.dittwald.cinemap.repository.movie.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import de.dittwald.cinemap.repository.cache.CollectionVersions;
+import de.dittwald.cinemap.repository.cache.WrittenVersions;
 import de.dittwald.cinemap.repository.exceptions.LocaleNotFoundException;
 import de.dittwald.cinemap.repository.exceptions.NotFoundException;
+import de.dittwald.cinemap.repository.exceptions.PreconditionFailedException;
 import de.dittwald.cinemap.repository.exceptions.TmdbReadException;
 import de.dittwald.cinemap.repository.exceptions.UuidInUseException;
+import de.dittwald.cinemap.repository.movie.cache.MovieDtoCache;
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
+import de.dittwald.cinemap.repository.scene.repository.SceneLocalizedRepository;
 import de.dittwald.cinemap.repository.scene.repository.SceneRepository;
 import de.dittwald.cinemap.repository.tmdb.TmdbClient;
 import de.dittwald.cinemap.repository.util.DummyData;
+import de.dittwald.cinemap.repository.util.MergePatch;
+import de.dittwald.cinemap.repository.util.TargetedUpdateRepository;
+import de.dittwald.cinemap.repository.movie.dto.MovieBatchRecordDto;
+import de.dittwald.cinemap.repository.movie.dto.MovieFacetsDto;
 import de.dittwald.cinemap.repository.movie.dto.MovieFlatDto;
+import de.dittwald.cinemap.repository.movie.dto.MoviePage;
+import de.dittwald.cinemap.repository.movie.dto.MovieTitleKey;
+import de.dittwald.cinemap.repository.movie.entity.Genre;
 import de.dittwald.cinemap.repository.movie.entity.Movie;
+import de.dittwald.cinemap.repository.movie.event.MovieChangedEvent;
+import de.dittwald.cinemap.repository.movie.index.MovieFacetIndex;
+import de.dittwald.cinemap.repository.movie.index.MovieGenreIndex;
+import de.dittwald.cinemap.repository.movie.repository.GenreRepository;
+import de.dittwald.cinemap.repository.movie.repository.MovieLocalizedRepository;
 import de.dittwald.cinemap.repository.movie.repository.MovieRepository;
+import de.dittwald.cinemap.repository.movie.util.GenreMatch;
 import de.dittwald.cinemap.repository.movie.util.LocalizedMovieDtoMapper;
+import de.dittwald.cinemap.repository.movie.util.MovieCursor;
+import de.dittwald.cinemap.repository.movie.util.MovieSort;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
@@ -44,8 +72,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
-@WebMvcTest({MovieService.class})
+@WebMvcTest({MovieService.class, MovieDtoCache.class})
 @AutoConfigureMockMvc
+@RecordApplicationEvents
 public class MovieServiceTest {
 
     @Autowired
@@ -54,35 +83,205 @@ public class MovieServiceTest {
     @MockBean
     private MovieRepository movieRepository;
 
+    @MockBean
+    private MovieLocalizedRepository movieLocalizedRepository;
+
     @MockBean
     private SceneRepository sceneRepository;
 
+    @MockBean
+    private SceneLocalizedRepository sceneLocalizedRepository;
+
     @MockBean
     private TmdbClient tmdbClient;
 
+    @MockBean
+    private EntityManager entityManager;
+
+    @MockBean
+    private TargetedUpdateRepository targetedUpdateRepository;
+
+    @MockBean
+    private GenreRepository genreRepository;
+
+    @MockBean
+    private MovieGenreIndex movieGenreIndex;
+
+    @MockBean
+    private MovieFacetIndex movieFacetIndex;
+
+    @MockBean
+    private CollectionVersions collectionVersions;
+
+    @MockBean
+    private WrittenVersions writtenVersions;
+
+    @Autowired
+    private MovieDtoCache movieDtoCache;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
     private DummyData dummyData;
 
     @BeforeEach
     void setUp() throws URISyntaxException, MalformedURLException {
         this.dummyData = new DummyData();
+        this.movieDtoCache.invalidateAll();
     }
 
     @Test
     void shouldFindTwoMovies() throws LocaleNotFoundException {
-        when(this.movieRepository.findAll()).thenReturn(List.of(this.dummyData.getNobody(), this.dummyData.getWolf()));
-        List<MovieFlatDto> movieFlatDtos = this.movieService.findAll("en");
-        assertThat(movieFlatDtos.size()).isEqualTo(2);
-        verify(this.movieRepository, times(1)).findAll();
+        when(this.movieRepository.findFlatPageOrderById("en", 0L, 11)).thenReturn(
+                List.of(this.dummyData.getFlatProjection(this.dummyData.getNobody(), 1L, "en"),
+                        this.dummyData.getFlatProjection(this.dummyData.getWolf(), 2L, "en")));
+        MoviePage moviePage = this.movieService.findAll("en", MovieSort.ID, null, 10, Set.of(),
+                GenreMatch.ALL);
+        assertThat(moviePage.movies().size()).isEqualTo(2);
+        assertThat(moviePage.nextCursor()).isNull();
+        verify(this.movieRepository, times(1)).findFlatPageOrderById("en", 0L, 11);
     }
 
     @Test
     void shouldFindTwoMoviesWhereFirstTitleIsNobodyEn() throws LocaleNotFoundException {
-        when(this.movieRepository.findAll()).thenReturn(List.of(this.dummyData.getNobody(), this.dummyData.getWolf()));
-        List<MovieFlatDto> movieFlatDtos = this.movieService.findAll("en");
+        when(this.movieRepository.findFlatPageOrderById("en", 0L, 11)).thenReturn(
+                List.of(this.dummyData.getFlatProjection(this.dummyData.getNobody(), 1L, "en"),
+                        this.dummyData.getFlatProjection(this.dummyData.getWolf(), 2L, "en")));
+        List<MovieFlatDto> movieFlatDtos = this.movieService.findAll("en", MovieSort.ID, null, 10, Set.of(),
+                GenreMatch.ALL).movies();
         assertThat(movieFlatDtos.getFirst().title()).isEqualTo("My Name is Nobody - Title");
         assertThat(movieFlatDtos.getLast().title()).isEqualTo("Dances with Wolves - Title");
+        assertThat(movieFlatDtos.getLast()).isEqualTo(this.dummyData.getWolfFlatEnDto());
+
+        verify(this.movieRepository, times(1)).findFlatPageOrderById("en", 0L, 11);
+    }
+
+    @Test
+    void shouldFindFirstPageAndReturnCursorOfLastMovie() throws LocaleNotFoundException {
+        when(this.movieRepository.findFlatPageOrderById("en", 0L, 2)).thenReturn(
+                List.of(this.dummyData.getFlatProjection(this.dummyData.getNobody(), 1L, "en"),
+                        this.dummyData.getFlatProjection(this.dummyData.getWolf(), 2L, "en")));
+
+        MoviePage moviePage = this.movieService.findAll("en", MovieSort.ID, null, 1, Set.of(),
+                GenreMatch.ALL);
+
+        assertThat(moviePage.movies().size()).isEqualTo(1);
+        assertThat(MovieCursor.decode(moviePage.nextCursor())).isEqualTo(new MovieCursor(MovieSort.ID, 1L, null));
+    }
+
+    @Test
+    void shouldFindNextPageOrderedByTitle() throws LocaleNotFoundException {
+        String after = new MovieCursor(MovieSort.TITLE, 1L, "Der mit dem Wolf tanzt - Title").encode();
+        when(this.movieRepository.findFlatPageOrderByTitle("de", "Der mit dem Wolf tanzt - Title", 1L,
+                11)).thenReturn(List.of(this.dummyData.getFlatProjection(this.dummyData.getNobody(), 2L, "de")));
+
+        MoviePage moviePage = this.movieService.findAll("de", MovieSort.TITLE, after, 10, Set.of(),
+                GenreMatch.ALL);
+
+        assertThat(moviePage.movies().getFirst().title()).isEqualTo("Mein Name ist Nobody - Title");
+        assertThat(moviePage.nextCursor()).isNull();
+        verify(this.movieRepository, times(1)).findFlatPageOrderByTitle("de", "Der mit dem Wolf tanzt - Title", 1L,
+                11);
+    }
+
+    @Test
+    void shouldFailFindAllDueToCursorOfOtherSortOrder() {
+        String after = new MovieCursor(MovieSort.ID, 1L, null).encode();
+        assertThrows(IllegalArgumentException.class,
+                () -> this.movieService.findAll("en", MovieSort.TITLE, after, 10, Set.of(), GenreMatch.ALL));
+    }
+
+    @Test
+    void shouldFindPageOfGenreOrderedByIdFromIndex() throws LocaleNotFoundException {
+        when(this.movieGenreIndex.filter(Set.of(18), GenreMatch.ALL)).thenReturn(RoaringBitmap.bitmapOf(2, 5, 9));
+        when(this.movieRepository.findFlatByIdIn("en", List.of(5L, 9L))).thenReturn(
+                List.of(this.dummyData.getFlatProjection(this.dummyData.getWolf(), 5L, "en"),
+                        this.dummyData.getFlatProjection(this.dummyData.getNobody(), 9L, "en")));
+
+        String after = new MovieCursor(MovieSort.ID, 2L, null).encode();
+        MoviePage moviePage = this.movieService.findAll("en", MovieSort.ID, after, 1, Set.of(18), GenreMatch.ALL);
+
+        assertThat(moviePage.movies().size()).isEqualTo(1);
+        assertThat(MovieCursor.decode(moviePage.nextCursor())).isEqualTo(new MovieCursor(MovieSort.ID, 5L, null));
+        verify(this.movieRepository, never()).findFlatPageOrderById(any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void shouldFindPageOfGenresOrderedByTitle() throws LocaleNotFoundException {
+        when(this.movieGenreIndex.filter(Set.of(18, 37), GenreMatch.ANY)).thenReturn(RoaringBitmap.bitmapOf(2, 5));
+        when(this.movieRepository.findFirstTitleKeys("en", 100)).thenReturn(
+                List.of(titleKey(9L, "A Fistful of Dollars"), titleKey(5L, "Dances with Wolves - Title")));
+        when(this.movieRepository.findFlatByIdIn("en", List.of(5L))).thenReturn(
+                List.of(this.dummyData.getFlatProjection(this.dummyData.getWolf(), 5L, "en")));
+
+        MoviePage moviePage = this.movieService.findAll("en", MovieSort.TITLE, null, 10, Set.of(18, 37),
+                GenreMatch.ANY);
+
+        assertThat(moviePage.movies()).isEqualTo(List.of(this.dummyData.getWolfFlatEnDto()));
+        assertThat(moviePage.nextCursor()).isNull();
+        verify(this.movieRepository, never()).findTitleKeys(any(), any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void shouldSeekFurtherTitlesUntilPageOfGenresIsFull() throws LocaleNotFoundException {
+        when(this.movieGenreIndex.filter(Set.of(18), GenreMatch.ALL)).thenReturn(RoaringBitmap.bitmapOf(2, 5));
+        List<MovieTitleKey> otherGenres = new ArrayList<>();
+        for (long id = 1000; id < 1100; id++) {
+            otherGenres.add(titleKey(id, "A%d".formatted(id)));
+        }
+        when(this.movieRepository.findTitleKeys("en", "A", 0L, 100)).thenReturn(otherGenres);
+        when(this.movieRepository.findTitleKeys("en", "A1099", 1099L, 200)).thenReturn(
+                List.of(titleKey(5L, "Dances with Wolves - Title"), titleKey(2L, "Dead Man - Title")));
+        when(this.movieRepository.findFlatByIdIn("en", List.of(5L, 2L))).thenReturn(
+                List.of(this.dummyData.getFlatProjection(this.dummyData.getNobody(), 2L, "en"),
+                        this.dummyData.getFlatProjection(this.dummyData.getWolf(), 5L, "en")));
+
+        String after = new MovieCursor(MovieSort.TITLE, 0L, "A").encode();
+        MoviePage moviePage = this.movieService.findAll("en", MovieSort.TITLE, after, 1, Set.of(18), GenreMatch.ALL);
+
+        assertThat(moviePage.movies()).isEqualTo(List.of(this.dummyData.getWolfFlatEnDto()));
+        assertThat(MovieCursor.decode(moviePage.nextCursor())).isEqualTo(
+                new MovieCursor(MovieSort.TITLE, 5L, "Dances with Wolves - Title"));
+    }
+
+    @Test
+    void shouldFindNoMoviesOfGenreWithoutMovies() throws LocaleNotFoundException {
+        when(this.movieGenreIndex.filter(Set.of(99), GenreMatch.ALL)).thenReturn(new RoaringBitmap());
+
+        MoviePage moviePage = this.movieService.findAll("en", MovieSort.ID, null, 10, Set.of(99), GenreMatch.ALL);
+
+        assertThat(moviePage.movies().size()).isEqualTo(0);
+        verify(this.movieRepository, never()).findFlatByIdIn(any(), any());
+    }
+
+    @Test
+    void shouldFailFindAllDueToMovieWithoutLocales() {
+        Movie movie = this.dummyData.getWolf();
+        movie.getLocalizedMovies().clear();
+        when(this.movieRepository.findFlatPageOrderById("en", 0L, 11)).thenReturn(
+                List.of(this.dummyData.getFlatProjection(movie, 1L, "en")));
+
+        Exception exception = assertThrows(LocaleNotFoundException.class,
+                () -> this.movieService.findAll("en", MovieSort.ID, null, 10, Set.of(),
+                GenreMatch.ALL));
+        assertThat(exception.getMessage()).isEqualTo("No locales found");
+    }
 
-        verify(this.movieRepository, times(1)).findAll();
+    @Test
+    void shouldFindFacetsInIndex() {
+        MovieFacetsDto facets = new MovieFacetsDto(1, Map.of(80, 1), Map.of(1970, 1), Map.of("en", 1));
+        when(this.movieFacetIndex.count(Set.of(80), GenreMatch.ANY, Set.of(1970), Set.of("en"))).thenReturn(facets);
+
+        assertThat(this.movieService.findFacets(Set.of(80), GenreMatch.ANY, Set.of(1970), Set.of("en"))).isEqualTo(
+                facets);
+    }
+
+    @Test
+    void shouldFailFindFacetsDueToInvalidDecade() {
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> this.movieService.findFacets(Set.of(), GenreMatch.ALL, Set.of(1975), Set.of()));
+        assertThat(exception.getMessage()).isEqualTo("Invalid decade 1975 given");
+        verify(this.movieFacetIndex, never()).count(any(), any(), any(), any());
     }
 
     @Test
@@ -101,96 +300,311 @@ public class MovieServiceTest {
         verify(this.movieRepository, times(1)).existsByUuid(this.dummyData.getNobody().getUuid());
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldSaveBatchSkippingExistingMovies() {
+        MovieFlatDto wolfEn = this.dummyData.getWolfFlatEnDto();
+        MovieBatchRecordDto wolf = new MovieBatchRecordDto(wolfEn,
+                List.of(this.dummyData.getWolfLocalizationDto().localizations().getLast()));
+        MovieBatchRecordDto nobody = new MovieBatchRecordDto(this.dummyData.getNobodyFlatEnDto(), null);
+        when(this.movieRepository.findExistingUuids(List.of(wolfEn.uuid(), nobody.movie().uuid()))).thenReturn(
+                Set.of(nobody.movie().uuid()));
+
+        Set<UUID> existingUuids = this.movieService.saveBatch(List.of(wolf, nobody));
+
+        assertThat(existingUuids).isEqualTo(Set.of(nobody.movie().uuid()));
+        ArgumentCaptor<List<Movie>> captor = ArgumentCaptor.forClass(List.class);
+        verify(this.movieRepository, times(1)).saveAll(captor.capture());
+        assertThat(captor.getValue().size()).isEqualTo(1);
+        assertThat(captor.getValue().getFirst().getUuid()).isEqualTo(wolfEn.uuid());
+        assertThat(captor.getValue().getFirst().getLocalizedMovies().keySet()).isEqualTo(Set.of("en", "de"));
+    }
+
     @Test
     void shouldUpdateMovie() throws NotFoundException, MalformedURLException, URISyntaxException {
         MovieFlatDto movieFlatDto = this.dummyData.getWolfFlatEnDto();
         Optional<Movie> movieOptional = Optional.of(this.dummyData.getWolf());
         Movie movie = this.dummyData.getWolf();
 
-        when(this.movieRepository.findByUuid(movieFlatDto.uuid())).thenReturn(movieOptional);
+        when(this.movieRepository.findByUuidIncrementingVersion(movieFlatDto.uuid())).thenReturn(movieOptional);
         when(this.movieRepository.save(LocalizedMovieDtoMapper.dtoToEntity(movieFlatDto))).thenReturn(movie);
 
         this.movieService.update(movieFlatDto, movieFlatDto.uuid());
 
-        verify(this.movieRepository, times(1)).findByUuid(movieFlatDto.uuid());
+        verify(this.movieRepository, times(1)).findByUuidIncrementingVersion(movieFlatDto.uuid());
         verify(this.movieRepository, times(1)).save(movie);
     }
 
     @Test
     void shouldFailUpdateMovieDueToMovieDoesNotExist() {
         UUID notExistingMovieUuid = UUID.randomUUID();
-        when(this.movieRepository.findByUuid(notExistingMovieUuid)).thenReturn(Optional.empty());
+        when(this.movieRepository.findByUuidIncrementingVersion(notExistingMovieUuid)).thenReturn(Optional.empty());
 
         Exception exception = assertThrows(NotFoundException.class,
                 () -> this.movieService.update(this.dummyData.getWolfFlatEnDto(), notExistingMovieUuid));
         assertThat(exception.getMessage()).isEqualTo("Movie not found");
-        verify(this.movieRepository, times(1)).findByUuid(notExistingMovieUuid);
+        verify(this.movieRepository, times(1)).findByUuidIncrementingVersion(notExistingMovieUuid);
     }
 
     @Test
-    void shouldDeleteMovieInclScenes() throws NotFoundException {
-        when(this.movieRepository.existsByUuid(this.dummyData.getWolf().getUuid())).thenReturn(true);
-        when(this.sceneRepository.findAllScenesOfMovieUuid(this.dummyData.getWolf().getUuid())).thenReturn(
-                Optional.of(List.of(this.dummyData.getWolfSceneOne(), this.dummyData.getWolfSceneTwo())));
-        this.movieService.deleteByUuid(this.dummyData.getWolf().getUuid());
+    void shouldUpdateGenresInPlace() throws NotFoundException {
+        Movie movie = this.dummyData.getWolf();
+        Map<Integer, Genre> genres = new HashMap<>(movie.getGenres());
+        movie.setGenres(genres);
+        when(this.movieRepository.findByUuidIncrementingVersion(movie.getUuid())).thenReturn(Optional.of(movie));
+        when(this.entityManager.getReference(eq(Genre.class), any())).thenAnswer(
+                invocation -> new Genre(invocation.getArgument(1), "en", null));
+
+        MovieFlatDto wolf = this.dummyData.getWolfFlatEnDto();
+        this.movieService.update(new MovieFlatDto(wolf.uuid(), wolf.tmdbId(), wolf.releaseYear(),
+                Map.of(85, "Thriller", 18, "Drama"), wolf.imdbId(), wolf.locale(), wolf.title(), wolf.overview(),
+                wolf.tagline(), wolf.posterUrl()), movie.getUuid());
+
+        assertThat(movie.getGenres()).isSameAs(genres);
+        assertThat(genres.keySet()).isEqualTo(Set.of(85, 18));
+        verify(this.genreRepository, times(1)).upsertName(85, "en", "Thriller");
+        verify(this.genreRepository, times(1)).upsertName(18, "en", "Drama");
+    }
+
+    @Test
+    void shouldPatchMovieColumnsAndGenres() throws NotFoundException, PreconditionFailedException {
+        UUID uuid = this.dummyData.getWolf().getUuid();
+        Map<Integer, String> genres = new HashMap<>();
+        genres.put(18, "Drama");
+        genres.put(80, null);
+        MergePatch<MovieFlatDto> patch = new MergePatch<>(
+                new MovieFlatDto(null, null, 1991, genres, null, null, null, null, null, null),
+                Set.of("releaseYear", "genres"));
+        when(this.movieRepository.findIdByUuid(uuid)).thenReturn(Optional.of(7L));
+        when(this.targetedUpdateRepository.updateVersioned(Movie.class, 7L, 3L, Map.of("releaseYear", 1991)))
+                .thenReturn(1);
+        when(this.movieRepository.findVersionByUuid(uuid)).thenReturn(Optional.of(4L));
+
+        this.movieService.patch(uuid, "en", patch, 3L);
+
+        verify(this.targetedUpdateRepository, times(1)).updateVersioned(Movie.class, 7L, 3L,
+                Map.of("releaseYear", 1991));
+        verify(this.genreRepository, times(1)).upsertName(18, "en", "Drama");
+        verify(this.movieRepository, times(1)).linkGenre(7L, 18);
+        verify(this.movieRepository, times(1)).deleteGenres(7L, List.of(80));
+        verify(this.movieRepository, never()).deleteAllGenres(any());
+        verify(this.movieRepository, never()).findByUuidIncrementingVersion(any());
+        assertThat(this.applicationEvents.stream(MovieChangedEvent.class).toList()).isEqualTo(
+                List.of(MovieChangedEvent.changed(uuid, 4L)));
+    }
+
+    @Test
+    void shouldPatchMovieRemovingAllGenres() throws NotFoundException, PreconditionFailedException {
+        UUID uuid = this.dummyData.getWolf().getUuid();
+        MergePatch<MovieFlatDto> patch = new MergePatch<>(
+                new MovieFlatDto(null, null, null, null, null, null, null, null, null, null), Set.of("genres"));
+        when(this.movieRepository.findIdByUuid(uuid)).thenReturn(Optional.of(7L));
+        when(this.targetedUpdateRepository.updateVersioned(Movie.class, 7L, null, Map.of())).thenReturn(1);
+        when(this.movieRepository.findVersionByUuid(uuid)).thenReturn(Optional.of(4L));
+
+        this.movieService.patch(uuid, "en", patch, null);
+
+        verify(this.movieRepository, times(1)).deleteAllGenres(7L);
+        verify(this.movieRepository, never()).linkGenre(any(), any());
+    }
+
+    @Test
+    void shouldFailPatchMovieDueToVersionMismatch() {
+        UUID uuid = this.dummyData.getWolf().getUuid();
+        MergePatch<MovieFlatDto> patch = new MergePatch<>(
+                new MovieFlatDto(null, null, 1991, Map.of(18, "Drama"), null, null, null, null, null, null),
+                Set.of("releaseYear", "genres"));
+        when(this.movieRepository.findIdByUuid(uuid)).thenReturn(Optional.of(7L));
+        when(this.targetedUpdateRepository.updateVersioned(any(), any(), any(), any())).thenReturn(0);
+
+        assertThrows(PreconditionFailedException.class, () -> this.movieService.patch(uuid, "en", patch, 2L));
+        verify(this.movieRepository, never()).linkGenre(any(), any());
+    }
 
-        verify(this.movieRepository, times(1)).existsByUuid(this.dummyData.getWolf().getUuid());
-        verify(this.sceneRepository, times(1)).findAllScenesOfMovieUuid(this.dummyData.getWolf().getUuid());
-        // Todo: Find a better way in testing this for real
-        verify(this.sceneRepository, times(1)).deleteAllById(any());
-        verify(this.movieRepository, times(1)).deleteByUuid(this.dummyData.getWolf().getUuid());
+    @Test
+    void shouldFailPatchMovieDueToMovieDeletedInTheMeantime() {
+        UUID uuid = this.dummyData.getWolf().getUuid();
+        MergePatch<MovieFlatDto> patch = new MergePatch<>(
+                new MovieFlatDto(null, null, 1991, null, null, null, null, null, null, null), Set.of("releaseYear"));
+        when(this.movieRepository.findIdByUuid(uuid)).thenReturn(Optional.of(7L));
+        when(this.targetedUpdateRepository.updateVersioned(any(), any(), any(), any())).thenReturn(0);
+
+        Exception exception =
+                assertThrows(NotFoundException.class, () -> this.movieService.patch(uuid, "en", patch, null));
+        assertThat(exception.getMessage()).isEqualTo("Movie not found");
+    }
+
+    @Test
+    void shouldFailPatchMovieDueToMovieDoesNotExist() {
+        UUID uuid = UUID.randomUUID();
+        when(this.movieRepository.findIdByUuid(uuid)).thenReturn(Optional.empty());
+
+        Exception exception = assertThrows(NotFoundException.class, () -> this.movieService.patch(uuid, "en",
+                new MergePatch<>(this.dummyData.getWolfFlatEnDto(), Set.of("releaseYear")), null));
+        assertThat(exception.getMessage()).isEqualTo("Movie not found");
+        verify(this.targetedUpdateRepository, never()).updateVersioned(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldDeleteMovieInclScenes() throws NotFoundException {
+        UUID uuid = this.dummyData.getWolf().getUuid();
+        when(this.sceneRepository.findAllLocationsOfMovieUuid(uuid)).thenReturn(
+                List.of(SceneLocation.of(this.dummyData.getWolfSceneOne()),
+                        SceneLocation.of(this.dummyData.getWolfSceneTwo())));
+        when(this.movieRepository.deleteCascadingByUuid(uuid)).thenReturn(1);
+
+        this.movieService.deleteByUuid(uuid);
+
+        verify(this.sceneRepository, times(1)).findAllLocationsOfMovieUuid(uuid);
+        verify(this.movieRepository, times(1)).deleteCascadingByUuid(uuid);
+        verify(this.movieRepository, never()).existsByUuid(any());
+        verify(this.sceneRepository, never()).deleteAllById(any());
     }
 
     @Test
     void shouldDeleteMovieWithOutScenes() throws NotFoundException {
-        when(this.movieRepository.existsByUuid(this.dummyData.getWolf().getUuid())).thenReturn(true);
-        when(this.sceneRepository.findAllScenesOfMovieUuid(this.dummyData.getWolf().getUuid())).thenReturn(
-                Optional.empty());
-        doNothing().when(this.movieRepository).deleteByUuid(this.dummyData.getWolf().getUuid());
+        UUID uuid = this.dummyData.getWolf().getUuid();
+        when(this.sceneRepository.findAllLocationsOfMovieUuid(uuid)).thenReturn(List.of());
+        when(this.movieRepository.deleteCascadingByUuid(uuid)).thenReturn(1);
 
-        this.movieService.deleteByUuid(this.dummyData.getWolf().getUuid());
+        this.movieService.deleteByUuid(uuid);
 
-        verify(this.movieRepository, times(1)).existsByUuid(this.dummyData.getWolf().getUuid());
-        verify(this.sceneRepository, times(1)).findAllScenesOfMovieUuid(this.dummyData.getWolf().getUuid());
-        verify(this.movieRepository, times(1)).deleteByUuid(this.dummyData.getWolf().getUuid());
+        verify(this.movieRepository, times(1)).deleteCascadingByUuid(uuid);
     }
 
     @Test
     void shouldFailDeleteMoveDueToMovieDoesNotExist() {
         UUID notExistingMovieUuid = UUID.randomUUID();
-        when(this.movieRepository.existsByUuid(notExistingMovieUuid)).thenReturn(false);
+        when(this.movieRepository.deleteCascadingByUuid(notExistingMovieUuid)).thenReturn(0);
         Exception exception =
                 assertThrows(NotFoundException.class, () -> this.movieService.deleteByUuid(notExistingMovieUuid));
         assertThat(exception.getMessage()).isEqualTo("Movie not found");
-        verify(this.movieRepository, times(1)).existsByUuid(notExistingMovieUuid);
+        verify(this.movieRepository, times(1)).deleteCascadingByUuid(notExistingMovieUuid);
     }
 
     @Test
     void shouldFindMovieByUuid() throws NotFoundException, LocaleNotFoundException {
-        Optional<Movie> persistedMovie = Optional.of(this.dummyData.getWolf());
-        when(this.movieRepository.findByUuid(persistedMovie.get().getUuid())).thenReturn(persistedMovie);
-        assertThat(this.movieService.findByUuid(persistedMovie.get().getUuid(), "en").uuid()).isEqualTo(
-                this.dummyData.getWolfFlatEnDto().uuid());
-        verify(this.movieRepository, times(1)).findByUuid(persistedMovie.get().getUuid());
+        Movie movie = this.dummyData.getWolf();
+        when(this.movieRepository.findFlatByUuid(movie.getUuid(), "en")).thenReturn(
+                Optional.of(this.dummyData.getFlatProjection(movie, 1L, "en")));
+        assertThat(this.movieService.findByUuid(movie.getUuid(), "en").body()).isEqualTo(
+                this.dummyData.getWolfFlatEnDto());
+        verify(this.movieRepository, times(1)).findFlatByUuid(movie.getUuid(), "en");
+    }
+
+    @Test
+    void shouldFindMovieByUuidFromCache() throws NotFoundException, LocaleNotFoundException {
+        Movie movie = this.dummyData.getWolf();
+        when(this.movieRepository.findFlatByUuid(movie.getUuid(), "en")).thenReturn(
+                Optional.of(this.dummyData.getFlatProjection(movie, 1L, "en")));
+
+        this.movieService.findByUuid(movie.getUuid(), "en");
+        assertThat(this.movieService.findByUuid(movie.getUuid(), "en").body()).isEqualTo(
+                this.dummyData.getWolfFlatEnDto());
+
+        verify(this.movieRepository, times(1)).findFlatByUuid(movie.getUuid(), "en");
+        assertThat(this.movieDtoCache.stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCacheMovieLoadedFromLaggingReplica() throws NotFoundException, LocaleNotFoundException {
+        Movie movie = this.dummyData.getWolf();
+        when(this.movieRepository.findFlatByUuid(movie.getUuid(), "en")).thenReturn(
+                Optional.of(this.dummyData.getFlatProjection(movie, 1L, "en")));
+        when(this.writtenVersions.isOutdated(movie.getUuid(), 0)).thenReturn(true);
+
+        this.movieService.findByUuid(movie.getUuid(), "en");
+        this.movieService.findByUuid(movie.getUuid(), "en");
+
+        verify(this.movieRepository, times(2)).findFlatByUuid(movie.getUuid(), "en");
+    }
+
+    @Test
+    void shouldReloadMovieByUuidAfterUpdate() throws NotFoundException, LocaleNotFoundException {
+        Movie movie = this.dummyData.getWolf();
+        when(this.movieRepository.findFlatByUuid(movie.getUuid(), "en")).thenReturn(
+                Optional.of(this.dummyData.getFlatProjection(movie, 1L, "en")));
+        when(this.movieRepository.findByUuidIncrementingVersion(movie.getUuid())).thenReturn(Optional.of(movie));
+
+        this.movieService.findByUuid(movie.getUuid(), "en");
+        this.movieService.update(this.dummyData.getWolfFlatEnDto(), movie.getUuid());
+        this.movieService.findByUuid(movie.getUuid(), "en");
+
+        verify(this.movieRepository, times(2)).findFlatByUuid(movie.getUuid(), "en");
+    }
+
+    @Test
+    void shouldReloadMovieByUuidAfterDeleteAll() throws NotFoundException, LocaleNotFoundException {
+        Movie movie = this.dummyData.getWolf();
+        when(this.movieRepository.findFlatByUuid(movie.getUuid(), "en")).thenReturn(
+                Optional.of(this.dummyData.getFlatProjection(movie, 1L, "en")));
+
+        this.movieService.findByUuid(movie.getUuid(), "en");
+        this.movieService.deleteAll();
+        this.movieService.findByUuid(movie.getUuid(), "en");
+
+        verify(this.movieRepository, times(2)).findFlatByUuid(movie.getUuid(), "en");
+    }
+
+    @Test
+    void shouldFindMovieEntityTagOfLoadedVersion() throws NotFoundException, LocaleNotFoundException {
+        Movie movie = this.dummyData.getWolf();
+        when(this.movieRepository.findFlatByUuid(movie.getUuid(), "de")).thenReturn(
+                Optional.of(this.dummyData.getFlatProjection(movie, 1L, "de")));
+        when(this.collectionVersions.genres()).thenReturn("19.10770.4.1");
+
+        assertThat(this.movieService.findByUuid(movie.getUuid(), "de").entityTag()).isEqualTo(
+                "\"0-19.10770.4.1-de\"");
+        verify(this.movieRepository, never()).findVersionByUuid(any());
+    }
+
+    @Test
+    void shouldFindNoMovieEntityTagWhileGenresChangedLately() throws NotFoundException, LocaleNotFoundException {
+        Movie movie = this.dummyData.getWolf();
+        when(this.movieRepository.findFlatByUuid(movie.getUuid(), "en")).thenReturn(
+                Optional.of(this.dummyData.getFlatProjection(movie, 1L, "en")));
+        when(this.collectionVersions.genres()).thenReturn(null);
+
+        assertThat(this.movieService.findByUuid(movie.getUuid(), "en").entityTag()).isNull();
+    }
+
+    @Test
+    void shouldFindAllMoviesEntityTag() {
+        when(this.collectionVersions.movies()).thenReturn("2.7.4.3-19.10770.4.1");
+        assertThat(this.movieService.findAllEntityTag("en")).isEqualTo("\"2.7.4.3-19.10770.4.1-en\"");
+        verifyNoInteractions(this.movieRepository);
+    }
+
+    @Test
+    void shouldFindNoMoviesEntityTagWhileMoviesChangedLately() {
+        when(this.collectionVersions.movies()).thenReturn(null);
+        assertThat(this.movieService.findAllEntityTag("en")).isNull();
     }
 
     @Test
     void shouldFailFindMovieByUuidDueToMovieDoesNotExist() {
         UUID notExistingMovieUuid = UUID.randomUUID();
-        when(this.movieRepository.findByUuid(notExistingMovieUuid)).thenReturn(Optional.empty());
+        when(this.movieRepository.findFlatByUuid(notExistingMovieUuid, "en")).thenReturn(Optional.empty());
         Exception exception =
                 assertThrows(NotFoundException.class, () -> this.movieService.findByUuid(notExistingMovieUuid, "en"));
         assertThat(exception.getMessage()).isEqualTo("Movie not found");
-        verify(this.movieRepository, times(1)).findByUuid(notExistingMovieUuid);
+        verify(this.movieRepository, times(1)).findFlatByUuid(notExistingMovieUuid, "en");
     }
 
     @Test
     void shouldDeleteAllMovies() {
-        doNothing().when(this.sceneRepository).deleteAll();
-        doNothing().when(this.movieRepository).deleteAll();
         this.movieService.deleteAll();
-        verify(this.movieRepository, times(1)).deleteAll();
-        verify(this.sceneRepository, times(1)).deleteAll();
+        InOrder inOrder = inOrder(this.sceneLocalizedRepository, this.sceneRepository, this.movieLocalizedRepository,
+                this.movieRepository);
+        inOrder.verify(this.sceneLocalizedRepository).unlinkAllDescriptions();
+        inOrder.verify(this.sceneLocalizedRepository).purgeAll();
+        inOrder.verify(this.sceneRepository).purgeAll();
+        inOrder.verify(this.movieLocalizedRepository).unlinkAllOverviews();
+        inOrder.verify(this.movieLocalizedRepository).purgeAll();
+        inOrder.verify(this.movieRepository).purgeAllGenres();
+        inOrder.verify(this.movieRepository).purgeAll();
+        verify(this.movieRepository, never()).deleteAll();
+        verify(this.sceneRepository, never()).deleteAll();
     }
 
     @Test
@@ -204,4 +618,54 @@ public class MovieServiceTest {
         verify(this.tmdbClient, times(1)).getMovieDetails(anyInt());
         verify(this.movieRepository, times(1)).save(any());
     }
+
+    @Test
+    void shouldApplyOnlyChangedTmdbLocalizations() throws MalformedURLException, URISyntaxException {
+        DummyData tmdb = new DummyData();
+        tmdb.getWolf().getLocalizedMovies().get("de").setTitle("Der mit dem Wolf tanzt - Neuer Titel");
+        when(this.movieRepository.findAllByTmdbIdIn(any())).thenReturn(
+                List.of(this.dummyData.getWolf(), this.dummyData.getNobody()));
+
+        assertEquals(1, this.movieService.applyTmdbChanges(List.of(tmdb.getWolf(), tmdb.getNobody())));
+
+        assertThat(this.dummyData.getWolf().getLocalizedMovies().get("de").getTitle()).isEqualTo(
+                "Der mit dem Wolf tanzt - Neuer Titel");
+        assertThat(this.dummyData.getWolf().getLocalizedMovies().get("en").getTitle()).isEqualTo(
+                "Dances with Wolves - Title");
+        verify(this.entityManager, times(1)).lock(any(), any());
+        verify(this.entityManager).lock(same(this.dummyData.getWolf()), eq(LockModeType.OPTIMISTIC_FORCE_INCREMENT));
+    }
+
+    @Test
+    void shouldApplyChangedTmdbColumnsAndNewLocales() throws MalformedURLException, URISyntaxException {
+        DummyData tmdb = new DummyData();
+        tmdb.getWolf().setReleaseYear(1990);
+        tmdb.getWolf().getLocalizedMovies().put("fr", tmdb.getWolf().getLocalizedMovies().get("en"));
+        when(this.movieRepository.findAllByTmdbIdIn(Set.of(tmdb.getWolf().getTmdbId()))).thenReturn(
+                List.of(this.dummyData.getWolf()));
+
+        assertEquals(1, this.movieService.applyTmdbChanges(List.of(tmdb.getWolf())));
+
+        assertThat(this.dummyData.getWolf().getReleaseYear()).isEqualTo(1990);
+        assertThat(this.dummyData.getWolf().getLocalizedMovies().get("fr").getMovie()).isSameAs(
+                this.dummyData.getWolf());
+        assertThat(this.dummyData.getWolf().getLocalizedMovies().get("de").getTitle()).isEqualTo(
+                "Der mit dem Wolf tanzt - Title");
+        // The changed movie columns increment the version already
+        verify(this.entityManager, never()).lock(any(), any());
+    }
+
+    private static MovieTitleKey titleKey(Long id, String title) {
+        return new MovieTitleKey() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+        };
+    }
 }
@@ -43,6 +43,21 @@ class MovieFlatDtoMapperTest {
         assertEquals(this.dummyData.getWolfFlatEnDto(), movieFlatDto);
     }
 
+    @Test
+    void shouldMapProjectionToDto() throws LocaleNotFoundException {
+        MovieFlatDto movieFlatDto = LocalizedMovieDtoMapper.projectionToDto(
+                this.dummyData.getFlatProjection(this.dummyData.getWolf(), 1L, "de"));
+        assertEquals(this.dummyData.getWolfFlatDeDto(), movieFlatDto);
+    }
+
+    @Test
+    void shouldFailMapProjectionToDtoDueToMissingLocales() {
+        Movie movie = this.dummyData.getWolf();
+        movie.getLocalizedMovies().clear();
+        assertThrows(LocaleNotFoundException.class,
+                () -> LocalizedMovieDtoMapper.projectionToDto(this.dummyData.getFlatProjection(movie, 1L, "de")));
+    }
+
     @Test
     void shouldMapDtoToEntity() {
         Movie movie = LocalizedMovieDtoMapper.dtoToEntity(this.dummyData.getWolfFlatEnDto());
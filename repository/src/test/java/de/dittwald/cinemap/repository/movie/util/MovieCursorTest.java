@@ -0,0 +1,52 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.movie.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MovieCursorTest {
+
+    @Test
+    void shouldEncodeAndDecodeIdCursor() {
+        MovieCursor cursor = new MovieCursor(MovieSort.ID, 42L, null);
+        assertThat(MovieCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void shouldEncodeAndDecodeTitleCursorWithSeparatorInTitle() {
+        MovieCursor cursor = new MovieCursor(MovieSort.TITLE, 42L, "Star Wars: Episode IV - A New Hope");
+        assertThat(MovieCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void shouldFailDecodeDueToInvalidCursor() {
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> MovieCursor.decode("invalid"));
+        assertThat(exception.getMessage()).isEqualTo("Invalid cursor given");
+    }
+
+    @Test
+    void shouldFailDecodeDueToMissingTitle() {
+        String cursor = Base64.getUrlEncoder().encodeToString("TITLE:42".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> MovieCursor.decode(cursor));
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.cache;
+
+import de.dittwald.cinemap.repository.cache.VersionedDto;
+import de.dittwald.cinemap.repository.cache.WrittenVersions;
+import de.dittwald.cinemap.repository.exceptions.LocaleNotFoundException;
+import de.dittwald.cinemap.repository.exceptions.NotFoundException;
+import de.dittwald.cinemap.repository.movie.event.GenresRenamedEvent;
+import de.dittwald.cinemap.repository.movie.event.MovieChangedEvent;
+import de.dittwald.cinemap.repository.scene.dto.SceneFlatDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneVersion;
+import de.dittwald.cinemap.repository.scene.event.SceneChangedEvent;
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
+import de.dittwald.cinemap.repository.util.DummyData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SceneDtoCacheTest {
+
+    private WrittenVersions writtenVersions;
+
+    private SceneDtoCache sceneDtoCache;
+
+    private DummyData dummyData;
+
+    private SceneFlatDto sceneDto;
+
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() throws MalformedURLException, URISyntaxException {
+        this.dummyData = new DummyData();
+        this.writtenVersions = new WrittenVersions();
+        this.sceneDtoCache = new SceneDtoCache(this.writtenVersions);
+        this.sceneDto = this.dummyData.getWolfSceneOneFlatEnDto();
+        this.loads = new AtomicInteger();
+    }
+
+    private VersionedDto<SceneFlatDto, SceneVersion> load() throws NotFoundException, LocaleNotFoundException {
+        return load(new SceneVersion(1, 1));
+    }
+
+    private VersionedDto<SceneFlatDto, SceneVersion> load(SceneVersion version)
+            throws NotFoundException, LocaleNotFoundException {
+        return this.sceneDtoCache.get(this.sceneDto.uuid(), "en", () -> {
+            this.loads.incrementAndGet();
+            return new VersionedDto<>(this.sceneDto, version);
+        });
+    }
+
+    @Test
+    void shouldLoadOncePerUuidAndLocale() throws NotFoundException, LocaleNotFoundException {
+        load();
+        load();
+        this.sceneDtoCache.get(this.sceneDto.uuid(), "de", () -> {
+            this.loads.incrementAndGet();
+            return new VersionedDto<>(this.sceneDto, new SceneVersion(1, 1));
+        });
+
+        assertThat(this.loads.get()).isEqualTo(2);
+        assertThat(this.sceneDtoCache.stats().hitCount()).isEqualTo(1);
+        assertThat(this.sceneDtoCache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotCacheUnknownLocales() throws NotFoundException, LocaleNotFoundException {
+        for (int i = 0; i < 2; i++) {
+            this.sceneDtoCache.get(this.sceneDto.uuid(), "xx-invalid", () -> {
+                this.loads.incrementAndGet();
+                return new VersionedDto<>(this.sceneDto, new SceneVersion(1, 1));
+            });
+        }
+
+        assertThat(this.loads.get()).isEqualTo(2);
+        assertThat(this.sceneDtoCache.size()).isEqualTo(0);
+    }
+
+    @Test
+    void shouldNotCacheFailedLoads() {
+        UUID uuid = UUID.randomUUID();
+        assertThrows(NotFoundException.class, () -> this.sceneDtoCache.get(uuid, "en", () -> {
+            throw new NotFoundException("Scene not found");
+        }));
+        assertThat(this.sceneDtoCache.size()).isEqualTo(0);
+    }
+
+    @Test
+    void shouldInvalidateSavedScene() throws NotFoundException, LocaleNotFoundException {
+        load();
+        this.sceneDtoCache.onSceneChanged(SceneChangedEvent.saved(SceneLocation.of(this.dummyData.getWolfSceneOne())));
+        load();
+
+        assertThat(this.loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldKeepOtherScenesOnSceneChange() throws NotFoundException, LocaleNotFoundException {
+        load();
+        this.sceneDtoCache.onSceneChanged(SceneChangedEvent.saved(SceneLocation.of(this.dummyData.getWolfSceneTwo())));
+        load();
+
+        assertThat(this.loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldInvalidateScenesOfChangedMovie() throws NotFoundException, LocaleNotFoundException {
+        load();
+        this.sceneDtoCache.onMovieChanged(MovieChangedEvent.changed(this.dummyData.getNobody().getUuid(), 1));
+        load();
+        this.sceneDtoCache.onMovieChanged(MovieChangedEvent.changed(this.dummyData.getWolf().getUuid(), 1));
+        load();
+
+        assertThat(this.loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldInvalidateScenesOfMoviesWithRenamedGenre() throws NotFoundException, LocaleNotFoundException {
+        load();
+        this.sceneDtoCache.onGenresRenamed(new GenresRenamedEvent(Set.of(18)));
+        load();
+        this.sceneDtoCache.onGenresRenamed(new GenresRenamedEvent(Set.of(18, 80)));
+        load();
+
+        assertThat(this.loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotKeepSceneLoadedWhileInvalidated() throws NotFoundException, LocaleNotFoundException {
+        this.sceneDtoCache.get(this.sceneDto.uuid(), "en", () -> {
+            this.loads.incrementAndGet();
+            this.sceneDtoCache.onSceneChanged(SceneChangedEvent.deletedAll());
+            return new VersionedDto<>(this.sceneDto, new SceneVersion(1, 1));
+        });
+        load();
+
+        assertThat(this.loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldHandOutButNotCacheSceneOlderThanWrittenOne() throws NotFoundException, LocaleNotFoundException {
+        this.writtenVersions.onSceneChanged(
+                SceneChangedEvent.changed(SceneLocation.of(this.dummyData.getWolfSceneOne()), 2));
+
+        assertThat(load().version()).isEqualTo(new SceneVersion(1, 1));
+        load();
+        assertThat(this.loads.get()).isEqualTo(2);
+        assertThat(this.sceneDtoCache.size()).isEqualTo(0);
+
+        load(new SceneVersion(2, 1));
+        load(new SceneVersion(2, 1));
+        assertThat(this.loads.get()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldNotCacheSceneOfMovieOlderThanWrittenOne() throws NotFoundException, LocaleNotFoundException {
+        this.writtenVersions.onMovieChanged(MovieChangedEvent.changed(this.dummyData.getWolf().getUuid(), 2));
+        load();
+        load();
+
+        assertThat(this.loads.get()).isEqualTo(2);
+        assertThat(this.sceneDtoCache.size()).isEqualTo(0);
+    }
+
+    @Test
+    void shouldNotCacheSceneOfMovieWithGenreRenamedLately() throws NotFoundException, LocaleNotFoundException {
+        this.writtenVersions.onGenresRenamed(new GenresRenamedEvent(Set.of(80)));
+        load();
+
+        assertThat(this.sceneDtoCache.size()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.cluster;
+
+import de.dittwald.cinemap.repository.scene.event.SceneChangedEvent;
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
+import de.dittwald.cinemap.repository.scene.index.SceneSpatialIndex;
+import de.dittwald.cinemap.repository.scene.util.BoundingBox;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@WebMvcTest(SceneClusterIndex.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class SceneClusterIndexTest {
+
+    private static final BoundingBox WORLD = new BoundingBox(-180, -90, 180, 90);
+
+    @Autowired
+    private SceneClusterIndex sceneClusterIndex;
+
+    @MockBean
+    private SceneSpatialIndex sceneSpatialIndex;
+
+    private List<SceneLocation> locations;
+
+    @BeforeEach
+    void setUp() {
+        // Ten scenes around the Brandenburg Gate and one in Sydney
+        this.locations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            this.locations.add(new SceneLocation((long) i, UUID.randomUUID(), 1L, 13.3777 + i * 0.0001, 52.5163));
+        }
+        this.locations.add(new SceneLocation(10L, UUID.randomUUID(), 2L, 151.2093, -33.8688));
+        when(this.sceneSpatialIndex.locations()).thenReturn(this.locations);
+    }
+
+    @Test
+    void shouldClusterScenesAtLowZoom() {
+        List<SceneCluster> clusters = this.sceneClusterIndex.getClusters(0, WORLD);
+        assertThat(clusters).hasSize(2);
+        assertThat(clusters).extracting(SceneCluster::count).containsExactlyInAnyOrder(10, 1);
+
+        SceneCluster berlin = clusters.stream().filter(cluster -> cluster.count() == 10).findFirst().get();
+        assertThat(berlin.lon()).isBetween(13.3777, 13.3787);
+        assertThat(berlin.expansionZoom()).isGreaterThan(0);
+        assertThat(berlin.sceneUuid()).isNull();
+
+        SceneCluster sydney = clusters.stream().filter(cluster -> cluster.count() == 1).findFirst().get();
+        assertThat(sydney.sceneUuid()).isEqualTo(this.locations.getLast().uuid());
+        assertThat(sydney.lat()).isEqualTo(-33.8688);
+    }
+
+    @Test
+    void shouldSplitClusterAtItsExpansionZoom() {
+        SceneCluster berlin = this.sceneClusterIndex.getClusters(0, WORLD)
+                .stream()
+                .filter(cluster -> cluster.count() == 10)
+                .findFirst()
+                .get();
+        List<SceneCluster> expanded =
+                this.sceneClusterIndex.getClusters(berlin.expansionZoom(), new BoundingBox(13, 52, 14, 53));
+        assertThat(expanded.size()).isGreaterThan(1);
+        assertThat(expanded.stream().mapToInt(SceneCluster::count).sum()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldRespondSingleScenesBeyondMaxZoom() {
+        List<SceneCluster> clusters = this.sceneClusterIndex.getClusters(22, new BoundingBox(13, 52, 14, 53));
+        assertThat(clusters).hasSize(10);
+        assertThat(clusters).allMatch(cluster -> cluster.count() == 1 && cluster.sceneUuid() != null);
+    }
+
+    @Test
+    void shouldOnlyRespondClustersInsideBoundingBox() {
+        assertThat(this.sceneClusterIndex.getClusters(3, new BoundingBox(140, -40, 160, -30))).extracting(
+                SceneCluster::count).containsExactly(1);
+        assertThat(this.sceneClusterIndex.getClusters(3, new BoundingBox(170, -40, -170, -30))).isEmpty();
+    }
+
+    @Test
+    void shouldRebuildInBackgroundAfterScenesChanged() throws InterruptedException {
+        assertThat(this.sceneClusterIndex.getClusters(0, WORLD)).hasSize(2);
+
+        this.locations.add(new SceneLocation(11L, UUID.randomUUID(), 3L, -74.006, 40.7128));
+        this.sceneClusterIndex.onSceneChanged(SceneChangedEvent.saved(this.locations.getLast()));
+        // Still answered from the previous pyramid until the rebuild is done
+        assertThat(this.sceneClusterIndex.getClusters(0, WORLD)).hasSize(2);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (this.sceneClusterIndex.getClusters(0, WORLD).size() != 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(this.sceneClusterIndex.getClusters(0, WORLD)).hasSize(3);
+        verify(this.sceneSpatialIndex, times(2)).locations();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.controller;
+
+import de.dittwald.cinemap.repository.scene.dto.SceneCreationDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneImportDto;
+import de.dittwald.cinemap.repository.scene.service.SceneImportService;
+import de.dittwald.cinemap.repository.scene.service.SceneService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest({SceneImportRestController.class, SceneImportService.class})
+@AutoConfigureMockMvc
+class SceneImportRestControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private SceneService sceneService;
+
+    @Test
+    void shouldImportFeatureCollection() throws Exception {
+        UUID sceneUuid = UUID.randomUUID();
+        UUID movieUuid = UUID.randomUUID();
+        when(this.sceneService.saveBatch(any())).thenReturn(Map.of());
+
+        this.mockMvc.perform(post("/api/v1/scenes:import").contentType(SceneImportRestController.GEO_JSON_VALUE)
+                        .content("""
+                                {"type": "FeatureCollection", "features": [
+                                  {"type": "Feature", "id": "%s",
+                                   "geometry": {"type": "Point", "coordinates": [13.35943, 52.51263]},
+                                   "properties": {"movieUuid": "%s", "locale": "en", "title": "Title"}},
+                                  {"type": "Feature", "geometry": {"type": "Point", "coordinates": [13.4, 52.5]},
+                                   "properties": {"movieUuid": "%s", "locale": "en"}}
+                                ]}
+                                """.formatted(sceneUuid, movieUuid, movieUuid)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.rejections[0].feature").value(2))
+                .andExpect(jsonPath("$.rejections[0].reason").value("uuid: must not be null"));
+
+        verify(this.sceneService, times(1)).saveBatch(List.of(new SceneImportDto(movieUuid,
+                new SceneCreationDto(sceneUuid, 13.35943, 52.51263, "en", "Title", null))));
+    }
+
+    @Test
+    void shouldFailImportDueToInvalidGeoJson() throws Exception {
+        this.mockMvc.perform(post("/api/v1/scenes:import").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\": \"FeatureCollection\", \"features\": [{"))
+                .andExpect(status().isBadRequest());
+    }
+}
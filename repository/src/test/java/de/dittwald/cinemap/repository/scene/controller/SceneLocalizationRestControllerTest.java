@@ -18,26 +18,33 @@ package de.dittwald.cinemap.repository.scene.controller;
 
 import de.dittwald.cinemap.repository.exceptions.NotFoundException;
 import de.dittwald.cinemap.repository.scene.service.SceneLocalizationService;
+import de.dittwald.cinemap.repository.scene.dto.SceneLocalizationEntryDto;
 import de.dittwald.cinemap.repository.util.DummyData;
+import de.dittwald.cinemap.repository.util.Tagged;
+import de.dittwald.cinemap.repository.util.MergePatch;
+import de.dittwald.cinemap.repository.util.MergePatchReader;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
+import java.util.Set;
 
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@WebMvcTest(SceneLocalizationRestController.class)
+@WebMvcTest({SceneLocalizationRestController.class, MergePatchReader.class})
 @AutoConfigureMockMvc
 class SceneLocalizationRestControllerTest {
 
@@ -58,7 +65,7 @@ class SceneLocalizationRestControllerTest {
     void shouldGetAllLocalizations() throws Exception {
         when(this.sceneLocalizationService.getSceneLocalizationDto(
                 this.dummyData.getWolfSceneOne().getUuid())).thenReturn(
-                this.dummyData.getWolfSceneOneLocalizationDto());
+                new Tagged<>(this.dummyData.getWolfSceneOneLocalizationDto(), null));
 
         this.mockMvc.perform(get("/api/v1/scenes/" + this.dummyData.getWolfSceneOne().getUuid() + "/localizations"))
                 .andExpect(status().isOk())
@@ -133,4 +140,21 @@ class SceneLocalizationRestControllerTest {
                 this.dummyData.getWolfSceneOneLocalizationDto().sceneUuid(), false);
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldPatchSceneLocalization() throws Exception {
+        this.mockMvc.perform(patch("/api/v1/scenes/" + this.dummyData.getWolfSceneOne().getUuid() + "/localizations/en")
+                .contentType("application/merge-patch+json")
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .content("{\"description\": \"Patched\"}")).andExpect(status().isNoContent());
+        verify(this.sceneLocalizationService, times(1)).patch(this.dummyData.getWolfSceneOne().getUuid(), "en",
+                new MergePatch<>(new SceneLocalizationEntryDto(null, null, "Patched"), Set.of("description")), 2L);
+    }
+
+    @Test
+    void shouldFailPatchSceneLocalizationDueToInvalidLocale() throws Exception {
+        this.mockMvc.perform(patch("/api/v1/scenes/" + this.dummyData.getWolfSceneOne().getUuid() + "/localizations/xx")
+                .contentType("application/merge-patch+json")
+                .content("{\"description\": \"Patched\"}")).andExpect(status().isBadRequest());
+        verify(this.sceneLocalizationService, never()).patch(any(), any(), any(), any());
+    }
+}
@@ -17,7 +17,12 @@
 package de.dittwald.cinemap.repository.scene.controller;
 
 import de.dittwald.cinemap.repository.exceptions.NotFoundException;
+import de.dittwald.cinemap.repository.scene.dto.SceneClusterDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneFlatDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneNearbyDto;
 import de.dittwald.cinemap.repository.scene.service.SceneService;
+import de.dittwald.cinemap.repository.scene.tile.SceneTileService;
+import de.dittwald.cinemap.repository.scene.util.BoundingBox;
 import de.dittwald.cinemap.repository.util.ConstantStrings;
 import de.dittwald.cinemap.repository.util.DummyData;
 import org.junit.jupiter.api.BeforeEach;
@@ -26,18 +31,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.function.ThrowingConsumer;
 
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.util.*;
 
-import static org.mockito.ArgumentMatchers.any;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 
 @WebMvcTest(SceneRestController.class)
@@ -50,6 +60,9 @@ public class SceneRestControllerTest {
     @MockBean
     private SceneService sceneService;
 
+    @MockBean
+    private SceneTileService sceneTileService;
+
     private DummyData dummyData;
 
     @BeforeEach
@@ -59,13 +72,137 @@ public class SceneRestControllerTest {
 
     @Test
     public void shouldFindAllMovieScenes() throws Exception {
-        when(this.sceneService.findAll("en")).thenReturn(List.of(this.dummyData.getWolfSceneOneFlatEnDto()));
-        this.mockMvc.perform(get("/api/v1/scenes?" + ConstantStrings.LOCALE_API_REQUEST_PARAM + "=" +
+        doAnswer(invocation -> {
+            invocation.<ThrowingConsumer<SceneFlatDto>>getArgument(1).accept(this.dummyData.getWolfSceneOneFlatEnDto());
+            return null;
+        }).when(this.sceneService).streamAll(eq(ConstantStrings.DEFAULT_LOCALE), any());
+
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/v1/scenes?" + ConstantStrings.LOCALE_API_REQUEST_PARAM + "=" +
                         ConstantStrings.DEFAULT_LOCALE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        this.mockMvc.perform(asyncDispatch(mvcResult))
                 .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$[0].description").value("Dances with Wolves - Scene One Description"))
                 .andExpect(jsonPath("$").isArray());
-        verify(this.sceneService, times(1)).findAll(ConstantStrings.DEFAULT_LOCALE);
+        verify(this.sceneService, times(1)).streamAll(eq(ConstantStrings.DEFAULT_LOCALE), any());
+    }
+
+    @Test
+    public void shouldStreamAllMovieScenesAsNdjson() throws Exception {
+        doAnswer(invocation -> {
+            ThrowingConsumer<SceneFlatDto> consumer = invocation.getArgument(1);
+            consumer.accept(this.dummyData.getWolfSceneOneFlatEnDto());
+            consumer.accept(this.dummyData.getWolfSceneOneFlatEnDto());
+            return null;
+        }).when(this.sceneService).streamAll(eq(ConstantStrings.DEFAULT_LOCALE), any());
+
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/v1/scenes").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = this.mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("{").contains(this.dummyData.getWolfSceneOne().getUuid().toString());
+        verify(this.sceneService, times(1)).streamAll(eq(ConstantStrings.DEFAULT_LOCALE), any());
+    }
+
+    @Test
+    public void shouldNotStreamMovieScenesDueToMatchingEntityTag() throws Exception {
+        when(this.sceneService.findAllEntityTag("en", "ndjson")).thenReturn("\"1.1.0-1.1.0-en-ndjson\"");
+
+        this.mockMvc.perform(get("/api/v1/scenes").accept(MediaType.APPLICATION_NDJSON)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"1.1.0-1.1.0-en-ndjson\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1.1.0-1.1.0-en-ndjson\""));
+        verify(this.sceneService, never()).streamAll(any(), any());
+    }
+
+    @Test
+    public void shouldFindMovieScenesWithinBoundingBox() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<ThrowingConsumer<SceneFlatDto>>getArgument(2).accept(this.dummyData.getWolfSceneOneFlatEnDto());
+            return null;
+        }).when(this.sceneService).streamWithin(eq(new BoundingBox(170, -10, -170, 10)), eq("en"), any());
+
+        MvcResult mvcResult = this.mockMvc.perform(get("/api/v1/scenes?bbox=170,-10,-170,10"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        this.mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].uuid").value(this.dummyData.getWolfSceneOne().getUuid().toString()));
+        verify(this.sceneService, times(1)).streamWithin(eq(new BoundingBox(170, -10, -170, 10)), eq("en"), any());
+        verify(this.sceneService, never()).streamAll(any(), any());
+    }
+
+    @Test
+    public void shouldFailFindMovieScenesDueToInvalidBoundingBox() throws Exception {
+        this.mockMvc.perform(get("/api/v1/scenes?bbox=0,10,1,5")).andExpect(status().isBadRequest());
+        verify(this.sceneService, never()).streamWithin(any(), any(), any());
+    }
+
+    @Test
+    public void shouldFindMovieScenesNearby() throws Exception {
+        when(this.sceneService.findNearby(52.5, 13.4, 5, Double.POSITIVE_INFINITY, "en")).thenReturn(
+                List.of(new SceneNearbyDto(this.dummyData.getWolfSceneOneFlatEnDto(), 3.2)));
+        this.mockMvc.perform(get("/api/v1/scenes/nearby?lat=52.5&lon=13.4&k=5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].scene.uuid").value(this.dummyData.getWolfSceneOne().getUuid().toString()))
+                .andExpect(jsonPath("$[0].distanceKm").value(3.2));
+        verify(this.sceneService, times(1)).findNearby(52.5, 13.4, 5, Double.POSITIVE_INFINITY, "en");
+    }
+
+    @Test
+    public void shouldFailFindMovieScenesNearbyDueToInvalidParameters() throws Exception {
+        this.mockMvc.perform(get("/api/v1/scenes/nearby?lat=91&lon=13.4")).andExpect(status().isBadRequest());
+        this.mockMvc.perform(get("/api/v1/scenes/nearby?lat=52.5&lon=13.4&k=0")).andExpect(status().isBadRequest());
+        this.mockMvc.perform(get("/api/v1/scenes/nearby?lat=52.5&lon=13.4&maxDistanceKm=-1"))
+                .andExpect(status().isBadRequest());
+        verify(this.sceneService, never()).findNearby(anyDouble(), anyDouble(), anyInt(), anyDouble(), any());
+    }
+
+    @Test
+    public void shouldFindSceneClusters() throws Exception {
+        when(this.sceneService.findClusters(3, new BoundingBox(-180, -90, 180, 90))).thenReturn(
+                List.of(new SceneClusterDto(13.4, 52.5, 12, 4, null)));
+        this.mockMvc.perform(get("/api/v1/scenes/clusters?z=3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].count").value(12))
+                .andExpect(jsonPath("$[0].expansionZoom").value(4));
+        verify(this.sceneService, times(1)).findClusters(3, new BoundingBox(-180, -90, 180, 90));
+    }
+
+    @Test
+    public void shouldFailFindSceneClustersDueToInvalidZoom() throws Exception {
+        this.mockMvc.perform(get("/api/v1/scenes/clusters?z=-1")).andExpect(status().isBadRequest());
+        verify(this.sceneService, never()).findClusters(anyInt(), any());
+    }
+
+    @Test
+    public void shouldFindSceneTile() throws Exception {
+        byte[] tile = {0x1a, 0x00};
+        when(this.sceneTileService.getTile(10, 549, 335, "de")).thenReturn(tile);
+        this.mockMvc.perform(get("/api/v1/scenes/tiles/10/549/335.mvt?" + ConstantStrings.LOCALE_API_REQUEST_PARAM +
+                        "=de"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SceneTileService.MVT_MEDIA_TYPE))
+                .andExpect(content().bytes(tile));
+        verify(this.sceneTileService, times(1)).getTile(10, 549, 335, "de");
+    }
+
+    @Test
+    public void shouldFailFindSceneTileDueToInvalidTile() throws Exception {
+        when(this.sceneTileService.getTile(1, 5, 0, "en")).thenThrow(new IllegalArgumentException("Invalid tile given"));
+        this.mockMvc.perform(get("/api/v1/scenes/tiles/1/5/0.mvt")).andExpect(status().isBadRequest());
+        this.mockMvc.perform(get("/api/v1/scenes/tiles/23/0/0.mvt")).andExpect(status().isBadRequest());
+        verify(this.sceneTileService, never()).getTile(eq(23), anyInt(), anyInt(), any());
     }
 
 //    @Test
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.index;
+
+import de.dittwald.cinemap.repository.scene.repository.SceneRepository;
+import de.dittwald.cinemap.repository.scene.util.GreatCircle;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the kNN search of the spatial index against a full scan at one million scenes. Not part of the regular
+ * test run, start it with {@code mvn test -Dtest=SceneSpatialIndexBenchmark}.
+ */
+class SceneSpatialIndexBenchmark {
+
+    private static final int SCENES = 1_000_000;
+    private static final int QUERIES = 1_000;
+    private static final int K = 10;
+
+    @Test
+    void benchmarkNearest() {
+        Random random = new Random(42);
+        List<SceneLocation> locations = new ArrayList<>(SCENES);
+        for (long id = 0; id < SCENES; id++) {
+            locations.add(new SceneLocation(id, UUID.randomUUID(), id % 1000, random.nextDouble() * 360 - 180,
+                    Math.toDegrees(Math.asin(random.nextDouble() * 2 - 1))));
+        }
+        SceneRepository sceneRepository = mock(SceneRepository.class);
+        when(sceneRepository.findAllLocations()).thenReturn(locations);
+        SceneSpatialIndex sceneSpatialIndex = new SceneSpatialIndex(sceneRepository);
+
+        long start = System.nanoTime();
+        sceneSpatialIndex.size();
+        System.out.printf("Bulk loaded %d scenes in %d ms%n", SCENES, (System.nanoTime() - start) / 1_000_000);
+
+        double[][] queries = new double[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = new double[]{random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180};
+        }
+
+        // Warm up
+        for (double[] query : queries) {
+            sceneSpatialIndex.nearest(query[0], query[1], K, Double.POSITIVE_INFINITY);
+        }
+
+        start = System.nanoTime();
+        for (double[] query : queries) {
+            sceneSpatialIndex.nearest(query[0], query[1], K, Double.POSITIVE_INFINITY);
+        }
+        System.out.printf("Index: %.1f us per %d-nearest query%n", (System.nanoTime() - start) / 1_000.0 / QUERIES,
+                K);
+
+        int scans = 20;
+        start = System.nanoTime();
+        for (int i = 0; i < scans; i++) {
+            double[] query = queries[i];
+            List<SceneDistance> expected = scan(locations, query[0], query[1]);
+            assertThat(sceneSpatialIndex.nearest(query[0], query[1], K, Double.POSITIVE_INFINITY)).extracting(
+                    SceneDistance::location).containsExactlyElementsOf(
+                    expected.stream().map(SceneDistance::location).toList());
+        }
+        System.out.printf("Full scan: %.1f us per %d-nearest query%n",
+                (System.nanoTime() - start) / 1_000.0 / scans, K);
+    }
+
+    private static List<SceneDistance> scan(List<SceneLocation> locations, double lat, double lon) {
+        // Bounded max-heap holding the k closest scenes seen so far
+        PriorityQueue<SceneDistance> closest =
+                new PriorityQueue<>(Comparator.comparingDouble(SceneDistance::distanceKm).reversed());
+        for (SceneLocation location : locations) {
+            double distanceKm = GreatCircle.distanceKm(lat, lon, location.lat(), location.lon());
+            if (closest.size() < K) {
+                closest.add(new SceneDistance(location, distanceKm));
+            } else if (distanceKm < closest.peek().distanceKm()) {
+                closest.poll();
+                closest.add(new SceneDistance(location, distanceKm));
+            }
+        }
+        List<SceneDistance> result = new ArrayList<>(closest);
+        result.sort(Comparator.comparingDouble(SceneDistance::distanceKm));
+        return result;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.index;
+
+import de.dittwald.cinemap.repository.scene.event.SceneChangedEvent;
+import de.dittwald.cinemap.repository.scene.repository.SceneRepository;
+import de.dittwald.cinemap.repository.scene.util.BoundingBox;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.*;
+
+@WebMvcTest(SceneSpatialIndex.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class SceneSpatialIndexTest {
+
+    @Autowired
+    private SceneSpatialIndex sceneSpatialIndex;
+
+    @MockBean
+    private SceneRepository sceneRepository;
+
+    private SceneLocation berlin;
+    private SceneLocation fiji;
+    private SceneLocation samoa;
+
+    @BeforeEach
+    void setUp() {
+        this.berlin = new SceneLocation(1L, UUID.randomUUID(), 1L, 13.35943, 52.51263);
+        this.fiji = new SceneLocation(2L, UUID.randomUUID(), 1L, 178.44, -18.14);
+        this.samoa = new SceneLocation(3L, UUID.randomUUID(), 2L, -171.75, -13.83);
+        when(this.sceneRepository.findAllLocations()).thenReturn(List.of(this.berlin, this.fiji, this.samoa));
+    }
+
+    @Test
+    void shouldFindScenesWithinBoundingBox() {
+        assertThat(this.sceneSpatialIndex.search(new BoundingBox(13, 52, 14, 53))).containsExactly(this.berlin);
+        assertThat(this.sceneSpatialIndex.search(new BoundingBox(-180, -90, 180, 90))).containsExactly(this.berlin,
+                this.fiji, this.samoa);
+        verify(this.sceneRepository, times(1)).findAllLocations();
+    }
+
+    @Test
+    void shouldFindScenesWithinBoundingBoxCrossingTheAntimeridian() {
+        assertThat(this.sceneSpatialIndex.search(new BoundingBox(170, -30, -170, 0))).containsExactly(this.fiji,
+                this.samoa);
+        assertThat(this.sceneSpatialIndex.search(new BoundingBox(-170, -30, 170, 0))).isEmpty();
+    }
+
+    @Test
+    void shouldFindNearestScenesOrderedByDistance() {
+        List<SceneDistance> nearest = this.sceneSpatialIndex.nearest(52.52, 13.405, 2, Double.POSITIVE_INFINITY);
+        assertThat(nearest).extracting(SceneDistance::location).containsExactly(this.berlin, this.samoa);
+        assertThat(nearest.getFirst().distanceKm()).isCloseTo(3.2, within(0.1));
+    }
+
+    @Test
+    void shouldFindNearestScenesAcrossTheAntimeridian() {
+        List<SceneDistance> nearest = this.sceneSpatialIndex.nearest(-16, 179.9, 3, 500);
+        assertThat(nearest).extracting(SceneDistance::location).containsExactly(this.fiji);
+
+        nearest = this.sceneSpatialIndex.nearest(-14, -179.9, 3, 1500);
+        assertThat(nearest).extracting(SceneDistance::location).containsExactly(this.fiji, this.samoa);
+    }
+
+    @Test
+    void shouldApplySceneChanges() {
+        assertThat(this.sceneSpatialIndex.size()).isEqualTo(3);
+
+        SceneLocation movedBerlin = new SceneLocation(1L, this.berlin.uuid(), 1L, 2.35, 48.85);
+        SceneLocation added = new SceneLocation(4L, UUID.randomUUID(), 2L, 13.4, 52.5);
+        this.sceneSpatialIndex.onSceneChanged(SceneChangedEvent.moved(this.berlin, movedBerlin, 1));
+        this.sceneSpatialIndex.onSceneChanged(SceneChangedEvent.saved(added));
+        this.sceneSpatialIndex.onSceneChanged(SceneChangedEvent.deleted(List.of(this.fiji)));
+
+        assertThat(this.sceneSpatialIndex.size()).isEqualTo(3);
+        assertThat(this.sceneSpatialIndex.search(new BoundingBox(13, 52, 14, 53))).containsExactly(added);
+        assertThat(this.sceneSpatialIndex.search(new BoundingBox(2, 48, 3, 49))).containsExactly(movedBerlin);
+        assertThat(this.sceneSpatialIndex.search(new BoundingBox(170, -30, -170, 0))).containsExactly(this.samoa);
+
+        this.sceneSpatialIndex.onSceneChanged(SceneChangedEvent.deletedAll());
+        assertThat(this.sceneSpatialIndex.size()).isZero();
+    }
+}
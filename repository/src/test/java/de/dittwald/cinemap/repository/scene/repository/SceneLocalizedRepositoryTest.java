@@ -17,12 +17,14 @@
 package de.dittwald.cinemap.repository.scene.repository;
 
 import de.dittwald.cinemap.repository.util.DummyData;
+import de.dittwald.cinemap.repository.movie.repository.GenreRepository;
 import de.dittwald.cinemap.repository.movie.repository.MovieRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
@@ -37,7 +39,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 @Testcontainers
 @DataJpaTest(includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
-        classes = {SceneLocalizedRepository.class, SceneRepository.class, MovieRepository.class}))
+        classes = {SceneLocalizedRepository.class, SceneRepository.class, MovieRepository.class,
+                GenreRepository.class}))
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
 class SceneLocalizedRepositoryTest {
 
@@ -55,11 +58,18 @@ class SceneLocalizedRepositoryTest {
     @Autowired
     private MovieRepository movieRepository;
 
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
     private DummyData dummyData;
 
     @BeforeEach
     void setUp() throws MalformedURLException, URISyntaxException {
         this.dummyData = new DummyData();
+        this.genreRepository.saveAll(this.dummyData.getGenres());
         this.movieRepository.save(this.dummyData.getWolf());
         this.sceneRepository.save(this.dummyData.getWolfSceneOne());
     }
@@ -85,4 +95,55 @@ class SceneLocalizedRepositoryTest {
         assertThat(this.sceneRepository.count()).isEqualTo(0);
         assertThat(this.sceneLocalizedRepository.count()).isEqualTo(0);
     }
+
+    @Test
+    void shouldMoveDescriptionsFromLargeObjectsToText() {
+        // Puts the descriptions back into large objects, as they were stored before the text column
+        this.testEntityManager.flush();
+        this.testEntityManager.getEntityManager().createNativeQuery("""
+                update localized_scene set description = lo_from_bytea(0, convert_to(description_text, 'UTF8')),
+                    description_text = null
+                """).executeUpdate();
+        this.testEntityManager.clear();
+        String expected = this.dummyData.getWolfSceneOne().getLocalizedScenes().get("en").getDescription();
+        assertThat(findEnglishDescription()).isEqualTo(expected);
+
+        assertThat(this.sceneLocalizedRepository.moveDescriptionsToText(1)).isEqualTo(1);
+        assertThat(this.sceneLocalizedRepository.moveDescriptionsToText(10)).isEqualTo(1);
+        assertThat(this.sceneLocalizedRepository.moveDescriptionsToText(10)).isZero();
+
+        assertThat(this.testEntityManager.getEntityManager()
+                .createNativeQuery("select count(*) from localized_scene where description is not null")
+                .getSingleResult()).isEqualTo(0L);
+        this.testEntityManager.clear();
+        assertThat(findEnglishDescription()).isEqualTo(expected);
+    }
+
+    @Test
+    void shouldMoveDescriptionsOfSceneAndUnlinkTheirLargeObjects() {
+        this.testEntityManager.flush();
+        this.testEntityManager.getEntityManager().createNativeQuery("""
+                update localized_scene set description = lo_from_bytea(0, convert_to(description_text, 'UTF8')),
+                    description_text = null
+                """).executeUpdate();
+        this.testEntityManager.clear();
+        String expected = this.dummyData.getWolfSceneOne().getLocalizedScenes().get("en").getDescription();
+
+        assertThat(this.sceneLocalizedRepository.moveDescriptionsOfSceneToText(
+                this.dummyData.getWolfSceneOne().getId())).isEqualTo(2);
+
+        assertThat(this.testEntityManager.getEntityManager()
+                .createNativeQuery("select count(*) from pg_largeobject_metadata")
+                .getSingleResult()).isEqualTo(0L);
+        this.testEntityManager.clear();
+        assertThat(findEnglishDescription()).isEqualTo(expected);
+    }
+
+    private String findEnglishDescription() {
+        return this.sceneLocalizedRepository.findAllBySceneUuid(this.dummyData.getWolfSceneOne().getUuid())
+                .get()
+                .stream()
+                .filter(localizedScene -> localizedScene.getLocalizedId().getLocale().equals("en"))
+                .findFirst().get().getDescription();
+    }
 }
\ No newline at end of file
@@ -17,9 +17,13 @@
 package de.dittwald.cinemap.repository.scene.repository;
 
 import de.dittwald.cinemap.repository.movie.entity.LocalizedId;
+import de.dittwald.cinemap.repository.movie.repository.GenreRepository;
 import de.dittwald.cinemap.repository.movie.repository.MovieRepository;
+import de.dittwald.cinemap.repository.scene.dto.SceneVersion;
 import de.dittwald.cinemap.repository.scene.entity.LocalizedScene;
 import de.dittwald.cinemap.repository.scene.entity.Scene;
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
+import de.dittwald.cinemap.repository.util.CollectionVersion;
 import de.dittwald.cinemap.repository.util.DummyData;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -43,7 +47,8 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @Testcontainers
 @DataJpaTest(includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
-        classes = {SceneRepository.class, MovieRepository.class, SceneLocalizedRepository.class}))
+        classes = {SceneRepository.class, MovieRepository.class, SceneLocalizedRepository.class,
+                GenreRepository.class}))
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
 class SceneRepositoryTest {
 
@@ -58,6 +63,9 @@ class SceneRepositoryTest {
     @Autowired
     private MovieRepository movieRepository;
 
+    @Autowired
+    private GenreRepository genreRepository;
+
     @Autowired
     private SceneLocalizedRepository sceneLocalizedRepository;
 
@@ -66,6 +74,7 @@ class SceneRepositoryTest {
     @BeforeEach
     void setUp() throws URISyntaxException, MalformedURLException {
         dummyData = new DummyData();
+        this.genreRepository.saveAll(this.dummyData.getGenres());
         this.movieRepository.save(this.dummyData.getWolf());
         this.sceneRepository.save(this.dummyData.getWolfSceneOne());
     }
@@ -109,6 +118,32 @@ class SceneRepositoryTest {
                 .getDescription()).isEqualTo("Der mit dem Wolf tanzt - Scene One New Description");
     }
 
+    @Test
+    public void shouldFindAllSceneLocations() {
+        List<SceneLocation> locations = this.sceneRepository.findAllLocations();
+        assertThat(locations.size()).isEqualTo(1);
+        assertThat(locations.getFirst().uuid()).isEqualTo(this.dummyData.getWolfSceneOne().getUuid());
+        assertThat(locations.getFirst().lon()).isEqualTo(this.dummyData.getWolfSceneOne().getLon());
+        assertThat(locations.getFirst().movieId()).isEqualTo(this.dummyData.getWolf().getId());
+    }
+
+    @Test
+    public void shouldFindScenesWithMovieByIds() {
+        Long id = this.sceneRepository.findAll().getFirst().getId();
+        List<Scene> scenes = this.sceneRepository.findAllWithMovieByIdIn(List.of(id, id + 1));
+        assertThat(scenes.size()).isEqualTo(1);
+        assertThat(scenes.getFirst().getMovie().getUuid()).isEqualTo(this.dummyData.getWolf().getUuid());
+    }
+
+    @Test
+    public void shouldFindSceneVersions() {
+        Scene scene = this.sceneRepository.findAll().getFirst();
+        assertThat(this.sceneRepository.findVersionByUuid(scene.getUuid()).get()).isEqualTo(new SceneVersion(0, 0));
+        assertThat(this.sceneRepository.findCollectionVersion()).isEqualTo(new CollectionVersion(1, scene.getId(), 0));
+        assertThat(this.sceneRepository.findCollectionVersionOfMovieUuid(this.dummyData.getNobody().getUuid()))
+                .isEqualTo(new CollectionVersion(0, 0, 0));
+    }
+
     @Test
     public void shouldDeleteMovieScene() {
         assertThat(this.sceneRepository.count()).isEqualTo(1);
@@ -116,6 +151,40 @@ class SceneRepositoryTest {
         assertThat(this.sceneRepository.count()).isEqualTo(0);
     }
 
+    @Test
+    public void shouldFindSceneLocationsOfMovie() {
+        assertThat(this.sceneRepository.findAllLocationsOfMovieUuid(this.dummyData.getWolf().getUuid())).extracting(
+                SceneLocation::uuid).containsExactly(this.dummyData.getWolfSceneOne().getUuid());
+        assertThat(this.sceneRepository.findAllLocationsOfMovieUuid(UUID.randomUUID())).isEmpty();
+    }
+
+    @Test
+    public void shouldDeleteMovieWithScenesCascading() {
+        assertThat(this.movieRepository.deleteCascadingByUuid(UUID.randomUUID())).isEqualTo(0);
+        assertThat(this.movieRepository.deleteCascadingByUuid(this.dummyData.getWolf().getUuid())).isEqualTo(1);
+        assertThat(this.sceneLocalizedRepository.count()).isEqualTo(0);
+        assertThat(this.sceneRepository.count()).isEqualTo(0);
+        assertThat(this.movieRepository.count()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldDeleteOtherLocalesOfScene() {
+        Long id = this.sceneRepository.findAll().getFirst().getId();
+        assertThat(this.sceneLocalizedRepository.unlinkDescriptionsOfOtherLocales(id, "en,fr")).isEqualTo(1);
+        assertThat(this.sceneLocalizedRepository.deleteOtherLocales(id, "en,fr")).isEqualTo(1);
+        assertThat(this.sceneLocalizedRepository.deleteOtherLocales(id, "")).isEqualTo(1);
+        assertThat(this.sceneLocalizedRepository.count()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldPurgeAllScenes() {
+        assertThat(this.sceneLocalizedRepository.unlinkAllDescriptions()).isEqualTo(2);
+        assertThat(this.sceneLocalizedRepository.purgeAll()).isEqualTo(2);
+        assertThat(this.sceneRepository.purgeAll()).isEqualTo(1);
+        assertThat(this.sceneRepository.count()).isEqualTo(0);
+        assertThat(this.movieRepository.count()).isEqualTo(1);
+    }
+
     @Test
     public void shouldFailPersistMovieSceneDueToAlreadyExistingUuid() {
 
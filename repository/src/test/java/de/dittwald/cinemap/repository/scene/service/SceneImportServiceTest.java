@@ -0,0 +1,136 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.service;
+
+import de.dittwald.cinemap.repository.scene.dto.SceneCreationDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneImportDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneImportRejectionDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneImportReportDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@WebMvcTest(SceneImportService.class)
+@TestPropertySource(properties = "de.cinemap.repository.scenes.batch-size=2")
+class SceneImportServiceTest {
+
+    private static final UUID MOVIE_UUID = UUID.fromString("6a3b8f5e-4d8c-4e3a-9c39-5f0a2f3f8b11");
+
+    @Autowired
+    private SceneImportService sceneImportService;
+
+    @MockBean
+    private SceneService sceneService;
+
+    @Test
+    void shouldImportPointFeaturesInBatches() throws IOException {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        when(this.sceneService.saveBatch(any())).thenReturn(Map.of());
+
+        SceneImportReportDto report = importCollection("""
+                {"type": "FeatureCollection", "name": "locations", "crs": {"type": "name"}, "features": [%s, %s, %s]}
+                """.formatted(feature(first, 13.35943, 52.51263), feature(second, 2.2945, 48.8584),
+                feature(third, -73.9857, 40.7484)));
+
+        assertThat(report).isEqualTo(new SceneImportReportDto(3, 0, List.of()));
+        verify(this.sceneService, times(1)).saveBatch(
+                List.of(scene(first, 13.35943, 52.51263), scene(second, 2.2945, 48.8584)));
+        verify(this.sceneService, times(1)).saveBatch(List.of(scene(third, -73.9857, 40.7484)));
+    }
+
+    @Test
+    void shouldReportRejectedFeatures() throws IOException {
+        UUID valid = UUID.randomUUID();
+        UUID existing = UUID.randomUUID();
+        UUID outOfRange = UUID.randomUUID();
+        when(this.sceneService.saveBatch(any())).thenReturn(Map.of(existing, "UUID already in use"));
+
+        SceneImportReportDto report = importCollection("""
+                {"features": [%s, %s, %s, %s, %s, %s], "type": "FeatureCollection"}
+                """.formatted(feature(valid, 13.4, 52.5), feature(valid, 13.4, 52.5), feature(existing, 13.4, 52.5),
+                feature(outOfRange, 13.4, 91),
+                """
+                        {"type": "Feature", "geometry": {"type": "LineString", "coordinates": [[1, 2], [3, 4]]}}""",
+                """
+                        {"type": "Feature", "id": "%s", "geometry": {"type": "Point", "coordinates": [1, 2]},
+                         "properties": {"movieUuid": "%s", "locale": "xx"}}""".formatted(UUID.randomUUID(),
+                        MOVIE_UUID)));
+
+        assertThat(report.imported()).isEqualTo(1);
+        assertThat(report.rejected()).isEqualTo(5);
+        assertThat(report.rejections()).extracting(SceneImportRejectionDto::feature)
+                .containsExactly(2L, 3L, 4L, 5L, 6L);
+        assertThat(report.rejections()).extracting(SceneImportRejectionDto::reason)
+                .containsExactly("UUID already in use", "UUID already in use", "Coordinates out of range",
+                        "Point geometry expected", "locale: Invalid ISO 638-1 language code given");
+        assertThat(report.rejections().get(2).uuid()).isEqualTo(outOfRange);
+    }
+
+    @Test
+    void shouldReportFailedBatches() throws IOException {
+        UUID uuid = UUID.randomUUID();
+        when(this.sceneService.saveBatch(any())).thenThrow(new DataIntegrityViolationException("Duplicate"));
+
+        SceneImportReportDto report = importCollection("""
+                {"type": "FeatureCollection", "features": [%s]}""".formatted(feature(uuid, 13.4, 52.5)));
+
+        assertThat(report).isEqualTo(new SceneImportReportDto(0, 1,
+                List.of(new SceneImportRejectionDto(1, uuid, "Writing the batch failed"))));
+    }
+
+    @Test
+    void shouldFailOnInvalidGeoJson() {
+        assertThrows(IllegalArgumentException.class,
+                () -> importCollection("{\"type\": \"Feature\", \"geometry\": null}"));
+        assertThrows(IllegalArgumentException.class, () -> importCollection("[]"));
+        assertThrows(IllegalArgumentException.class,
+                () -> importCollection("{\"type\": \"FeatureCollection\", \"features\": [{\"type\": "));
+    }
+
+    private SceneImportReportDto importCollection(String geoJson) throws IOException {
+        return this.sceneImportService.importFeatureCollection(
+                new ByteArrayInputStream(geoJson.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String feature(UUID uuid, double lon, double lat) {
+        return """
+                {"type": "Feature", "id": "%s", "geometry": {"type": "Point", "coordinates": [%s, %s]},
+                 "properties": {"movieUuid": "%s", "locale": "en", "title": "Title", "description": "Description"}}
+                """.formatted(uuid, lon, lat, MOVIE_UUID);
+    }
+
+    private static SceneImportDto scene(UUID uuid, double lon, double lat) {
+        return new SceneImportDto(MOVIE_UUID, new SceneCreationDto(uuid, lon, lat, "en", "Title", "Description"));
+    }
+}
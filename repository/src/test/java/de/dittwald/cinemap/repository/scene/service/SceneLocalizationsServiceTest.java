@@ -17,12 +17,23 @@
 package de.dittwald.cinemap.repository.scene.service;
 
 import de.dittwald.cinemap.repository.exceptions.NotFoundException;
+import de.dittwald.cinemap.repository.exceptions.PreconditionFailedException;
 import de.dittwald.cinemap.repository.util.DummyData;
+import de.dittwald.cinemap.repository.util.MergePatch;
+import de.dittwald.cinemap.repository.util.Tagged;
+import de.dittwald.cinemap.repository.util.TargetedUpdateRepository;
 import de.dittwald.cinemap.repository.movie.repository.MovieRepository;
+import de.dittwald.cinemap.repository.scene.dto.SceneLocalizationDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneLocalizationEntryDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneVersion;
+import de.dittwald.cinemap.repository.scene.entity.LocalizedScene;
+import de.dittwald.cinemap.repository.scene.entity.Scene;
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
 import de.dittwald.cinemap.repository.scene.repository.SceneLocalizedRepository;
 import de.dittwald.cinemap.repository.scene.repository.SceneRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -35,7 +46,10 @@ import static org.mockito.Mockito.*;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 @WebMvcTest({SceneLocalizationService.class})
 @AutoConfigureMockMvc
@@ -53,6 +67,9 @@ public class SceneLocalizationsServiceTest {
     @MockBean
     private MovieRepository movieRepository;
 
+    @MockBean
+    private TargetedUpdateRepository targetedUpdateRepository;
+
     private DummyData dummyData;
 
     @BeforeEach
@@ -62,7 +79,7 @@ public class SceneLocalizationsServiceTest {
 
     @Test
     void shouldUpdateSceneAndLocalizationsNoOverride() throws NotFoundException {
-        when(this.sceneRepository.findByUuid(this.dummyData.getWolfSceneOne().getUuid())).thenReturn(
+        when(this.sceneRepository.findByUuidIncrementingVersion(this.dummyData.getWolfSceneOne().getUuid())).thenReturn(
                 Optional.of(this.dummyData.getWolfSceneOne()));
 
         this.sceneLocalizationService.update(this.dummyData.getWolfSceneOneLocalizationDto(),
@@ -73,7 +90,7 @@ public class SceneLocalizationsServiceTest {
 
     @Test
     void shouldUpdateSceneAndLocalizationsWithOverride() throws NotFoundException {
-        when(this.sceneRepository.findByUuid(this.dummyData.getWolfSceneOne().getUuid())).thenReturn(
+        when(this.sceneRepository.findByUuidIncrementingVersion(this.dummyData.getWolfSceneOne().getUuid())).thenReturn(
                 Optional.of(this.dummyData.getWolfSceneOne()));
         when(this.sceneRepository.save(this.dummyData.getWolfSceneOne())).thenReturn(any());
 
@@ -87,29 +104,37 @@ public class SceneLocalizationsServiceTest {
 
     @Test
     void shouldFailUpdateSceneAndLocalizationsNoOverrideDueToNotFoundScene() {
-        when(this.sceneRepository.findByUuid(this.dummyData.getWolfSceneOne().getUuid())).thenReturn(Optional.empty());
+        when(this.sceneRepository.findByUuidIncrementingVersion(this.dummyData.getWolfSceneOne().getUuid())).thenReturn(
+                Optional.empty());
 
         Exception exception = assertThrows(NotFoundException.class, () -> {
             this.sceneLocalizationService.update(this.dummyData.getWolfSceneOneLocalizationDto(),
                     this.dummyData.getWolfSceneOne().getUuid(), false);
         });
         assertThat(exception.getMessage()).isEqualTo("Scene not found");
-        verify(this.sceneRepository, times(1)).findByUuid(this.dummyData.getWolfSceneOne().getUuid());
+        verify(this.sceneRepository, times(1)).findByUuidIncrementingVersion(
+                this.dummyData.getWolfSceneOne().getUuid());
     }
 
     @Test
     void shouldFindAllLocalizationsForMovieUuid() throws NotFoundException {
+        when(this.sceneRepository.findVersionByUuid(this.dummyData.getWolfSceneOne().getUuid())).thenReturn(
+                Optional.of(new SceneVersion(2L, 5L)));
         when(this.sceneLocalizedRepository.findAllBySceneUuid(this.dummyData.getWolfSceneOne().getUuid())).thenReturn(
                 Optional.of(List.of(this.dummyData.getWolfLsOneEn(), this.dummyData.getWolfLsOneDe())));
 
-        assertThat(this.sceneLocalizationService.getSceneLocalizationDto(
-                this.dummyData.getWolfSceneOne().getUuid())).isEqualTo(this.dummyData.getWolfSceneOneLocalizationDto());
+        Tagged<SceneLocalizationDto> localizations =
+                this.sceneLocalizationService.getSceneLocalizationDto(this.dummyData.getWolfSceneOne().getUuid());
+        assertThat(localizations.body()).isEqualTo(this.dummyData.getWolfSceneOneLocalizationDto());
+        assertThat(localizations.entityTag()).isEqualTo("\"2\"");
 
         verify(this.sceneLocalizedRepository, times(1)).findAllBySceneUuid(this.dummyData.getWolfSceneOne().getUuid());
     }
 
     @Test
     void shouldFailFindAllLocalizationsForMovieUuidDueToNotFoundScene() throws NotFoundException {
+        when(this.sceneRepository.findVersionByUuid(this.dummyData.getWolfSceneOne().getUuid())).thenReturn(
+                Optional.of(new SceneVersion(2L, 5L)));
         when(this.sceneLocalizedRepository.findAllBySceneUuid(this.dummyData.getWolfSceneOne().getUuid())).thenReturn(
                 Optional.empty());
 
@@ -121,4 +146,48 @@ public class SceneLocalizationsServiceTest {
         verify(this.sceneLocalizedRepository, times(1)).findAllBySceneUuid(this.dummyData.getWolfSceneOne().getUuid());
     }
 
+    @Test
+    void shouldPatchSceneLocalization() throws NotFoundException, PreconditionFailedException {
+        UUID uuid = this.dummyData.getWolfSceneOne().getUuid();
+        when(this.sceneRepository.findLocationByUuid(uuid)).thenReturn(
+                Optional.of(new SceneLocation(3L, uuid, 7L, 1.0, 2.0)));
+        when(this.targetedUpdateRepository.updateVersioned(Scene.class, 3L, null, Map.of())).thenReturn(1);
+        Map<String, Object> attributes = Map.of("description", "Patched");
+        when(this.targetedUpdateRepository.updateLocalized(LocalizedScene.class, 3L, "en", attributes)).thenReturn(1);
+        when(this.sceneRepository.findVersionByUuid(uuid)).thenReturn(Optional.of(new SceneVersion(2L, 5L)));
+
+        this.sceneLocalizationService.patch(uuid, "en",
+                new MergePatch<>(new SceneLocalizationEntryDto(null, null, "Patched"), Set.of("description")), null);
+
+        // A patched description supersedes the large object of the description, which is unlinked first
+        InOrder inOrder = inOrder(this.sceneLocalizedRepository, this.targetedUpdateRepository);
+        inOrder.verify(this.sceneLocalizedRepository, times(1)).moveDescriptionsOfSceneToText(3L);
+        inOrder.verify(this.targetedUpdateRepository, times(1)).updateLocalized(LocalizedScene.class, 3L, "en",
+                attributes);
+        verify(this.sceneRepository, never()).findByUuidIncrementingVersion(any());
+    }
+
+    @Test
+    void shouldFailPatchSceneLocalizationDueToVersionMismatch() {
+        UUID uuid = this.dummyData.getWolfSceneOne().getUuid();
+        when(this.sceneRepository.findLocationByUuid(uuid)).thenReturn(
+                Optional.of(new SceneLocation(3L, uuid, 7L, 1.0, 2.0)));
+        when(this.targetedUpdateRepository.updateVersioned(Scene.class, 3L, 1L, Map.of())).thenReturn(0);
+
+        assertThrows(PreconditionFailedException.class, () -> this.sceneLocalizationService.patch(uuid, "en",
+                new MergePatch<>(new SceneLocalizationEntryDto(null, null, "Patched"), Set.of("description")), 1L));
+        verify(this.targetedUpdateRepository, never()).updateLocalized(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldFailPatchSceneLocalizationDueToSceneDeletedInTheMeantime() {
+        UUID uuid = this.dummyData.getWolfSceneOne().getUuid();
+        when(this.sceneRepository.findLocationByUuid(uuid)).thenReturn(
+                Optional.of(new SceneLocation(3L, uuid, 7L, 1.0, 2.0)));
+        when(this.targetedUpdateRepository.updateVersioned(Scene.class, 3L, null, Map.of())).thenReturn(0);
+
+        assertThrows(NotFoundException.class, () -> this.sceneLocalizationService.patch(uuid, "en",
+                new MergePatch<>(new SceneLocalizationEntryDto(null, null, "Patched"), Set.of("description")), null));
+        verify(this.targetedUpdateRepository, never()).updateLocalized(any(), any(), any(), any());
+    }
 }
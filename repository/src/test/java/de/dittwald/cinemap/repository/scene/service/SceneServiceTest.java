@@ -16,29 +16,61 @@
 
 package de.dittwald.cinemap.repository.scene.service;
 
+import de.dittwald.cinemap.repository.cache.CollectionVersions;
+import de.dittwald.cinemap.repository.cache.WrittenVersions;
 import de.dittwald.cinemap.repository.exceptions.LocaleNotFoundException;
 import de.dittwald.cinemap.repository.exceptions.NotFoundException;
+import de.dittwald.cinemap.repository.exceptions.PreconditionFailedException;
 import de.dittwald.cinemap.repository.exceptions.UuidInUseException;
 import de.dittwald.cinemap.repository.util.DummyData;
+import de.dittwald.cinemap.repository.util.MergePatch;
+import de.dittwald.cinemap.repository.util.TargetedUpdateRepository;
 import de.dittwald.cinemap.repository.movie.repository.MovieRepository;
+import de.dittwald.cinemap.repository.scene.cache.SceneDtoCache;
+import de.dittwald.cinemap.repository.scene.cluster.SceneCluster;
+import de.dittwald.cinemap.repository.scene.cluster.SceneClusterIndex;
+import de.dittwald.cinemap.repository.scene.dto.SceneClusterDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneCreationDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneFlatDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneImportDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneNearbyDto;
+import de.dittwald.cinemap.repository.scene.dto.SceneVersion;
+import de.dittwald.cinemap.repository.scene.entity.Scene;
+import de.dittwald.cinemap.repository.scene.event.SceneChangedEvent;
+import de.dittwald.cinemap.repository.scene.index.SceneDistance;
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
+import de.dittwald.cinemap.repository.scene.index.SceneSpatialIndex;
+import de.dittwald.cinemap.repository.scene.repository.SceneLocalizedRepository;
 import de.dittwald.cinemap.repository.scene.repository.SceneRepository;
+import de.dittwald.cinemap.repository.scene.tile.SceneTileFeature;
+import de.dittwald.cinemap.repository.scene.tile.SceneTileFeatures;
+import de.dittwald.cinemap.repository.scene.util.BoundingBox;
+import de.dittwald.cinemap.repository.util.CollectionVersion;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
-@WebMvcTest({SceneService.class})
+@WebMvcTest({SceneService.class, SceneDtoCache.class})
 @AutoConfigureMockMvc
+@RecordApplicationEvents
 class SceneServiceTest {
 
     @Autowired
@@ -47,25 +79,138 @@ class SceneServiceTest {
     @MockBean
     private SceneRepository sceneRepository;
 
+    @MockBean
+    private SceneLocalizedRepository sceneLocalizedRepository;
+
     @MockBean
     private MovieRepository movieRepository;
 
+    @MockBean
+    private CollectionVersions collectionVersions;
+
+    @MockBean
+    private WrittenVersions writtenVersions;
+
+    @MockBean
+    private EntityManager entityManager;
+
+    @MockBean
+    private SceneSpatialIndex sceneSpatialIndex;
+
+    @MockBean
+    private SceneClusterIndex sceneClusterIndex;
+
+    @MockBean
+    private TargetedUpdateRepository targetedUpdateRepository;
+
+    @Autowired
+    private SceneDtoCache sceneDtoCache;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
     private DummyData dummyData;
 
     @BeforeEach
     void setUp() throws MalformedURLException, URISyntaxException {
         this.dummyData = new DummyData();
+        this.sceneDtoCache.invalidateAll();
     }
 
     @Test
     void shouldFindMovieSceneByUuid() throws LocaleNotFoundException, NotFoundException {
         when(this.sceneRepository.findByUuid(this.dummyData.getWolfSceneOne().getUuid())).thenReturn(
                 Optional.of(this.dummyData.getWolfSceneOne()));
-        assertThat(this.sceneService.findByUuid(this.dummyData.getWolfSceneOne().getUuid(), "en")).isEqualTo(
+        assertThat(this.sceneService.findByUuid(this.dummyData.getWolfSceneOne().getUuid(), "en").body()).isEqualTo(
                 this.dummyData.getWolfSceneOneFlatEnDto());
         verify(this.sceneRepository, times(1)).findByUuid(this.dummyData.getWolfSceneOne().getUuid());
     }
 
+    @Test
+    void shouldFindMovieSceneByUuidFromCache() throws LocaleNotFoundException, NotFoundException {
+        UUID uuid = this.dummyData.getWolfSceneOne().getUuid();
+        when(this.sceneRepository.findByUuid(uuid)).thenReturn(Optional.of(this.dummyData.getWolfSceneOne()));
+
+        this.sceneService.findByUuid(uuid, "en");
+        assertThat(this.sceneService.findByUuid(uuid, "en").body()).isEqualTo(
+                this.dummyData.getWolfSceneOneFlatEnDto());
+
+        verify(this.sceneRepository, times(1)).findByUuid(uuid);
+        assertThat(this.sceneDtoCache.stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCacheMovieSceneLoadedFromLaggingReplica() throws LocaleNotFoundException, NotFoundException {
+        UUID uuid = this.dummyData.getWolfSceneOne().getUuid();
+        when(this.sceneRepository.findByUuid(uuid)).thenReturn(Optional.of(this.dummyData.getWolfSceneOne()));
+        when(this.writtenVersions.isOutdated(uuid, 0)).thenReturn(true);
+
+        this.sceneService.findByUuid(uuid, "en");
+        this.sceneService.findByUuid(uuid, "en");
+
+        verify(this.sceneRepository, times(2)).findByUuid(uuid);
+    }
+
+    @Test
+    void shouldReloadMovieSceneByUuidAfterUpdate() throws LocaleNotFoundException, NotFoundException {
+        UUID uuid = this.dummyData.getWolfSceneOne().getUuid();
+        when(this.movieRepository.findByUuid(this.dummyData.getWolf().getUuid())).thenReturn(
+                Optional.of(this.dummyData.getWolf()));
+        when(this.sceneRepository.findByUuid(uuid)).thenReturn(Optional.of(this.dummyData.getWolfSceneOne()));
+        when(this.sceneRepository.findByUuidIncrementingVersion(uuid)).thenReturn(
+                Optional.of(this.dummyData.getWolfSceneOne()));
+
+        this.sceneService.findByUuid(uuid, "en");
+        this.sceneService.update(this.dummyData.getWolfSceneOneCreationEnDto(), this.dummyData.getWolf().getUuid(),
+                uuid);
+        this.sceneService.findByUuid(uuid, "en");
+
+        verify(this.sceneRepository, times(2)).findByUuid(uuid);
+    }
+
+    @Test
+    void shouldFindMovieSceneEntityTagOfLoadedVersion() throws LocaleNotFoundException, NotFoundException {
+        UUID uuid = this.dummyData.getWolfSceneOne().getUuid();
+        when(this.sceneRepository.findByUuid(uuid)).thenReturn(Optional.of(this.dummyData.getWolfSceneOne()));
+        when(this.collectionVersions.genres()).thenReturn("19.10770.4.1");
+
+        assertThat(this.sceneService.findByUuid(uuid, "en").entityTag()).isEqualTo("\"0.0-19.10770.4.1-en\"");
+        verify(this.sceneRepository, never()).findVersionByUuid(any());
+    }
+
+    @Test
+    void shouldFindNoMovieSceneEntityTagWhileGenresChangedLately() throws LocaleNotFoundException, NotFoundException {
+        UUID uuid = this.dummyData.getWolfSceneOne().getUuid();
+        when(this.sceneRepository.findByUuid(uuid)).thenReturn(Optional.of(this.dummyData.getWolfSceneOne()));
+        when(this.collectionVersions.genres()).thenReturn(null);
+
+        assertThat(this.sceneService.findByUuid(uuid, "en").entityTag()).isNull();
+    }
+
+    @Test
+    void shouldFindMovieScenesOfMovieEntityTag() throws NotFoundException, LocaleNotFoundException {
+        UUID movieUuid = this.dummyData.getWolf().getUuid();
+        when(this.movieRepository.findVersionByUuid(movieUuid)).thenReturn(Optional.of(5L));
+        when(this.sceneRepository.findCollectionVersionOfMovieUuid(movieUuid)).thenReturn(
+                new CollectionVersion(2, 9, 3));
+        when(this.collectionVersions.genres()).thenReturn("19.10770.4.1");
+        assertThat(this.sceneService.findAllScenesOfMovie(movieUuid, "de").entityTag()).isEqualTo(
+                "\"2.9.3-5-19.10770.4.1-de\"");
+    }
+
+    @Test
+    void shouldFindAllScenesEntityTag() {
+        when(this.collectionVersions.scenes()).thenReturn("4.12.6.2-2.7.4.0-19.10770.4.1");
+        assertThat(this.sceneService.findAllEntityTag("en", "ndjson")).isEqualTo(
+                "\"4.12.6.2-2.7.4.0-19.10770.4.1-en-ndjson\"");
+    }
+
+    @Test
+    void shouldFindNoScenesEntityTagWhileScenesChangedLately() {
+        when(this.collectionVersions.scenes()).thenReturn(null);
+        assertThat(this.sceneService.findAllEntityTag("en", "json")).isNull();
+    }
+
     @Test
     void shouldFailFindMovieSceneByUuidAndShouldThrowException() {
         UUID uuid = UUID.randomUUID();
@@ -79,38 +224,90 @@ class SceneServiceTest {
 
     @Test
     void shouldUpdateScene() throws NotFoundException {
-        when(this.movieRepository.findByUuid(this.dummyData.getWolf().getUuid())).thenReturn(
-                Optional.of(this.dummyData.getWolf()));
-        when(this.sceneRepository.findByUuid(this.dummyData.getWolfSceneOne().getUuid())).thenReturn(
+        when(this.sceneRepository.findByUuidIncrementingVersion(this.dummyData.getWolfSceneOne().getUuid())).thenReturn(
                 Optional.of(this.dummyData.getWolfSceneOne()));
         this.sceneService.update(this.dummyData.getWolfSceneOneCreationEnDto(), this.dummyData.getWolf().getUuid(),
                 this.dummyData.getWolfSceneOne().getUuid());
-        verify(this.movieRepository, times(1)).findByUuid(this.dummyData.getWolf().getUuid());
-        verify(this.sceneRepository, times(1)).findByUuid(this.dummyData.getWolfSceneOne().getUuid());
+        verify(this.movieRepository, never()).findByUuid(any());
+        verify(this.sceneRepository, times(1)).findByUuidIncrementingVersion(
+                this.dummyData.getWolfSceneOne().getUuid());
     }
 
     @Test
-    void shouldUpdateSceneDueToMovieNotFound() {
-        when(this.movieRepository.findByUuid(this.dummyData.getWolf().getUuid())).thenReturn(Optional.empty());
+    void shouldUpdateSceneDueToSceneNotFound() {
+        when(this.sceneRepository.findByUuidIncrementingVersion(this.dummyData.getWolfSceneOne().getUuid())).thenReturn(
+                Optional.empty());
         Exception exception = assertThrows(NotFoundException.class,
                 () -> this.sceneService.update(this.dummyData.getWolfSceneOneCreationEnDto(),
                         this.dummyData.getWolf().getUuid(), this.dummyData.getWolfSceneOne().getUuid()));
-        assertThat(exception.getMessage()).isEqualTo("Movie not found");
-        verify(this.movieRepository, times(1)).findByUuid(this.dummyData.getWolf().getUuid());
+        assertThat(exception.getMessage()).isEqualTo("Scene not found");
+        verify(this.sceneRepository, times(1)).findByUuidIncrementingVersion(
+                this.dummyData.getWolfSceneOne().getUuid());
     }
 
     @Test
-    void shouldUpdateSceneDueToSceneNotFound() {
-        when(this.movieRepository.findByUuid(this.dummyData.getWolf().getUuid())).thenReturn(
-                Optional.of(this.dummyData.getWolf()));
-        when(this.sceneRepository.findByUuid(this.dummyData.getWolfSceneOne().getUuid())).thenReturn(
-                Optional.empty());
+    void shouldFailUpdateSceneDueToSceneOfOtherMovie() {
+        when(this.sceneRepository.findByUuidIncrementingVersion(this.dummyData.getWolfSceneOne().getUuid())).thenReturn(
+                Optional.of(this.dummyData.getWolfSceneOne()));
         Exception exception = assertThrows(NotFoundException.class,
                 () -> this.sceneService.update(this.dummyData.getWolfSceneOneCreationEnDto(),
-                        this.dummyData.getWolf().getUuid(), this.dummyData.getWolfSceneOne().getUuid()));
+                        this.dummyData.getNobody().getUuid(), this.dummyData.getWolfSceneOne().getUuid()));
         assertThat(exception.getMessage()).isEqualTo("Scene not found");
-        verify(this.movieRepository, times(1)).findByUuid(this.dummyData.getWolf().getUuid());
-        verify(this.sceneRepository, times(1)).findByUuid(this.dummyData.getWolfSceneOne().getUuid());
+        verify(this.sceneRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldFailPatchSceneDueToSceneOfOtherMovie() {
+        UUID uuid = this.dummyData.getWolfSceneOne().getUuid();
+        when(this.sceneRepository.findLocationByUuidAndMovieUuid(uuid, this.dummyData.getNobody().getUuid()))
+                .thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> this.sceneService.patch(this.dummyData.getNobody().getUuid(),
+                uuid, new MergePatch<>(new SceneCreationDto(null, 3.0, null, null, null, null), Set.of("lon")), null));
+        verify(this.targetedUpdateRepository, never()).updateVersioned(any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldPatchSceneAndMoveItInTheIndexes() throws NotFoundException, PreconditionFailedException {
+        UUID movieUuid = this.dummyData.getWolf().getUuid();
+        UUID uuid = this.dummyData.getWolfSceneOne().getUuid();
+        SceneLocation previous = new SceneLocation(3L, uuid, 7L, 1.0, 2.0);
+        when(this.sceneRepository.findLocationByUuidAndMovieUuid(uuid, movieUuid)).thenReturn(Optional.of(previous));
+        when(this.targetedUpdateRepository.updateVersioned(Scene.class, 3L, 5L, Map.of("lat", 4.0))).thenReturn(1);
+        when(this.sceneRepository.findVersionByUuid(uuid)).thenReturn(Optional.of(new SceneVersion(6L, 2L)));
+
+        this.sceneService.patch(movieUuid, uuid,
+                new MergePatch<>(new SceneCreationDto(null, null, 4.0, null, null, null), Set.of("lat")), 5L);
+
+        verify(this.sceneRepository, never()).findByUuidIncrementingVersion(any());
+        assertThat(this.applicationEvents.stream(SceneChangedEvent.class)).containsExactly(
+                SceneChangedEvent.moved(previous, new SceneLocation(3L, uuid, 7L, 1.0, 4.0), 6L));
+    }
+
+    @Test
+    void shouldFailPatchSceneDueToVersionMismatch() {
+        UUID movieUuid = this.dummyData.getWolf().getUuid();
+        UUID uuid = this.dummyData.getWolfSceneOne().getUuid();
+        when(this.sceneRepository.findLocationByUuidAndMovieUuid(uuid, movieUuid)).thenReturn(
+                Optional.of(new SceneLocation(3L, uuid, 7L, 1.0, 2.0)));
+        when(this.targetedUpdateRepository.updateVersioned(any(), any(), any(), any())).thenReturn(0);
+
+        assertThrows(PreconditionFailedException.class, () -> this.sceneService.patch(movieUuid, uuid,
+                new MergePatch<>(new SceneCreationDto(null, 3.0, null, null, null, null), Set.of("lon")), 5L));
+        assertThat(this.applicationEvents.stream(SceneChangedEvent.class)).isEmpty();
+    }
+
+    @Test
+    void shouldFailPatchSceneDueToSceneDeletedInTheMeantime() {
+        UUID movieUuid = this.dummyData.getWolf().getUuid();
+        UUID uuid = this.dummyData.getWolfSceneOne().getUuid();
+        when(this.sceneRepository.findLocationByUuidAndMovieUuid(uuid, movieUuid)).thenReturn(
+                Optional.of(new SceneLocation(3L, uuid, 7L, 1.0, 2.0)));
+        when(this.targetedUpdateRepository.updateVersioned(any(), any(), any(), any())).thenReturn(0);
+
+        assertThrows(NotFoundException.class, () -> this.sceneService.patch(movieUuid, uuid,
+                new MergePatch<>(new SceneCreationDto(null, 3.0, null, null, null, null), Set.of("lon")), null));
+        assertThat(this.applicationEvents.stream(SceneChangedEvent.class)).isEmpty();
     }
 
     @Test
@@ -153,72 +350,200 @@ class SceneServiceTest {
     }
 
     @Test
-    void shouldFindAllMovieScenes() throws LocaleNotFoundException {
-        when(this.sceneRepository.findAll()).thenReturn(
-                List.of(this.dummyData.getWolfSceneOne(), this.dummyData.getWolfSceneTwo()));
-        assertThat(this.sceneService.findAll("en").size()).isEqualTo(2);
-        verify(this.sceneRepository, times(1)).findAll();
+    @SuppressWarnings("unchecked")
+    void shouldSaveBatchRejectingUnknownMoviesAndExistingScenes() {
+        UUID wolfUuid = this.dummyData.getWolf().getUuid();
+        UUID unknownMovieUuid = UUID.randomUUID();
+        SceneCreationDto existing = this.dummyData.getWolfSceneOneCreationEnDto();
+        SceneCreationDto created = new SceneCreationDto(UUID.randomUUID(), 13.4, 52.5, "en", "Title", "Description");
+        SceneCreationDto orphan = new SceneCreationDto(UUID.randomUUID(), 13.4, 52.5, "en", "Title", "Description");
+        when(this.movieRepository.findAllByUuidIn(Set.of(wolfUuid, unknownMovieUuid))).thenReturn(
+                List.of(this.dummyData.getWolf()));
+        when(this.sceneRepository.findExistingUuids(List.of(existing.uuid(), created.uuid(), orphan.uuid())))
+                .thenReturn(Set.of(existing.uuid()));
+
+        Map<UUID, String> rejected = this.sceneService.saveBatch(
+                List.of(new SceneImportDto(wolfUuid, existing), new SceneImportDto(wolfUuid, created),
+                        new SceneImportDto(unknownMovieUuid, orphan)));
+
+        assertThat(rejected).isEqualTo(
+                Map.of(existing.uuid(), "UUID already in use", orphan.uuid(), "Movie not found"));
+        ArgumentCaptor<List<Scene>> captor = ArgumentCaptor.forClass(List.class);
+        verify(this.sceneRepository, times(1)).saveAll(captor.capture());
+        assertThat(captor.getValue()).hasSize(1);
+        assertThat(captor.getValue().getFirst().getUuid()).isEqualTo(created.uuid());
+        assertThat(captor.getValue().getFirst().getMovie()).isSameAs(this.dummyData.getWolf());
+        assertThat(this.applicationEvents.stream(SceneChangedEvent.class)
+                .flatMap(event -> event.savedScenes().stream())
+                .map(SceneLocation::uuid)).containsExactly(created.uuid());
+    }
+
+    @Test
+    void shouldStreamAllMovieScenes() {
+        when(this.sceneRepository.streamAll()).thenReturn(
+                Stream.of(this.dummyData.getWolfSceneOne(), this.dummyData.getWolfSceneTwo()));
+        List<SceneFlatDto> scenes = new ArrayList<>();
+        this.sceneService.streamAll("en", scenes::add);
+        assertThat(scenes).extracting(SceneFlatDto::uuid)
+                .containsExactly(this.dummyData.getWolfSceneOne().getUuid(),
+                        this.dummyData.getWolfSceneTwo().getUuid());
+        verify(this.sceneRepository, times(1)).streamAll();
+    }
+
+    @Test
+    void shouldStreamAllMovieScenesInFallbackLocale() {
+        when(this.sceneRepository.streamAll()).thenReturn(
+                Stream.of(this.dummyData.getWolfSceneOne(), this.dummyData.getWolfSceneTwo()));
+        List<SceneFlatDto> scenes = new ArrayList<>();
+        this.sceneService.streamAll("nl", scenes::add);
+        assertThat(scenes).extracting(SceneFlatDto::locale).containsExactly("en", "en");
+        verify(this.sceneRepository, times(1)).streamAll();
+    }
+
+    @Test
+    void shouldSkipMovieScenesWithoutLocalesWhileStreaming() {
+        Scene scene = new Scene();
+        scene.setUuid(UUID.randomUUID());
+        scene.setMovie(this.dummyData.getWolf());
+        when(this.sceneRepository.streamAll()).thenReturn(Stream.of(scene, this.dummyData.getWolfSceneOne()));
+        List<SceneFlatDto> scenes = new ArrayList<>();
+        this.sceneService.streamAll("en", scenes::add);
+        assertThat(scenes).containsExactly(this.dummyData.getWolfSceneOneFlatEnDto());
+        verify(this.sceneRepository, times(1)).streamAll();
+    }
+
+    @Test
+    void shouldStreamMovieScenesWithinBoundingBox() {
+        BoundingBox boundingBox = new BoundingBox(13, 52, 14, 53);
+        when(this.sceneSpatialIndex.search(boundingBox)).thenReturn(
+                List.of(new SceneLocation(1L, this.dummyData.getWolfSceneOne().getUuid(), 1L, 13.35943, 52.51263)));
+        when(this.sceneRepository.findAllWithMovieByIdIn(List.of(1L))).thenReturn(
+                List.of(this.dummyData.getWolfSceneOne()));
+        List<SceneFlatDto> scenes = new ArrayList<>();
+        this.sceneService.streamWithin(boundingBox, "en", scenes::add);
+        assertThat(scenes).containsExactly(this.dummyData.getWolfSceneOneFlatEnDto());
+        verify(this.sceneSpatialIndex, times(1)).search(boundingBox);
+        verify(this.sceneRepository, times(1)).findAllWithMovieByIdIn(List.of(1L));
     }
 
     @Test
-    void shouldFailFindAllMovieScenesDueTwoLocaleNotFound() {
-        when(this.sceneRepository.findAll()).thenReturn(
-                List.of(this.dummyData.getWolfSceneOne(), this.dummyData.getWolfSceneTwo()));
+    void shouldNotQueryScenesOutsideOfBoundingBox() {
+        BoundingBox boundingBox = new BoundingBox(13, 52, 14, 53);
+        when(this.sceneSpatialIndex.search(boundingBox)).thenReturn(List.of());
+        List<SceneFlatDto> scenes = new ArrayList<>();
+        this.sceneService.streamWithin(boundingBox, "en", scenes::add);
+        assertThat(scenes).isEmpty();
+        verify(this.sceneRepository, never()).findAllWithMovieByIdIn(any());
+    }
 
-        Exception exception = assertThrows(LocaleNotFoundException.class, () -> this.sceneService.findAll("nl"));
+    @Test
+    void shouldFindMovieScenesNearby() throws LocaleNotFoundException {
+        Scene sceneOne = this.dummyData.getWolfSceneOne();
+        Scene sceneTwo = this.dummyData.getWolfSceneTwo();
+        when(this.sceneSpatialIndex.nearest(52.5, 13.4, 2, 10)).thenReturn(
+                List.of(new SceneDistance(new SceneLocation(null, sceneTwo.getUuid(), null, 0, 0), 1.5),
+                        new SceneDistance(new SceneLocation(null, sceneOne.getUuid(), null, 0, 0), 3.2)));
+        when(this.sceneRepository.findAllWithMovieByIdIn(any())).thenReturn(List.of(sceneOne, sceneTwo));
+
+        List<SceneNearbyDto> nearby = this.sceneService.findNearby(52.5, 13.4, 2, 10, "de");
+        assertThat(nearby).extracting(SceneNearbyDto::distanceKm).containsExactly(1.5, 3.2);
+        assertThat(nearby.getFirst().scene().locale()).isEqualTo("de");
+        verify(this.sceneSpatialIndex, times(1)).nearest(52.5, 13.4, 2, 10);
+    }
+
+    @Test
+    void shouldFindTileFeatures() {
+        BoundingBox boundingBox = new BoundingBox(13, 52, 14, 53);
+        when(this.sceneSpatialIndex.search(boundingBox)).thenReturn(
+                List.of(new SceneLocation(1L, this.dummyData.getWolfSceneOne().getUuid(), 1L, 13.35943, 52.51263)));
+        when(this.sceneRepository.findAllWithMovieByIdIn(List.of(1L))).thenReturn(
+                List.of(this.dummyData.getWolfSceneOne()));
+        SceneTileFeatures features = this.sceneService.findTileFeatures(boundingBox, "nl");
+        assertThat(features.features()).containsExactly(
+                new SceneTileFeature(this.dummyData.getWolfSceneOne().getLon(),
+                        this.dummyData.getWolfSceneOne().getLat(), this.dummyData.getWolfSceneOne().getUuid(),
+                        this.dummyData.getWolf().getUuid(),
+                        this.dummyData.getWolfSceneOne().getLocalizedScenes().get("en").getTitle()));
+        assertThat(features.current()).isTrue();
+        verify(this.sceneRepository, times(1)).findAllWithMovieByIdIn(List.of(1L));
+    }
 
-        assertThat(exception.getMessage()).isEqualTo(
-                "Locale \"nl\" not found for scene %s".formatted(this.dummyData.getWolfSceneOne()));
+    @Test
+    void shouldFindOutdatedTileFeaturesOfLaggingReplica() {
+        BoundingBox boundingBox = new BoundingBox(13, 52, 14, 53);
+        when(this.sceneSpatialIndex.search(boundingBox)).thenReturn(
+                List.of(new SceneLocation(1L, this.dummyData.getWolfSceneOne().getUuid(), 1L, 13.35943, 52.51263),
+                        new SceneLocation(2L, this.dummyData.getWolfSceneTwo().getUuid(), 1L, 13.35, 52.51)));
+        // The second scene was written to the primary only
+        when(this.sceneRepository.findAllWithMovieByIdIn(List.of(1L, 2L))).thenReturn(
+                List.of(this.dummyData.getWolfSceneOne()));
+
+        assertThat(this.sceneService.findTileFeatures(boundingBox, "en").current()).isFalse();
+    }
 
-        verify(this.sceneRepository, times(1)).findAll();
+    @Test
+    void shouldFindClusters() {
+        BoundingBox boundingBox = new BoundingBox(-180, -90, 180, 90);
+        UUID sceneUuid = UUID.randomUUID();
+        when(this.sceneClusterIndex.getClusters(2, boundingBox)).thenReturn(
+                List.of(new SceneCluster(0.5, 0.3, 13.4, 52.5, 12, 4, null),
+                        new SceneCluster(0.9, 0.6, 151.2, -33.9, 1, null, sceneUuid)));
+        assertThat(this.sceneService.findClusters(2, boundingBox)).containsExactly(
+                new SceneClusterDto(13.4, 52.5, 12, 4, null), new SceneClusterDto(151.2, -33.9, 1, null, sceneUuid));
+        verify(this.sceneClusterIndex, times(1)).getClusters(2, boundingBox);
     }
 
     @Test
     void shouldDeleteByUuid() throws NotFoundException {
-        UUID uuid = UUID.randomUUID();
-        when(this.sceneRepository.existsByUuid(uuid)).thenReturn(true);
-        when(this.sceneRepository.existsByUuid(uuid)).thenReturn(true);
+        UUID uuid = this.dummyData.getWolfSceneOne().getUuid();
+        when(this.sceneRepository.findByUuid(uuid)).thenReturn(Optional.of(this.dummyData.getWolfSceneOne()));
         this.sceneService.deleteByUuid(uuid);
-        verify(this.sceneRepository, times(1)).existsByUuid(uuid);
+        verify(this.sceneRepository, times(1)).findByUuid(uuid);
         verify(this.sceneRepository, times(1)).deleteByUuid(uuid);
+        assertThat(this.applicationEvents.stream(SceneChangedEvent.class)).containsExactly(
+                SceneChangedEvent.deleted(List.of(SceneLocation.of(this.dummyData.getWolfSceneOne()))));
     }
 
     @Test
     void shouldFailDeleteByUuidAndShouldThrowException() {
         UUID uuid = UUID.randomUUID();
-        when(this.sceneRepository.existsByUuid(uuid)).thenReturn(false);
+        when(this.sceneRepository.findByUuid(uuid)).thenReturn(Optional.empty());
         Exception exception = assertThrows(NotFoundException.class, () -> this.sceneService.deleteByUuid(uuid));
         assertThat(exception.getMessage()).isEqualTo("Scene not found");
-        verify(this.sceneRepository, times(1)).existsByUuid(uuid);
+        verify(this.sceneRepository, times(1)).findByUuid(uuid);
+        verify(this.sceneRepository, never()).deleteByUuid(uuid);
     }
 
     @Test
     void shouldDeleteAllMovieScenes() {
-        doNothing().when(this.sceneRepository).deleteAll();
         this.sceneService.deleteAll();
-        verify(this.sceneRepository, times(1)).deleteAll();
+        InOrder inOrder = inOrder(this.sceneLocalizedRepository, this.sceneRepository);
+        inOrder.verify(this.sceneLocalizedRepository).unlinkAllDescriptions();
+        inOrder.verify(this.sceneLocalizedRepository).purgeAll();
+        inOrder.verify(this.sceneRepository).purgeAll();
+        verify(this.sceneRepository, never()).deleteAll();
     }
 
     @Test
     void shouldFindAllSceneOfMovie() throws NotFoundException, LocaleNotFoundException {
-        when(this.movieRepository.existsByUuid(this.dummyData.getWolf().getUuid())).thenReturn(true);
+        when(this.movieRepository.findVersionByUuid(this.dummyData.getWolf().getUuid())).thenReturn(Optional.of(0L));
         when(this.sceneRepository.findAllScenesOfMovieUuid(this.dummyData.getWolf().getUuid())).thenReturn(
                 Optional.of(List.of(this.dummyData.getWolfSceneOne())));
 
-        assertThat(this.sceneService.findAllScenesOfMovie(this.dummyData.getWolf().getUuid(), "en")).isEqualTo(
-                List.of(this.dummyData.getWolfSceneOneFlatEnDto()));
+        assertThat(this.sceneService.findAllScenesOfMovie(this.dummyData.getWolf().getUuid(), "en").body())
+                .isEqualTo(List.of(this.dummyData.getWolfSceneOneFlatEnDto()));
 
-        verify(this.movieRepository, times(1)).existsByUuid(this.dummyData.getWolf().getUuid());
+        verify(this.movieRepository, times(1)).findVersionByUuid(this.dummyData.getWolf().getUuid());
         verify(this.sceneRepository, times(1)).findAllScenesOfMovieUuid(this.dummyData.getWolf().getUuid());
     }
 
     @Test
     void shouldFailFindAllSceneOfMovieDueToNotFoundMovie() throws NotFoundException, LocaleNotFoundException {
-        when(this.movieRepository.existsByUuid(this.dummyData.getWolf().getUuid())).thenReturn(false);
+        when(this.movieRepository.findVersionByUuid(this.dummyData.getWolf().getUuid())).thenReturn(Optional.empty());
 
         Exception exception = assertThrows(NotFoundException.class,
                 () -> this.sceneService.findAllScenesOfMovie(this.dummyData.getWolf().getUuid(), "en"));
 
-        verify(this.movieRepository, times(1)).existsByUuid(this.dummyData.getWolf().getUuid());
+        verify(this.movieRepository, times(1)).findVersionByUuid(this.dummyData.getWolf().getUuid());
     }
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.tile;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MvtEncoderTest {
+
+    @Test
+    void shouldEncodePointLayer() {
+        MvtEncoder encoder = new MvtEncoder("scenes", 4096);
+        Map<String, String> first = new LinkedHashMap<>();
+        first.put("uuid", "a");
+        first.put("title", "Berlin");
+        encoder.addPoint(10, 20, first);
+        Map<String, String> second = new LinkedHashMap<>();
+        second.put("uuid", "b");
+        second.put("title", "Berlin");
+        second.put("movieUuid", null);
+        encoder.addPoint(-5, 4100, second);
+
+        ByteBuffer tile = ByteBuffer.wrap(encoder.encode());
+        assertThat(readVarint(tile)).isEqualTo(3 << 3 | 2);
+        ByteBuffer layer = readMessage(tile);
+        assertThat(tile.hasRemaining()).isFalse();
+
+        List<List<Long>> features = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        long version = 0;
+        long extent = 0;
+        String name = null;
+        while (layer.hasRemaining()) {
+            long tag = readVarint(layer);
+            switch ((int) (tag >> 3)) {
+                case 15 -> version = readVarint(layer);
+                case 1 -> name = readString(layer);
+                case 2 -> features.add(readFeature(readMessage(layer)));
+                case 3 -> keys.add(readString(layer));
+                case 4 -> {
+                    ByteBuffer value = readMessage(layer);
+                    assertThat(readVarint(value)).isEqualTo(1 << 3 | 2);
+                    values.add(readString(value));
+                }
+                case 5 -> extent = readVarint(layer);
+                default -> throw new AssertionError("Unexpected field " + (tag >> 3));
+            }
+        }
+
+        assertThat(version).isEqualTo(2);
+        assertThat(name).isEqualTo("scenes");
+        assertThat(extent).isEqualTo(4096);
+        assertThat(keys).containsExactly("uuid", "title");
+        assertThat(values).containsExactly("a", "Berlin", "b");
+        // Tags, type and the MoveTo command with zigzag encoded coordinates
+        assertThat(features).containsExactly(List.of(0L, 0L, 1L, 1L, 1L, 9L, 20L, 40L),
+                List.of(0L, 2L, 1L, 1L, 1L, 9L, 9L, 8200L));
+    }
+
+    private static List<Long> readFeature(ByteBuffer feature) {
+        List<Long> numbers = new ArrayList<>();
+        while (feature.hasRemaining()) {
+            long tag = readVarint(feature);
+            if ((tag & 0x7) == 2) {
+                ByteBuffer packed = readMessage(feature);
+                while (packed.hasRemaining()) {
+                    numbers.add(readVarint(packed));
+                }
+            } else {
+                numbers.add(readVarint(feature));
+            }
+        }
+        return numbers;
+    }
+
+    private static ByteBuffer readMessage(ByteBuffer buffer) {
+        int length = (int) readVarint(buffer);
+        ByteBuffer message = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return message;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        ByteBuffer message = readMessage(buffer);
+        byte[] bytes = new byte[message.remaining()];
+        message.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.tile;
+
+import de.dittwald.cinemap.repository.scene.event.SceneChangedEvent;
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
+import de.dittwald.cinemap.repository.scene.service.SceneService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@WebMvcTest(SceneTileService.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class SceneTileServiceTest {
+
+    @Autowired
+    private SceneTileService sceneTileService;
+
+    @MockBean
+    private SceneService sceneService;
+
+    private SceneLocation berlin;
+
+    @BeforeEach
+    void setUp() {
+        this.berlin = new SceneLocation(1L, UUID.randomUUID(), 1L, 13.35943, 52.51263);
+        when(this.sceneService.findTileFeatures(any(), any())).thenReturn(features(true));
+    }
+
+    private SceneTileFeatures features(boolean current) {
+        return new SceneTileFeatures(List.of(new SceneTileFeature(this.berlin.lon(), this.berlin.lat(),
+                this.berlin.uuid(), UUID.randomUUID(), "Brandenburger Tor")), current);
+    }
+
+    @Test
+    void shouldRenderAndCacheTile() {
+        byte[] tile = this.sceneTileService.getTile(10, 549, 335, "en");
+        assertThat(tile).isNotEmpty();
+        assertThat(this.sceneTileService.getTile(10, 549, 335, "en")).isSameAs(tile);
+        verify(this.sceneService, times(1)).findTileFeatures(any(), eq("en"));
+
+        this.sceneTileService.getTile(10, 549, 335, "de");
+        verify(this.sceneService, times(1)).findTileFeatures(any(), eq("de"));
+    }
+
+    @Test
+    void shouldRenderButNotCacheTileOfOutdatedScenes() {
+        when(this.sceneService.findTileFeatures(any(), any())).thenReturn(features(false));
+
+        byte[] tile = this.sceneTileService.getTile(10, 549, 335, "en");
+        assertThat(tile).isNotEmpty();
+        assertThat(this.sceneTileService.getTile(10, 549, 335, "en")).isNotSameAs(tile);
+        verify(this.sceneService, times(2)).findTileFeatures(any(), eq("en"));
+    }
+
+    @Test
+    void shouldQueryBufferedTileBounds() {
+        this.sceneTileService.getTile(0, 0, 0, "en");
+        verify(this.sceneService, times(1)).findTileFeatures(
+                argThat(boundingBox -> boundingBox.minLon() == -180 && boundingBox.maxLat() > 85), eq("en"));
+    }
+
+    @Test
+    void shouldOnlyEvictTilesOfChangedScenes() {
+        byte[] berlinTile = this.sceneTileService.getTile(10, 549, 335, "en");
+        byte[] otherTile = this.sceneTileService.getTile(10, 0, 0, "en");
+
+        this.sceneTileService.onSceneChanged(SceneChangedEvent.saved(this.berlin));
+
+        assertThat(this.sceneTileService.getTile(10, 549, 335, "en")).isNotSameAs(berlinTile);
+        assertThat(this.sceneTileService.getTile(10, 0, 0, "en")).isSameAs(otherTile);
+        verify(this.sceneService, times(3)).findTileFeatures(any(), eq("en"));
+    }
+
+    @Test
+    void shouldEvictTilesOfPreviousLocationOfMovedScenes() {
+        byte[] berlinTile = this.sceneTileService.getTile(10, 549, 335, "en");
+
+        this.sceneTileService.onSceneChanged(SceneChangedEvent.moved(this.berlin,
+                new SceneLocation(1L, this.berlin.uuid(), 1L, 2.35, 48.85), 1));
+
+        assertThat(this.sceneTileService.getTile(10, 549, 335, "en")).isNotSameAs(berlinTile);
+    }
+
+    @Test
+    void shouldFailDueToInvalidTile() {
+        Exception exception =
+                assertThrows(IllegalArgumentException.class, () -> this.sceneTileService.getTile(2, 4, 0, "en"));
+        assertThat(exception.getMessage()).isEqualTo("Invalid tile given");
+        assertThrows(IllegalArgumentException.class, () -> this.sceneTileService.getTile(23, 0, 0, "en"));
+        assertThrows(IllegalArgumentException.class, () -> this.sceneTileService.getTile(1, 0, -1, "en"));
+        verify(this.sceneService, never()).findTileFeatures(any(), any());
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BoundingBoxTest {
+
+    @Test
+    void shouldParseBoundingBox() {
+        assertThat(BoundingBox.parse("13.0, 52.0,14.0,53.0")).isEqualTo(new BoundingBox(13, 52, 14, 53));
+    }
+
+    @Test
+    void shouldSplitBoundingBoxCrossingTheAntimeridian() {
+        BoundingBox boundingBox = BoundingBox.parse("170,-20,-170,20");
+        assertThat(boundingBox.crossesAntimeridian()).isTrue();
+        assertThat(boundingBox.toRectangles()).hasSize(2);
+        assertThat(BoundingBox.parse("-170,-20,170,20").toRectangles()).hasSize(1);
+    }
+
+    @Test
+    void shouldFailParseDueToInvalidBoundingBox() {
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> BoundingBox.parse("1,2,3"));
+        assertThat(exception.getMessage()).isEqualTo("Invalid bounding box given");
+        assertThrows(IllegalArgumentException.class, () -> BoundingBox.parse("a,2,3,4"));
+        assertThrows(IllegalArgumentException.class, () -> BoundingBox.parse("0,10,1,5"));
+        assertThrows(IllegalArgumentException.class, () -> BoundingBox.parse("0,-91,1,5"));
+        assertThrows(IllegalArgumentException.class, () -> BoundingBox.parse("-181,0,1,5"));
+    }
+}
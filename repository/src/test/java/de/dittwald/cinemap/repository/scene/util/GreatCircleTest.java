@@ -0,0 +1,52 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.scene.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class GreatCircleTest {
+
+    @Test
+    void shouldCalculateDistance() {
+        // Berlin to Paris
+        assertThat(GreatCircle.distanceKm(52.52, 13.405, 48.8566, 2.3522)).isCloseTo(877.5, within(1.0));
+        assertThat(GreatCircle.distanceKm(0, 179.5, 0, -179.5)).isCloseTo(111.2, within(0.1));
+    }
+
+    @Test
+    void shouldCalculateDistanceToRectangle() {
+        assertThat(GreatCircle.distanceToRectangleKm(52.5, 13.4, 13, 52, 14, 53)).isZero();
+        assertThat(GreatCircle.distanceToRectangleKm(51, 13.4, 13, 52, 14, 53)).isCloseTo(111.2, within(0.1));
+        assertThat(GreatCircle.distanceToRectangleKm(0, -179.5, 170, -10, 179.5, 10)).isCloseTo(111.2, within(0.1));
+    }
+
+    @Test
+    void shouldNeverExceedDistanceToAnyPointInsideRectangle() {
+        double[][] points = {{60, -20}, {-45, 100}, {80, 170}, {-85, -170}, {10, 14}};
+        for (double[] point : points) {
+            double bound = GreatCircle.distanceToRectangleKm(point[0], point[1], 10, 40, 30, 70);
+            for (double lat = 40; lat <= 70; lat += 2.5) {
+                for (double lon = 10; lon <= 30; lon += 2.5) {
+                    assertThat(bound).isLessThanOrEqualTo(GreatCircle.distanceKm(point[0], point[1], lat, lon) + 1e-9);
+                }
+            }
+        }
+    }
+}
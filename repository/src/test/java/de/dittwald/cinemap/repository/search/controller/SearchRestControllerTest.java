@@ -0,0 +1,72 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.search.controller;
+
+import de.dittwald.cinemap.repository.search.dto.SearchHitDto;
+import de.dittwald.cinemap.repository.search.index.SearchDocument;
+import de.dittwald.cinemap.repository.search.index.SearchIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(SearchRestController.class)
+@AutoConfigureMockMvc
+class SearchRestControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private SearchIndex searchIndex;
+
+    @Test
+    void shouldSearch() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        when(this.searchIndex.search("wolf", "de", 20)).thenReturn(List.of(
+                new SearchHitDto(SearchDocument.MOVIE, uuid, uuid, "Der mit dem Wolf tanzt",
+                        "Der mit dem <em>Wolf</em> tanzt", "Leutnant John Dunbar", 1.5f)));
+
+        this.mockMvc.perform(get("/api/v1/search?q=wolf&lang=de"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].type", is("movie")))
+                .andExpect(jsonPath("$[0].uuid", is(uuid.toString())))
+                .andExpect(jsonPath("$[0].highlightedTitle", is("Der mit dem <em>Wolf</em> tanzt")));
+        verify(this.searchIndex, times(1)).search("wolf", "de", 20);
+    }
+
+    @Test
+    void shouldFailSearchDueToInvalidParameters() throws Exception {
+        this.mockMvc.perform(get("/api/v1/search").param("q", " ")).andExpect(status().isBadRequest());
+        this.mockMvc.perform(get("/api/v1/search")).andExpect(status().isBadRequest());
+        this.mockMvc.perform(get("/api/v1/search?q=wolf&lang=deu")).andExpect(status().isBadRequest());
+        this.mockMvc.perform(get("/api/v1/search?q=wolf&limit=101")).andExpect(status().isBadRequest());
+        verify(this.searchIndex, never()).search(any(), any(), anyInt());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.search.index;
+
+import de.dittwald.cinemap.repository.search.service.SearchDocumentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.function.ThrowingConsumer;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures the search latency at 100k movies in 30 locales. Not part of the regular test run, start it with
+ * {@code mvn test -Dtest=SearchIndexBenchmark}.
+ */
+class SearchIndexBenchmark {
+
+    private static final int MOVIES = 100_000;
+    private static final List<String> LOCALES =
+            List.of("ar", "bg", "ca", "cs", "da", "de", "el", "en", "es", "et", "eu", "fa", "fi", "fr", "ga", "gl",
+                    "hi", "hu", "id", "it", "ja", "lt", "nl", "no", "pt", "ro", "ru", "sv", "tr", "vi");
+    private static final int VOCABULARY = 50_000;
+    private static final int QUERIES = 1_000;
+
+    @Test
+    void benchmarkSearch() throws Exception {
+        Random random = new Random(42);
+        SearchDocumentService searchDocumentService = mock(SearchDocumentService.class);
+        doAnswer(invocation -> {
+            ThrowingConsumer<SearchDocument> consumer = invocation.getArgument(0);
+            for (int i = 0; i < MOVIES; i++) {
+                UUID uuid = UUID.randomUUID();
+                for (String locale : LOCALES) {
+                    consumer.accept(new SearchDocument(SearchDocument.MOVIE, uuid, uuid, locale,
+                            text(random, 3), text(random, 6), text(random, 40)));
+                }
+            }
+            return null;
+        }).when(searchDocumentService).forEachDocument(any());
+        SearchIndex searchIndex = new SearchIndex(searchDocumentService);
+
+        long start = System.nanoTime();
+        searchIndex.search("warmup", "en", 1);
+        System.out.printf("Loaded %d localizations in %d ms%n", MOVIES * LOCALES.size(),
+                (System.nanoTime() - start) / 1_000_000);
+
+        String[] queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = text(random, 1 + random.nextInt(2));
+        }
+
+        // Warm up
+        for (String query : queries) {
+            searchIndex.search(query, LOCALES.get(random.nextInt(LOCALES.size())), 20);
+        }
+
+        start = System.nanoTime();
+        long hits = 0;
+        for (String query : queries) {
+            hits += searchIndex.search(query, LOCALES.get(random.nextInt(LOCALES.size())), 20).size();
+        }
+        System.out.printf("%.2f ms per query with highlighting, %.1f hits on average%n",
+                (System.nanoTime() - start) / 1_000_000.0 / QUERIES, (double) hits / QUERIES);
+        searchIndex.close();
+    }
+
+    // Zipf-like word distribution, so frequent words match many localizations
+    private static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            int word = (int) Math.pow(VOCABULARY, random.nextDouble());
+            text.append(i > 0 ? " " : "").append("w").append(Integer.toString(word, 36));
+        }
+        return text.toString();
+    }
+}
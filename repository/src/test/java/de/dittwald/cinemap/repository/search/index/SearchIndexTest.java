@@ -0,0 +1,185 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.search.index;
+
+import de.dittwald.cinemap.repository.movie.event.MovieChangedEvent;
+import de.dittwald.cinemap.repository.movie.event.MoviesCreatedEvent;
+import de.dittwald.cinemap.repository.scene.event.SceneChangedEvent;
+import de.dittwald.cinemap.repository.scene.index.SceneLocation;
+import de.dittwald.cinemap.repository.search.dto.SearchHitDto;
+import de.dittwald.cinemap.repository.search.service.SearchDocumentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.util.function.ThrowingConsumer;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@WebMvcTest(SearchIndex.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class SearchIndexTest {
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @MockBean
+    private SearchDocumentService searchDocumentService;
+
+    private UUID wolfUuid;
+    private UUID nobodyUuid;
+    private SearchDocument wolfEn;
+    private SearchDocument wolfDe;
+    private SearchDocument nobodyEn;
+    private SearchDocument wolfSceneEn;
+
+    @BeforeEach
+    void setUp() {
+        this.wolfUuid = UUID.randomUUID();
+        this.nobodyUuid = UUID.randomUUID();
+        this.wolfEn = new SearchDocument(SearchDocument.MOVIE, this.wolfUuid, this.wolfUuid, "en",
+                "Dances with Wolves", "Inside everyone is a frontier waiting to be discovered.",
+                "Lt. John Dunbar is dubbed a hero after he accidentally leads Union troops to a victory.");
+        this.wolfDe = new SearchDocument(SearchDocument.MOVIE, this.wolfUuid, this.wolfUuid, "de",
+                "Der mit dem Wolf tanzt", null, "Leutnant John Dunbar freundet sich mit den Wölfen der Prärie an.");
+        this.nobodyEn = new SearchDocument(SearchDocument.MOVIE, this.nobodyUuid, this.nobodyUuid, "en",
+                "My Name is Nobody", null, "A young gunfighter idolizes an aging gunman.");
+        this.wolfSceneEn = new SearchDocument(SearchDocument.SCENE, UUID.randomUUID(), this.wolfUuid, "en",
+                "Fort Sedgwick", "", "Dunbar dances around the fire with the wolves.");
+
+        doAnswer(invocation -> {
+            ThrowingConsumer<SearchDocument> consumer = invocation.getArgument(0);
+            for (SearchDocument document : List.of(this.wolfEn, this.wolfDe, this.nobodyEn, this.wolfSceneEn)) {
+                consumer.accept(document);
+            }
+            return null;
+        }).when(this.searchDocumentService).forEachDocument(any());
+    }
+
+    @Test
+    void shouldFindLocalizationsByStem() {
+        List<SearchHitDto> hits = this.searchIndex.search("dancing wolves", "en", 10);
+
+        assertThat(hits).extracting(SearchHitDto::uuid).containsExactly(this.wolfUuid, this.wolfSceneEn.uuid());
+        assertThat(hits.getFirst().type()).isEqualTo(SearchDocument.MOVIE);
+        assertThat(hits.getFirst().title()).isEqualTo("Dances with Wolves");
+        assertThat(hits.getFirst().highlightedTitle()).isEqualTo("<em>Dances</em> with <em>Wolves</em>");
+        assertThat(hits.getLast().type()).isEqualTo(SearchDocument.SCENE);
+        assertThat(hits.getLast().movieUuid()).isEqualTo(this.wolfUuid);
+        assertThat(hits.getLast().highlightedText()).contains("<em>dances</em>", "<em>wolves</em>");
+        verify(this.searchDocumentService, times(1)).forEachDocument(any());
+    }
+
+    @Test
+    void shouldFindLocalizationsByGermanStem() {
+        List<SearchHitDto> hits = this.searchIndex.search("wolf", "de", 10);
+
+        assertThat(hits).extracting(SearchHitDto::uuid).containsExactly(this.wolfUuid);
+        assertThat(hits.getFirst().highlightedText()).contains("<em>Wölfen</em>");
+    }
+
+    @Test
+    void shouldOnlySearchLocalizationsOfGivenLocale() {
+        assertThat(this.searchIndex.search("Wolves", "de", 10)).isEmpty();
+        assertThat(this.searchIndex.search("Wolves", "fr", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldRequireAllTermsAndSupportExclusions() {
+        assertThat(this.searchIndex.search("dunbar gunfighter", "en", 10)).isEmpty();
+        assertThat(this.searchIndex.search("dunbar -fire", "en", 10)).extracting(SearchHitDto::uuid)
+                .containsExactly(this.wolfUuid);
+    }
+
+    @Test
+    void shouldRankTitleMatchesFirst() {
+        List<SearchHitDto> hits = this.searchIndex.search("wolves", "en", 10);
+        assertThat(hits).extracting(SearchHitDto::uuid).containsExactly(this.wolfUuid, this.wolfSceneEn.uuid());
+        assertThat(hits.getFirst().score()).isGreaterThan(hits.getLast().score());
+    }
+
+    @Test
+    void shouldApplyMovieChanges() throws Exception {
+        this.searchIndex.search("nobody", "en", 10);
+        SearchDocument renamed = new SearchDocument(SearchDocument.MOVIE, this.nobodyUuid, this.nobodyUuid, "en",
+                "They Call Me Trinity", null, "A lazy gunfighter.");
+        when(this.searchDocumentService.findMovieDocuments(this.nobodyUuid)).thenReturn(List.of(renamed));
+
+        this.searchIndex.onMovieChanged(MovieChangedEvent.changed(this.nobodyUuid, 1));
+
+        assertThat(this.searchIndex.search("nobody", "en", 10)).isEmpty();
+        assertThat(this.searchIndex.search("trinity", "en", 10)).extracting(SearchHitDto::uuid)
+                .containsExactly(this.nobodyUuid);
+    }
+
+    @Test
+    void shouldAddCreatedMovies() throws Exception {
+        this.searchIndex.search("trinity", "en", 10);
+        UUID trinityUuid = UUID.randomUUID();
+        SearchDocument trinityEn = new SearchDocument(SearchDocument.MOVIE, trinityUuid, trinityUuid, "en",
+                "They Call Me Trinity", null, "A lazy gunfighter.");
+        when(this.searchDocumentService.findMovieDocumentsIn(List.of(trinityUuid))).thenReturn(List.of(trinityEn));
+
+        this.searchIndex.onMoviesCreated(new MoviesCreatedEvent(List.of(trinityUuid)));
+
+        assertThat(this.searchIndex.search("trinity", "en", 10)).extracting(SearchHitDto::uuid)
+                .containsExactly(trinityUuid);
+    }
+
+    @Test
+    void shouldAddImportedScenes() throws Exception {
+        this.searchIndex.search("lake", "en", 10);
+        SearchDocument lakeScene = new SearchDocument(SearchDocument.SCENE, UUID.randomUUID(), this.wolfUuid, "en",
+                "Lake", null, "Dunbar bathes in the lake.");
+        SceneLocation lake = new SceneLocation(2L, lakeScene.uuid(), 1L, 13.4, 52.5);
+        SceneLocation empty = new SceneLocation(3L, UUID.randomUUID(), 1L, 13.4, 52.5);
+        when(this.searchDocumentService.findSceneDocumentsIn(any())).thenReturn(List.of(lakeScene));
+
+        this.searchIndex.onSceneChanged(SceneChangedEvent.saved(List.of(lake, empty)));
+
+        assertThat(this.searchIndex.search("lake", "en", 10)).extracting(SearchHitDto::uuid)
+                .containsExactly(lakeScene.uuid());
+        verify(this.searchDocumentService, never()).findSceneDocuments(any());
+    }
+
+    @Test
+    void shouldApplySceneChanges() throws Exception {
+        this.searchIndex.search("fire", "en", 10);
+
+        this.searchIndex.onSceneChanged(SceneChangedEvent.deleted(
+                List.of(new SceneLocation(1L, this.wolfSceneEn.uuid(), 1L, 13.35943, 52.51263))));
+        assertThat(this.searchIndex.search("fire", "en", 10)).isEmpty();
+
+        this.searchIndex.onMovieChanged(MovieChangedEvent.deletedAll());
+        assertThat(this.searchIndex.search("wolves", "en", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldIgnoreChangesBeforeLoad() throws Exception {
+        this.searchIndex.onMovieChanged(MovieChangedEvent.changed(this.nobodyUuid, 1));
+
+        assertThat(this.searchIndex.search("nobody", "en", 10)).hasSize(1);
+        verify(this.searchDocumentService, never()).findMovieDocuments(any());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.tmdb;
+
+import de.dittwald.cinemap.repository.config.Properties;
+import de.dittwald.cinemap.repository.config.WebClientConfig;
+import de.dittwald.cinemap.repository.exceptions.TmdbReadException;
+import de.dittwald.cinemap.repository.movie.entity.Movie;
+import de.dittwald.cinemap.repository.movie.util.LocalizedMovieDtoMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@WebMvcTest({TmdbClient.class, TmdbRateLimiter.class, TmdbResponseCache.class, WebClientConfig.class,
+        Properties.class})
+@TestPropertySource(properties = {"de.cinemap.repository.tmdb.timeout=500ms", "de.cinemap.repository.tmdb.retries=2"})
+class TmdbClientTest {
+
+    private static TmdbStandIn tmdb;
+
+    @Autowired
+    private TmdbClient tmdbClient;
+
+    @BeforeAll
+    static void startTmdb() throws IOException {
+        tmdb = new TmdbStandIn(200);
+    }
+
+    @AfterAll
+    static void stopTmdb() {
+        tmdb.close();
+    }
+
+    @DynamicPropertySource
+    static void tmdbProperties(DynamicPropertyRegistry registry) {
+        registry.add("de.cinemap.repository.tmdb.api.base-url", tmdb::baseUrl);
+    }
+
+    @BeforeEach
+    void setUp() {
+        tmdb.reset();
+    }
+
+    @Test
+    void shouldFetchDetailsTranslationsAndImagesConcurrently() {
+        Movie movie = this.tmdbClient.fetchMovieDetails(1).block();
+
+        assertThat(movie.getTmdbId()).isEqualTo(1);
+        assertThat(movie.getImdbId()).isEqualTo("tt1");
+        assertThat(movie.getReleaseYear()).isEqualTo(1990);
+        assertThat(LocalizedMovieDtoMapper.toGenreNames(movie.getGenres(), "en")).isEqualTo(Map.of(18, "Drama"));
+        assertThat(movie.getLocalizedMovies().get("en").getTitle()).isEqualTo("Movie 1");
+        assertThat(movie.getLocalizedMovies().get("en").getPosterUrl().toString()).endsWith("/w300/poster.jpg");
+        assertThat(movie.getLocalizedMovies().get("de").getTitle()).isEqualTo("Film 1");
+        assertThat(movie.getLocalizedMovies().get("de").getPosterUrl().toString()).endsWith("/w300/plakat.jpg");
+        assertThat(tmdb.requests()).isEqualTo(3);
+        assertThat(tmdb.maxInFlight()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldRetryTransientFailures() {
+        tmdb.failNext("/3/movie/2/translations", 2);
+
+        Movie movie = this.tmdbClient.fetchMovieDetails(2).block();
+
+        assertThat(movie.getLocalizedMovies()).containsOnlyKeys("en", "de");
+        assertThat(tmdb.requests()).isEqualTo(5);
+    }
+
+    @Test
+    void shouldNotRetryUnknownMovies() {
+        assertThat(failure(404)).isInstanceOf(WebClientResponseException.NotFound.class);
+        assertThat(tmdb.requests()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldFailAfterRetriesAreExhausted() {
+        assertThat(failure(408)).isInstanceOf(TimeoutException.class);
+        assertThat(failure(500)).isInstanceOf(WebClientResponseException.InternalServerError.class);
+    }
+
+    @Test
+    void shouldWrapFailuresOfBlockingCalls() {
+        TmdbReadException exception = assertThrows(TmdbReadException.class, () -> this.tmdbClient.getMovieDetails(404));
+        assertThat(exception.getMessage()).startsWith("404 Not Found");
+    }
+
+    private Throwable failure(int tmdbId) {
+        RuntimeException exception =
+                assertThrows(RuntimeException.class, () -> this.tmdbClient.fetchMovieDetails(tmdbId).block());
+        return Exceptions.unwrap(exception);
+    }
+}
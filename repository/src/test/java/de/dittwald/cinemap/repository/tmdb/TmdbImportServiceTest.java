@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.tmdb;
+
+import de.dittwald.cinemap.repository.config.Properties;
+import de.dittwald.cinemap.repository.config.WebClientConfig;
+import de.dittwald.cinemap.repository.movie.entity.Movie;
+import de.dittwald.cinemap.repository.movie.service.MovieService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the bulk import against a local HTTP server standing in for TMDB.
+ */
+@WebMvcTest({TmdbImportService.class, TmdbClient.class, TmdbRateLimiter.class, TmdbResponseCache.class,
+        WebClientConfig.class, Properties.class})
+@TestPropertySource(properties = {"de.cinemap.repository.tmdb.concurrency=2",
+        "de.cinemap.repository.tmdb.batch-size=2", "de.cinemap.repository.tmdb.retries=1"})
+class TmdbImportServiceTest {
+
+    private static TmdbStandIn tmdb;
+
+    @Autowired
+    private TmdbImportService tmdbImportService;
+
+    @MockBean
+    private MovieService movieService;
+
+    @BeforeAll
+    static void startTmdb() throws IOException {
+        tmdb = new TmdbStandIn(20);
+    }
+
+    @AfterAll
+    static void stopTmdb() {
+        tmdb.close();
+    }
+
+    @DynamicPropertySource
+    static void tmdbProperties(DynamicPropertyRegistry registry) {
+        registry.add("de.cinemap.repository.tmdb.api.base-url", tmdb::baseUrl);
+    }
+
+    @BeforeEach
+    void setUp() {
+        tmdb.reset();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldImportMoviesConcurrentlyAndReportEveryId() {
+        when(this.movieService.findExistingTmdbIds(List.of(1, 2, 404, 3, 4, 500))).thenReturn(Set.of(3));
+        when(this.movieService.saveTmdbBatch(any())).thenReturn(Set.of());
+
+        List<TmdbImportResultDto> results = this.tmdbImportService.importMovies(List.of(1, 2, 404, 3, 2, 4, 500));
+
+        assertThat(results).extracting(TmdbImportResultDto::tmdbId).containsExactly(1, 2, 404, 3, 4, 500);
+        assertThat(results).extracting(TmdbImportResultDto::status)
+                .containsExactly(TmdbImportStatus.IMPORTED, TmdbImportStatus.IMPORTED, TmdbImportStatus.NOT_FOUND,
+                        TmdbImportStatus.EXISTING, TmdbImportStatus.IMPORTED, TmdbImportStatus.FAILED);
+        assertThat(results.getFirst().uuid()).isNotNull();
+        // Two movies at a time, each fetching details, translations and images concurrently
+        assertThat(tmdb.maxInFlight()).isLessThanOrEqualTo(6);
+
+        ArgumentCaptor<List<Movie>> captor = ArgumentCaptor.forClass(List.class);
+        verify(this.movieService, times(2)).saveTmdbBatch(captor.capture());
+        List<Movie> saved = new ArrayList<>();
+        captor.getAllValues().forEach(saved::addAll);
+        assertThat(saved).extracting(Movie::getTmdbId).containsExactlyInAnyOrder(1, 2, 4);
+        assertThat(saved.getFirst().getLocalizedMovies().get("en").getTitle()).startsWith("Movie ");
+    }
+
+    @Test
+    void shouldReportMoviesImportedInTheMeantimeAndFailedBatches() {
+        when(this.movieService.findExistingTmdbIds(any())).thenReturn(Set.of());
+        when(this.movieService.saveTmdbBatch(any())).thenReturn(Set.of(1))
+                .thenThrow(new DataIntegrityViolationException("Failed"));
+
+        List<TmdbImportResultDto> results = this.tmdbImportService.importMovies(List.of(1, 2, 3));
+
+        assertThat(results).extracting(TmdbImportResultDto::status).containsExactlyInAnyOrder(
+                TmdbImportStatus.EXISTING, TmdbImportStatus.IMPORTED, TmdbImportStatus.FAILED);
+    }
+}
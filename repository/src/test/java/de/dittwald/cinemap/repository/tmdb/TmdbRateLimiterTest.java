@@ -0,0 +1,68 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.tmdb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TmdbRateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void shouldServeBurstWithoutDelay() {
+        TmdbRateLimiter rateLimiter = new TmdbRateLimiter(10, 3, this.clock::get);
+
+        assertThat(rateLimiter.reserve()).isZero();
+        assertThat(rateLimiter.reserve()).isZero();
+        assertThat(rateLimiter.reserve()).isZero();
+    }
+
+    @Test
+    void shouldQueueRequestsBeyondBurst() {
+        TmdbRateLimiter rateLimiter = new TmdbRateLimiter(10, 1, this.clock::get);
+
+        assertThat(rateLimiter.reserve()).isZero();
+        assertThat(rateLimiter.reserve()).isEqualTo(SECOND / 10);
+        assertThat(rateLimiter.reserve()).isEqualTo(2 * SECOND / 10);
+    }
+
+    @Test
+    void shouldRefillUpToBurst() {
+        TmdbRateLimiter rateLimiter = new TmdbRateLimiter(10, 2, this.clock::get);
+        rateLimiter.reserve();
+        rateLimiter.reserve();
+
+        this.clock.addAndGet(10 * SECOND);
+
+        assertThat(rateLimiter.reserve()).isZero();
+        assertThat(rateLimiter.reserve()).isZero();
+        assertThat(rateLimiter.reserve()).isEqualTo(SECOND / 10);
+    }
+
+    @Test
+    void shouldRejectInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new TmdbRateLimiter(0, 1, this.clock::get));
+        assertThrows(IllegalArgumentException.class, () -> new TmdbRateLimiter(1, 0, this.clock::get));
+    }
+}
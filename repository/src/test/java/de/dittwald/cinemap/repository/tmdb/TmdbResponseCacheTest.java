@@ -0,0 +1,186 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.tmdb;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TmdbResponseCacheTest {
+
+    private static final Duration TTL = Duration.ofHours(1);
+
+    private static TmdbStandIn tmdb;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+
+    @TempDir
+    private Path directory;
+
+    @BeforeAll
+    static void startTmdb() throws IOException {
+        tmdb = new TmdbStandIn(0);
+    }
+
+    @AfterAll
+    static void stopTmdb() {
+        tmdb.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        tmdb.reset();
+    }
+
+    @Test
+    void shouldServeFreshEntriesFromDisk() throws IOException {
+        TmdbResponseCache cache = cache(Long.MAX_VALUE, false);
+
+        String body = get(cache, "1?language=en-US");
+        assertThat(get(cache, "1?language=en-US")).isEqualTo(body);
+        assertThat(tmdb.requests()).isEqualTo(1);
+
+        get(cache, "1?language=de-DE");
+        assertThat(tmdb.requests()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRevalidateStaleEntries() throws IOException {
+        TmdbResponseCache cache = cache(Long.MAX_VALUE, false);
+        String body = get(cache, "1/translations");
+
+        this.clock.addAndGet(TTL.toMillis());
+        assertThat(get(cache, "1/translations")).isEqualTo(body);
+        assertThat(tmdb.requests()).isEqualTo(2);
+        assertThat(tmdb.notModified()).isEqualTo(1);
+
+        // Revalidation makes the entry fresh again
+        assertThat(get(cache, "1/translations")).isEqualTo(body);
+        assertThat(tmdb.requests()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRevalidateFreshEntriesOnRequest() throws IOException {
+        TmdbResponseCache cache = cache(Long.MAX_VALUE, false);
+        String body = get(cache, "1");
+
+        assertThat(WebClient.builder()
+                .baseUrl(tmdb.baseUrl())
+                .filter(cache)
+                .build()
+                .get()
+                .uri("1")
+                .attribute(TmdbResponseCache.REVALIDATE, true)
+                .retrieve()
+                .bodyToMono(String.class)
+                .block()).isEqualTo(body);
+        assertThat(tmdb.requests()).isEqualTo(2);
+        assertThat(tmdb.notModified()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCacheErrors() throws IOException {
+        TmdbResponseCache cache = cache(Long.MAX_VALUE, false);
+
+        assertThrows(WebClientResponseException.NotFound.class, () -> get(cache, "404"));
+        assertThrows(WebClientResponseException.NotFound.class, () -> get(cache, "404"));
+        assertThat(tmdb.requests()).isEqualTo(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntriesAcrossRestarts() throws IOException {
+        TmdbResponseCache unbounded = cache(Long.MAX_VALUE, false);
+        get(unbounded, "1");
+        this.clock.incrementAndGet();
+        get(unbounded, "2");
+        long entrySize = unbounded.size() / 2;
+
+        TmdbResponseCache bounded = cache(entrySize * 5 / 2, false);
+        assertThat(bounded.size()).isEqualTo(entrySize * 2);
+        get(bounded, "1");
+        get(bounded, "3");
+        assertThat(tmdb.requests()).isEqualTo(3);
+        assertThat(bounded.size()).isEqualTo(entrySize * 2);
+        assertThat(entries()).isEqualTo(2);
+
+        get(bounded, "1");
+        assertThat(tmdb.requests()).isEqualTo(3);
+        get(bounded, "2");
+        assertThat(tmdb.requests()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldOnlyReplayInOfflineMode() throws IOException {
+        String body = get(cache(Long.MAX_VALUE, false), "1/images");
+        tmdb.reset();
+
+        TmdbResponseCache offline = cache(Long.MAX_VALUE, true);
+        this.clock.addAndGet(TTL.toMillis() * 10);
+        assertThat(get(offline, "1/images")).isEqualTo(body);
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> get(offline, "2/images"));
+        assertThat(exception.getMessage()).contains("not cached");
+        assertThat(tmdb.requests()).isZero();
+    }
+
+    @Test
+    void shouldPassThroughWithoutDirectory() throws IOException {
+        TmdbResponseCache cache = new TmdbResponseCache(null, TTL, Long.MAX_VALUE, false, this.clock::get);
+
+        get(cache, "1");
+        get(cache, "1");
+        assertThat(tmdb.requests()).isEqualTo(2);
+        assertThrows(IllegalArgumentException.class,
+                () -> new TmdbResponseCache(null, TTL, Long.MAX_VALUE, true, this.clock::get));
+    }
+
+    private TmdbResponseCache cache(long maxBytes, boolean offline) throws IOException {
+        return new TmdbResponseCache(this.directory, TTL, maxBytes, offline, this.clock::get);
+    }
+
+    private long entries() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.count();
+        }
+    }
+
+    private static String get(TmdbResponseCache cache, String uri) {
+        return WebClient.builder()
+                .baseUrl(tmdb.baseUrl())
+                .filter(cache)
+                .build()
+                .get()
+                .uri(uri)
+                .retrieve()
+                .bodyToMono(String.class)
+                .block();
+    }
+}
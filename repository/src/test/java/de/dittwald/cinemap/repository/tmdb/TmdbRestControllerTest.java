@@ -22,9 +22,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.List;
+import java.util.UUID;
+
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(TmdbRestController.class)
@@ -37,12 +44,35 @@ class TmdbRestControllerTest {
     @MockBean
     private MovieService movieService;
 
+    @MockBean
+    private TmdbImportService tmdbImportService;
+
     @Test
     void shouldAccessTmdbEndpoint() throws Exception {
         int dunePart2TmdbId = 693134;
         this.mockMvc.perform(put("/api/v1/tmdb/%s".formatted(dunePart2TmdbId))).andExpect(status().isNoContent());
     }
 
+    @Test
+    void shouldImportTmdbIds() throws Exception {
+        when(this.tmdbImportService.importMovies(List.of(693134, 1))).thenReturn(
+                List.of(new TmdbImportResultDto(693134, TmdbImportStatus.IMPORTED, UUID.randomUUID(), null),
+                        new TmdbImportResultDto(1, TmdbImportStatus.NOT_FOUND, null, "Movie not found on TMDB")));
+
+        this.mockMvc.perform(put("/api/v1/tmdb:batch").contentType(MediaType.APPLICATION_JSON).content("[693134, 1]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("IMPORTED"))
+                .andExpect(jsonPath("$[1].tmdbId").value(1))
+                .andExpect(jsonPath("$[1].status").value("NOT_FOUND"));
+    }
+
+    @Test
+    void shouldRejectEmptyTmdbIds() throws Exception {
+        this.mockMvc.perform(put("/api/v1/tmdb:batch").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(this.tmdbImportService);
+    }
+
     @Test
     void shouldThrowIntExceptionWhenTryToCreateMovieViaTmdbId() throws Exception {
         this.mockMvc.perform(put("/api/v1/tmdb/3147483647")).andExpect(status().isBadRequest());
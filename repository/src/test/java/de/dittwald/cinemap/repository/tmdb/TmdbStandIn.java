@@ -0,0 +1,182 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.tmdb;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Local HTTP server standing in for the TMDB movie API. Id 404 is unknown, id 500 always fails and id 408 never
+ * answers in time. Every other id is a movie with an English and a German translation. Successful responses carry an
+ * ETag and are answered with 304 if the request names it in If-None-Match. The change feed serves the configured
+ * changed ids two per page.
+ */
+class TmdbStandIn implements AutoCloseable {
+
+    private static final Pattern PATH = Pattern.compile("/3/movie/(\\d+)(/translations|/images)?");
+    private static final Pattern PAGE = Pattern.compile(".*page=(\\d+).*");
+    private static final int CHANGES_PAGE_SIZE = 2;
+
+    private final HttpServer server;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final Map<String, AtomicInteger> failures = new ConcurrentHashMap<>();
+    private final List<String> changeQueries = new CopyOnWriteArrayList<>();
+    private volatile List<Integer> changedIds = List.of();
+    private final long latencyMillis;
+
+    TmdbStandIn(long latencyMillis) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.setExecutor(Executors.newFixedThreadPool(16));
+        this.server.createContext("/3/movie/", this::respond);
+        this.server.start();
+    }
+
+    String baseUrl() {
+        return "http://localhost:%d/3/movie/".formatted(this.server.getAddress().getPort());
+    }
+
+    // The next requests of the given path fail with 503
+    void failNext(String path, int times) {
+        this.failures.put(path, new AtomicInteger(times));
+    }
+
+    void changedIds(List<Integer> changedIds) {
+        this.changedIds = List.copyOf(changedIds);
+    }
+
+    List<String> changeQueries() {
+        return this.changeQueries;
+    }
+
+    int maxInFlight() {
+        return this.maxInFlight.get();
+    }
+
+    int requests() {
+        return this.requests.get();
+    }
+
+    int notModified() {
+        return this.notModified.get();
+    }
+
+    void reset() {
+        this.maxInFlight.set(0);
+        this.requests.set(0);
+        this.notModified.set(0);
+        this.failures.clear();
+        this.changeQueries.clear();
+        this.changedIds = List.of();
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        this.requests.incrementAndGet();
+        this.maxInFlight.accumulateAndGet(this.inFlight.incrementAndGet(), Math::max);
+        try {
+            String path = exchange.getRequestURI().getPath();
+            Matcher matcher = PATH.matcher(path);
+            int id = matcher.matches() ? Integer.parseInt(matcher.group(1)) : 404;
+            Thread.sleep(id == 408 ? 2_000 : this.latencyMillis);
+            AtomicInteger pathFailures = this.failures.get(path);
+            if (pathFailures != null && pathFailures.getAndDecrement() > 0) {
+                send(exchange, 503, "{}");
+            } else if (path.equals("/3/movie/changes")) {
+                sendChanges(exchange);
+            } else if (id == 404) {
+                send(exchange, 404, "{\"success\": false, \"status_code\": 34}");
+            } else if (id == 500) {
+                send(exchange, 500, "{}");
+            } else if (matcher.group(2) == null) {
+                send(exchange, 200, """
+                        {"id": %d, "imdb_id": "tt%d", "release_date": "1990-11-09", "title": "Movie %d",
+                         "overview": "Overview", "tagline": "Tagline", "poster_path": "/poster.jpg",
+                         "genres": [{"id": 18, "name": "Drama"}]}""".formatted(id, id, id));
+            } else if (matcher.group(2).equals("/translations")) {
+                send(exchange, 200, """
+                        {"id": %d, "translations": [{"iso_639_1": "en", "data": {"title": "Movie %d"}},
+                                                    {"iso_639_1": "de", "data": {"title": "Film %d"}}]}"""
+                        .formatted(id, id, id));
+            } else {
+                send(exchange, 200, """
+                        {"id": %d, "posters": [{"iso_639_1": "de", "file_path": "/plakat.jpg"}]}"""
+                        .formatted(id));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private void sendChanges(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+        this.changeQueries.add(query);
+        Matcher matcher = PAGE.matcher(query);
+        int page = matcher.matches() ? Integer.parseInt(matcher.group(1)) : 1;
+        List<Integer> ids = this.changedIds;
+        int totalPages = Math.max(1, (ids.size() + CHANGES_PAGE_SIZE - 1) / CHANGES_PAGE_SIZE);
+        String results = ids.stream()
+                .skip((long) (page - 1) * CHANGES_PAGE_SIZE)
+                .limit(CHANGES_PAGE_SIZE)
+                .map("{\"id\": %d, \"adult\": false}"::formatted)
+                .collect(Collectors.joining(", "));
+        send(exchange, 200, "{\"results\": [%s], \"page\": %d, \"total_pages\": %d}".formatted(results, page,
+                totalPages));
+    }
+
+    private void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        if (status == 200) {
+            String eTag = "\"%08x\"".formatted(body.hashCode());
+            exchange.getResponseHeaders().add("ETag", eTag);
+            if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                this.notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+}
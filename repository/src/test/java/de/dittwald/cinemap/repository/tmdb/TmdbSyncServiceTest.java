@@ -0,0 +1,206 @@
+/*
+ * Copyright 2024 Benjamin Dittwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package de.dittwald.cinemap.repository.tmdb;
+
+import de.dittwald.cinemap.repository.config.Properties;
+import de.dittwald.cinemap.repository.config.WebClientConfig;
+import de.dittwald.cinemap.repository.movie.entity.Movie;
+import de.dittwald.cinemap.repository.movie.service.MovieService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@WebMvcTest({TmdbClient.class, TmdbRateLimiter.class, TmdbResponseCache.class, WebClientConfig.class,
+        Properties.class})
+@TestPropertySource(properties = "de.cinemap.repository.tmdb.retries=0")
+class TmdbSyncServiceTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-10-17T03:00:00Z"), ZoneOffset.UTC);
+    private static final LocalDate TODAY = LocalDate.now(CLOCK);
+
+    private static TmdbStandIn tmdb;
+
+    @Autowired
+    private TmdbClient tmdbClient;
+
+    @MockBean
+    private MovieService movieService;
+
+    @MockBean
+    private TmdbSyncStateRepository tmdbSyncStateRepository;
+
+    private TmdbSyncService tmdbSyncService;
+
+    private final Map<String, TmdbSyncState> states = new HashMap<>();
+
+    private final Set<Integer> storedTmdbIds = new HashSet<>();
+
+    private final List<Integer> appliedTmdbIds = new CopyOnWriteArrayList<>();
+
+    @BeforeAll
+    static void startTmdb() throws IOException {
+        tmdb = new TmdbStandIn(0);
+    }
+
+    @AfterAll
+    static void stopTmdb() {
+        tmdb.close();
+    }
+
+    @DynamicPropertySource
+    static void tmdbProperties(DynamicPropertyRegistry registry) {
+        registry.add("de.cinemap.repository.tmdb.api.base-url", tmdb::baseUrl);
+    }
+
+    @BeforeEach
+    void setUp() {
+        tmdb.reset();
+        this.tmdbSyncService = new TmdbSyncService(this.tmdbClient, this.movieService, this.tmdbSyncStateRepository, 4,
+                CLOCK);
+
+        when(this.tmdbSyncStateRepository.findById(any())).thenAnswer(
+                invocation -> Optional.ofNullable(this.states.get(invocation.<String>getArgument(0))).map(this::copy));
+        when(this.tmdbSyncStateRepository.save(any())).thenAnswer(invocation -> {
+            TmdbSyncState state = invocation.getArgument(0);
+            this.states.put(state.getFeed(), copy(state));
+            return state;
+        });
+        when(this.movieService.findExistingTmdbIds(any())).thenAnswer(
+                invocation -> invocation.<Collection<Integer>>getArgument(0)
+                        .stream()
+                        .filter(this.storedTmdbIds::contains)
+                        .collect(Collectors.toSet()));
+        when(this.movieService.applyTmdbChanges(any())).thenAnswer(invocation -> {
+            List<Movie> movies = invocation.getArgument(0);
+            movies.forEach(movie -> this.appliedTmdbIds.add(movie.getTmdbId()));
+            return movies.size();
+        });
+    }
+
+    @Test
+    void shouldSyncChangesOfStoredMoviesSinceYesterdayOnFirstRun() {
+        tmdb.changedIds(List.of(1, 2, 3, 4, 5));
+        this.storedTmdbIds.addAll(List.of(1, 2, 4));
+
+        assertThat(this.tmdbSyncService.sync()).isEqualTo(3);
+
+        assertThat(this.appliedTmdbIds).containsExactlyInAnyOrder(1, 2, 4);
+        assertThat(tmdb.changeQueries()).containsExactly(query(TODAY.minusDays(1), TODAY, 1),
+                query(TODAY.minusDays(1), TODAY, 2), query(TODAY.minusDays(1), TODAY, 3));
+        assertState(TODAY, null, 0);
+    }
+
+    @Test
+    void shouldResumeInterruptedWindowWithNextPage() {
+        tmdb.changedIds(List.of(1, 2, 3, 4, 5));
+        this.storedTmdbIds.addAll(List.of(1, 2, 4));
+        TmdbSyncState state = new TmdbSyncState(TmdbSyncService.MOVIE_CHANGES, TODAY.minusDays(3));
+        state.setWindowEnd(TODAY);
+        state.setPage(1);
+        this.states.put(state.getFeed(), state);
+
+        assertThat(this.tmdbSyncService.sync()).isEqualTo(1);
+
+        assertThat(this.appliedTmdbIds).containsExactly(4);
+        assertThat(tmdb.changeQueries()).containsExactly(query(TODAY.minusDays(3), TODAY, 2),
+                query(TODAY.minusDays(3), TODAY, 3));
+        assertState(TODAY, null, 0);
+    }
+
+    @Test
+    void shouldCatchUpInWindowsTmdbAccepts() {
+        this.states.put(TmdbSyncService.MOVIE_CHANGES,
+                new TmdbSyncState(TmdbSyncService.MOVIE_CHANGES, TODAY.minusDays(20)));
+
+        assertThat(this.tmdbSyncService.sync()).isZero();
+
+        assertThat(tmdb.changeQueries()).containsExactly(query(TODAY.minusDays(20), TODAY.minusDays(6), 1),
+                query(TODAY.minusDays(6), TODAY, 1));
+        assertState(TODAY, null, 0);
+    }
+
+    @Test
+    void shouldKeepProgressWhenRefreshingFails() {
+        tmdb.changedIds(List.of(1, 2, 500, 4));
+        this.storedTmdbIds.addAll(List.of(1, 500));
+
+        assertThrows(RuntimeException.class, () -> this.tmdbSyncService.sync());
+        assertState(TODAY.minusDays(1), TODAY, 1);
+
+        tmdb.reset();
+        tmdb.changedIds(List.of(1, 2, 3, 4));
+        assertThat(this.tmdbSyncService.sync()).isZero();
+
+        assertThat(tmdb.changeQueries()).containsExactly(query(TODAY.minusDays(1), TODAY, 2));
+        assertState(TODAY, null, 0);
+    }
+
+    @Test
+    void shouldSkipMoviesGoneFromTmdb() {
+        tmdb.changedIds(List.of(1, 404));
+        this.storedTmdbIds.addAll(List.of(1, 404));
+
+        assertThat(this.tmdbSyncService.sync()).isEqualTo(1);
+
+        assertThat(this.appliedTmdbIds).containsExactly(1);
+    }
+
+    private void assertState(LocalDate watermark, LocalDate windowEnd, int page) {
+        TmdbSyncState state = this.states.get(TmdbSyncService.MOVIE_CHANGES);
+        assertThat(state.getWatermark()).isEqualTo(watermark);
+        assertThat(state.getWindowEnd()).isEqualTo(windowEnd);
+        assertThat(state.getPage()).isEqualTo(page);
+    }
+
+    private TmdbSyncState copy(TmdbSyncState state) {
+        TmdbSyncState copy = new TmdbSyncState(state.getFeed(), state.getWatermark());
+        copy.setWindowEnd(state.getWindowEnd());
+        copy.setPage(state.getPage());
+        return copy;
+    }
+
+    private static String query(LocalDate startDate, LocalDate endDate, int page) {
+        return "start_date=%s&end_date=%s&page=%d".formatted(startDate, endDate, page);
+    }
+}
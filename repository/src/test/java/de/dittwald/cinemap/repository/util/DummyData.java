@@ -16,12 +16,17 @@
 
 package de.dittwald.cinemap.repository.util;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.dittwald.cinemap.repository.movie.dto.MovieFlatDto;
+import de.dittwald.cinemap.repository.movie.dto.MovieFlatProjection;
 import de.dittwald.cinemap.repository.movie.dto.MovieLocalizationEntryDto;
 import de.dittwald.cinemap.repository.movie.dto.MovieLocalizationDto;
+import de.dittwald.cinemap.repository.movie.entity.Genre;
 import de.dittwald.cinemap.repository.movie.entity.LocalizedId;
 import de.dittwald.cinemap.repository.movie.entity.LocalizedMovie;
 import de.dittwald.cinemap.repository.movie.entity.Movie;
+import de.dittwald.cinemap.repository.movie.util.LocalizedMovieDtoMapper;
 import de.dittwald.cinemap.repository.scene.dto.SceneCreationDto;
 import de.dittwald.cinemap.repository.scene.dto.SceneFlatDto;
 import de.dittwald.cinemap.repository.scene.dto.SceneLocalizationDto;
@@ -44,10 +49,13 @@ public class DummyData {
 
     public DummyData() throws URISyntaxException, MalformedURLException {
 
+        // Genres of both movies, they have to exist before a movie links them
+        this.genres = List.of(new Genre(80, "en", "western"), new Genre(85, "en", "thriller"));
+
         // Wolf
         this.wolf = new Movie();
         this.wolf.setUuid(UUID.fromString("aa7acd67-4052-421d-a63f-90440c683e6d"));
-        this.wolf.setGenres(Map.of(85, "thriller", 80, "western"));
+        this.wolf.setGenres(LocalizedMovieDtoMapper.toGenres(Map.of(85, "thriller", 80, "western"), "en"));
         this.wolf.setReleaseYear(1970);
         this.wolf.setTmdbId(1051896);
         this.wolf.setImdbId("imdbId");
@@ -115,7 +123,7 @@ public class DummyData {
         // Nobody
         this.nobody = new Movie();
         this.nobody.setUuid(UUID.randomUUID());
-        this.nobody.setGenres(Map.of(80, "western", 85, "thriller"));
+        this.nobody.setGenres(LocalizedMovieDtoMapper.toGenres(Map.of(80, "western", 85, "thriller"), "en"));
         this.nobody.setReleaseYear(1970);
         this.nobody.setTmdbId(505);
         this.nobody.setImdbId("imdbId");
@@ -139,13 +147,15 @@ public class DummyData {
         this.nobody.getLocalizedMovies().put("de", nobodyLmDe);
 
         // Localized wolfDto
-        this.wolfFlatEnDto = new MovieFlatDto(wolf.getUuid(), wolf.getTmdbId(), wolf.getReleaseYear(), wolf.getGenres(),
-                wolf.getImdbId(), "en", wolf.getLocalizedMovies().get("en").getTitle(),
+        this.wolfFlatEnDto = new MovieFlatDto(wolf.getUuid(), wolf.getTmdbId(), wolf.getReleaseYear(),
+                LocalizedMovieDtoMapper.toGenreNames(wolf.getGenres(), "en"), wolf.getImdbId(), "en",
+                wolf.getLocalizedMovies().get("en").getTitle(),
                 wolf.getLocalizedMovies().get("en").getOverview(), wolf.getLocalizedMovies().get("en").getTagline(),
                 wolf.getLocalizedMovies().get("en").getPosterUrl());
 
-        this.wolfFlatDeDto = new MovieFlatDto(wolf.getUuid(), wolf.getTmdbId(), wolf.getReleaseYear(), wolf.getGenres(),
-                wolf.getImdbId(), "de", wolf.getLocalizedMovies().get("de").getTitle(),
+        this.wolfFlatDeDto = new MovieFlatDto(wolf.getUuid(), wolf.getTmdbId(), wolf.getReleaseYear(),
+                LocalizedMovieDtoMapper.toGenreNames(wolf.getGenres(), "de"), wolf.getImdbId(), "de",
+                wolf.getLocalizedMovies().get("de").getTitle(),
                 wolf.getLocalizedMovies().get("de").getOverview(), wolf.getLocalizedMovies().get("de").getTagline(),
                 wolf.getLocalizedMovies().get("de").getPosterUrl());
 
@@ -156,15 +166,17 @@ public class DummyData {
 
         // Localized nobodyDto
         this.nobodyFlatEnDto =
-                new MovieFlatDto(nobody.getUuid(), nobody.getTmdbId(), nobody.getReleaseYear(), nobody.getGenres(),
-                        nobody.getImdbId(), "en", nobody.getLocalizedMovies().get("en").getTitle(),
+                new MovieFlatDto(nobody.getUuid(), nobody.getTmdbId(), nobody.getReleaseYear(),
+                        LocalizedMovieDtoMapper.toGenreNames(nobody.getGenres(), "en"), nobody.getImdbId(), "en",
+                        nobody.getLocalizedMovies().get("en").getTitle(),
                         nobody.getLocalizedMovies().get("en").getOverview(),
                         nobody.getLocalizedMovies().get("en").getTagline(),
                         nobody.getLocalizedMovies().get("en").getPosterUrl());
 
         this.nobodyFlatDeDto =
-                new MovieFlatDto(nobody.getUuid(), nobody.getTmdbId(), nobody.getReleaseYear(), nobody.getGenres(),
-                        nobody.getImdbId(), "de", nobody.getLocalizedMovies().get("de").getTitle(),
+                new MovieFlatDto(nobody.getUuid(), nobody.getTmdbId(), nobody.getReleaseYear(),
+                        LocalizedMovieDtoMapper.toGenreNames(nobody.getGenres(), "de"), nobody.getImdbId(), "de",
+                        nobody.getLocalizedMovies().get("de").getTitle(),
                         nobody.getLocalizedMovies().get("de").getOverview(),
                         nobody.getLocalizedMovies().get("de").getTagline(),
                         nobody.getLocalizedMovies().get("de").getPosterUrl());
@@ -202,6 +214,8 @@ public class DummyData {
                         this.wolfSceneOne.getLocalizedScenes().get("en").getDescription());
     }
 
+    private List<Genre> genres;
+
     private Movie wolf;
     private MovieFlatDto wolfFlatEnDto;
     private MovieFlatDto wolfFlatDeDto;
@@ -225,6 +239,67 @@ public class DummyData {
     private LocalizedMovie nobodyLocalizedMovieEn;
     private LocalizedMovie nobodyLocalizedMovieDe;
 
+    public MovieFlatProjection getFlatProjection(Movie movie, long id, String locale) {
+        LocalizedMovie localizedMovie = movie.getLocalizedMovies().get(locale);
+        String genres;
+        try {
+            genres = new ObjectMapper().writeValueAsString(
+                    LocalizedMovieDtoMapper.toGenreNames(movie.getGenres(), locale));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return new MovieFlatProjection() {
+            public Long getId() {
+                return id;
+            }
+
+            public UUID getUuid() {
+                return movie.getUuid();
+            }
+
+            public Long getVersion() {
+                return movie.getPersistedVersion();
+            }
+
+            public Integer getTmdbId() {
+                return movie.getTmdbId();
+            }
+
+            public Integer getReleaseYear() {
+                return movie.getReleaseYear();
+            }
+
+            public String getGenres() {
+                return genres;
+            }
+
+            public String getImdbId() {
+                return movie.getImdbId();
+            }
+
+            public String getLocale() {
+                return localizedMovie != null ? locale : null;
+            }
+
+            public String getTitle() {
+                return localizedMovie != null ? localizedMovie.getTitle() : null;
+            }
+
+            public String getOverview() {
+                return localizedMovie != null ? localizedMovie.getOverview() : null;
+            }
+
+            public String getTagline() {
+                return localizedMovie != null ? localizedMovie.getTagline() : null;
+            }
+
+            public String getPosterUrl() {
+                return localizedMovie != null ? localizedMovie.getPosterUrl().toString() : null;
+            }
+        };
+    }
+
     public String getValidWolfEnDtoJson = """
             {
                 "uuid":"aa7acd67-4052-421d-a63f-90440c683e6d",
@@ -15,20 +15,41 @@
  */
 
 
+-- GENRE
+
+CREATE TABLE genres
+(
+    id      INTEGER NOT NULL,
+    version BIGINT,
+    CONSTRAINT pk_genres PRIMARY KEY (id)
+);
+
+CREATE TABLE genre_names
+(
+    genre_id INTEGER      NOT NULL,
+    locale   VARCHAR(255) NOT NULL,
+    name     VARCHAR(255),
+    CONSTRAINT pk_genre_names PRIMARY KEY (genre_id, locale)
+);
+
+ALTER TABLE genre_names
+    ADD CONSTRAINT fk_genre_names_on_genre FOREIGN KEY (genre_id) REFERENCES genres (id);
+
 -- MOVIE
 
 CREATE TABLE genres_number_mapping
 (
     number_id BIGINT  NOT NULL,
-    genres    VARCHAR(255),
     genres_id INTEGER NOT NULL,
     CONSTRAINT pk_genres_number_mapping PRIMARY KEY (number_id, genres_id)
 );
 
+CREATE SEQUENCE movies_seq START WITH 1 INCREMENT BY 50;
+
 CREATE TABLE movies
 (
-    id           BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
-    uuid         UUID                                    NOT NULL,
+    id           BIGINT NOT NULL,
+    uuid         UUID   NOT NULL,
     version      BIGINT,
     tmdb_id      INTEGER,
     release_year INTEGER,
@@ -39,15 +60,21 @@ CREATE TABLE movies
 ALTER TABLE movies
     ADD CONSTRAINT uc_movies_uuid UNIQUE (uuid);
 
+CREATE INDEX idx_movies_tmdb_id ON movies (tmdb_id);
+
 ALTER TABLE genres_number_mapping
     ADD CONSTRAINT fk_genres_number_mapping_on_movie FOREIGN KEY (number_id) REFERENCES movies (id);
 
+ALTER TABLE genres_number_mapping
+    ADD CONSTRAINT fk_genres_number_mapping_on_genre FOREIGN KEY (genres_id) REFERENCES genres (id);
+
 -- LOCALIZED MOVIE
 
 CREATE TABLE localized_movie
 (
     title      VARCHAR(255),
     overview   OID,
+    overview_text TEXT,
     tagline    VARCHAR(255),
     poster_url VARCHAR(255),
     id         BIGINT       NOT NULL,
@@ -58,16 +85,20 @@ CREATE TABLE localized_movie
 ALTER TABLE localized_movie
     ADD CONSTRAINT FK_LOCALIZEDMOVIE_ON_ID FOREIGN KEY (id) REFERENCES movies (id);
 
+CREATE INDEX idx_localized_movie_locale_title ON localized_movie (locale, title, id);
+
 -- SCENE
 
+CREATE SEQUENCE scenes_seq START WITH 1 INCREMENT BY 50;
+
 CREATE TABLE scenes
 (
-    id       BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
-    uuid     UUID                                    NOT NULL,
-    lon      DOUBLE PRECISION                        NOT NULL,
-    lat      DOUBLE PRECISION                        NOT NULL,
+    id       BIGINT           NOT NULL,
+    uuid     UUID             NOT NULL,
+    lon      DOUBLE PRECISION NOT NULL,
+    lat      DOUBLE PRECISION NOT NULL,
     version  BIGINT,
-    movie_id BIGINT                                  NOT NULL,
+    movie_id BIGINT           NOT NULL,
     CONSTRAINT pk_scenes PRIMARY KEY (id)
 );
 
@@ -83,6 +114,7 @@ CREATE TABLE localized_scene
 (
     title       VARCHAR(50),
     description OID,
+    description_text TEXT,
     id          BIGINT       NOT NULL,
     locale      VARCHAR(255) NOT NULL,
     CONSTRAINT pk_localizedscene PRIMARY KEY (id, locale)
@@ -90,3 +122,14 @@ CREATE TABLE localized_scene
 
 ALTER TABLE localized_scene
     ADD CONSTRAINT FK_LOCALIZEDSCENE_ON_ID FOREIGN KEY (id) REFERENCES scenes (id);
+
+-- TMDB SYNC STATE
+
+CREATE TABLE tmdb_sync_state
+(
+    feed       VARCHAR(50) NOT NULL,
+    watermark  DATE        NOT NULL,
+    window_end DATE,
+    page       INTEGER     NOT NULL,
+    CONSTRAINT pk_tmdb_sync_state PRIMARY KEY (feed)
+);